@@ -0,0 +1,87 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.AvailabilityResponse;
+import com.example.demo.service.AvailabilitySearch;
+import com.example.demo.service.BookingValidator;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Availability over a year-long window of a 300-room hotel that is about 90% booked, answered from
+ * the night index, next to counting the same free rooms night by night with {@code isFree}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AvailabilityBenchmark {
+
+  private static final int ROOMS = 300;
+
+  private RoomInventory roomInventory;
+  private AvailabilitySearch availabilitySearch;
+
+  @Setup
+  public void setUp() {
+    List<Room> rooms = new ArrayList<>();
+    for (int i = 0; i < ROOMS; i++) {
+      rooms.add(new Room(100 + i, 1 + i % 4));
+    }
+    roomInventory = new RoomInventory(rooms, BenchmarkFixtures.FIRST_DAY, 1096);
+    availabilitySearch = new AvailabilitySearch(new BookingValidator(BenchmarkFixtures.CLOCK), roomInventory);
+
+    SplittableRandom random = new SplittableRandom(42);
+    for (int i = 0; i < ROOMS * 1096 / 3; i++) {
+      int day = BenchmarkFixtures.FIRST_DAY + random.nextInt(1090);
+      roomInventory.reserve(1 + random.nextInt(4), StaySlots.checkInSlot(day, 13 * 60),
+              StaySlots.checkOutSlot(day + 1 + random.nextInt(5), 12 * 60));
+    }
+  }
+
+  @Benchmark
+  public ResponseEntity<AvailabilityResponse> searchYear() {
+    return availabilitySearch.search("01/01/2024", "01/01/2025", "2", 3, 10);
+  }
+
+  @Benchmark
+  public int countFreeRoomsWithIndex() {
+    int total = 0;
+    for (int day = BenchmarkFixtures.FIRST_DAY; day < BenchmarkFixtures.FIRST_DAY + 366; day++) {
+      total += roomInventory.freeRooms(2, day);
+    }
+    return total;
+  }
+
+  @Benchmark
+  public int countFreeRoomsByScanning() {
+    int total = 0;
+    for (int day = BenchmarkFixtures.FIRST_DAY; day < BenchmarkFixtures.FIRST_DAY + 366; day++) {
+      for (int room = 0; room < ROOMS; room++) {
+        if (roomInventory.getRoom(room).getCapacity() >= 2
+                && roomInventory.isFree(room, StaySlots.checkInSlot(day, 13 * 60), StaySlots.checkOutSlot(day + 1, 12 * 60))) {
+          total++;
+        }
+      }
+    }
+    return total;
+  }
+}
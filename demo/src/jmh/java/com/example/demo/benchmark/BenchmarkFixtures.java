@@ -0,0 +1,65 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.BookingRequest;
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.BookingValidator;
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import com.example.demo.service.journal.NoopBookingJournal;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Shared setup for the booking benchmarks. The clock is pinned so the request dates below stay
+ * in the future no matter when the benchmarks are run.
+ */
+final class BenchmarkFixtures {
+
+  static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+  static final int FIRST_DAY = (int) LocalDate.now(CLOCK).toEpochDay();
+
+  /** Slots claimed by {@link #validRequest()}. */
+  static final int VALID_FIRST_SLOT =
+          StaySlots.checkInSlot((int) LocalDate.of(2024, 10, 10).toEpochDay(), 13 * 60);
+  static final int VALID_END_SLOT =
+          StaySlots.checkOutSlot((int) LocalDate.of(2024, 10, 12).toEpochDay(), 12 * 60);
+
+  private BenchmarkFixtures() {
+  }
+
+  /** A single double room, so benchmarks that book can release it again by index 0. */
+  static RoomInventory newRoomInventory() {
+    return new RoomInventory(List.of(new Room(101, 2)), FIRST_DAY, 1096);
+  }
+
+  static HotelBookingSystem newHotelBookingSystem(RoomInventory roomInventory) {
+    return new HotelBookingSystem(new BookingValidator(CLOCK), roomInventory, new NoopBookingJournal());
+  }
+
+  static HotelBookingSystem newHotelBookingSystem(RoomInventory roomInventory, BookingMetrics metrics) {
+    return new HotelBookingSystem(new BookingValidator(CLOCK, metrics), roomInventory, new NoopBookingJournal(),
+            metrics);
+  }
+
+  static BookingRequest request(String guests, String checkInDate, String checkOutDate,
+                                String checkInTime, String checkOutTime) {
+    return BookingRequest.builder()
+            .numberOfGuests(guests)
+            .checkInDate(checkInDate)
+            .checkOutDate(checkOutDate)
+            .checkInTime(checkInTime)
+            .checkOutTime(checkOutTime)
+            .build();
+  }
+
+  static BookingRequest validRequest() {
+    return request("2", "10/10/2024", "12/10/2024", "13:00", "12:00");
+  }
+}
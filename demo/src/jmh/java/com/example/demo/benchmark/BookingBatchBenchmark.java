@@ -0,0 +1,76 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.BookingBatchProcessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.demo.benchmark.BenchmarkFixtures.request;
+
+/**
+ * {@link BookingBatchProcessor} on a newline-delimited batch of {@value #BATCH_SIZE} one-night
+ * stays on consecutive dates. Scores are per booking, so they compare directly with
+ * {@link BookingJsonBenchmark#success()}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookingBatchBenchmark {
+
+  private static final int BATCH_SIZE = 1000;
+
+  private ObjectMapper objectMapper;
+  private BookingBatchProcessor bookingBatchProcessor;
+  private byte[] batch;
+  private ByteArrayOutputStream out;
+
+  @Setup
+  public void setUp() throws IOException {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    DateTimeFormatter format = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    LocalDate first = LocalDate.now(BenchmarkFixtures.CLOCK);
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      String checkIn = first.plusDays(i).format(format);
+      String checkOut = first.plusDays(i + 1).format(format);
+      body.append(objectMapper.writeValueAsString(request("2", checkIn, checkOut, "13:00", "12:00"))).append('\n');
+    }
+    batch = body.toString().getBytes(StandardCharsets.UTF_8);
+    out = new ByteArrayOutputStream(batch.length * 2);
+  }
+
+  @Setup(Level.Invocation)
+  public void emptyHotel() {
+    bookingBatchProcessor = new BookingBatchProcessor(
+            BenchmarkFixtures.newHotelBookingSystem(BenchmarkFixtures.newRoomInventory()), objectMapper);
+    out.reset();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public int batch() throws IOException {
+    return bookingBatchProcessor.process(new ByteArrayInputStream(batch), out);
+  }
+}
@@ -0,0 +1,110 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.BookingRequest;
+import com.example.demo.dto.BookingResponse;
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.inventory.RoomInventory;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.example.demo.benchmark.BenchmarkFixtures.request;
+
+/**
+ * {@link HotelBookingSystem#processBooking} on the success path and on every rejection branch.
+ * Run with {@code mvn -Pjmh test-compile exec:exec}; the gc profiler is on by default so each
+ * result comes with {@code gc.alloc.rate.norm} (bytes allocated per booking). The success path
+ * releases its room again after every booking so the inventory never fills up.
+ *
+ * <p>{@code metrics=prometheus} runs the same calls with every meter recording into a Prometheus
+ * registry, to show what the instrumentation costs in time and that it allocates nothing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookingBenchmark {
+
+  @Param({"none", "prometheus"})
+  private String metrics;
+
+  private RoomInventory roomInventory;
+  private HotelBookingSystem hotelBookingSystem;
+
+  private BookingRequest valid;
+  private BookingRequest guestsNotPositive;
+  private BookingRequest invalidDateFormat;
+  private BookingRequest checkInDateInPast;
+  private BookingRequest checkInTimeNotAllowed;
+  private BookingRequest checkOutTimeNotAllowed;
+  private BookingRequest datesReversed;
+
+  @Setup
+  public void setUp() {
+    roomInventory = BenchmarkFixtures.newRoomInventory();
+    hotelBookingSystem = metrics.equals("prometheus")
+            ? BenchmarkFixtures.newHotelBookingSystem(roomInventory,
+                    new BookingMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)))
+            : BenchmarkFixtures.newHotelBookingSystem(roomInventory);
+    valid = BenchmarkFixtures.validRequest();
+    guestsNotPositive = request("TEN", "10/10/2024", "12/10/2024", "13:00", "12:00");
+    invalidDateFormat = request("2", "Jan 1st, 2022", "12/10/2024", "13:00", "12:00");
+    checkInDateInPast = request("2", "01/01/2000", "12/10/2024", "13:00", "12:00");
+    checkInTimeNotAllowed = request("2", "10/10/2024", "12/10/2024", "06:00", "12:00");
+    checkOutTimeNotAllowed = request("2", "10/10/2024", "12/10/2024", "13:00", "20:00");
+    datesReversed = request("2", "12/10/2024", "10/10/2024", "13:00", "12:00");
+  }
+
+  @Benchmark
+  public ResponseEntity<BookingResponse> success() {
+    ResponseEntity<BookingResponse> response = hotelBookingSystem.processBooking(valid);
+    roomInventory.release(0, BenchmarkFixtures.VALID_FIRST_SLOT, BenchmarkFixtures.VALID_END_SLOT);
+    return response;
+  }
+
+  @Benchmark
+  public ResponseEntity<BookingResponse> rejectGuestsNotPositive() {
+    return hotelBookingSystem.processBooking(guestsNotPositive);
+  }
+
+  @Benchmark
+  public ResponseEntity<BookingResponse> rejectInvalidDateFormat() {
+    return hotelBookingSystem.processBooking(invalidDateFormat);
+  }
+
+  @Benchmark
+  public ResponseEntity<BookingResponse> rejectCheckInDateInPast() {
+    return hotelBookingSystem.processBooking(checkInDateInPast);
+  }
+
+  @Benchmark
+  public ResponseEntity<BookingResponse> rejectCheckInTimeNotAllowed() {
+    return hotelBookingSystem.processBooking(checkInTimeNotAllowed);
+  }
+
+  @Benchmark
+  public ResponseEntity<BookingResponse> rejectCheckOutTimeNotAllowed() {
+    return hotelBookingSystem.processBooking(checkOutTimeNotAllowed);
+  }
+
+  @Benchmark
+  public ResponseEntity<BookingResponse> rejectDatesReversed() {
+    return hotelBookingSystem.processBooking(datesReversed);
+  }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.BookingRequest;
+import com.example.demo.dto.BookingResponse;
+import com.example.demo.service.CannedResponses;
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.ParsedBookingRequest;
+import com.example.demo.service.inventory.RoomInventory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.demo.benchmark.BenchmarkFixtures.request;
+
+/**
+ * The body handling of {@code BookingController.book}: JSON bytes to {@link BookingRequest},
+ * {@link HotelBookingSystem#processBooking}, then {@link BookingResponse} back to JSON bytes, using
+ * an {@link ObjectMapper} configured the way Spring MVC configures its own. {@code rejection}
+ * serializes the rejection's body as every response used to be, {@code cannedRejection} takes its
+ * JSON from {@link CannedResponses} as the controller now does; run with {@code -prof gc} to
+ * compare allocation as well. The request is read either into the string fields of
+ * {@link BookingRequest}, or straight into a {@link ParsedBookingRequest} as the controller now
+ * reads it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookingJsonBenchmark {
+
+  @Param({"strings", "parsed"})
+  public String request;
+
+  private ObjectMapper objectMapper;
+  private RoomInventory roomInventory;
+  private HotelBookingSystem hotelBookingSystem;
+
+  private byte[] valid;
+  private byte[] rejected;
+
+  @Setup
+  public void setUp() throws IOException {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    roomInventory = BenchmarkFixtures.newRoomInventory();
+    hotelBookingSystem = BenchmarkFixtures.newHotelBookingSystem(roomInventory);
+    valid = objectMapper.writeValueAsBytes(BenchmarkFixtures.validRequest());
+    rejected = objectMapper.writeValueAsBytes(request("2", "10/10/2024", "12/10/2024", "06:00", "12:00"));
+  }
+
+  @Benchmark
+  public byte[] success() throws IOException {
+    byte[] response = roundTrip(valid);
+    roomInventory.release(0, BenchmarkFixtures.VALID_FIRST_SLOT, BenchmarkFixtures.VALID_END_SLOT);
+    return response;
+  }
+
+  @Benchmark
+  public byte[] rejection() throws IOException {
+    return roundTrip(rejected);
+  }
+
+  @Benchmark
+  public Object cannedRejection() throws IOException {
+    return CannedResponses.serialized(process(rejected)).getBody();
+  }
+
+  private byte[] roundTrip(byte[] body) throws IOException {
+    BookingResponse bookingResponse = process(body).getBody();
+    return objectMapper.writeValueAsBytes(bookingResponse);
+  }
+
+  private ResponseEntity<BookingResponse> process(byte[] body) throws IOException {
+    if (request.equals("strings")) {
+      return hotelBookingSystem.processBooking(objectMapper.readValue(body, BookingRequest.class));
+    }
+    return hotelBookingSystem.processBooking(objectMapper.readValue(body, ParsedBookingRequest.class));
+  }
+}
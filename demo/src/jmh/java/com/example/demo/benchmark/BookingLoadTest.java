@@ -0,0 +1,193 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.DemoApplication;
+import jakarta.servlet.Filter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.server.WebFilter;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop HTTP load test of {@code POST /api/v1/hotel/book}, run with the Tomcat worker pool,
+ * with {@code spring.threads.virtual.enabled=true}, and with the {@code reactive} profile on Netty.
+ * Bookings are journaled to a temporary directory, and each request is additionally held on the
+ * server for a fixed time to stand in for other downstream calls (confirmation), which is where the
+ * modes differ: a sleeping servlet thread, a parked virtual thread, or a timer on the event loop.
+ * Reports latency percentiles, throughput and the largest number of bookings the server had in
+ * flight at once.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.example.demo.benchmark.BookingLoadTest \
+ *     -Djmh.args="[clients=1000] [seconds=20] [blockingMillis=20]"
+ * </pre>
+ */
+public final class BookingLoadTest {
+
+  private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+  private BookingLoadTest() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    int blockingMillis = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+    System.out.printf("%d clients, %d s per mode, %d ms blocking per booking%n", clients, seconds, blockingMillis);
+    System.out.printf("%-10s %10s %10s %10s %10s %12s %10s%n",
+            "mode", "p50 ms", "p90 ms", "p99 ms", "max ms", "bookings/s", "in-flight");
+    for (String mode : new String[]{"platform", "virtual", "reactive"}) {
+      run(mode, clients, seconds, blockingMillis);
+    }
+  }
+
+  private static void run(String mode, int clients, int seconds, int blockingMillis) throws Exception {
+    // as arguments, so that they win over application.properties
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class, InFlight.class)
+            .profiles(mode.equals("reactive") ? new String[]{"reactive"} : new String[0])
+            .run(
+                    "--server.port=0",
+                    "--spring.main.banner-mode=off",
+                    "--logging.level.root=warn",
+                    "--spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                    "--load-test.blocking-millis=" + blockingMillis,
+                    // every client is on localhost, and overload is what is being measured
+                    "--hotel.admission.enabled=false",
+                    "--hotel.journal.directory=" + Files.createTempDirectory("booking-journal"),
+                    "--hotel.journal.snapshot-directory=" + Files.createTempDirectory("booking-snapshot"),
+                    // a list given as arguments replaces the configured one as a whole
+                    "--hotel.inventory.room-groups[0].first-number=1",
+                    "--hotel.inventory.room-groups[0].count=5000",
+                    "--hotel.inventory.room-groups[0].capacity=4");
+    try {
+      int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+      URI uri = URI.create("http://localhost:" + port + "/api/v1/hotel/book");
+      InFlight inFlight = context.getBean(InFlight.class);
+
+      drive(uri, clients, Math.max(1, seconds / 4));
+      inFlight.max.set(0);
+      long[] latencies = drive(uri, clients, seconds);
+
+      Arrays.sort(latencies);
+      System.out.printf("%-10s %10.1f %10.1f %10.1f %10.1f %12.0f %10d%n",
+              mode,
+              percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+              percentile(latencies, 1.0), latencies.length / (double) seconds, inFlight.max.get());
+    } finally {
+      context.close();
+    }
+  }
+
+  private static long[] drive(URI uri, int clients, int seconds) throws Exception {
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+         HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build()) {
+      List<Future<long[]>> futures = new ArrayList<>();
+      for (int i = 0; i < clients; i++) {
+        futures.add(executor.submit(() -> {
+          long[] samples = new long[1024];
+          int count = 0;
+          while (System.nanoTime() < end) {
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(randomBooking()))
+                    .build();
+            long start = System.nanoTime();
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (count == samples.length) {
+              samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = System.nanoTime() - start;
+          }
+          return Arrays.copyOf(samples, count);
+        }));
+      }
+      long[] all = new long[0];
+      for (Future<long[]> future : futures) {
+        long[] samples = future.get();
+        int offset = all.length;
+        all = Arrays.copyOf(all, offset + samples.length);
+        System.arraycopy(samples, 0, all, offset, samples.length);
+      }
+      return all;
+    }
+  }
+
+  private static String randomBooking() {
+    LocalDate checkIn = LocalDate.now().plusDays(1 + ThreadLocalRandom.current().nextInt(700));
+    LocalDate checkOut = checkIn.plusDays(1 + ThreadLocalRandom.current().nextInt(5));
+    return "{\"numberOfGuests\":\"2\",\"checkInDate\":\"" + checkIn.format(DATE) + "\",\"checkOutDate\":\""
+            + checkOut.format(DATE) + "\",\"checkInTime\":\"13:00\",\"checkOutTime\":\"12:00\"}";
+  }
+
+  private static double percentile(long[] sorted, double fraction) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+    return sorted[Math.max(0, index)] / 1_000_000.0;
+  }
+
+  /** Counts bookings in flight on the server and holds each one for the configured blocking time. */
+  @Configuration
+  static class InFlight {
+    final AtomicInteger current = new AtomicInteger();
+    final AtomicInteger max = new AtomicInteger();
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    FilterRegistrationBean<Filter> inFlightFilter(@Value("${load-test.blocking-millis}") long blockingMillis) {
+      Filter filter = (request, response, chain) -> {
+        max.accumulateAndGet(current.incrementAndGet(), Math::max);
+        try {
+          Thread.sleep(blockingMillis);
+          chain.doFilter(request, response);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          current.decrementAndGet();
+        }
+      };
+      FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(filter);
+      registration.addUrlPatterns("/api/v1/hotel/book");
+      return registration;
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    WebFilter reactiveInFlightFilter(@Value("${load-test.blocking-millis}") long blockingMillis) {
+      return (exchange, chain) -> {
+        if (!exchange.getRequest().getPath().value().equals("/api/v1/hotel/book")) {
+          return chain.filter(exchange);
+        }
+        return Mono.delay(Duration.ofMillis(blockingMillis))
+                .then(chain.filter(exchange))
+                .doFirst(() -> max.accumulateAndGet(current.incrementAndGet(), Math::max))
+                .doFinally(signal -> current.decrementAndGet());
+      };
+    }
+  }
+}
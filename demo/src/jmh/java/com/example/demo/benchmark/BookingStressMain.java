@@ -0,0 +1,84 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.BookingStress;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.HeapBookingLedger;
+import com.example.demo.service.journal.OffHeapBookingLedger;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Runs the {@link BookingStress} workload of bookings, changes, cancellations and idempotent
+ * retries against {@code HotelBookingSystem} at growing thread counts, with the same total number
+ * of operations each time, and reports operations per second next to whether every invariant held.
+ * Rooms are given directly, or with {@code assigning} by the room assigner with its waitlist and
+ * optimizer, or both one after the other. A thread count that turns up a violation, or that runs
+ * markedly slower than the one before it, points at a concurrency regression. Exits with status 1
+ * if any run broke an invariant.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.example.demo.benchmark.BookingStressMain \
+ *     -Djmh.args="[operations=400000] [threads=1,2,4,8,16,32] [runs=3] [ledger=heap|off-heap] \
+ *     [rooms=direct|assigning|both]"
+ * </pre>
+ */
+public final class BookingStressMain {
+
+  private BookingStressMain() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int operations = args.length > 0 ? Integer.parseInt(args[0]) : 400_000;
+    String threadCounts = args.length > 1 ? args[1] : "1,2,4,8,16,32";
+    int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+    boolean offHeap = args.length > 3 && args[3].equals("off-heap");
+    String rooms = args.length > 4 ? args[4] : "both";
+    Supplier<BookingLedger> ledger = offHeap ? OffHeapBookingLedger::new : HeapBookingLedger::new;
+
+    System.out.printf("%,d operations per run, median of %d runs, %s ledger, %d cores%n", operations, runs,
+            offHeap ? "off-heap" : "heap", Runtime.getRuntime().availableProcessors());
+    boolean violated = false;
+    for (boolean assigning : new boolean[] {false, true}) {
+      if (rooms.equals(assigning ? "direct" : "assigning")) {
+        continue;
+      }
+      violated |= run(ledger, assigning, operations, threadCounts, runs);
+    }
+    if (violated) {
+      System.exit(1);
+    }
+  }
+
+  /** @return whether any run broke an invariant */
+  private static boolean run(Supplier<BookingLedger> ledger, boolean assigning, int operations, String threadCounts,
+                             int runs) throws InterruptedException {
+    // warm the JIT up with one untimed pass over the thread counts
+    for (String count : threadCounts.split(",")) {
+      for (int run = 0; run < runs; run++) {
+        new BookingStress(ledger, assigning).run(Integer.parseInt(count.trim()), operations, run);
+      }
+    }
+    System.out.printf("%n%s%n", assigning ? "rooms given by the assigner" : "rooms given directly");
+    System.out.printf("%-8s %12s %10s %10s %10s %10s  %s%n",
+            "threads", "ops/s", "booked", "cancelled", "changed", "replayed", "invariants");
+    boolean violated = false;
+    for (String count : threadCounts.split(",")) {
+      int threads = Integer.parseInt(count.trim());
+      BookingStress.Result[] results = new BookingStress.Result[runs];
+      for (int run = 0; run < runs; run++) {
+        results[run] = new BookingStress(ledger, assigning).run(threads, operations, run * 1000L);
+      }
+      Arrays.sort(results, (a, b) -> Double.compare(a.operationsPerSecond(), b.operationsPerSecond()));
+      BookingStress.Result median = results[runs / 2];
+      String invariants = Arrays.stream(results)
+              .flatMap(result -> result.violations().stream())
+              .findFirst()
+              .orElse("held");
+      violated |= !invariants.equals("held");
+      System.out.printf("%-8d %12.0f %10d %10d %10d %10d  %s%n", threads, median.operationsPerSecond(),
+              median.booked(), median.cancelled(), median.changed(), median.replayed(), invariants);
+    }
+    return violated;
+  }
+}
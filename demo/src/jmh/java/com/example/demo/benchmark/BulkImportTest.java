@@ -0,0 +1,162 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.ImportReport;
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.BookingValidator;
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.assignment.BookingConfirmations;
+import com.example.demo.service.bulk.BookingExporter;
+import com.example.demo.service.bulk.BookingImporter;
+import com.example.demo.service.bulk.BulkFormat;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.HeapBookingLedger;
+import com.example.demo.service.journal.MappedBookingJournal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports a generated file of bookings into a fresh hotel journaled to a temporary directory, then
+ * exports them all again, once as CSV and once as NDJSON. Stays are random, one to seven nights over
+ * the three-year horizon, so most of them book and the rest are turned away as sold out. Reports
+ * rows per second, the peak heap used by each step over what the hotel held before it, and how much
+ * of that is still held once the step is done: the bookings themselves, after an import. The
+ * difference is the step's working memory, which should stay flat however many rows the file has.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.example.demo.benchmark.BulkImportTest \
+ *     -Djmh.args="[rows=2000000] [rooms=10000]"
+ * </pre>
+ */
+public final class BulkImportTest {
+
+  private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+  private static final int SEGMENT_SIZE = 64 << 20;
+
+  private BulkImportTest() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+    int rooms = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+    System.out.printf("%d rows, %d rooms%n", rows, rooms);
+    System.out.printf("%-8s %-7s %10s %10s %12s %14s %12s%n",
+            "format", "step", "rows", "seconds", "rows/s", "peak heap MB", "retained MB");
+    for (BulkFormat format : BulkFormat.values()) {
+      run(format, rows, rooms);
+    }
+  }
+
+  private static void run(BulkFormat format, int rows, int rooms) throws Exception {
+    Path directory = Files.createTempDirectory("bulk-import");
+    Path input = directory.resolve("bookings." + format.name().toLowerCase());
+    Path output = directory.resolve("export." + format.name().toLowerCase());
+    generate(input, format, rows);
+
+    List<Room> roomList = new ArrayList<>(rooms);
+    for (int i = 0; i < rooms; i++) {
+      roomList.add(new Room(i + 1, 1 + i % 4));
+    }
+    ObjectMapper objectMapper = new ObjectMapper();
+    BookingLedger bookingLedger = new HeapBookingLedger();
+    BookingConfirmations confirmations = new BookingConfirmations(1, Duration.ofHours(24), 100_000);
+    BookingValidator bookingValidator = new BookingValidator(BenchmarkFixtures.CLOCK);
+    try (MappedBookingJournal journal =
+                 new MappedBookingJournal(directory.resolve("journal"), SEGMENT_SIZE, true);
+         BookingImporter importer = new BookingImporter(new HotelBookingSystem(bookingValidator,
+                 new RoomInventory(roomList, BenchmarkFixtures.FIRST_DAY, 1096), journal, BookingMetrics.noop(),
+                 confirmations, null, bookingLedger, null, null), null, bookingValidator, objectMapper)) {
+      long baseline = resetPeakHeap();
+      ImportReport report;
+      try (FileChannel in = FileChannel.open(input)) {
+        report = importer.importBookings(in, format);
+      }
+      print(format, "import", report.getRows(), report.getElapsedMillis() * 1_000_000, baseline);
+      System.out.printf("         %d booked, %d rejected %s%n", report.getBooked(), report.getRejected(),
+              report.getRejections());
+
+      BookingExporter exporter = new BookingExporter(bookingLedger, confirmations, objectMapper);
+      baseline = resetPeakHeap();
+      long start = System.nanoTime();
+      long exported;
+      try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+        exported = exporter.export(out, format);
+      }
+      print(format, "export", exported, System.nanoTime() - start, baseline);
+    } finally {
+      try (var files = Files.walk(directory)) {
+        files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+      }
+    }
+  }
+
+  private static void generate(Path input, BulkFormat format, int rows) throws IOException {
+    SplittableRandom random = new SplittableRandom(42);
+    LocalDate firstDay = LocalDate.now(BenchmarkFixtures.CLOCK).plusDays(1);
+    try (BufferedWriter writer = Files.newBufferedWriter(input)) {
+      if (format == BulkFormat.CSV) {
+        writer.write("numberOfGuests,checkInDate,checkOutDate,checkInTime,checkOutTime\n");
+      }
+      for (int i = 0; i < rows; i++) {
+        LocalDate checkIn = firstDay.plusDays(random.nextInt(1080));
+        String guests = Integer.toString(1 + random.nextInt(4));
+        String checkInDate = checkIn.format(DATE);
+        String checkOutDate = checkIn.plusDays(1 + random.nextInt(7)).format(DATE);
+        if (format == BulkFormat.CSV) {
+          writer.write(guests + "," + checkInDate + "," + checkOutDate + ",13:00,12:00\n");
+        } else {
+          writer.write("{\"numberOfGuests\":\"" + guests + "\",\"checkInDate\":\"" + checkInDate
+                  + "\",\"checkOutDate\":\"" + checkOutDate + "\",\"checkInTime\":\"13:00\",\"checkOutTime\":\"12:00\"}\n");
+        }
+      }
+    }
+  }
+
+  private static void print(BulkFormat format, String step, long rows, long nanos, long baseline) {
+    long peak = peakHeap() - baseline;
+    long retained = resetPeakHeap() - baseline;
+    System.out.printf("%-8s %-7s %10d %10.2f %12d %14d %12d%n", format, step, rows, nanos / 1e9,
+            rows * TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos), peak >> 20, retained >> 20);
+  }
+
+  /** Collects, resets the heap pools' peaks and returns the heap in use afterwards. */
+  private static long resetPeakHeap() {
+    System.gc();
+    long used = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+        used += pool.getUsage().getUsed();
+      }
+    }
+    return used;
+  }
+
+  private static long peakHeap() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+}
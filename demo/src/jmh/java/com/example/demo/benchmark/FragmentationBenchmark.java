@@ -0,0 +1,112 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.assignment.BookingConfirmations;
+import com.example.demo.service.assignment.PendingBooking;
+import com.example.demo.service.assignment.RoomOptimizer;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import com.example.demo.service.journal.HeapBookingLedger;
+import com.example.demo.service.journal.NoopBookingJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Stranded room-nights, free nights wedged between two stays too short to sell, on a large
+ * synthetic calendar filled by first-fit and by best-fit placement, and what one
+ * {@link RoomOptimizer} pass over all of those bookings recovers on each, with its duration. The
+ * same random stream of one-to-seven night stays, a fifth of them cancelled again later, is
+ * booked into both; every stay is treated as not yet confirmed, so all of them may move.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.example.demo.benchmark.FragmentationBenchmark \
+ *     -Djmh.args="[rooms=2000] [days=365] [passes=3]"
+ * </pre>
+ */
+public final class FragmentationBenchmark {
+
+  private FragmentationBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int days = args.length > 1 ? Integer.parseInt(args[1]) : 365;
+    int passes = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+    System.out.printf("%d rooms, %d days, %d optimizer passes%n", rooms, days, passes);
+    System.out.printf("%-10s %10s %10s %10s %10s %12s %10s%n",
+            "placement", "booked", "refused", "stranded", "moved", "recovered", "pass ms");
+    for (RoomInventory.Placement placement : RoomInventory.Placement.values()) {
+      run(placement, rooms, days, passes);
+    }
+  }
+
+  private static void run(RoomInventory.Placement placement, int roomCount, int days, int passes) {
+    List<Room> rooms = new ArrayList<>();
+    for (int i = 0; i < roomCount; i++) {
+      // four in five rooms are doubles, the rest take four guests
+      rooms.add(new Room(1000 + i, i % 5 == 4 ? 4 : 2));
+    }
+    RoomInventory inventory = new RoomInventory(rooms, BenchmarkFixtures.FIRST_DAY, days, placement,
+            RoomInventory.DEFAULT_MIN_SELLABLE_NIGHTS);
+    BookingConfirmations confirmations = new BookingConfirmations(1, Duration.ofDays(1), 1);
+
+    SplittableRandom random = new SplittableRandom(42);
+    List<PendingBooking> booked = new ArrayList<>();
+    List<Integer> bookedRooms = new ArrayList<>();
+    int refused = 0;
+    int bookingId = 0;
+    long attempts = (long) roomCount * days / 3;
+    for (long i = 0; i < attempts; i++) {
+      int nights = 1 + random.nextInt(7);
+      int checkIn = BenchmarkFixtures.FIRST_DAY + 1 + random.nextInt(days - nights - 1);
+      int guests = 1 + random.nextInt(random.nextInt(5) == 0 ? 4 : 2);
+      PendingBooking booking = new PendingBooking(++bookingId, guests, checkIn, checkIn + nights,
+              13 * 60, 12 * 60, PendingBooking.UNPRICED, 0);
+      int room = inventory.reserve(guests, slot(checkIn), slot(checkIn + nights));
+      if (room < 0) {
+        refused++;
+      } else {
+        booked.add(booking);
+        bookedRooms.add(room);
+      }
+      if (!booked.isEmpty() && random.nextInt(5) == 0) {
+        // a cancellation somewhere in what is booked so far
+        int cancelled = random.nextInt(booked.size());
+        PendingBooking gone = booked.get(cancelled);
+        inventory.release(bookedRooms.get(cancelled), slot(gone.checkInDate()), slot(gone.checkOutDate()));
+        booked.set(cancelled, booked.get(booked.size() - 1));
+        bookedRooms.set(cancelled, bookedRooms.get(bookedRooms.size() - 1));
+        booked.remove(booked.size() - 1);
+        bookedRooms.remove(bookedRooms.size() - 1);
+      }
+    }
+    for (int i = 0; i < booked.size(); i++) {
+      confirmations.reserved(booked.get(i), inventory.getRoom(bookedRooms.get(i)).getNumber());
+    }
+
+    long stranded = inventory.strandedRoomNights(inventory.getFirstSlot());
+    int moved = 0;
+    long recovered = 0;
+    long bestNanos = Long.MAX_VALUE;
+    try (RoomOptimizer optimizer = new RoomOptimizer(inventory, new NoopBookingJournal(), confirmations,
+            new HeapBookingLedger(), new SimpleMeterRegistry(), BenchmarkFixtures.CLOCK, Duration.ZERO, 32, Duration.ZERO)) {
+      for (int pass = 0; pass < passes; pass++) {
+        RoomOptimizer.Pass result = optimizer.pass();
+        moved += result.moved();
+        recovered += result.recoveredNights();
+        bestNanos = Math.min(bestNanos, result.nanos());
+      }
+    }
+    System.out.printf("%-10s %10d %10d %10d %10d %12d %10.1f%n", placement, booked.size(), refused, stranded,
+            moved, recovered, bestNanos / 1e6);
+  }
+
+  private static int slot(int epochDay) {
+    return StaySlots.checkInSlot(epochDay, 13 * 60);
+  }
+}
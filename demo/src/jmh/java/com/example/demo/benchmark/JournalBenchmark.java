@@ -0,0 +1,96 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.journal.BookingRecord;
+import com.example.demo.service.journal.MappedBookingJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Durable appends to {@link MappedBookingJournal} from 1, 8 and 64 threads. Each operation waits
+ * until its own record is flushed, so with one thread the score is the flush rate of the disk;
+ * with more threads one flush covers every record appended while the previous one ran, and the
+ * score should grow with the thread count. {@code append} alone is the cost a booking pays when
+ * {@code hotel.journal.sync} is off.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+  private static final BookingRecord RECORD = BookingRecord.builder()
+          .type(BookingRecord.BOOKED)
+          .numberOfGuests(2)
+          .checkInDate(20_000)
+          .checkOutDate(20_002)
+          .checkInTime(13 * 60)
+          .checkOutTime(12 * 60)
+          .roomNumber(101)
+          .build();
+
+  private Path directory;
+  private MappedBookingJournal journal;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("journal-benchmark");
+    journal = new MappedBookingJournal(directory, 64 << 20, true);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    journal.close();
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long append() {
+    return journal.append(RECORD);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long durableOneThread() {
+    return durableAppend();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public long durableEightThreads() {
+    return durableAppend();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public long durableSixtyFourThreads() {
+    return durableAppend();
+  }
+
+  private long durableAppend() {
+    long sequence = journal.append(RECORD);
+    journal.awaitDurable(sequence);
+    return sequence;
+  }
+}
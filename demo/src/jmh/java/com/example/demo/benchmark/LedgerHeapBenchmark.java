@@ -0,0 +1,171 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.BookingRecord;
+import com.example.demo.service.journal.HeapBookingLedger;
+import com.example.demo.service.journal.OffHeapBookingLedger;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap size and garbage collection pauses of the {@link HeapBookingLedger} against the
+ * {@link OffHeapBookingLedger}, each filled with stays covering the given number of room-nights and
+ * then churned with cancellations and rebookings, while short-lived request garbage is allocated
+ * alongside as a server would. Each storage runs in a JVM of its own with the same heap limit, so
+ * neither sees the other's garbage. Reports the heap left after a full collection, the direct
+ * memory held, how long a full collection takes, and the young pauses seen while churning.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.example.demo.benchmark.LedgerHeapBenchmark \
+ *     -Djmh.args="[roomNights=12000000] [churnSeconds=20] [heap=3g]"
+ * </pre>
+ */
+public final class LedgerHeapBenchmark {
+
+  private static final int ROOMS = 10_000;
+  private static final String CHILD = "--child";
+  private static final String RESULT = "RESULT";
+
+  /** Keeps the request garbage from being optimized away. */
+  private static volatile long blackhole;
+
+  private LedgerHeapBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].equals(CHILD)) {
+      measure(BookingLedger.Storage.valueOf(args[1]), Long.parseLong(args[2]), Integer.parseInt(args[3]));
+      return;
+    }
+    long roomNights = args.length > 0 ? Long.parseLong(args[0]) : 12_000_000;
+    int churnSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    String heap = args.length > 2 ? args[2] : "3g";
+
+    System.out.printf("%,d room-nights in %,d rooms, %d s of churn, -Xmx%s, G1%n", roomNights, ROOMS, churnSeconds, heap);
+    System.out.printf("%-9s %10s %9s %9s %9s %9s %8s %8s %8s %10s%n", "storage", "bookings", "fill ms", "heap MB",
+            "direct MB", "full ms", "pauses", "p99 ms", "max ms", "churn/s");
+    for (BookingLedger.Storage storage : BookingLedger.Storage.values()) {
+      String java = ProcessHandle.current().info().command().orElse("java");
+      Process process = new ProcessBuilder(java, "-Xms" + heap, "-Xmx" + heap, "-XX:+UseG1GC",
+              "-cp", System.getProperty("java.class.path"), LedgerHeapBenchmark.class.getName(),
+              CHILD, storage.name(), Long.toString(roomNights), Integer.toString(churnSeconds))
+              .redirectErrorStream(true)
+              .start();
+      String result = null;
+      try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+        for (String line = output.readLine(); line != null; line = output.readLine()) {
+          if (line.startsWith(RESULT)) {
+            result = line.substring(RESULT.length() + 1);
+          } else {
+            System.out.println(line);
+          }
+        }
+      }
+      if (process.waitFor() != 0 || result == null) {
+        throw new IllegalStateException(storage + " run failed with exit code " + process.exitValue());
+      }
+      System.out.printf("%-9s %s%n", storage.name().toLowerCase(), result);
+    }
+  }
+
+  private static void measure(BookingLedger.Storage storage, long roomNights, int churnSeconds) throws Exception {
+    BookingLedger ledger = storage == BookingLedger.Storage.OFF_HEAP ? new OffHeapBookingLedger() : new HeapBookingLedger();
+    SplittableRandom random = new SplittableRandom(42);
+    int firstDay = (int) LocalDate.now().toEpochDay();
+    int nightsPerRoom = (int) ((roomNights + ROOMS - 1) / ROOMS);
+
+    long start = System.nanoTime();
+    int bookingId = 1;
+    for (int room = 0; room < ROOMS; room++) {
+      for (int day = firstDay; day < firstDay + nightsPerRoom; ) {
+        int nights = Math.min(1 + random.nextInt(5), firstDay + nightsPerRoom - day);
+        ledger.booked(stay(bookingId++, 1000 + room, day, day + nights, 1 + random.nextInt(4)));
+        day += nights;
+      }
+    }
+    long fillMillis = (System.nanoTime() - start) / 1_000_000;
+
+    long[] fullGcMillis = new long[3];
+    for (int i = 0; i < fullGcMillis.length; i++) {
+      long gcStart = System.nanoTime();
+      System.gc();
+      fullGcMillis[i] = (System.nanoTime() - gcStart) / 1_000_000;
+    }
+    Arrays.sort(fullGcMillis);
+    long heapBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    long directBytes = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+            .filter(pool -> pool.getName().equals("direct"))
+            .mapToLong(BufferPoolMXBean::getMemoryUsed)
+            .sum();
+
+    List<Long> pauses = new ArrayList<>();
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        // concurrent cycles run beside the application rather than stopping it
+        if (!info.getGcName().contains("Concurrent")) {
+          synchronized (pauses) {
+            pauses.add(info.getGcInfo().getDuration());
+          }
+        }
+      }, notification -> notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION), null);
+    }
+
+    long churned = 0;
+    int nextId = bookingId;
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(churnSeconds);
+    while (System.nanoTime() < end) {
+      for (int i = 0; i < 1000; i++) {
+        BookingRecord stay = ledger.get(1 + random.nextInt(nextId - 1));
+        if (stay != null) {
+          // cancelled, and the same stay booked again by someone else
+          ledger.released(stay.getBookingId());
+          ledger.booked(stay(nextId++, stay.getRoomNumber(), stay.getCheckInDate(), stay.getCheckOutDate(),
+                  stay.getNumberOfGuests()));
+          churned++;
+        }
+        // what parsing and answering a request leaves behind
+        byte[] request = new byte[256 + random.nextInt(768)];
+        blackhole += request.length + Integer.toString(i).length();
+      }
+    }
+    Thread.sleep(200);
+
+    long[] sorted;
+    synchronized (pauses) {
+      sorted = pauses.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+    long p99 = sorted.length == 0 ? 0 : sorted[Math.max(0, (int) Math.ceil(sorted.length * 0.99) - 1)];
+    long max = sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+    System.out.printf("%s %10d %9d %9d %9d %9d %8d %8d %8d %10d%n", RESULT, ledger.size(), fillMillis,
+            heapBytes >> 20, directBytes >> 20, fullGcMillis[1], sorted.length, p99, max,
+            churned / churnSeconds);
+  }
+
+  private static BookingRecord stay(int bookingId, int roomNumber, int fromDay, int toDay, int guests) {
+    return BookingRecord.builder()
+            .type(BookingRecord.BOOKED)
+            .numberOfGuests(guests)
+            .checkInDate(fromDay)
+            .checkOutDate(toDay)
+            .checkInTime(13 * 60)
+            .checkOutTime(12 * 60)
+            .roomNumber(roomNumber)
+            .bookingId(bookingId)
+            .build();
+  }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import com.example.demo.service.pricing.PricingEngine;
+import com.example.demo.service.pricing.Quote;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quotes for a few thousand popular stays of up to two weeks in a 300-room hotel that is about
+ * 70% booked, read alone and alongside a writer that keeps booking and cancelling short stays.
+ * {@code maxQuotes = 0} caches nothing, so every quote is worked out from the night index.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class QuoteBenchmark {
+
+  private static final int ROOMS = 300;
+  private static final int DAYS = 365;
+  private static final int STAYS = 4096;
+
+  @Param({"100000", "0"})
+  public long maxQuotes;
+
+  private RoomInventory roomInventory;
+  private PricingEngine pricingEngine;
+  private int[] stays;
+
+  @Setup
+  public void setUp() {
+    List<Room> rooms = new ArrayList<>();
+    for (int i = 0; i < ROOMS; i++) {
+      rooms.add(new Room(100 + i, 1 + i % 4));
+    }
+    roomInventory = new RoomInventory(rooms, BenchmarkFixtures.FIRST_DAY, 1096);
+    pricingEngine = new PricingEngine(roomInventory, 100_00, 20_00, 0.6, 2.0, maxQuotes, new SimpleMeterRegistry());
+
+    SplittableRandom random = new SplittableRandom(42);
+    for (int i = 0; i < ROOMS * DAYS / 5; i++) {
+      int day = BenchmarkFixtures.FIRST_DAY + random.nextInt(DAYS);
+      roomInventory.reserve(1 + random.nextInt(4), StaySlots.checkInSlot(day, 13 * 60),
+              StaySlots.checkOutSlot(day + 1 + random.nextInt(5), 12 * 60));
+    }
+    // check-in day, nights and guests of each popular stay
+    stays = new int[STAYS * 3];
+    for (int i = 0; i < STAYS; i++) {
+      stays[i * 3] = BenchmarkFixtures.FIRST_DAY + random.nextInt(DAYS);
+      stays[i * 3 + 1] = 1 + random.nextInt(14);
+      stays[i * 3 + 2] = 1 + random.nextInt(4);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    final SplittableRandom random = new SplittableRandom();
+    int room = -1;
+    int fromSlot;
+    int toSlot;
+  }
+
+  @Benchmark
+  @Group("reads")
+  @GroupThreads(4)
+  public Quote quoteOnly(Cursor cursor) {
+    return quote(cursor);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(3)
+  public Quote quote(Cursor cursor) {
+    int stay = cursor.random.nextInt(STAYS) * 3;
+    return pricingEngine.quote(stays[stay + 2], stays[stay], stays[stay] + stays[stay + 1]);
+  }
+
+  /** Books a short stay, or cancels the one booked last time. */
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public int bookOrCancel(Cursor cursor) {
+    if (cursor.room >= 0) {
+      roomInventory.release(cursor.room, cursor.fromSlot, cursor.toSlot);
+      cursor.room = -1;
+      return 0;
+    }
+    int day = BenchmarkFixtures.FIRST_DAY + cursor.random.nextInt(DAYS);
+    cursor.fromSlot = StaySlots.checkInSlot(day, 13 * 60);
+    cursor.toSlot = StaySlots.checkOutSlot(day + 1 + cursor.random.nextInt(3), 12 * 60);
+    cursor.room = roomInventory.reserve(1 + cursor.random.nextInt(4), cursor.fromSlot, cursor.toSlot);
+    return cursor.room;
+  }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reserve-and-release throughput of {@link RoomInventory} at 1, 2, 4 and all available threads.
+ * Every thread books random one-to-five night stays inside its own half-year window of a shared
+ * 200-room hotel, so the stays never overlap and the scores show how well non-conflicting
+ * bookings scale.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationBenchmark {
+
+  private static final int WINDOW_DAYS = 180;
+
+  @State(Scope.Benchmark)
+  public static class Hotel {
+    RoomInventory roomInventory;
+
+    @Setup
+    public void setUp(ThreadParams threads) {
+      List<Room> rooms = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        rooms.add(new Room(100 + i, 2));
+      }
+      roomInventory = new RoomInventory(rooms, BenchmarkFixtures.FIRST_DAY, threads.getThreadCount() * WINDOW_DAYS + 10);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Guest {
+    SplittableRandom random;
+    int windowStart;
+
+    @Setup
+    public void setUp(ThreadParams threads) {
+      random = new SplittableRandom(threads.getThreadIndex());
+      windowStart = BenchmarkFixtures.FIRST_DAY + threads.getThreadIndex() * WINDOW_DAYS;
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public int oneThread(Hotel hotel, Guest guest) {
+    return reserveAndRelease(hotel, guest);
+  }
+
+  @Benchmark
+  @Threads(2)
+  public int twoThreads(Hotel hotel, Guest guest) {
+    return reserveAndRelease(hotel, guest);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public int fourThreads(Hotel hotel, Guest guest) {
+    return reserveAndRelease(hotel, guest);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public int allThreads(Hotel hotel, Guest guest) {
+    return reserveAndRelease(hotel, guest);
+  }
+
+  private static int reserveAndRelease(Hotel hotel, Guest guest) {
+    int day = guest.windowStart + guest.random.nextInt(WINDOW_DAYS - 5);
+    int from = StaySlots.checkInSlot(day, 13 * 60);
+    int to = StaySlots.checkOutSlot(day + 1 + guest.random.nextInt(5), 12 * 60);
+    int room = hotel.roomInventory.reserve(2, from, to);
+    if (room >= 0) {
+      hotel.roomInventory.release(room, from, to);
+    }
+    return room;
+  }
+}
@@ -0,0 +1,187 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.service.sharding.ShardRouter;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load test of {@code POST /api/v1/hotel/book} against a hotel split across 1, 2
+ * and 4 nodes, each started in this JVM on its own port with its own journal. The same room groups
+ * are spread over however many nodes there are, and every client sticks to one node, as behind a
+ * load balancer. Reports bookings per second and the share of bookings made on another node than
+ * the one the client called, read from the node a booking id names.
+ *
+ * <p>With {@code assignment=false} every booking waits for its journal write to be synced, which is
+ * what a node runs out of first; with {@code assignment=true} bookings are answered before their
+ * room is assigned and the nodes are bound by CPU instead. The nodes share the machine's cores, so
+ * the second case only scales with nodes on a machine with cores to spare.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.example.demo.benchmark.ShardingBenchmark \
+ *     -Djmh.args="[clients=64] [seconds=15] [shards=1,2,4] [assignment=false]"
+ * </pre>
+ */
+public final class ShardingBenchmark {
+
+  private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+  private static final Pattern BOOKING_ID = Pattern.compile("\"bookingId\":(\\d+)");
+  private static final int GROUPS_PER_SIZE = 32;
+
+  private ShardingBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+    String shards = args.length > 2 ? args[2] : "1,2,4";
+    boolean assignment = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+    System.out.printf("%d clients, %d s per run, assignment %s, %d cores%n",
+            clients, seconds, assignment ? "on" : "off", Runtime.getRuntime().availableProcessors());
+    System.out.printf("%-6s %12s %12s %12s %10s%n", "nodes", "bookings/s", "speedup", "rejected/s", "forwarded");
+    double single = 0;
+    for (String count : shards.split(",")) {
+      Result result = run(Integer.parseInt(count.trim()), clients, seconds, assignment);
+      if (single == 0) {
+        single = result.booked / (double) seconds;
+      }
+      System.out.printf("%-6s %12.0f %11.2fx %12.0f %9.1f%%%n", count.trim(),
+              result.booked / (double) seconds, result.booked / (double) seconds / single,
+              result.rejected / (double) seconds, 100.0 * result.forwarded / Math.max(1, result.booked));
+    }
+  }
+
+  private static Result run(int nodes, int clients, int seconds, boolean assignment) throws Exception {
+    int[] ports = freePorts(nodes);
+    List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    try {
+      for (int node = 0; node < nodes; node++) {
+        contexts.add(start(node, ports, assignment));
+      }
+      URI[] uris = new URI[nodes];
+      for (int node = 0; node < nodes; node++) {
+        uris[node] = URI.create("http://localhost:" + ports[node] + "/api/v1/hotel/book");
+      }
+      drive(uris, clients, Math.max(1, seconds / 4));
+      return drive(uris, clients, seconds);
+    } finally {
+      contexts.forEach(ConfigurableApplicationContext::close);
+    }
+  }
+
+  private static ConfigurableApplicationContext start(int node, int[] ports, boolean assignment) throws Exception {
+    Path directory = Files.createTempDirectory("sharding-node-" + node);
+    // as arguments, so that they win over application.properties
+    List<String> arguments = new ArrayList<>(List.of(
+            "--server.port=" + ports[node],
+            "--spring.main.banner-mode=off",
+            "--logging.level.root=warn",
+            // component scanning picks up BookingLoadTest's filter too: have it hold nothing
+            "--load-test.blocking-millis=0",
+            // every client is on localhost, and throughput is what is being measured
+            "--hotel.admission.enabled=false",
+            "--hotel.assignment.enabled=" + assignment,
+            "--hotel.journal.directory=" + directory.resolve("journal"),
+            "--hotel.journal.snapshot-directory=" + directory.resolve("snapshot"),
+            "--hotel.sharding.enabled=true",
+            "--hotel.sharding.node-id=" + node));
+    for (int other = 0; other < ports.length; other++) {
+      arguments.add("--hotel.sharding.nodes[" + other + "].id=" + other);
+      arguments.add("--hotel.sharding.nodes[" + other + "].url=http://localhost:" + ports[other]);
+    }
+    for (int group = 0; group < 2 * GROUPS_PER_SIZE; group++) {
+      boolean family = group >= GROUPS_PER_SIZE;
+      arguments.add("--hotel.inventory.room-groups[" + group + "].first-number=" + (1 + group * 100));
+      arguments.add("--hotel.inventory.room-groups[" + group + "].count=" + (family ? 25 : 50));
+      arguments.add("--hotel.inventory.room-groups[" + group + "].capacity=" + (family ? 4 : 2));
+    }
+    return new SpringApplicationBuilder(DemoApplication.class).run(arguments.toArray(String[]::new));
+  }
+
+  private static Result drive(URI[] uris, int clients, int seconds) throws Exception {
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+         HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build()) {
+      List<Future<Result>> futures = new ArrayList<>();
+      for (int i = 0; i < clients; i++) {
+        int node = i % uris.length;
+        futures.add(executor.submit(() -> {
+          Result result = new Result();
+          while (System.nanoTime() < end) {
+            HttpRequest request = HttpRequest.newBuilder(uris[node])
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(randomBooking()))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            Matcher bookingId = BOOKING_ID.matcher(response.body());
+            if (response.statusCode() / 100 != 2 || !bookingId.find()) {
+              result.rejected++;
+              continue;
+            }
+            result.booked++;
+            if (Integer.parseInt(bookingId.group(1)) % ShardRouter.MAX_NODES != node) {
+              result.forwarded++;
+            }
+          }
+          return result;
+        }));
+      }
+      Result total = new Result();
+      for (Future<Result> future : futures) {
+        Result result = future.get();
+        total.booked += result.booked;
+        total.rejected += result.rejected;
+        total.forwarded += result.forwarded;
+      }
+      return total;
+    }
+  }
+
+  private static int[] freePorts(int count) throws Exception {
+    List<ServerSocket> sockets = new ArrayList<>();
+    try {
+      for (int i = 0; i < count; i++) {
+        sockets.add(new ServerSocket(0));
+      }
+      return sockets.stream().mapToInt(ServerSocket::getLocalPort).toArray();
+    } finally {
+      for (ServerSocket socket : sockets) {
+        socket.close();
+      }
+    }
+  }
+
+  private static String randomBooking() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    LocalDate checkIn = LocalDate.now().plusDays(1 + random.nextInt(700));
+    LocalDate checkOut = checkIn.plusDays(1 + random.nextInt(5));
+    return "{\"numberOfGuests\":\"" + (1 + random.nextInt(4)) + "\",\"checkInDate\":\"" + checkIn.format(DATE)
+            + "\",\"checkOutDate\":\"" + checkOut.format(DATE) + "\",\"checkInTime\":\"13:00\",\"checkOutTime\":\"12:00\"}";
+  }
+
+  private static final class Result {
+    long booked;
+    long rejected;
+    long forwarded;
+  }
+}
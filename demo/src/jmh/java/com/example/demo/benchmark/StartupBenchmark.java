@@ -0,0 +1,236 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.journal.BookingRecord;
+import com.example.demo.service.journal.MappedBookingJournal;
+import com.example.demo.service.journal.SnapshotWriter;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Time from starting the JVM to the first successful {@code POST /api/v1/hotel/book}, and the
+ * resident memory of the process right after it, with an empty journal, with a journal of
+ * {@code records} bookings that has to be replayed in full, and with the same journal behind a
+ * snapshot taken {@code tail} records before its end. Each is measured for every {@link LaunchMode}.
+ * The application is started as a separate process per run and killed afterwards, as a crash
+ * would, so that it cannot leave a shutdown snapshot behind.
+ *
+ * <p>The modes other than {@code default} need the AOT classes and the class data sharing archive
+ * that only the {@code startup} build profile makes, so build with it:
+ *
+ * <pre>
+ * mvn -Pstartup package -DskipTests
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.example.demo.benchmark.StartupBenchmark \
+ *     -Djmh.args="[records=2000000] [tail=10000] [runs=3] [modes=default,lazy,aot,cds,optimized] [target=target]"
+ * </pre>
+ */
+public final class StartupBenchmark {
+
+  private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+  private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+  private static final String JAR = "demo-0.0.1-SNAPSHOT.jar";
+  private static final String STARTUP_JAR = "startup/demo-0.0.1-SNAPSHOT-startup.jar";
+  private static final String CDS_ARCHIVE = "startup/demo.jsa";
+
+  /** How the application is launched; each adds to the JVM options and arguments of the plain jar. */
+  private enum LaunchMode {
+    /** The executable jar as it is. */
+    DEFAULT,
+    /** The startup Spring profile: beans are created when first used. */
+    LAZY,
+    /** The bean definitions generated at build time instead of the configuration classes. */
+    AOT,
+    /** The thin jar, with the classes of a training run mapped from the archive instead of loaded. */
+    CDS,
+    /** All three. */
+    OPTIMIZED;
+
+    List<String> command(Path target) {
+      boolean lazy = this == LAZY || this == OPTIMIZED;
+      boolean aot = this == AOT || this == OPTIMIZED;
+      boolean cds = this == CDS || this == OPTIMIZED;
+      List<String> command = new ArrayList<>();
+      if (cds) {
+        command.add("-XX:SharedArchiveFile=" + target.resolve(CDS_ARCHIVE));
+      }
+      if (aot) {
+        command.add("-Dspring.aot.enabled=true");
+      }
+      command.add("-jar");
+      command.add(target.resolve(cds ? STARTUP_JAR : JAR).toString());
+      if (lazy) {
+        command.add("--spring.profiles.active=startup");
+      }
+      return command;
+    }
+  }
+
+  /** One launch: time to the first booking, and resident memory after it in kilobytes, or -1. */
+  private record Launch(long millis, long rssKilobytes) {
+  }
+
+  private StartupBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int records = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+    int tail = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+    int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+    List<LaunchMode> modes = args.length > 3
+            ? Arrays.stream(args[3].split(",")).map(mode -> LaunchMode.valueOf(mode.toUpperCase())).toList()
+            : List.of(LaunchMode.values());
+    Path target = Path.of(args.length > 4 ? args[4] : "target").toAbsolutePath();
+
+    Path root = Files.createTempDirectory("startup-benchmark");
+    Path journal = root.resolve("journal");
+    Path snapshot = root.resolve("snapshot");
+    writeJournal(journal, snapshot, records, tail);
+
+    System.out.printf("%d journal records, snapshot %d records before the end, %d runs each%n", records, tail, runs);
+    System.out.printf("%-10s %-10s %12s %12s %12s%n", "state", "mode", "median ms", "min ms", "RSS MB");
+    run("empty", modes, target, null, null, runs);
+    run("journal", modes, target, journal, null, runs);
+    run("snapshot", modes, target, journal, snapshot, runs);
+  }
+
+  private static void writeJournal(Path journalDirectory, Path snapshotDirectory, int records, int tail)
+          throws IOException {
+    SplittableRandom random = new SplittableRandom(42);
+    int today = (int) LocalDate.now().toEpochDay();
+    try (MappedBookingJournal journal = new MappedBookingJournal(journalDirectory, SEGMENT_SIZE, false)) {
+      append(journal, random, today, records - tail);
+    }
+    // reopened, every record so far counts as durable
+    try (MappedBookingJournal journal = new MappedBookingJournal(journalDirectory, SEGMENT_SIZE, false)) {
+      new SnapshotWriter(snapshotDirectory, journalDirectory, journal, Clock.systemDefaultZone(), Duration.ZERO)
+              .snapshot();
+      append(journal, random, today, tail);
+    }
+  }
+
+  /** Two-guest bookings only, so the four-guest rooms stay free for the probe booking. */
+  private static void append(MappedBookingJournal journal, SplittableRandom random, int today, int count) {
+    for (int i = 0; i < count; i++) {
+      int checkIn = today + 1 + random.nextInt(1000);
+      journal.append(BookingRecord.builder()
+              .type(BookingRecord.BOOKED)
+              .numberOfGuests(2)
+              .checkInDate(checkIn)
+              .checkOutDate(checkIn + 1 + random.nextInt(5))
+              .checkInTime(13 * 60)
+              .checkOutTime(12 * 60)
+              .roomNumber(101 + random.nextInt(20))
+              .build());
+    }
+  }
+
+  /** A {@code null} directory stands for a fresh, empty one per run. */
+  private static void run(String state, List<LaunchMode> modes, Path target, Path journal, Path snapshot, int runs)
+          throws Exception {
+    String recovered = "";
+    for (LaunchMode mode : modes) {
+      long[] millis = new long[runs];
+      long[] rssKilobytes = new long[runs];
+      for (int i = 0; i < runs; i++) {
+        Path log = Files.createTempFile("startup-benchmark", ".log");
+        Launch launch = timeToFirstBooking(mode.command(target),
+                journal != null ? journal : Files.createTempDirectory("journal"),
+                snapshot != null ? snapshot : Files.createTempDirectory("snapshot"), log);
+        millis[i] = launch.millis();
+        rssKilobytes[i] = launch.rssKilobytes();
+        try (Stream<String> lines = Files.lines(log)) {
+          recovered = lines.filter(line -> line.contains("Recovered bookings")).findFirst().orElse(recovered);
+        }
+        Files.delete(log);
+      }
+      Arrays.sort(millis);
+      Arrays.sort(rssKilobytes);
+      long rss = rssKilobytes[runs / 2];
+      System.out.printf("%-10s %-10s %12d %12d %12s%n", state, mode.name().toLowerCase(), millis[runs / 2], millis[0],
+              rss < 0 ? "n/a" : Long.toString(rss / 1024));
+    }
+    if (!recovered.isEmpty()) {
+      System.out.println("           " + recovered.substring(recovered.indexOf("Recovered bookings")));
+    }
+  }
+
+  private static Launch timeToFirstBooking(List<String> launch, Path journal, Path snapshot, Path log)
+          throws Exception {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    String java = ProcessHandle.current().info().command().orElse("java");
+    List<String> command = new ArrayList<>();
+    command.add(java);
+    command.addAll(launch);
+    command.addAll(List.of(
+            "--server.port=" + port,
+            "--spring.main.banner-mode=off",
+            "--hotel.journal.directory=" + journal,
+            "--hotel.journal.snapshot-directory=" + snapshot,
+            "--hotel.journal.snapshot-interval=0"));
+    String checkIn = LocalDate.now().plusDays(1).format(DATE);
+    String checkOut = LocalDate.now().plusDays(2).format(DATE);
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/hotel/book"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"numberOfGuests\":\"3\",\"checkInDate\":\"" + checkIn
+                    + "\",\"checkOutDate\":\"" + checkOut + "\",\"checkInTime\":\"13:00\",\"checkOutTime\":\"12:00\"}"))
+            .build();
+
+    try (HttpClient client = HttpClient.newHttpClient()) {
+      long start = System.nanoTime();
+      Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+      try {
+        while (true) {
+          if (!process.isAlive()) {
+            throw new IllegalStateException("Application exited with " + process.exitValue() + ", see " + log);
+          }
+          try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            // 202 once rooms are assigned after the response
+            if (response.statusCode() / 100 == 2) {
+              long millis = (System.nanoTime() - start) / 1_000_000;
+              return new Launch(millis, residentKilobytes(process.pid()));
+            }
+            throw new IllegalStateException("First booking was answered with " + response.statusCode());
+          } catch (ConnectException e) {
+            Thread.sleep(5);
+          }
+        }
+      } finally {
+        process.destroyForcibly().waitFor();
+      }
+    }
+  }
+
+  /** VmRSS from {@code /proc}, so -1 on anything but Linux. */
+  private static long residentKilobytes(long pid) throws IOException {
+    Path status = Path.of("/proc", Long.toString(pid), "status");
+    if (!Files.exists(status)) {
+      return -1;
+    }
+    try (Stream<String> lines = Files.lines(status)) {
+      return lines.filter(line -> line.startsWith("VmRSS:"))
+              .map(line -> Long.parseLong(line.replaceAll("\\D", "")))
+              .findFirst()
+              .orElse(-1L);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.config;
+
+import com.example.demo.controller.AdmissionFilter;
+import com.example.demo.controller.ReactiveAdmissionFilter;
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.admission.AdmissionControl;
+import com.example.demo.service.admission.ClientRateLimiter;
+import com.example.demo.service.admission.ConcurrencyLimiter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+@ConditionalOnProperty(prefix = "hotel.admission", name = "enabled", matchIfMissing = true)
+public class AdmissionConfig {
+
+  @Bean
+  public AdmissionControl admissionControl(AdmissionProperties properties, BookingMetrics bookingMetrics) {
+    return new AdmissionControl(
+            new ClientRateLimiter(properties.getRequestsPerSecond(), properties.getBurst(), properties.getClientSlots()),
+            new ConcurrencyLimiter(properties.getMaxConcurrentRequests()),
+            bookingMetrics);
+  }
+
+  @Bean
+  @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+  public FilterRegistrationBean<AdmissionFilter> admissionFilter(AdmissionControl admissionControl,
+                                                                 AdmissionProperties properties) {
+    FilterRegistrationBean<AdmissionFilter> registration = new FilterRegistrationBean<>(
+            new AdmissionFilter(admissionControl, properties.getClientHeader(), properties.getTrustedProxies()));
+    registration.addUrlPatterns(AdmissionFilter.PATHS);
+    return registration;
+  }
+
+  @Bean
+  @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+  public ReactiveAdmissionFilter reactiveAdmissionFilter(AdmissionControl admissionControl,
+                                                         AdmissionProperties properties) {
+    return new ReactiveAdmissionFilter(admissionControl, properties.getClientHeader(),
+            properties.getTrustedProxies());
+  }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "hotel.admission")
+public class AdmissionProperties {
+
+  /** Whether booking requests are rate limited per client and shed under overload at all. */
+  private boolean enabled = true;
+
+  /**
+   * Header a trusted proxy names the client in, after setting or checking it; requests are
+   * otherwise limited by remote address. Unset, only the remote address is used.
+   */
+  private String clientHeader;
+
+  /** Addresses of the proxies whose {@link #clientHeader} is believed; from anyone else it is ignored. */
+  private List<String> trustedProxies = new ArrayList<>();
+
+  /** Sustained booking requests per second allowed for each client. */
+  private double requestsPerSecond = 10;
+
+  /** Booking requests a client may send at once after being idle. */
+  private int burst = 20;
+
+  /** Size of the table of client buckets, which bounds its memory however many clients there are. */
+  private int clientSlots = 65_536;
+
+  /** Booking requests served at once across all clients; more are turned away with 503. */
+  private int maxConcurrentRequests = 512;
+}
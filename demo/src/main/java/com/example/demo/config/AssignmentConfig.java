@@ -0,0 +1,66 @@
+package com.example.demo.config;
+
+import com.example.demo.service.assignment.BookingConfirmations;
+import com.example.demo.service.assignment.RoomAssigner;
+import com.example.demo.service.assignment.RoomOptimizer;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.journal.BookingJournal;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.BookingRecovery;
+import com.example.demo.service.sharding.ShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+@EnableConfigurationProperties(AssignmentProperties.class)
+public class AssignmentConfig {
+
+  /**
+   * Carries on numbering after the highest booking id recovered from disk, reserved ones included,
+   * with the ids that mark this node as the one that made the booking when the hotel is sharded.
+   */
+  @Bean
+  public BookingConfirmations bookingConfirmations(AssignmentProperties properties,
+                                                   BookingRecovery.Result recoveredBookings,
+                                                   ShardRouter shardRouter, BookingJournal bookingJournal) {
+    return new BookingConfirmations(shardRouter.firstBookingId(recoveredBookings.getNextBookingId()),
+            shardRouter.bookingIdStep(), properties.getStatusTtl(), properties.getMaxStatuses(), bookingJournal,
+            properties.getBookingIdBlock());
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "hotel.assignment", name = "enabled", matchIfMissing = true)
+  public RoomAssigner roomAssigner(AssignmentProperties properties, RoomInventory roomInventory,
+                                   BookingJournal bookingJournal, BookingConfirmations bookingConfirmations,
+                                   BookingLedger bookingLedger, MeterRegistry meterRegistry, Clock clock) {
+    return new RoomAssigner(roomInventory, bookingJournal, bookingConfirmations, bookingLedger, meterRegistry,
+            properties.getQueueCapacity(), properties.getBatchSize(), clock, confirmationLead(properties));
+  }
+
+  /** Nothing asks for the optimizer, so under lazy initialization its passes would never run. */
+  @Bean
+  public static LazyInitializationExcludeFilter eagerRoomOptimizer() {
+    return LazyInitializationExcludeFilter.forBeanTypes(RoomOptimizer.class);
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "hotel.assignment", name = "enabled", matchIfMissing = true)
+  public RoomOptimizer roomOptimizer(AssignmentProperties properties, RoomInventory roomInventory,
+                                     BookingJournal bookingJournal, BookingConfirmations bookingConfirmations,
+                                     BookingLedger bookingLedger, MeterRegistry meterRegistry, Clock clock) {
+    return new RoomOptimizer(roomInventory, bookingJournal, bookingConfirmations, bookingLedger, meterRegistry,
+            clock, confirmationLead(properties), properties.getReoptimizeWindowDays(), properties.getReoptimizeInterval());
+  }
+
+  // without passes nothing would ever confirm a reservation, so rooms are confirmed at once
+  private static Duration confirmationLead(AssignmentProperties properties) {
+    return properties.getReoptimizeInterval().isPositive() ? properties.getConfirmationLead() : Duration.ZERO;
+  }
+}
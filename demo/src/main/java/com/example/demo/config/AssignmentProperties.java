@@ -0,0 +1,41 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hotel.assignment")
+public class AssignmentProperties {
+
+  /** Whether rooms are assigned after the response, which then only carries a booking id to poll. */
+  private boolean enabled = true;
+
+  /** Most accepted bookings waiting for a room; beyond that new bookings are turned away as overloaded. */
+  private int queueCapacity = 65_536;
+
+  /** Most bookings assigned together under one journal flush. */
+  private int batchSize = 256;
+
+  /** How long the status of a booking can be polled after it last changed. */
+  private Duration statusTtl = Duration.ofHours(24);
+
+  /** Most booking statuses remembered at once. */
+  private long maxStatuses = 1_000_000;
+
+  /** Booking ids reserved in the journal at a time, so none is handed out twice across restarts. */
+  private int bookingIdBlock = 1024;
+
+  /**
+   * Stays starting at least this far ahead are only reserved, and may be moved to another room of
+   * the same size until their room number is confirmed this long before check-in.
+   */
+  private Duration confirmationLead = Duration.ofDays(14);
+
+  /** Time between passes that confirm due reservations and rearrange the rest; 0 confirms every room at once. */
+  private Duration reoptimizeInterval = Duration.ofMinutes(5);
+
+  /** Length of the date windows rearranged in parallel; a stay is only moved within one. */
+  private int reoptimizeWindowDays = 32;
+}
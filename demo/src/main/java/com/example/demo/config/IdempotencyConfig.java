@@ -0,0 +1,17 @@
+package com.example.demo.config;
+
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.IdempotencyCache;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyConfig {
+
+  @Bean
+  public IdempotencyCache idempotencyCache(HotelBookingSystem hotelBookingSystem, IdempotencyProperties properties) {
+    return new IdempotencyCache(hotelBookingSystem, properties.getTtl(), properties.getMaxEntries());
+  }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hotel.idempotency")
+public class IdempotencyProperties {
+
+  /** How long the response to an {@code Idempotency-Key} is replayed after it was first produced. */
+  private Duration ttl = Duration.ofHours(24);
+
+  /** Most keys remembered at once; the least valuable are evicted first once this is reached. */
+  private long maxEntries = 100_000;
+}
@@ -0,0 +1,48 @@
+package com.example.demo.config;
+
+import com.example.demo.service.inventory.HorizonAdvancer;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.sharding.ShardRouter;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(InventoryProperties.class)
+public class InventoryConfig {
+
+  /** The rooms of the groups this node owns, which is all of them unless the hotel is sharded. */
+  @Bean
+  public RoomInventory roomInventory(InventoryProperties properties, ShardRouter shardRouter, Clock clock) {
+    List<Room> rooms = new ArrayList<>();
+    for (InventoryProperties.RoomGroup group : properties.getRoomGroups()) {
+      if (!shardRouter.owns(group.getFirstNumber())) {
+        continue;
+      }
+      for (int i = 0; i < group.getCount(); i++) {
+        rooms.add(new Room(group.getFirstNumber() + i, group.getCapacity()));
+      }
+    }
+    int firstDay = (int) LocalDate.now(clock).toEpochDay();
+    return new RoomInventory(rooms, firstDay, properties.getHorizonDays(), properties.getPlacement(),
+            properties.getMinSellableNights());
+  }
+
+  /** Nothing asks for the horizon advancer, so under lazy initialization it would never start. */
+  @Bean
+  public static LazyInitializationExcludeFilter eagerHorizonAdvancer() {
+    return LazyInitializationExcludeFilter.forBeanTypes(HorizonAdvancer.class);
+  }
+
+  @Bean
+  public HorizonAdvancer horizonAdvancer(RoomInventory roomInventory, Clock clock, InventoryProperties properties) {
+    return new HorizonAdvancer(roomInventory, clock, properties.getAdvanceInterval());
+  }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.config;
+
+import com.example.demo.service.inventory.RoomInventory;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "hotel.inventory")
+public class InventoryProperties {
+
+  /** How many days ahead, counted from today, rooms can be booked. */
+  private int horizonDays = 1096;
+
+  /** How often the horizon is checked against the date and moved on when a day has passed; 0 never. */
+  private Duration advanceInterval = Duration.ofMinutes(1);
+
+  private List<RoomGroup> roomGroups = new ArrayList<>();
+
+  /** How a booking chooses among free rooms of the smallest size that fits. */
+  private RoomInventory.Placement placement = RoomInventory.Placement.BEST_FIT;
+
+  /** Shortest gap between two stays, in nights, that is still worth selling. */
+  private int minSellableNights = RoomInventory.DEFAULT_MIN_SELLABLE_NIGHTS;
+
+  /** {@code count} consecutively numbered rooms of the same capacity. */
+  @Data
+  public static class RoomGroup {
+    private int firstNumber;
+    private int count;
+    private int capacity;
+  }
+}
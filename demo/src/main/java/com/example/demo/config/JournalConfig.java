@@ -0,0 +1,117 @@
+package com.example.demo.config;
+
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.journal.BookingJournal;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.BookingRecord;
+import com.example.demo.service.journal.BookingRecovery;
+import com.example.demo.service.journal.HeapBookingLedger;
+import com.example.demo.service.journal.MappedBookingJournal;
+import com.example.demo.service.journal.NoopBookingJournal;
+import com.example.demo.service.journal.OffHeapBookingLedger;
+import com.example.demo.service.journal.RecoveredWaitlist;
+import com.example.demo.service.journal.SnapshotWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(JournalProperties.class)
+public class JournalConfig {
+
+  private static final Logger log = LoggerFactory.getLogger(JournalConfig.class);
+
+  @Bean
+  public BookingLedger bookingLedger(JournalProperties properties) {
+    return properties.getLedgerStorage() == BookingLedger.Storage.OFF_HEAP
+            ? new OffHeapBookingLedger()
+            : new HeapBookingLedger();
+  }
+
+  /** Filled in by recovery with the bookings that were still waitlisted on disk. */
+  @Bean
+  public RecoveredWaitlist recoveredWaitlist() {
+    return new RecoveredWaitlist();
+  }
+
+  /**
+   * Brings the inventory, the ledger and the recovered waitlist up to date with what is on disk,
+   * before the journal accepts new records. Refuses to start if any of those bookings is one this
+   * node can no longer serve, as after its room groups changed; see {@link BookingRecovery#unservable}.
+   */
+  @Bean
+  public BookingRecovery.Result recoveredBookings(JournalProperties properties, RoomInventory roomInventory,
+                                                  BookingLedger bookingLedger, RecoveredWaitlist recoveredWaitlist)
+          throws IOException {
+    if (!properties.isEnabled()) {
+      return new BookingRecovery.Result(0, 0, 0, 1);
+    }
+    long start = System.nanoTime();
+    BookingRecovery.Result recovered = BookingRecovery.recover(roomInventory, record -> {
+      bookingLedger.replayed(record);
+      recoveredWaitlist.replayed(record);
+    }, properties.getSnapshotDirectory(), properties.getDirectory());
+    log.info("Recovered bookings up to sequence {}: snapshot at {}, {} journal records replayed, {} live bookings,"
+                    + " in {} ms", recovered.getNextSequence(), recovered.getSnapshotSequence(),
+            recovered.getReplayedRecords(), bookingLedger.size(), (System.nanoTime() - start) / 1_000_000);
+    List<BookingRecord> unservable = BookingRecovery.unservable(roomInventory, bookingLedger, recoveredWaitlist);
+    if (!unservable.isEmpty()) {
+      throw new IllegalStateException(("%d recovered bookings are for rooms this node does not hold, such as %s."
+              + " The room groups or nodes changed after they were made: start the hotel with its previous"
+              + " hotel.inventory and hotel.sharding settings, export its bookings, and import them into the"
+              + " new layout on empty journals.").formatted(unservable.size(),
+              unservable.stream().limit(10).map(BookingRecord::getBookingId).toList()));
+    }
+    return recovered;
+  }
+
+  // takes the recovery result only so that recovery has finished before the journal opens
+  @Bean
+  public BookingJournal bookingJournal(JournalProperties properties, BookingRecovery.Result recoveredBookings)
+          throws IOException {
+    if (!properties.isEnabled()) {
+      return new NoopBookingJournal();
+    }
+    return new MappedBookingJournal(properties.getDirectory(),
+            Math.toIntExact(properties.getSegmentSize().toBytes()), properties.isSync());
+  }
+
+  /**
+   * Reports the service down once the journal has failed, since every booking is then turned away
+   * as not saved until the service is restarted.
+   */
+  @Bean
+  public HealthIndicator bookingJournalHealthIndicator(BookingJournal bookingJournal) {
+    return () -> {
+      IOException failure = bookingJournal.getFailure();
+      return failure == null ? Health.up().build() : Health.down(failure).build();
+    };
+  }
+
+  /**
+   * Nothing asks for the snapshot writer, so under lazy initialization it would never be created and
+   * never take a snapshot; it also makes recovery finish before the application reports it started.
+   */
+  @Bean
+  public static LazyInitializationExcludeFilter eagerSnapshotWriter() {
+    return LazyInitializationExcludeFilter.forBeanTypes(SnapshotWriter.class);
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "hotel.journal", name = "enabled", matchIfMissing = true)
+  public SnapshotWriter snapshotWriter(JournalProperties properties, BookingJournal bookingJournal, Clock clock,
+                                      BookingLedger bookingLedger) {
+    return new SnapshotWriter(properties.getSnapshotDirectory(), properties.getDirectory(), bookingJournal, clock,
+            properties.getSnapshotInterval(), bookingLedger);
+  }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.config;
+
+import com.example.demo.service.journal.BookingLedger;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hotel.journal")
+public class JournalProperties {
+
+  /** Whether accepted bookings are written to the journal at all. */
+  private boolean enabled = true;
+
+  private Path directory = Path.of("data", "journal");
+
+  /** Size of each memory-mapped segment file. */
+  private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+  /** Whether a booking is only confirmed once its journal record has been flushed to disk. */
+  private boolean sync = true;
+
+  private Path snapshotDirectory = Path.of("data", "snapshot");
+
+  /** How often occupancy is snapshotted so that startup replays less of the journal; 0 only on shutdown. */
+  private Duration snapshotInterval = Duration.ofMinutes(10);
+
+  /** Where live bookings are kept in memory; off-heap keeps the heap small for long horizons. */
+  private BookingLedger.Storage ledgerStorage = BookingLedger.Storage.HEAP;
+}
@@ -0,0 +1,21 @@
+package com.example.demo.config;
+
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.pricing.PricingEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(PricingProperties.class)
+public class PricingConfig {
+
+  @Bean
+  public PricingEngine pricingEngine(RoomInventory roomInventory, PricingProperties properties,
+                                     MeterRegistry meterRegistry) {
+    return new PricingEngine(roomInventory, properties.getBaseRate().movePointRight(2).longValueExact(),
+            properties.getGuestRate().movePointRight(2).longValueExact(), properties.getSurgeFrom(),
+            properties.getPeakMultiplier(), properties.getMaxQuotes(), meterRegistry);
+  }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+
+@Data
+@ConfigurationProperties(prefix = "hotel.pricing")
+public class PricingProperties {
+
+  /** Price of a night for a single guest while the hotel is quiet. */
+  private BigDecimal baseRate = new BigDecimal("100.00");
+
+  /** Added to the price of a night for every guest after the first. */
+  private BigDecimal guestRate = new BigDecimal("20.00");
+
+  /** Share of the rooms able to take the party, from 0 to 1, taken before prices start to rise. */
+  private double surgeFrom = 0.6;
+
+  /** How many times the usual price a night costs once every room able to take the party is taken. */
+  private double peakMultiplier = 2.0;
+
+  /** Most stay quotes cached at once. */
+  private long maxQuotes = 100_000;
+}
@@ -0,0 +1,86 @@
+package com.example.demo.config;
+
+import com.example.demo.controller.ReactiveShardHopFilter;
+import com.example.demo.controller.ShardHopFilter;
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.IdempotencyCache;
+import com.example.demo.service.sharding.ShardRouter;
+import com.example.demo.service.sharding.ShardedBookings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.net.http.HttpClient;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+  private static final Logger log = LoggerFactory.getLogger(ShardingConfig.class);
+
+  /** Which room groups this node holds; all of them unless sharding is enabled. */
+  @Bean
+  public ShardRouter shardRouter(ShardingProperties properties, InventoryProperties inventoryProperties) {
+    List<ShardRouter.Group> groups = inventoryProperties.getRoomGroups().stream()
+            .map(group -> new ShardRouter.Group(group.getFirstNumber(), group.getCapacity()))
+            .toList();
+    if (!properties.isEnabled()) {
+      return ShardRouter.unsharded(groups);
+    }
+    if (properties.getSecret() == null || properties.getSecret().isBlank()) {
+      throw new IllegalStateException("hotel.sharding.secret must be set when sharding is enabled");
+    }
+    ShardRouter router = new ShardRouter(
+            properties.getNodes().stream().map(node -> new ShardRouter.Node(node.getId(), node.getUrl())).toList(),
+            properties.getNodeId(), groups, properties.getPointsPerNode());
+    Map<Integer, Integer> owners = new TreeMap<>();
+    router.groupOwners().forEach((firstNumber, node) -> owners.put(firstNumber, node.id()));
+    log.info("Node {} of {}; owner of each room group by first room number: {}", properties.getNodeId(),
+            properties.getNodes().size(), owners);
+    return router;
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "hotel.sharding", name = "enabled")
+  public ShardedBookings shardedBookings(ShardingProperties properties, ShardRouter shardRouter,
+                                         HotelBookingSystem hotelBookingSystem, IdempotencyCache idempotencyCache,
+                                         ObjectMapper objectMapper) {
+    HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(properties.getForwardTimeout())
+            .build();
+    return new ShardedBookings(shardRouter, hotelBookingSystem, idempotencyCache, objectMapper, httpClient,
+            properties.getForwardTimeout(), properties.getSecret());
+  }
+
+  /** Drops the hop header of every request that is not from another node, ahead of admission control. */
+  @Bean
+  @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+  public FilterRegistrationBean<ShardHopFilter> shardHopFilter(ShardingProperties properties) {
+    FilterRegistrationBean<ShardHopFilter> registration =
+            new FilterRegistrationBean<>(new ShardHopFilter(trustedSecret(properties)));
+    registration.addUrlPatterns("/api/*");
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+    return registration;
+  }
+
+  @Bean
+  @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+  public ReactiveShardHopFilter reactiveShardHopFilter(ShardingProperties properties) {
+    return new ReactiveShardHopFilter(trustedSecret(properties));
+  }
+
+  private static String trustedSecret(ShardingProperties properties) {
+    return properties.isEnabled() ? properties.getSecret() : null;
+  }
+}
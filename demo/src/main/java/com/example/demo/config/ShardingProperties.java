@@ -0,0 +1,39 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "hotel.sharding")
+public class ShardingProperties {
+
+  /** Whether the room groups are split across several nodes, each serving the whole API. */
+  private boolean enabled = false;
+
+  /** Id of this node among {@code nodes}. */
+  private int nodeId = 0;
+
+  /** Every node of the hotel, this one included; the same list on all of them. */
+  private List<Node> nodes = new ArrayList<>();
+
+  /** Points each node has on the hash ring; more spreads room groups more evenly. */
+  private int pointsPerNode = 128;
+
+  /** Longest wait for another node to answer a request sent on to it. */
+  private Duration forwardTimeout = Duration.ofSeconds(5);
+
+  /** Shared by every node and sent with each request between them; required when enabled. */
+  private String secret;
+
+  /** A node: an id from 0 to 63 that never changes, and the base URL of its API. */
+  @Data
+  public static class Node {
+    private int id;
+    private URI url;
+  }
+}
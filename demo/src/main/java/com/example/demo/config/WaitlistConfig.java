@@ -0,0 +1,32 @@
+package com.example.demo.config;
+
+import com.example.demo.service.assignment.BookingConfirmations;
+import com.example.demo.service.assignment.Waitlist;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.journal.BookingJournal;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.RecoveredWaitlist;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+@EnableConfigurationProperties(WaitlistProperties.class)
+public class WaitlistConfig {
+
+  /** Picks up the bookings that were still waiting for a room when the service stopped. */
+  @Bean
+  @ConditionalOnProperty(prefix = "hotel.waitlist", name = "enabled", matchIfMissing = true)
+  public Waitlist waitlist(WaitlistProperties properties, RoomInventory roomInventory, BookingJournal bookingJournal,
+                           BookingConfirmations bookingConfirmations, BookingLedger bookingLedger,
+                           MeterRegistry meterRegistry, Clock clock, RecoveredWaitlist recoveredWaitlist) {
+    Waitlist waitlist = new Waitlist(roomInventory, bookingJournal, bookingConfirmations, bookingLedger,
+            meterRegistry, clock, properties.getMaxEntries());
+    waitlist.restore(recoveredWaitlist);
+    return waitlist;
+  }
+}
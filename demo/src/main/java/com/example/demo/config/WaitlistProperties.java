@@ -0,0 +1,15 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "hotel.waitlist")
+public class WaitlistProperties {
+
+  /** Whether a booking that finds the hotel sold out is waitlisted instead of turned down. */
+  private boolean enabled = true;
+
+  /** Most bookings waitlisted at once; beyond that sold-out bookings are turned down. */
+  private int maxEntries = 500_000;
+}
@@ -0,0 +1,92 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.CannedResponses;
+import com.example.demo.service.admission.AdmissionControl;
+import com.example.demo.service.sharding.ShardedBookings;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Runs every booking request past {@link AdmissionControl} before it reaches
+ * {@link BookingController}, answering 429 or 503 with a {@code Retry-After} header when it is
+ * turned away. Clients are told apart by remote address; the client header is only believed on
+ * requests from a trusted proxy, which sets or checks it, since anyone else could send a new value
+ * with every request to get a fresh bucket each time. A batch or an import counts as one request,
+ * and a booking passed on by another node of a sharded hotel ({@value ShardedBookings#HOP_HEADER})
+ * is not counted again, since the node it first reached already admitted it; {@link ShardHopFilter}
+ * has removed the header from any request that did not come from a node.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+  /** Paths admission control applies to. */
+  public static final String[] PATHS =
+          {"/api/v1/hotel/book", "/api/v1/hotel/book/batch", "/api/v1/hotel/bookings/import"};
+
+  private final AdmissionControl admissionControl;
+  private final String clientHeader;
+  private final Set<String> trustedProxies;
+
+  /**
+   * @param clientHeader   header a trusted proxy names the client in, or null to go by remote address alone
+   * @param trustedProxies addresses of the proxies whose client header is believed
+   */
+  public AdmissionFilter(AdmissionControl admissionControl, String clientHeader, Collection<String> trustedProxies) {
+    this.admissionControl = admissionControl;
+    this.clientHeader = clientHeader;
+    this.trustedProxies = addresses(trustedProxies);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+          throws ServletException, IOException {
+    if (request.getHeader(ShardedBookings.HOP_HEADER) != null) {
+      chain.doFilter(request, response);
+      return;
+    }
+    String remoteAddress = request.getRemoteAddr();
+    AdmissionControl.Decision decision = admissionControl.admit(clientKey(remoteAddress,
+            clientHeader != null && trustedProxies.contains(remoteAddress) ? request.getHeader(clientHeader) : null));
+    if (!decision.isAdmitted()) {
+      response.setStatus(decision.rejection().getStatus().value());
+      response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(decision.retryAfterSeconds()));
+      response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+      response.getOutputStream().write(CannedResponses.json(decision.rejection()));
+      return;
+    }
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      admissionControl.release();
+    }
+  }
+
+  /** The client a trusted proxy named, if it named one, otherwise the remote address. */
+  static String clientKey(String remoteAddress, String proxiedClient) {
+    return proxiedClient != null && !proxiedClient.isEmpty() ? proxiedClient : remoteAddress;
+  }
+
+  /** The addresses as requests report them, so that they can be compared as strings. */
+  static Set<String> addresses(Collection<String> hosts) {
+    Set<String> addresses = new HashSet<>();
+    for (String host : hosts) {
+      try {
+        addresses.add(InetAddress.getByName(host.trim()).getHostAddress());
+      } catch (UnknownHostException e) {
+        throw new IllegalArgumentException("Unknown trusted proxy: " + host, e);
+      }
+    }
+    return Set.copyOf(addresses);
+  }
+}
@@ -1,25 +1,206 @@
 package com.example.demo.controller;
 
-import com.example.demo.dto.BookingRequest;
+import com.example.demo.dto.AvailabilityResponse;
 import com.example.demo.dto.BookingResponse;
+import com.example.demo.dto.IdempotencyStats;
+import com.example.demo.dto.ImportReport;
+import com.example.demo.dto.QuoteResponse;
+import com.example.demo.service.AvailabilitySearch;
+import com.example.demo.service.BookingBatchProcessor;
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.BookingRejection;
+import com.example.demo.service.CannedResponses;
 import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.IdempotencyCache;
+import com.example.demo.service.ParsedBookingRequest;
+import com.example.demo.service.PriceQuotes;
+import com.example.demo.service.bulk.BookingExporter;
+import com.example.demo.service.bulk.BookingImporter;
+import com.example.demo.service.bulk.BulkFormat;
+import com.example.demo.service.sharding.ShardedBookings;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.List;
+
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/v1/hotel")
 public class BookingController {
 
   @Autowired
   private HotelBookingSystem hotelBookingSystem;
 
+  @Autowired
+  private BookingBatchProcessor bookingBatchProcessor;
+
+  @Autowired
+  private IdempotencyCache idempotencyCache;
+
+  @Autowired
+  private AvailabilitySearch availabilitySearch;
+
+  @Autowired
+  private PriceQuotes priceQuotes;
+
+  @Autowired
+  private BookingImporter bookingImporter;
+
+  @Autowired
+  private BookingExporter bookingExporter;
+
+  @Autowired
+  private BookingMetrics bookingMetrics;
+
+  /** Present only when the hotel is sharded across nodes. */
+  @Autowired(required = false)
+  private ShardedBookings shardedBookings;
+
   @PostMapping("/book")
-  public ResponseEntity<BookingResponse> book(@RequestBody BookingRequest bookingRequest) {
-    return hotelBookingSystem.processBooking(bookingRequest);
+  public ResponseEntity<?> book(
+          @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+          @RequestHeader(name = ShardedBookings.HOP_HEADER, required = false) String hop,
+          @RequestBody ParsedBookingRequest bookingRequest) {
+    bookingMetrics.getBookingsInFlight().incrementAndGet();
+    try {
+      if (shardedBookings != null) {
+        return CannedResponses.serialized(idempotencyKey == null
+                ? shardedBookings.book(hop, bookingRequest).join()
+                : shardedBookings.book(hop, idempotencyKey, bookingRequest));
+      }
+      if (idempotencyKey == null) {
+        return CannedResponses.serialized(hotelBookingSystem.processBooking(bookingRequest));
+      }
+      return CannedResponses.serialized(idempotencyCache.processBooking(idempotencyKey, bookingRequest));
+    } finally {
+      bookingMetrics.getBookingsInFlight().decrementAndGet();
+    }
+  }
+
+  @GetMapping("/bookings/{bookingId}")
+  public ResponseEntity<?> booking(@PathVariable int bookingId) {
+    if (shardedBookings != null && !shardedBookings.isLocal(bookingId)) {
+      return CannedResponses.serialized(shardedBookings.forward(HttpMethod.GET, bookingId, null).join());
+    }
+    return CannedResponses.serialized(hotelBookingSystem.getBooking(bookingId));
+  }
+
+  @DeleteMapping("/bookings/{bookingId}")
+  public ResponseEntity<?> cancel(@PathVariable int bookingId) {
+    if (shardedBookings != null && !shardedBookings.isLocal(bookingId)) {
+      return CannedResponses.serialized(shardedBookings.forward(HttpMethod.DELETE, bookingId, null).join());
+    }
+    return CannedResponses.serialized(hotelBookingSystem.cancelBooking(bookingId));
+  }
+
+  @PatchMapping("/bookings/{bookingId}")
+  public ResponseEntity<?> modify(@PathVariable int bookingId, @RequestBody ParsedBookingRequest changes) {
+    if (shardedBookings != null && !shardedBookings.isLocal(bookingId)) {
+      return CannedResponses.serialized(shardedBookings.forward(HttpMethod.PATCH, bookingId, changes).join());
+    }
+    return CannedResponses.serialized(hotelBookingSystem.modifyBooking(bookingId, changes));
+  }
+
+  @GetMapping("/book/idempotency-stats")
+  public IdempotencyStats idempotencyStats() {
+    return idempotencyCache.getStats();
+  }
+
+  @PostMapping(path = "/book/batch",
+          consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+          produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public void bookBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    bookingMetrics.getBatchesInFlight().incrementAndGet();
+    try {
+      bookingBatchProcessor.process(request.getInputStream(), response.getOutputStream());
+    } finally {
+      bookingMetrics.getBatchesInFlight().decrementAndGet();
+    }
+  }
+
+  @PostMapping("/bookings/import")
+  public ResponseEntity<?> importBookings(@RequestParam(defaultValue = "ndjson") String format,
+                                          HttpServletRequest request) throws IOException {
+    BulkFormat bulkFormat = BulkFormat.of(format);
+    if (bulkFormat == null) {
+      return formatNotSupported();
+    }
+    ImportReport report = bookingImporter.importBookings(Channels.newChannel(request.getInputStream()), bulkFormat);
+    return ResponseEntity.ok(report);
+  }
+
+  @GetMapping("/bookings/export")
+  public void exportBookings(@RequestParam(defaultValue = "ndjson") String format,
+                             @RequestHeader(name = ShardedBookings.HOP_HEADER, required = false) String hop,
+                             HttpServletResponse response) throws IOException {
+    BulkFormat bulkFormat = BulkFormat.of(format);
+    if (bulkFormat == null) {
+      reject(response, BookingRejection.FORMAT_NOT_SUPPORTED);
+      return;
+    }
+    List<InputStream> others;
+    try {
+      others = shardedBookings != null ? shardedBookings.openExports(hop, bulkFormat) : List.of();
+    } catch (IOException e) {
+      reject(response, BookingRejection.SHARD_UNAVAILABLE);
+      return;
+    }
+    response.setContentType(bulkFormat.getMediaType().toString());
+    bookingExporter.export(Channels.newChannel(response.getOutputStream()), bulkFormat, others);
+  }
+
+  private static void reject(HttpServletResponse response, BookingRejection rejection) throws IOException {
+    response.setStatus(rejection.getStatus().value());
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.getOutputStream().write(CannedResponses.json(rejection));
+  }
+
+  @GetMapping("/availability")
+  public ResponseEntity<AvailabilityResponse> availability(
+          @RequestParam(required = false) String from,
+          @RequestParam(required = false) String to,
+          @RequestParam(required = false) String guests,
+          @RequestParam(defaultValue = "1") int nights,
+          @RequestParam(defaultValue = "10") int limit) {
+    bookingMetrics.getSearchesInFlight().incrementAndGet();
+    try {
+      return availabilitySearch.search(from, to, guests, nights, limit);
+    } finally {
+      bookingMetrics.getSearchesInFlight().decrementAndGet();
+    }
+  }
+
+  @GetMapping("/quote")
+  public ResponseEntity<QuoteResponse> quote(
+          @RequestParam(required = false) String checkInDate,
+          @RequestParam(required = false) String checkOutDate,
+          @RequestParam(required = false) String guests) {
+    return priceQuotes.quote(checkInDate, checkOutDate, guests);
+  }
+
+  private static ResponseEntity<byte[]> formatNotSupported() {
+    return ResponseEntity.status(BookingRejection.FORMAT_NOT_SUPPORTED.getStatus())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(CannedResponses.json(BookingRejection.FORMAT_NOT_SUPPORTED));
   }
 
 }
@@ -0,0 +1,66 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.CannedResponses;
+import com.example.demo.service.admission.AdmissionControl;
+import com.example.demo.service.sharding.ShardedBookings;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link AdmissionFilter} for {@link ReactiveBookingController}: the concurrency slot is held until
+ * the response completes rather than until a thread returns.
+ */
+public class ReactiveAdmissionFilter implements WebFilter {
+
+  private static final List<String> PATHS = Arrays.asList(AdmissionFilter.PATHS);
+
+  private final AdmissionControl admissionControl;
+  private final String clientHeader;
+  private final Set<String> trustedProxies;
+
+  public ReactiveAdmissionFilter(AdmissionControl admissionControl, String clientHeader,
+                                 Collection<String> trustedProxies) {
+    this.admissionControl = admissionControl;
+    this.clientHeader = clientHeader;
+    this.trustedProxies = AdmissionFilter.addresses(trustedProxies);
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    ServerHttpRequest request = exchange.getRequest();
+    if (request.getMethod() != HttpMethod.POST || !PATHS.contains(request.getPath().value())
+            || request.getHeaders().containsKey(ShardedBookings.HOP_HEADER)) {
+      return chain.filter(exchange);
+    }
+    InetSocketAddress remote = request.getRemoteAddress();
+    String remoteAddress = remote != null ? remote.getAddress().getHostAddress() : "";
+    AdmissionControl.Decision decision = admissionControl.admit(AdmissionFilter.clientKey(remoteAddress,
+            clientHeader != null && trustedProxies.contains(remoteAddress)
+                    ? request.getHeaders().getFirst(clientHeader) : null));
+    if (!decision.isAdmitted()) {
+      return reject(exchange.getResponse(), decision);
+    }
+    return chain.filter(exchange).doFinally(signal -> admissionControl.release());
+  }
+
+  private Mono<Void> reject(ServerHttpResponse response, AdmissionControl.Decision decision) {
+    byte[] body = CannedResponses.json(decision.rejection());
+    response.setStatusCode(decision.rejection().getStatus());
+    response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(decision.retryAfterSeconds()));
+    response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+    return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+  }
+}
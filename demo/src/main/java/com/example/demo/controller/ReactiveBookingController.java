@@ -0,0 +1,296 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.AvailabilityResponse;
+import com.example.demo.dto.BookingResponse;
+import com.example.demo.dto.IdempotencyStats;
+import com.example.demo.dto.ImportReport;
+import com.example.demo.dto.QuoteResponse;
+import com.example.demo.service.AvailabilitySearch;
+import com.example.demo.service.BookingBatchProcessor;
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.BookingRejection;
+import com.example.demo.service.CannedResponses;
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.IdempotencyCache;
+import com.example.demo.service.ParsedBookingRequest;
+import com.example.demo.service.PriceQuotes;
+import com.example.demo.service.bulk.BookingExporter;
+import com.example.demo.service.bulk.BookingImporter;
+import com.example.demo.service.bulk.BulkFormat;
+import com.example.demo.service.sharding.ShardedBookings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Pipe;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The booking API on WebFlux, active with the {@code reactive} profile. No request holds a thread
+ * while its booking is being flushed to the journal: {@link HotelBookingSystem#processBookingAsync}
+ * completes when the journal does, and the response is then handed back to a parallel scheduler so
+ * the flushing thread is not kept busy writing responses.
+ *
+ * <p>A batch is decoded as it arrives and at most {@value #BATCH_CONCURRENCY} of its bookings wait
+ * on the journal at once; the request body is only read further as responses are written, so a
+ * slow reader or a huge batch pushes back on the sender instead of piling up in memory.
+ *
+ * <p>Bulk import and export read and write blocking channels, so they run on the bounded elastic
+ * scheduler and are joined to the request and response bodies by a {@link Pipe}, which pushes back
+ * the same way.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/v1/hotel")
+public class ReactiveBookingController {
+
+  static final int BATCH_CONCURRENCY = 64;
+
+  private static final int EXPORT_BUFFER_BYTES = 64 * 1024;
+
+  @Autowired
+  private HotelBookingSystem hotelBookingSystem;
+
+  @Autowired
+  private IdempotencyCache idempotencyCache;
+
+  @Autowired
+  private AvailabilitySearch availabilitySearch;
+
+  @Autowired
+  private PriceQuotes priceQuotes;
+
+  @Autowired
+  private BookingImporter bookingImporter;
+
+  @Autowired
+  private BookingExporter bookingExporter;
+
+  @Autowired
+  private BookingMetrics bookingMetrics;
+
+  /** Present only when the hotel is sharded across nodes. */
+  @Autowired(required = false)
+  private ShardedBookings shardedBookings;
+
+  @PostMapping("/book")
+  public Mono<ResponseEntity<?>> book(
+          @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+          @RequestHeader(name = ShardedBookings.HOP_HEADER, required = false) String hop,
+          @RequestBody Mono<ParsedBookingRequest> bookingRequest) {
+    AtomicInteger inFlight = bookingMetrics.getBookingsInFlight();
+    return bookingRequest
+            .flatMap(request -> idempotencyKey == null
+                    ? Mono.fromFuture(shardedBookings != null
+                            ? shardedBookings.book(hop, request)
+                            : hotelBookingSystem.processBookingAsync(request))
+                    // replays wait on the first request with the same key, so keep them off the event loop
+                    : Mono.fromCallable(() -> shardedBookings != null
+                                    ? shardedBookings.book(hop, idempotencyKey, request)
+                                    : idempotencyCache.processBooking(idempotencyKey, request))
+                            .subscribeOn(Schedulers.boundedElastic()))
+            .<ResponseEntity<?>>map(CannedResponses::serialized)
+            .publishOn(Schedulers.parallel())
+            .doFirst(inFlight::incrementAndGet)
+            .doFinally(signal -> inFlight.decrementAndGet());
+  }
+
+  @GetMapping("/bookings/{bookingId}")
+  public Mono<ResponseEntity<?>> booking(@PathVariable int bookingId) {
+    if (shardedBookings != null && !shardedBookings.isLocal(bookingId)) {
+      return forward(HttpMethod.GET, bookingId, null);
+    }
+    return Mono.just(CannedResponses.serialized(hotelBookingSystem.getBooking(bookingId)));
+  }
+
+  // both wait on the journal under the booking's lock, so keep them off the event loop
+  @DeleteMapping("/bookings/{bookingId}")
+  public Mono<ResponseEntity<?>> cancel(@PathVariable int bookingId) {
+    if (shardedBookings != null && !shardedBookings.isLocal(bookingId)) {
+      return forward(HttpMethod.DELETE, bookingId, null);
+    }
+    return Mono.<ResponseEntity<?>>fromCallable(
+                    () -> CannedResponses.serialized(hotelBookingSystem.cancelBooking(bookingId)))
+            .subscribeOn(Schedulers.boundedElastic());
+  }
+
+  @PatchMapping("/bookings/{bookingId}")
+  public Mono<ResponseEntity<?>> modify(@PathVariable int bookingId,
+                                        @RequestBody Mono<ParsedBookingRequest> changes) {
+    if (shardedBookings != null && !shardedBookings.isLocal(bookingId)) {
+      return changes.flatMap(request -> forward(HttpMethod.PATCH, bookingId, request));
+    }
+    return changes
+            .publishOn(Schedulers.boundedElastic())
+            .<ResponseEntity<?>>map(request ->
+                    CannedResponses.serialized(hotelBookingSystem.modifyBooking(bookingId, request)));
+  }
+
+  private Mono<ResponseEntity<?>> forward(HttpMethod method, int bookingId, ParsedBookingRequest changes) {
+    return Mono.fromFuture(shardedBookings.forward(method, bookingId, changes))
+            .<ResponseEntity<?>>map(CannedResponses::serialized)
+            .publishOn(Schedulers.parallel());
+  }
+
+  @GetMapping("/book/idempotency-stats")
+  public IdempotencyStats idempotencyStats() {
+    return idempotencyCache.getStats();
+  }
+
+  @PostMapping(path = "/book/batch",
+          consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+          produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<BookingResponse> bookBatch(@RequestBody Flux<ParsedBookingRequest> bookingRequests) {
+    AtomicInteger inFlight = bookingMetrics.getBatchesInFlight();
+    return bookingRequests
+            .flatMapSequentialDelayError(
+                    request -> Mono.fromFuture(shardedBookings != null
+                            ? shardedBookings.book(null, request)
+                            : hotelBookingSystem.processBookingAsync(request)),
+                    BATCH_CONCURRENCY, 1)
+            .map(ResponseEntity::getBody)
+            // a line that cannot be decoded ends the batch, as on the servlet stack
+            .onErrorResume(ServerWebInputException.class, e -> Mono.just(BookingResponse.builder()
+                    .message(BookingBatchProcessor.MALFORMED_REQUEST_MESSAGE)
+                    .build()))
+            .publishOn(Schedulers.parallel())
+            .doFirst(inFlight::incrementAndGet)
+            .doFinally(signal -> inFlight.decrementAndGet());
+  }
+
+  @PostMapping("/bookings/import")
+  public Mono<ResponseEntity<?>> importBookings(@RequestParam(defaultValue = "ndjson") String format,
+                                                @RequestBody Flux<DataBuffer> body) {
+    BulkFormat bulkFormat = BulkFormat.of(format);
+    if (bulkFormat == null) {
+      return Mono.just(formatNotSupported());
+    }
+    return Mono.using(Pipe::open, pipe -> {
+      Mono<ImportReport> report = Mono.fromCallable(() -> bookingImporter.importBookings(pipe.source(), bulkFormat))
+              .subscribeOn(Schedulers.boundedElastic())
+              .doFinally(signal -> closeQuietly(pipe.source()));
+      Mono<Boolean> fed = DataBufferUtils.write(body.publishOn(Schedulers.boundedElastic()), pipe.sink())
+              .map(DataBufferUtils::release)
+              .then()
+              // the import may stop before the end of the body and close its end of the pipe
+              .onErrorResume(IOException.class, e -> Mono.empty())
+              .doFinally(signal -> closeQuietly(pipe.sink()))
+              .thenReturn(true);
+      return Mono.zip(report, fed, (imported, done) -> ResponseEntity.ok(imported));
+    }, ReactiveBookingController::closeQuietly);
+  }
+
+  @GetMapping("/bookings/export")
+  public Mono<Void> exportBookings(@RequestParam(defaultValue = "ndjson") String format,
+                                   @RequestHeader(name = ShardedBookings.HOP_HEADER, required = false) String hop,
+                                   ServerHttpResponse response) {
+    BulkFormat bulkFormat = BulkFormat.of(format);
+    if (bulkFormat == null) {
+      return reject(response, BookingRejection.FORMAT_NOT_SUPPORTED);
+    }
+    return Mono.fromCallable(() -> openExports(hop, bulkFormat))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(others -> others.isPresent()
+                    ? export(response, bulkFormat, others.get())
+                    : reject(response, BookingRejection.SHARD_UNAVAILABLE));
+  }
+
+  /** The exports of the other nodes, or empty if one of them could not be started. */
+  private Optional<List<InputStream>> openExports(String hop, BulkFormat format) {
+    if (shardedBookings == null) {
+      return Optional.of(List.of());
+    }
+    try {
+      return Optional.of(shardedBookings.openExports(hop, format));
+    } catch (IOException e) {
+      return Optional.empty();
+    }
+  }
+
+  private Mono<Void> export(ServerHttpResponse response, BulkFormat bulkFormat, List<InputStream> others) {
+    Flux<DataBuffer> body = Flux.using(Pipe::open, pipe -> {
+      Mono.fromCallable(() -> bookingExporter.export(pipe.sink(), bulkFormat, others))
+              .subscribeOn(Schedulers.boundedElastic())
+              // the client went away and the pipe was closed under the export
+              .onErrorResume(IOException.class, e -> Mono.empty())
+              .doFinally(signal -> closeQuietly(pipe.sink()))
+              .subscribe();
+      return DataBufferUtils.readByteChannel(pipe::source, response.bufferFactory(), EXPORT_BUFFER_BYTES)
+              .subscribeOn(Schedulers.boundedElastic());
+    }, ReactiveBookingController::closeQuietly);
+    response.getHeaders().setContentType(bulkFormat.getMediaType());
+    return response.writeWith(body);
+  }
+
+  private static Mono<Void> reject(ServerHttpResponse response, BookingRejection rejection) {
+    response.setStatusCode(rejection.getStatus());
+    response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+    return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(CannedResponses.json(rejection))));
+  }
+
+  @GetMapping("/availability")
+  public ResponseEntity<AvailabilityResponse> availability(
+          @RequestParam(required = false) String from,
+          @RequestParam(required = false) String to,
+          @RequestParam(required = false) String guests,
+          @RequestParam(defaultValue = "1") int nights,
+          @RequestParam(defaultValue = "10") int limit) {
+    bookingMetrics.getSearchesInFlight().incrementAndGet();
+    try {
+      return availabilitySearch.search(from, to, guests, nights, limit);
+    } finally {
+      bookingMetrics.getSearchesInFlight().decrementAndGet();
+    }
+  }
+
+  @GetMapping("/quote")
+  public ResponseEntity<QuoteResponse> quote(
+          @RequestParam(required = false) String checkInDate,
+          @RequestParam(required = false) String checkOutDate,
+          @RequestParam(required = false) String guests) {
+    return priceQuotes.quote(checkInDate, checkOutDate, guests);
+  }
+
+  private static ResponseEntity<byte[]> formatNotSupported() {
+    return ResponseEntity.status(BookingRejection.FORMAT_NOT_SUPPORTED.getStatus())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(CannedResponses.json(BookingRejection.FORMAT_NOT_SUPPORTED));
+  }
+
+  private static void closeQuietly(Pipe pipe) {
+    closeQuietly(pipe.source());
+    closeQuietly(pipe.sink());
+  }
+
+  private static void closeQuietly(Closeable channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // nothing left to release
+    }
+  }
+}
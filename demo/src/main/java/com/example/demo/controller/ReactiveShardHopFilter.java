@@ -0,0 +1,39 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.sharding.ShardedBookings;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/** {@link ShardHopFilter} for {@link ReactiveBookingController}, ordered before every other filter. */
+public class ReactiveShardHopFilter implements WebFilter, Ordered {
+
+  private final byte[] secret;
+
+  /** @param secret the secret other nodes present, or null if no request is to be taken as a hop */
+  public ReactiveShardHopFilter(String secret) {
+    this.secret = secret != null ? secret.getBytes(StandardCharsets.UTF_8) : null;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    HttpHeaders headers = exchange.getRequest().getHeaders();
+    if (!headers.containsKey(ShardedBookings.HOP_HEADER)
+            || ShardHopFilter.isTrusted(secret, headers.getFirst(ShardedBookings.SECRET_HEADER))) {
+      return chain.filter(exchange);
+    }
+    return chain.filter(exchange.mutate()
+            .request(request -> request.headers(mutable -> mutable.remove(ShardedBookings.HOP_HEADER)))
+            .build());
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE;
+  }
+}
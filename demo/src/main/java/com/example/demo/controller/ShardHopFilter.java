@@ -0,0 +1,77 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.sharding.ShardedBookings;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * Lets a {@value ShardedBookings#HOP_HEADER} header through only on a request from another node of
+ * a sharded hotel, one that presents the hotel's secret in {@value ShardedBookings#SECRET_HEADER};
+ * from anyone else the header is removed before admission control or a controller sees it, so a
+ * guest can neither skip admission nor pick how a booking is routed. Runs before {@link
+ * AdmissionFilter}.
+ */
+public class ShardHopFilter extends OncePerRequestFilter {
+
+  private final byte[] secret;
+
+  /** @param secret the secret other nodes present, or null if no request is to be taken as a hop */
+  public ShardHopFilter(String secret) {
+    this.secret = secret != null ? secret.getBytes(StandardCharsets.UTF_8) : null;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+          throws ServletException, IOException {
+    if (request.getHeader(ShardedBookings.HOP_HEADER) == null
+            || isTrusted(secret, request.getHeader(ShardedBookings.SECRET_HEADER))) {
+      chain.doFilter(request, response);
+    } else {
+      chain.doFilter(new WithoutHop(request), response);
+    }
+  }
+
+  /** Whether {@code presented} is the secret, compared in constant time. */
+  static boolean isTrusted(byte[] secret, String presented) {
+    return secret != null && presented != null
+            && MessageDigest.isEqual(secret, presented.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static final class WithoutHop extends HttpServletRequestWrapper {
+
+    WithoutHop(HttpServletRequest request) {
+      super(request);
+    }
+
+    @Override
+    public String getHeader(String name) {
+      return isHop(name) ? null : super.getHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+      return isHop(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+      return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+              .filter(name -> !isHop(name))
+              .toList());
+    }
+
+    private static boolean isHop(String name) {
+      return ShardedBookings.HOP_HEADER.equalsIgnoreCase(name);
+    }
+  }
+}
@@ -5,14 +5,20 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class BookingData {
+  private Integer bookingId;
   private Integer numberOfGuests;
   private String checkInDate;
   private String checkOutDate;
   private String checkInTime;
   private String checkOutTime;
+  private Integer roomNumber;
+  private String status;
+  private BigDecimal price;
 }
@@ -0,0 +1,24 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportReport {
+  private String message;
+  private Long rows;
+  private Long booked;
+  private Long rejected;
+  private Map<String, Long> rejections;
+  private List<ImportError> errors;
+  private Long elapsedMillis;
+  private Long rowsPerSecond;
+}
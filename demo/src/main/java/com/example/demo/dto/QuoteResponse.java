@@ -0,0 +1,22 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class QuoteResponse {
+  private String message;
+  private Integer numberOfGuests;
+  private String checkInDate;
+  private String checkOutDate;
+  private List<NightPrice> nights;
+  private BigDecimal total;
+}
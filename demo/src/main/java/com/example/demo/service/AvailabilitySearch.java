@@ -0,0 +1,106 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AvailabilityResponse;
+import com.example.demo.dto.NightAvailability;
+import com.example.demo.dto.StayAvailability;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.demo.service.BookingFormats.INVALID;
+
+/**
+ * Answers which nights of a date range have rooms free, and which stays of a given length would
+ * fit, without trying to book them. Free-room counts come from the inventory's night index; a
+ * stay is only checked room by room once every one of its nights has a free room, so fully booked
+ * stretches cost one index lookup per night.
+ *
+ * <p>Dates use the booking format and {@code to} is exclusive, like a check-out date. Nights
+ * before today or beyond the booking horizon are left out. Stays are standard ones, 13:00 check-in
+ * to 12:00 check-out.
+ */
+@Service
+public class AvailabilitySearch {
+
+    static final int MAX_STAYS = 100;
+
+    private static final int CHECK_IN_TIME = 13 * 60;
+    private static final int CHECK_OUT_TIME = 12 * 60;
+
+    private final BookingValidator bookingValidator;
+    private final RoomInventory roomInventory;
+
+    public AvailabilitySearch(BookingValidator bookingValidator, RoomInventory roomInventory) {
+        this.bookingValidator = bookingValidator;
+        this.roomInventory = roomInventory;
+    }
+
+    /**
+     * @param nights length of the stays to look for
+     * @param limit  most stays to return, at most {@link #MAX_STAYS}
+     */
+    public ResponseEntity<AvailabilityResponse> search(String from, String to, String guests, int nights, int limit) {
+        if (guests == null) {
+            return rejected(BookingRejection.GUESTS_REQUIRED);
+        }
+        int numberOfGuests = BookingFormats.parseGuests(guests);
+        if (numberOfGuests == INVALID) {
+            return rejected(BookingRejection.GUESTS_NOT_POSITIVE);
+        }
+        if (from == null) {
+            return rejected(BookingRejection.CHECK_IN_DATE_REQUIRED);
+        }
+        if (to == null) {
+            return rejected(BookingRejection.CHECK_OUT_DATE_REQUIRED);
+        }
+        int fromDay = BookingFormats.parseDate(from);
+        int toDay = BookingFormats.parseDate(to);
+        if (fromDay == INVALID || toDay == INVALID) {
+            return rejected(BookingRejection.INVALID_DATE_FORMAT);
+        }
+        if (fromDay > toDay) {
+            return rejected(BookingRejection.CHECK_IN_DATE_AFTER_CHECK_OUT);
+        }
+        if (nights < 1) {
+            return rejected(BookingRejection.NIGHTS_NOT_POSITIVE);
+        }
+
+        int firstDay = Math.max(fromDay, Math.max(bookingValidator.today(), roomInventory.getFirstDay()));
+        int endDay = Math.min(toDay, roomInventory.getFirstDay() + roomInventory.getHorizonDays());
+        int maxStays = Math.max(0, Math.min(limit, MAX_STAYS));
+
+        List<NightAvailability> nightList = new ArrayList<>(Math.max(0, endDay - firstDay));
+        List<StayAvailability> stayList = new ArrayList<>();
+        int freeInARow = 0;
+        for (int day = firstDay; day < endDay; day++) {
+            int freeRooms = roomInventory.freeRooms(numberOfGuests, day);
+            nightList.add(NightAvailability.builder().date(BookingFormats.formatDate(day)).freeRooms(freeRooms).build());
+
+            freeInARow = freeRooms > 0 ? freeInARow + 1 : 0;
+            int checkIn = day + 1 - nights;
+            if (freeInARow >= nights && stayList.size() < maxStays && fits(numberOfGuests, checkIn, nights)) {
+                stayList.add(StayAvailability.builder()
+                        .checkInDate(BookingFormats.formatDate(checkIn))
+                        .checkOutDate(BookingFormats.formatDate(checkIn + nights))
+                        .build());
+            }
+        }
+
+        return ResponseEntity.ok(AvailabilityResponse.builder().nights(nightList).stays(stayList).build());
+    }
+
+    private boolean fits(int guests, int checkIn, int nights) {
+        int fromSlot = StaySlots.checkInSlot(checkIn, CHECK_IN_TIME);
+        int toSlot = StaySlots.checkOutSlot(checkIn + nights, CHECK_OUT_TIME);
+        return roomInventory.findRoom(guests, fromSlot, toSlot) >= 0;
+    }
+
+    private static ResponseEntity<AvailabilityResponse> rejected(BookingRejection rejection) {
+        return ResponseEntity.status(rejection.getStatus())
+                .body(AvailabilityResponse.builder().message(rejection.getMessage()).build());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookingResponse;
+import com.example.demo.service.sharding.ShardedBookings;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Streams a batch of {@link ParsedBookingRequest}s, either a JSON array or newline-delimited JSON,
+ * through {@link HotelBookingSystem#processBooking} and writes one {@link BookingResponse} per
+ * request as newline-delimited JSON, in input order. Requests are read and answered one at a
+ * time, so memory use does not depend on the size of the batch. On a sharded hotel each request is
+ * booked through {@link ShardedBookings}, on whichever node has a room, as a single booking would be.
+ */
+@Service
+public class BookingBatchProcessor {
+
+    public static final String MALFORMED_REQUEST_MESSAGE = "Malformed booking request.";
+
+    private static final BookingResponse MALFORMED_REQUEST =
+            CannedResponses.create(HttpStatus.BAD_REQUEST, MALFORMED_REQUEST_MESSAGE).getBody();
+
+    private final HotelBookingSystem hotelBookingSystem;
+    private final ShardedBookings shardedBookings;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader requestReader;
+
+    public BookingBatchProcessor(HotelBookingSystem hotelBookingSystem, ObjectMapper objectMapper) {
+        this(hotelBookingSystem, null, objectMapper);
+    }
+
+    @Autowired
+    public BookingBatchProcessor(HotelBookingSystem hotelBookingSystem, @Nullable ShardedBookings shardedBookings,
+                                 ObjectMapper objectMapper) {
+        this.hotelBookingSystem = hotelBookingSystem;
+        this.shardedBookings = shardedBookings;
+        this.objectMapper = objectMapper;
+        this.requestReader = objectMapper.readerFor(ParsedBookingRequest.class);
+    }
+
+    /**
+     * Processes every request in {@code in} and writes the responses to {@code out}. A request
+     * that is not valid JSON ends the batch with a {@value #MALFORMED_REQUEST_MESSAGE} line, since
+     * the position of the following requests can no longer be trusted.
+     *
+     * @return the number of requests read
+     */
+    public int process(InputStream in, OutputStream out) throws IOException {
+        int count = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(in);
+             SequenceWriter writer = objectMapper.writer()
+                     .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                     .withRootValueSeparator("\n")
+                     .writeValues(out)) {
+            try {
+                JsonToken token = parser.nextToken();
+                boolean array = token == JsonToken.START_ARRAY;
+                if (array) {
+                    token = parser.nextToken();
+                }
+                while (token != null && token != JsonToken.END_ARRAY) {
+                    ParsedBookingRequest bookingRequest = requestReader.readValue(parser);
+                    ResponseEntity<BookingResponse> response = shardedBookings != null
+                            ? shardedBookings.book(null, bookingRequest).join()
+                            : hotelBookingSystem.processBooking(bookingRequest);
+                    writer.write(CannedResponses.writable(response.getBody()));
+                    count++;
+                    token = parser.nextToken();
+                }
+            } catch (JsonProcessingException e) {
+                writer.write(CannedResponses.writable(MALFORMED_REQUEST));
+            }
+            // the writer buffers, so it has to be flushed for the newline to land after the last response
+            writer.flush();
+            out.write('\n');
+        }
+        return count;
+    }
+}
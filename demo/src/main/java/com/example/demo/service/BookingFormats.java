@@ -0,0 +1,195 @@
+package com.example.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Fixed-width parsers for the booking wire formats ({@code dd/MM/yyyy} dates, {@code HH:mm} times
+ * and the guest count). They accept exactly what {@code DateTimeFormatter.ofPattern(...)} with the
+ * default SMART resolver and {@link Integer#parseInt(String)} accept for these fields, but report
+ * failure through {@link #INVALID} instead of throwing, and never allocate. The formatters turn a
+ * parsed value back into its canonical text.
+ */
+public final class BookingFormats {
+
+    /** Returned by every parser when the input does not match the format. */
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    /** Stands for a field that was absent or null, which no parser ever returns. */
+    public static final int MISSING = Integer.MIN_VALUE + 1;
+
+    private static final int DAYS_0000_TO_1970 = 719_528;
+
+    private BookingFormats() {
+    }
+
+    /**
+     * Parses a positive guest count. Signs and non-ASCII digits are handled like
+     * {@link Integer#parseInt(String)}; zero, negative and overflowing values are {@link #INVALID}.
+     */
+    public static int parseGuests(CharSequence text) {
+        int length = text.length();
+        int index = 0;
+        if (length > 0 && text.charAt(0) == '+') {
+            index = 1;
+        }
+        if (index == length) {
+            return INVALID;
+        }
+        long value = 0;
+        for (; index < length; index++) {
+            int digit = Character.digit(text.charAt(index), 10);
+            if (digit < 0) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE) {
+                return INVALID;
+            }
+        }
+        return value > 0 ? (int) value : INVALID;
+    }
+
+    /**
+     * Parses {@code dd/MM/yyyy} into an epoch day. As with the SMART resolver, a day-of-month of
+     * up to 31 is clamped to the last day of a shorter month, and a year past 9999 is accepted when
+     * written with a leading {@code +} and at least five digits ({@code 01/01/+12345}). A date whose
+     * epoch day does not fit in an {@code int} comes back as {@link Integer#MAX_VALUE}, which lies
+     * beyond any booking horizon.
+     */
+    public static int parseDate(CharSequence text) {
+        int length = text.length();
+        if (length < 10 || text.charAt(2) != '/' || text.charAt(5) != '/') {
+            return INVALID;
+        }
+        int day = twoDigits(text, 0);
+        int month = twoDigits(text, 3);
+        if (day < 1 || day > 31 || month < 1 || month > 12) {
+            return INVALID;
+        }
+        int year;
+        if (length == 10) {
+            int yearHigh = twoDigits(text, 6);
+            int yearLow = twoDigits(text, 8);
+            if (yearHigh < 0 || yearLow < 0) {
+                return INVALID;
+            }
+            year = yearHigh * 100 + yearLow;
+        } else {
+            year = signedYear(text);
+        }
+        if (year <= 0) {
+            return INVALID;
+        }
+        return toEpochDay(year, month, Math.min(day, lengthOfMonth(year, month)));
+    }
+
+    /**
+     * Parses {@code HH:mm} into a minute of day. {@code 24:00} resolves to midnight, as it does
+     * with the SMART resolver.
+     */
+    public static int parseTime(CharSequence text) {
+        if (text.length() != 5 || text.charAt(2) != ':') {
+            return INVALID;
+        }
+        int hour = twoDigits(text, 0);
+        int minute = twoDigits(text, 3);
+        if (hour < 0 || minute < 0 || minute > 59) {
+            return INVALID;
+        }
+        if (hour == 24 && minute == 0) {
+            return 0;
+        }
+        return hour < 24 ? hour * 60 + minute : INVALID;
+    }
+
+    /**
+     * Formats an epoch day as {@code dd/MM/yyyy}. The year must be positive; past 9999 it is written
+     * with a leading {@code +}, as {@link #parseDate(CharSequence)} expects.
+     */
+    public static String formatDate(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        int year = date.getYear();
+        if (year > 9999) {
+            return String.format("%02d/%02d/+%d", date.getDayOfMonth(), date.getMonthValue(), year);
+        }
+        byte[] text = {
+                digit(date.getDayOfMonth() / 10), digit(date.getDayOfMonth() % 10), '/',
+                digit(date.getMonthValue() / 10), digit(date.getMonthValue() % 10), '/',
+                digit(year / 1000), digit(year / 100 % 10), digit(year / 10 % 10), digit(year % 10)};
+        return new String(text, StandardCharsets.US_ASCII);
+    }
+
+    /** Formats a minute of day as {@code HH:mm}. */
+    public static String formatTime(int minuteOfDay) {
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        byte[] text = {digit(hour / 10), digit(hour % 10), ':', digit(minute / 10), digit(minute % 10)};
+        return new String(text, StandardCharsets.US_ASCII);
+    }
+
+    private static byte digit(int value) {
+        return (byte) ('0' + value);
+    }
+
+    private static int twoDigits(CharSequence text, int offset) {
+        int high = text.charAt(offset) - '0';
+        int low = text.charAt(offset + 1) - '0';
+        if (high < 0 || high > 9 || low < 0 || low > 9) {
+            return -1;
+        }
+        return high * 10 + low;
+    }
+
+    // '+' then 5 to 19 digits, at most Year.MAX_VALUE; INVALID otherwise.
+    private static int signedYear(CharSequence text) {
+        int length = text.length();
+        if (text.charAt(6) != '+' || length < 12 || length > 26) {
+            return INVALID;
+        }
+        long year = 0;
+        for (int index = 7; index < length; index++) {
+            char c = text.charAt(index);
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            year = year * 10 + (c - '0');
+            if (year > 999_999_999) {
+                return INVALID;
+            }
+        }
+        return (int) year;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Same arithmetic as LocalDate.toEpochDay(), restricted to positive years.
+    private static int toEpochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return (int) Math.min(total - DAYS_0000_TO_1970, Integer.MAX_VALUE);
+    }
+}
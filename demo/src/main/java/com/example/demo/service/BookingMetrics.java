@@ -0,0 +1,131 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Meters for {@link HotelBookingSystem#processBooking}: one counter per outcome, accepted,
+ * waitlisted or rejected, with a reason tag for every {@link BookingRejection}, a timer with a percentile histogram for the whole call, a
+ * timer per stage, and gauges of the requests in flight per endpoint. Every meter is registered
+ * once up front and looked up by array index, and times are plain {@code System.nanoTime}
+ * differences, so recording allocates nothing.
+ */
+@Component
+public class BookingMetrics {
+
+    public enum Stage {
+        GUESTS, DATES, TIMES, ORDERING, RESERVATION, JOURNAL;
+
+        final String tag = name().toLowerCase();
+    }
+
+    private final Counter accepted;
+    private final Counter waitlisted;
+    private final Counter[] rejected;
+    private final Timer duration;
+    private final Timer[] stages;
+    private final AtomicInteger bookingsInFlight;
+    private final AtomicInteger batchesInFlight;
+    private final AtomicInteger searchesInFlight;
+
+    public BookingMetrics(MeterRegistry registry) {
+        this.accepted = Counter.builder("hotel.bookings")
+                .description("Bookings processed, by outcome and rejection reason")
+                .tag("outcome", "accepted")
+                .tag("reason", "none")
+                .register(registry);
+        this.waitlisted = Counter.builder("hotel.bookings")
+                .description("Bookings processed, by outcome and rejection reason")
+                .tag("outcome", "waitlisted")
+                .tag("reason", "none")
+                .register(registry);
+        BookingRejection[] rejections = BookingRejection.values();
+        this.rejected = new Counter[rejections.length];
+        for (BookingRejection rejection : rejections) {
+            rejected[rejection.ordinal()] = Counter.builder("hotel.bookings")
+                    .description("Bookings processed, by outcome and rejection reason")
+                    .tag("outcome", "rejected")
+                    .tag("reason", rejection.name().toLowerCase())
+                    .register(registry);
+        }
+        this.duration = Timer.builder("hotel.booking.duration")
+                .description("Time to process one booking")
+                .publishPercentileHistogram()
+                .register(registry);
+        Stage[] stageValues = Stage.values();
+        this.stages = new Timer[stageValues.length];
+        for (Stage stage : stageValues) {
+            stages[stage.ordinal()] = Timer.builder("hotel.booking.stage")
+                    .description("Time spent in one stage of processing a booking")
+                    .tag("stage", stage.tag)
+                    .register(registry);
+        }
+        this.bookingsInFlight = inFlight(registry, "book");
+        this.batchesInFlight = inFlight(registry, "batch");
+        this.searchesInFlight = inFlight(registry, "availability");
+    }
+
+    /** Meters that go nowhere, for code run outside the application. */
+    public static BookingMetrics noop() {
+        return new BookingMetrics(new CompositeMeterRegistry());
+    }
+
+    /**
+     * Records the time since {@code startNanos} against a stage.
+     *
+     * @return the current {@code System.nanoTime()}, where the next stage starts
+     */
+    long endStage(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        stages[stage.ordinal()].record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    void accepted(long startNanos) {
+        accepted.increment();
+        duration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void waitlisted(long startNanos) {
+        waitlisted.increment();
+        duration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void rejected(BookingRejection rejection, long startNanos) {
+        rejected[rejection.ordinal()].increment();
+        duration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Counts a booking turned away before it was processed, which therefore has no duration. */
+    public void rejected(BookingRejection rejection) {
+        rejected[rejection.ordinal()].increment();
+    }
+
+    public AtomicInteger getBookingsInFlight() {
+        return bookingsInFlight;
+    }
+
+    public AtomicInteger getBatchesInFlight() {
+        return batchesInFlight;
+    }
+
+    public AtomicInteger getSearchesInFlight() {
+        return searchesInFlight;
+    }
+
+    private static AtomicInteger inFlight(MeterRegistry registry, String endpoint) {
+        AtomicInteger gauge = new AtomicInteger();
+        Gauge.builder("hotel.requests.in.flight", gauge, AtomicInteger::get)
+                .description("Requests currently being served, per endpoint")
+                .tag("endpoint", endpoint)
+                .register(registry);
+        return gauge;
+    }
+}
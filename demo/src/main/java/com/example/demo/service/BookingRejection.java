@@ -0,0 +1,66 @@
+package com.example.demo.service;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Every reason {@link HotelBookingSystem#processBooking} can turn a booking down, or
+ * {@link AvailabilitySearch} a search, or admission control a request before either sees it, or
+ * a booking cannot be cancelled or changed, with
+ * the exact message returned to the guest. Each
+ * constant carries its own pre-built {@link BookingValidation} so the reject path of
+ * {@link BookingValidator} never allocates.
+ */
+public enum BookingRejection {
+
+    GUESTS_REQUIRED("Number of guests is required."),
+    GUESTS_NOT_POSITIVE("Number of guests must be a positive number."),
+    CHECK_IN_DATE_REQUIRED("Check-in date is required."),
+    CHECK_IN_DATE_IN_PAST("Check-in date must be after the current date."),
+    CHECK_OUT_DATE_REQUIRED("Check-out date is required."),
+    CHECK_OUT_DATE_IN_PAST("Check-out date must be after the current date."),
+    INVALID_DATE_FORMAT("Invalid date format. Please enter date in dd/mm/yyyy format."),
+    CHECK_IN_TIME_REQUIRED("Check-in time is required."),
+    CHECK_IN_TIME_NOT_ALLOWED("Check-in time must be 13:00 or 19:00."),
+    CHECK_OUT_TIME_REQUIRED("Check-out time is required."),
+    CHECK_OUT_TIME_NOT_ALLOWED("Check-out time must be 12:00 or 18:00."),
+    INVALID_TIME_FORMAT("Invalid time format. Please enter time in HH:mm format."),
+    CHECK_IN_DATE_AFTER_CHECK_OUT("Check-in date must be before check-out date."),
+    CHECK_IN_TIME_AFTER_CHECK_OUT("Check-in time must be before check-out time."),
+    CHECK_OUT_DATE_BEYOND_HORIZON("Check-out date is too far in the future."),
+    NIGHTS_NOT_POSITIVE("Number of nights must be a positive number."),
+    FORMAT_NOT_SUPPORTED("Format must be csv or ndjson."),
+    NO_ROOM_AVAILABLE("No room is available for the selected dates and number of guests.", HttpStatus.CONFLICT),
+    NOT_SAVED("The booking could not be saved. Please try again.", HttpStatus.SERVICE_UNAVAILABLE),
+    RATE_LIMITED("Too many booking requests. Please try again later.", HttpStatus.TOO_MANY_REQUESTS),
+    OVERLOADED("The service is busy. Please try again shortly.", HttpStatus.SERVICE_UNAVAILABLE),
+    SHARD_UNAVAILABLE("Part of the hotel cannot be reached. Please try again shortly.", HttpStatus.SERVICE_UNAVAILABLE),
+    BOOKING_NOT_FOUND("No booking was found with this id.", HttpStatus.NOT_FOUND),
+    BOOKING_PENDING("The booking is still waiting for a room. Please try again shortly.", HttpStatus.CONFLICT),
+    BOOKING_ALREADY_STARTED("The stay has already started and can no longer be changed.", HttpStatus.CONFLICT);
+
+    private final String message;
+    private final HttpStatus status;
+    private final BookingValidation validation;
+
+    BookingRejection(String message) {
+        this(message, HttpStatus.BAD_REQUEST);
+    }
+
+    BookingRejection(String message, HttpStatus status) {
+        this.message = message;
+        this.status = status;
+        this.validation = BookingValidation.rejected(this);
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    BookingValidation asValidation() {
+        return validation;
+    }
+}
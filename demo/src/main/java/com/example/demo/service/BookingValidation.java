@@ -0,0 +1,42 @@
+package com.example.demo.service;
+
+import lombok.Getter;
+
+/**
+ * Outcome of {@link BookingValidator#validate}: either a {@link BookingRejection} or the request
+ * fields already parsed into primitives (epoch days for dates, minute of day for times), so nothing
+ * downstream has to parse the strings again.
+ */
+@Getter
+public final class BookingValidation {
+
+    private final BookingRejection rejection;
+    private final int numberOfGuests;
+    private final int checkInDate;
+    private final int checkOutDate;
+    private final int checkInTime;
+    private final int checkOutTime;
+
+    private BookingValidation(BookingRejection rejection, int numberOfGuests, int checkInDate,
+                              int checkOutDate, int checkInTime, int checkOutTime) {
+        this.rejection = rejection;
+        this.numberOfGuests = numberOfGuests;
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+        this.checkInTime = checkInTime;
+        this.checkOutTime = checkOutTime;
+    }
+
+    static BookingValidation rejected(BookingRejection rejection) {
+        return new BookingValidation(rejection, 0, 0, 0, 0, 0);
+    }
+
+    static BookingValidation accepted(int numberOfGuests, int checkInDate, int checkOutDate,
+                                      int checkInTime, int checkOutTime) {
+        return new BookingValidation(null, numberOfGuests, checkInDate, checkOutDate, checkInTime, checkOutTime);
+    }
+
+    public boolean isAccepted() {
+        return rejection == null;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookingRequest;
+import com.example.demo.service.BookingMetrics.Stage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static com.example.demo.service.BookingFormats.INVALID;
+import static com.example.demo.service.BookingFormats.MISSING;
+
+/**
+ * The validation rules of {@link HotelBookingSystem#processBooking}, applied in the same order and
+ * with the same messages as before: guests, check-in date, check-out date, check-in time, check-out
+ * time, then the ordering of the stay. The rules run on a {@link ParsedBookingRequest}, whose
+ * fields are already parsed; a {@link BookingRequest} is parsed into one first. Nothing here throws
+ * or allocates on the reject path; the current date is read from the {@link Clock} once per day
+ * rather than once per request.
+ *
+ * <p>The time spent on guests, dates, times and ordering is recorded per stage in
+ * {@link BookingMetrics}; a rejected request records the stage it stopped in.
+ */
+@Component
+public class BookingValidator {
+
+    private static final int CHECK_IN_EARLY = 13 * 60;
+    private static final int CHECK_IN_LATE = 19 * 60;
+    private static final int CHECK_OUT_EARLY = 12 * 60;
+    private static final int CHECK_OUT_LATE = 18 * 60;
+
+    private final Clock clock;
+    private final BookingMetrics metrics;
+    private volatile Today today;
+
+    public BookingValidator(Clock clock) {
+        this(clock, BookingMetrics.noop());
+    }
+
+    @Autowired
+    public BookingValidator(Clock clock, BookingMetrics metrics) {
+        this.clock = clock;
+        this.metrics = metrics;
+    }
+
+    public BookingValidation validate(BookingRequest request) {
+        return validate(ParsedBookingRequest.of(request));
+    }
+
+    public BookingValidation validate(ParsedBookingRequest request) {
+        long mark = System.nanoTime();
+        int numberOfGuests = request.numberOfGuests();
+        if (numberOfGuests == MISSING) {
+            return rejected(BookingRejection.GUESTS_REQUIRED, Stage.GUESTS, mark);
+        }
+        if (numberOfGuests == INVALID) {
+            return rejected(BookingRejection.GUESTS_NOT_POSITIVE, Stage.GUESTS, mark);
+        }
+
+        mark = metrics.endStage(Stage.GUESTS, mark);
+
+        int currentDate = today();
+
+        int checkInDate = request.checkInDate();
+        if (checkInDate == MISSING) {
+            return rejected(BookingRejection.CHECK_IN_DATE_REQUIRED, Stage.DATES, mark);
+        }
+        if (checkInDate == INVALID) {
+            return rejected(BookingRejection.INVALID_DATE_FORMAT, Stage.DATES, mark);
+        }
+        if (checkInDate < currentDate) {
+            return rejected(BookingRejection.CHECK_IN_DATE_IN_PAST, Stage.DATES, mark);
+        }
+
+        int checkOutDate = request.checkOutDate();
+        if (checkOutDate == MISSING) {
+            return rejected(BookingRejection.CHECK_OUT_DATE_REQUIRED, Stage.DATES, mark);
+        }
+        if (checkOutDate == INVALID) {
+            return rejected(BookingRejection.INVALID_DATE_FORMAT, Stage.DATES, mark);
+        }
+        if (checkOutDate < currentDate) {
+            return rejected(BookingRejection.CHECK_OUT_DATE_IN_PAST, Stage.DATES, mark);
+        }
+
+        mark = metrics.endStage(Stage.DATES, mark);
+
+        int checkInTime = request.checkInTime();
+        if (checkInTime == MISSING) {
+            return rejected(BookingRejection.CHECK_IN_TIME_REQUIRED, Stage.TIMES, mark);
+        }
+        if (checkInTime == INVALID) {
+            return rejected(BookingRejection.INVALID_TIME_FORMAT, Stage.TIMES, mark);
+        }
+        if (checkInTime != CHECK_IN_EARLY && checkInTime != CHECK_IN_LATE) {
+            return rejected(BookingRejection.CHECK_IN_TIME_NOT_ALLOWED, Stage.TIMES, mark);
+        }
+
+        int checkOutTime = request.checkOutTime();
+        if (checkOutTime == MISSING) {
+            return rejected(BookingRejection.CHECK_OUT_TIME_REQUIRED, Stage.TIMES, mark);
+        }
+        if (checkOutTime == INVALID) {
+            return rejected(BookingRejection.INVALID_TIME_FORMAT, Stage.TIMES, mark);
+        }
+        if (checkOutTime != CHECK_OUT_EARLY && checkOutTime != CHECK_OUT_LATE) {
+            return rejected(BookingRejection.CHECK_OUT_TIME_NOT_ALLOWED, Stage.TIMES, mark);
+        }
+
+        mark = metrics.endStage(Stage.TIMES, mark);
+
+        if (checkInDate > checkOutDate) {
+            return rejected(BookingRejection.CHECK_IN_DATE_AFTER_CHECK_OUT, Stage.ORDERING, mark);
+        }
+        if (checkInDate == checkOutDate && checkInTime > checkOutTime) {
+            return rejected(BookingRejection.CHECK_IN_TIME_AFTER_CHECK_OUT, Stage.ORDERING, mark);
+        }
+
+        metrics.endStage(Stage.ORDERING, mark);
+
+        return BookingValidation.accepted(numberOfGuests, checkInDate, checkOutDate, checkInTime, checkOutTime);
+    }
+
+    private BookingValidation rejected(BookingRejection rejection, Stage stage, long mark) {
+        metrics.endStage(stage, mark);
+        return rejection.asValidation();
+    }
+
+    /**
+     * Today's epoch day in the clock's zone. The value is cached together with the instants at
+     * which it stops being valid, so the common case is a single {@code clock.millis()} call.
+     */
+    int today() {
+        long now = clock.millis();
+        Today current = today;
+        if (current == null || now < current.validFrom || now >= current.validUntil) {
+            current = Today.at(now, clock.getZone());
+            today = current;
+        }
+        return current.epochDay;
+    }
+
+    private static final class Today {
+        private final int epochDay;
+        private final long validFrom;
+        private final long validUntil;
+
+        private Today(int epochDay, long validFrom, long validUntil) {
+            this.epochDay = epochDay;
+            this.validFrom = validFrom;
+            this.validUntil = validUntil;
+        }
+
+        static Today at(long millis, ZoneId zone) {
+            LocalDate date = LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone);
+            return new Today((int) date.toEpochDay(),
+                    date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookingData;
+import com.example.demo.dto.BookingResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Responses whose body is only a fixed message, one for every {@link BookingRejection}, built and
+ * serialized to JSON once. {@link HotelBookingSystem} returns the same {@link ResponseEntity} for a
+ * given rejection every time, and the web layer swaps it for the ready JSON bytes with
+ * {@link #serialized}, so a rejected request allocates no response and runs no serializer.
+ *
+ * <p>The shared bodies are immutable, and the byte arrays must not be modified by callers. The
+ * bytes come from a default {@link ObjectMapper}, which writes a {@link BookingResponse} exactly
+ * as the one Spring configures does.
+ */
+public final class CannedResponses {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Canned[] REJECTIONS;
+
+    static {
+        BookingRejection[] rejections = BookingRejection.values();
+        REJECTIONS = new Canned[rejections.length];
+        for (BookingRejection rejection : rejections) {
+            REJECTIONS[rejection.ordinal()] = new Canned(rejection.getStatus(), rejection.getMessage());
+        }
+    }
+
+    private CannedResponses() {
+    }
+
+    /** Builds a canned response; meant for constants, since building one serializes it. */
+    public static ResponseEntity<BookingResponse> create(HttpStatus status, String message) {
+        return new Canned(status, message).entity;
+    }
+
+    static ResponseEntity<BookingResponse> of(BookingRejection rejection) {
+        return REJECTIONS[rejection.ordinal()].entity;
+    }
+
+    /** The JSON body of a rejection. */
+    public static byte[] json(BookingRejection rejection) {
+        return REJECTIONS[rejection.ordinal()].json;
+    }
+
+    /**
+     * The same response with its body as JSON bytes if the body is canned, otherwise
+     * {@code response} itself. Headers and status are kept.
+     */
+    public static ResponseEntity<?> serialized(ResponseEntity<BookingResponse> response) {
+        if (!(response.getBody() instanceof Canned canned)) {
+            return response;
+        }
+        if (response == canned.entity) {
+            return canned.serialized;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(response.getHeaders());
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new ResponseEntity<>(canned.json, headers, response.getStatusCode());
+    }
+
+    /**
+     * The body in a form a Jackson generator writes without serializing it again: the raw JSON if
+     * it is canned, otherwise {@code body} itself.
+     */
+    public static Object writable(BookingResponse body) {
+        return body instanceof Canned canned ? canned.raw : body;
+    }
+
+    private static final class Canned extends BookingResponse {
+
+        private final byte[] json;
+        private final RawValue raw;
+        private final ResponseEntity<BookingResponse> entity;
+        private final ResponseEntity<byte[]> serialized;
+
+        private Canned(HttpStatus status, String message) {
+            super(message, null);
+            try {
+                this.json = OBJECT_MAPPER.writeValueAsBytes(new BookingResponse(message, null));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+            SerializedString serializedString = new SerializedString(new String(json, StandardCharsets.UTF_8));
+            // encode the UTF-8 bytes now rather than on the first write
+            serializedString.asUnquotedUTF8();
+            this.raw = new RawValue(serializedString);
+            this.entity = ResponseEntity.status(status).body(this);
+            this.serialized = ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(json);
+        }
+
+        @Override
+        public void setMessage(String message) {
+            throw new UnsupportedOperationException("canned responses are shared");
+        }
+
+        @Override
+        public void setData(BookingData data) {
+            throw new UnsupportedOperationException("canned responses are shared");
+        }
+    }
+}
@@ -3,147 +3,569 @@ package com.example.demo.service;
 import com.example.demo.dto.BookingData;
 import com.example.demo.dto.BookingRequest;
 import com.example.demo.dto.BookingResponse;
-import org.springframework.cglib.core.Local;
+import com.example.demo.service.BookingMetrics.Stage;
+import com.example.demo.service.assignment.BookingConfirmations;
+import com.example.demo.service.assignment.BookingConfirmations.Confirmation;
+import com.example.demo.service.assignment.BookingConfirmations.Status;
+import com.example.demo.service.assignment.PendingBooking;
+import com.example.demo.service.assignment.RoomAssigner;
+import com.example.demo.service.assignment.Waitlist;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import com.example.demo.service.journal.BookingJournal;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.BookingRecord;
+import com.example.demo.service.journal.HeapBookingLedger;
+import com.example.demo.service.pricing.PricingEngine;
+import com.example.demo.service.pricing.Quote;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.stereotype.Component;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+/**
+ * Books rooms. Every booking is validated on the caller's thread. With a {@link RoomAssigner} it is
+ * then only checked against availability and handed over, and the response carries a booking id
+ * to poll with {@link #getBooking} while a room is assigned and journaled in the background.
+ * Without one, the room is claimed and journaled before the response, which then already
+ * confirms the room number.
+ *
+ * <p>A booking that holds a room can be {@link #cancelBooking cancelled} or {@link #modifyBooking
+ * changed} through the {@link BookingLedger} until its stay begins. Either is journaled before the
+ * inventory gives anything up, so the booking always holds a room on disk as well as in memory.
+ * With a {@link Waitlist}, a booking that finds no room is waitlisted rather than turned down, and
+ * whatever a cancellation or change frees is offered to the waitlist.
+ *
+ * <p>With a {@link PricingEngine}, every booking and change is quoted as it is accepted, before
+ * it takes a room, and carries that price from then on.
+ */
 @Service
 public class HotelBookingSystem {
 
+    private static final String SUCCESS_MESSAGE =
+            "Room is booked successfully. We will contact you soon to confirm the room number.";
+    private static final String CONFIRMED_MESSAGE = "Your room number is confirmed.";
+    private static final String CANCELLED_MESSAGE = "Your booking is cancelled.";
+    private static final String CHANGED_MESSAGE = "Your booking is changed.";
+    private static final String WAITLISTED_MESSAGE = "No room is available for the selected dates right now. "
+            + "Your booking is on the waitlist and will be confirmed if a room becomes free.";
+
+    private final BookingValidator bookingValidator;
+    private final RoomInventory roomInventory;
+    private final BookingJournal bookingJournal;
+    private final BookingMetrics metrics;
+    private final BookingConfirmations confirmations;
+    private final RoomAssigner roomAssigner;
+    private final BookingLedger bookingLedger;
+    private final Waitlist waitlist;
+    private final PricingEngine pricingEngine;
+
+    public HotelBookingSystem(BookingValidator bookingValidator, RoomInventory roomInventory,
+                              BookingJournal bookingJournal) {
+        this(bookingValidator, roomInventory, bookingJournal, BookingMetrics.noop());
+    }
+
+    public HotelBookingSystem(BookingValidator bookingValidator, RoomInventory roomInventory,
+                              BookingJournal bookingJournal, BookingMetrics metrics) {
+        this(bookingValidator, roomInventory, bookingJournal, metrics,
+                new BookingConfirmations(1, Duration.ofHours(24), 100_000), null, new HeapBookingLedger(), null, null);
+    }
+
+    @Autowired
+    public HotelBookingSystem(BookingValidator bookingValidator, RoomInventory roomInventory,
+                              BookingJournal bookingJournal, BookingMetrics metrics,
+                              BookingConfirmations confirmations, @Nullable RoomAssigner roomAssigner,
+                              BookingLedger bookingLedger, @Nullable Waitlist waitlist,
+                              @Nullable PricingEngine pricingEngine) {
+        this.bookingValidator = bookingValidator;
+        this.roomInventory = roomInventory;
+        this.bookingJournal = bookingJournal;
+        this.metrics = metrics;
+        this.confirmations = confirmations;
+        this.roomAssigner = roomAssigner;
+        this.bookingLedger = bookingLedger;
+        this.waitlist = waitlist;
+        this.pricingEngine = pricingEngine;
+    }
 
     public ResponseEntity<BookingResponse> processBooking(BookingRequest bookingRequest) {
-        ResponseEntity<BookingResponse> response = null;
-        // Input number of guests
-        int numberOfGuests = 0;
-        LocalDate checkOutDate = null;
-        LocalDate checkInDate = null;
-        LocalTime checkInTime = null;
-        LocalTime checkOutTime = null;
-
-        // check if the number of guests is entered correctly
-        String numberOfGuestStrings = bookingRequest.getNumberOfGuests();
-        try {
-            if (numberOfGuestStrings == null) {
-                return badRequest("Number of guests is required.");
-            }
+        return processBooking(ParsedBookingRequest.of(bookingRequest));
+    }
 
-            numberOfGuests = Integer.parseInt(numberOfGuestStrings);
-            if (numberOfGuests <= 0) {
-                return badRequest("Number of guests must be a positive number.");
-            }
+    public ResponseEntity<BookingResponse> processBooking(ParsedBookingRequest bookingRequest) {
+        return processBooking(bookingRequest, true);
+    }
+
+    /**
+     * Books like {@link #processBooking(ParsedBookingRequest)}, but a booking that finds no room is
+     * only waitlisted if {@code mayWaitlist}; otherwise it is turned down at once, so the caller can
+     * look for a room elsewhere.
+     */
+    public ResponseEntity<BookingResponse> processBooking(ParsedBookingRequest bookingRequest, boolean mayWaitlist) {
+        long start = System.nanoTime();
+
+        // check every field and the order of the stay
+        BookingValidation validation = bookingValidator.validate(bookingRequest);
+        if (!validation.isAccepted()) {
+            return rejected(validation.getRejection(), start);
+        }
+        if (roomAssigner != null) {
+            return handOver(validation, start, mayWaitlist).join();
+        }
 
-        } catch (NumberFormatException e) {
-            return badRequest("Number of guests must be a positive number.");
+        // quote the stay while its room is still free, then claim a room for every slot of it
+        long price = price(validation);
+        int firstSlot = StaySlots.checkInSlot(validation.getCheckInDate(), validation.getCheckInTime());
+        int endSlot = StaySlots.checkOutSlot(validation.getCheckOutDate(), validation.getCheckOutTime());
+        long mark = System.nanoTime();
+        int room = roomInventory.reserve(validation.getNumberOfGuests(), firstSlot, endSlot);
+        mark = metrics.endStage(Stage.RESERVATION, mark);
+        if (room == RoomInventory.OUTSIDE_HORIZON) {
+            return rejected(BookingRejection.CHECK_OUT_DATE_BEYOND_HORIZON, start);
+        }
+        if (room == RoomInventory.NO_ROOM) {
+            return waitlisted(validation, price, start, mayWaitlist).join();
         }
 
-        // Input check-in date
-        String checkInDateStrings = bookingRequest.getCheckInDate();
+        // persist the booking before confirming it
+        int roomNumber = roomInventory.getRoom(room).getNumber();
+        PendingBooking booking;
+        BookingRecord record;
         try {
-            if (checkInDateStrings == null) {
-                return badRequest("Check-in date is required.");
+            booking = pendingBooking(validation, price, start);
+            record = journalRecord(booking, roomNumber);
+            long sequence = bookingJournal.append(record);
+            bookingJournal.awaitDurable(sequence);
+        } catch (UncheckedIOException e) {
+            roomInventory.release(room, firstSlot, endSlot);
+            metrics.endStage(Stage.JOURNAL, mark);
+            return rejected(BookingRejection.NOT_SAVED, start);
+        }
+        metrics.endStage(Stage.JOURNAL, mark);
+
+        // Display success message if all information is entered correctly
+        bookingLedger.booked(record);
+        confirmations.confirmed(booking, roomNumber);
+        metrics.accepted(start);
+        return ResponseEntity.ok(response(SUCCESS_MESSAGE, booking, Status.CONFIRMED, roomNumber));
+    }
+
+    /**
+     * Books already validated bookings in the order given, by the rules of {@link #processBooking}
+     * without a room assigner, except that a booking that finds no room is turned down rather than
+     * waitlisted. The whole run waits on the journal once, so a bulk import pays one flush per run
+     * instead of one per booking; if that flush fails, every booking of the run is rolled back.
+     *
+     * @param outcomes receives, per booking, null if it was booked or else why it was not
+     * @return how many were booked
+     */
+    public int processValidated(BookingValidation[] validations, int count, BookingRejection[] outcomes) {
+        long start = System.nanoTime();
+        PendingBooking[] bookings = new PendingBooking[count];
+        int[] rooms = new int[count];
+        long lastSequence = -1;
+        for (int i = 0; i < count; i++) {
+            BookingValidation validation = validations[i];
+            if (!validation.isAccepted()) {
+                outcomes[i] = validation.getRejection();
+                continue;
+            }
+            long price = price(validation);
+            int firstSlot = StaySlots.checkInSlot(validation.getCheckInDate(), validation.getCheckInTime());
+            int endSlot = StaySlots.checkOutSlot(validation.getCheckOutDate(), validation.getCheckOutTime());
+            int room = roomInventory.reserve(validation.getNumberOfGuests(), firstSlot, endSlot);
+            if (room < 0) {
+                outcomes[i] = room == RoomInventory.OUTSIDE_HORIZON
+                        ? BookingRejection.CHECK_OUT_DATE_BEYOND_HORIZON : BookingRejection.NO_ROOM_AVAILABLE;
+                continue;
             }
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-            checkInDate = LocalDate.parse(checkInDateStrings, formatter);
-            if (checkInDate.isBefore(LocalDate.now())) {
-                return badRequest("Check-in date must be after the current date.");
+            PendingBooking booking;
+            try {
+                booking = pendingBooking(validation, price, start);
+                lastSequence = bookingJournal.append(journalRecord(booking, roomInventory.getRoom(room).getNumber()));
+            } catch (UncheckedIOException e) {
+                roomInventory.release(room, firstSlot, endSlot);
+                outcomes[i] = BookingRejection.NOT_SAVED;
+                continue;
             }
-        } catch (DateTimeParseException e) {
-            return badRequest("Invalid date format. Please enter date in dd/mm/yyyy format.");
+            bookings[i] = booking;
+            rooms[i] = room;
+            outcomes[i] = null;
         }
 
-        // Input check-out date
-        String checkOutDateStrings = bookingRequest.getCheckOutDate();
-        try {
-            if (checkOutDateStrings == null) {
-                return badRequest("Check-out date is required.");
+        boolean durable = true;
+        if (lastSequence >= 0) {
+            try {
+                bookingJournal.awaitDurable(lastSequence);
+            } catch (UncheckedIOException e) {
+                durable = false;
+            }
+        }
+        int booked = 0;
+        for (int i = 0; i < count; i++) {
+            PendingBooking booking = bookings[i];
+            if (booking == null) {
+                metrics.rejected(outcomes[i], start);
+                continue;
             }
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-            checkOutDate = LocalDate.parse(checkOutDateStrings, formatter);
-            if (checkOutDate.isBefore(LocalDate.now())) {
-                return badRequest("Check-out date must be after the current date.");
+            int roomNumber = roomInventory.getRoom(rooms[i]).getNumber();
+            if (!durable) {
+                roomInventory.release(rooms[i], StaySlots.checkInSlot(booking.checkInDate(), booking.checkInTime()),
+                        StaySlots.checkOutSlot(booking.checkOutDate(), booking.checkOutTime()));
+                outcomes[i] = BookingRejection.NOT_SAVED;
+                metrics.rejected(BookingRejection.NOT_SAVED, start);
+                continue;
             }
-        } catch (DateTimeParseException e) {
-            return badRequest("Invalid date format. Please enter date in dd/mm/yyyy format.");
+            bookingLedger.booked(journalRecord(booking, roomNumber));
+            confirmations.confirmed(booking, roomNumber);
+            metrics.accepted(start);
+            booked++;
         }
+        return booked;
+    }
 
-        // Input check-in time
-        String checkInTimeStrings = bookingRequest.getCheckInTime();
-        try {
-            if (checkInTimeStrings == null) {
-                return badRequest("Check-in time is required.");
+    /**
+     * Where a booking stands: pending, reserved, confirmed with its room number, or rejected with
+     * the reason it could not be assigned after all. A live booking whose confirmation has expired
+     * or was lost in a restart is answered from the ledger as confirmed.
+     */
+    public ResponseEntity<BookingResponse> getBooking(int bookingId) {
+        Confirmation confirmation = confirmations.get(bookingId);
+        if (confirmation == null) {
+            BookingRecord stay = bookingLedger.get(bookingId);
+            if (stay == null) {
+                return CannedResponses.of(BookingRejection.BOOKING_NOT_FOUND);
+            }
+            return ResponseEntity.ok(response(CONFIRMED_MESSAGE, pendingBooking(stay, PendingBooking.UNPRICED, 0),
+                    Status.CONFIRMED, stay.getRoomNumber()));
+        }
+        String message = switch (confirmation.status()) {
+            case PENDING, RESERVED -> SUCCESS_MESSAGE;
+            case WAITLISTED -> WAITLISTED_MESSAGE;
+            case CONFIRMED -> CONFIRMED_MESSAGE;
+            case REJECTED -> confirmation.rejection().getMessage();
+            case CANCELLED -> CANCELLED_MESSAGE;
+        };
+        return ResponseEntity.ok(response(message, confirmation.booking(), confirmation.status(),
+                confirmation.roomNumber()));
+    }
+
+    /**
+     * Cancels a booking: journals its stay as released, then frees it in the inventory. Looking the
+     * booking up and dropping it from its room's index are O(log n) at most.
+     */
+    public ResponseEntity<BookingResponse> cancelBooking(int bookingId) {
+        synchronized (bookingLedger.lock(bookingId)) {
+            BookingRecord stay = bookingLedger.get(bookingId);
+            PendingBooking waiting;
+            try {
+                waiting = stay == null && waitlist != null ? waitlist.remove(bookingId).join() : null;
+            } catch (CompletionException e) {
+                return CannedResponses.of(BookingRejection.NOT_SAVED);
+            }
+            if (waiting != null) {
+                confirmations.cancelled(waiting);
+                return ResponseEntity.ok(response(CANCELLED_MESSAGE, waiting, Status.CANCELLED, 0));
+            }
+            BookingRejection rejection = unchangeable(bookingId, stay);
+            if (rejection != null) {
+                return CannedResponses.of(rejection);
+            }
+
+            try {
+                long sequence = bookingJournal.append(stay.released(stay.getFirstSlot(), stay.getEndSlot()));
+                bookingJournal.awaitDurable(sequence);
+            } catch (UncheckedIOException e) {
+                return CannedResponses.of(BookingRejection.NOT_SAVED);
             }
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-            checkInTime = LocalTime.parse(checkInTimeStrings, formatter);
-            if (!checkInTime.equals(LocalTime.of(13, 0)) && !checkInTime.equals(LocalTime.of(19, 0))) {
-                return badRequest("Check-in time must be 13:00 or 19:00.");
+
+            roomInventory.markFree(stay.getRoomNumber(), stay.getFirstSlot(), stay.getEndSlot());
+            bookingLedger.released(bookingId);
+            if (waitlist != null) {
+                waitlist.freed(stay.getRoomNumber(), stay.getFirstSlot(), stay.getEndSlot());
             }
-        } catch (DateTimeParseException e) {
-            return badRequest("Invalid time format. Please enter time in HH:mm format.");
+            PendingBooking booking = pendingBooking(stay, priceOf(bookingId), System.nanoTime());
+            confirmations.cancelled(booking);
+            return ResponseEntity.ok(response(CANCELLED_MESSAGE, booking, Status.CANCELLED, 0));
         }
+    }
 
-        // Input check-out time
-        String checkOutTimeStrings = bookingRequest.getCheckOutTime();
-        try {
-            if (checkOutTimeStrings == null) {
-                return badRequest("Check-out time is required.");
+    /**
+     * Changes a booking's stay or number of guests. Fields left out of {@code changes} keep their
+     * current value, and the result is validated exactly like a new booking. The stay is kept in its
+     * room if that room is big enough and free for the added slots, otherwise it is given a room
+     * like a new booking. The new stay is claimed and journaled before the slots it no longer
+     * covers are released, so the change is all or nothing and the booking never lacks a room.
+     */
+    public ResponseEntity<BookingResponse> modifyBooking(int bookingId, ParsedBookingRequest changes) {
+        long start = System.nanoTime();
+        synchronized (bookingLedger.lock(bookingId)) {
+            BookingRecord stay = bookingLedger.get(bookingId);
+            BookingRejection rejection = unchangeable(bookingId, stay);
+            if (rejection != null) {
+                return CannedResponses.of(rejection);
+            }
+            BookingValidation validation = bookingValidator.validate(changes.orElse(new ParsedBookingRequest(
+                    stay.getNumberOfGuests(), stay.getCheckInDate(), stay.getCheckOutDate(), stay.getCheckInTime(),
+                    stay.getCheckOutTime())));
+            if (!validation.isAccepted()) {
+                return CannedResponses.of(validation.getRejection());
             }
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-            checkOutTime = LocalTime.parse(checkOutTimeStrings, formatter);
-            if (!checkOutTime.equals(LocalTime.of(12, 0)) && !checkOutTime.equals(LocalTime.of(18, 0))) {
-                return badRequest("Check-out time must be 12:00 or 18:00.");
+
+            // keep the room if it can take the new stay, otherwise find another
+            long price = price(validation);
+            int firstSlot = StaySlots.checkInSlot(validation.getCheckInDate(), validation.getCheckInTime());
+            int endSlot = StaySlots.checkOutSlot(validation.getCheckOutDate(), validation.getCheckOutTime());
+            int oldRoom = roomInventory.indexOf(stay.getRoomNumber());
+            boolean sameRoom = oldRoom >= 0
+                    && roomInventory.getRoom(oldRoom).getCapacity() >= validation.getNumberOfGuests()
+                    && roomInventory.claimChange(oldRoom, stay.getFirstSlot(), stay.getEndSlot(), firstSlot, endSlot);
+            int room = sameRoom ? oldRoom : roomInventory.reserve(validation.getNumberOfGuests(), firstSlot, endSlot);
+            if (room == RoomInventory.OUTSIDE_HORIZON) {
+                return CannedResponses.of(BookingRejection.CHECK_OUT_DATE_BEYOND_HORIZON);
+            }
+            if (room == RoomInventory.NO_ROOM) {
+                return CannedResponses.of(BookingRejection.NO_ROOM_AVAILABLE);
+            }
+
+            // the new stay first, then what the old one no longer needs
+            PendingBooking booking = new PendingBooking(bookingId, validation.getNumberOfGuests(),
+                    validation.getCheckInDate(), validation.getCheckOutDate(), validation.getCheckInTime(),
+                    validation.getCheckOutTime(), price, start);
+            int roomNumber = roomInventory.getRoom(room).getNumber();
+            BookingRecord changed = journalRecord(booking, roomNumber);
+            int[] freed = sameRoom
+                    ? StaySlots.uncovered(stay.getFirstSlot(), stay.getEndSlot(), firstSlot, endSlot)
+                    : new int[] {stay.getFirstSlot(), stay.getEndSlot()};
+            try {
+                long sequence = bookingJournal.append(changed);
+                for (int i = 0; i < freed.length; i += 2) {
+                    sequence = bookingJournal.append(stay.released(freed[i], freed[i + 1]));
+                }
+                bookingJournal.awaitDurable(sequence);
+            } catch (UncheckedIOException e) {
+                int[] claimed = sameRoom
+                        ? StaySlots.uncovered(firstSlot, endSlot, stay.getFirstSlot(), stay.getEndSlot())
+                        : new int[] {firstSlot, endSlot};
+                for (int i = 0; i < claimed.length; i += 2) {
+                    roomInventory.release(room, claimed[i], claimed[i + 1]);
+                }
+                return CannedResponses.of(BookingRejection.NOT_SAVED);
+            }
+
+            for (int i = 0; i < freed.length; i += 2) {
+                roomInventory.markFree(stay.getRoomNumber(), freed[i], freed[i + 1]);
+                if (waitlist != null) {
+                    waitlist.freed(stay.getRoomNumber(), freed[i], freed[i + 1]);
+                }
             }
-        } catch (DateTimeParseException e) {
-            return badRequest("Invalid time format. Please enter time in HH:mm format.");
+            bookingLedger.booked(changed);
+            Status status = confirmations.changed(booking, roomNumber);
+            return ResponseEntity.ok(response(CHANGED_MESSAGE, booking, status, roomNumber));
         }
+    }
 
-        // check ìf check-in date is before check-out date
-        if (checkInDate.isAfter(checkOutDate)) {
-                return badRequest("Check-in date must be before check-out date.");
+    /** Why a booking cannot be cancelled or changed, or null if it can. */
+    private BookingRejection unchangeable(int bookingId, BookingRecord stay) {
+        if (stay == null) {
+            Confirmation confirmation = confirmations.get(bookingId);
+            return confirmation != null
+                    && (confirmation.status() == Status.PENDING || confirmation.status() == Status.WAITLISTED)
+                    ? BookingRejection.BOOKING_PENDING
+                    : BookingRejection.BOOKING_NOT_FOUND;
         }
+        return stay.getCheckInDate() < bookingValidator.today() ? BookingRejection.BOOKING_ALREADY_STARTED : null;
+    }
 
-        if (checkInDate.isEqual(checkOutDate) && checkInTime.isAfter(checkOutTime)) {
-            return badRequest("Check-in time must be before check-out time.");
+    /**
+     * Checks there is a room for the stay, without claiming it, and queues the booking for one once
+     * its booking id is reserved.
+     */
+    private CompletableFuture<ResponseEntity<BookingResponse>> handOver(BookingValidation validation, long start,
+                                                                        boolean mayWaitlist) {
+        long price = price(validation);
+        int firstSlot = StaySlots.checkInSlot(validation.getCheckInDate(), validation.getCheckInTime());
+        int endSlot = StaySlots.checkOutSlot(validation.getCheckOutDate(), validation.getCheckOutTime());
+        long mark = System.nanoTime();
+        int room = roomInventory.findRoom(validation.getNumberOfGuests(), firstSlot, endSlot);
+        metrics.endStage(Stage.RESERVATION, mark);
+        if (room == RoomInventory.OUTSIDE_HORIZON) {
+            return CompletableFuture.completedFuture(rejected(BookingRejection.CHECK_OUT_DATE_BEYOND_HORIZON, start));
+        }
+        if (room == RoomInventory.NO_ROOM) {
+            return waitlisted(validation, price, start, mayWaitlist);
         }
 
-        // Display success message if all information is entered correctly
-        return success("Room is booked successfully. We will contact you soon to confirm the room number.", bookingRequest);
+        return pendingBookingAsync(validation, price, start).handle((booking, failure) -> {
+            if (failure != null) {
+                return rejected(BookingRejection.NOT_SAVED, start);
+            }
+            if (!roomAssigner.submit(booking)) {
+                return rejected(BookingRejection.OVERLOADED, start);
+            }
+            metrics.accepted(start);
+            return ResponseEntity.accepted().body(response(SUCCESS_MESSAGE, booking, Status.PENDING, 0));
+        });
+    }
 
+    /**
+     * {@link #processBooking} without blocking: validation and the room claim run on the calling
+     * thread, and the response completes once the journal has the booking on disk, on whichever
+     * thread flushed it.
+     */
+    public CompletableFuture<ResponseEntity<BookingResponse>> processBookingAsync(BookingRequest bookingRequest) {
+        return processBookingAsync(ParsedBookingRequest.of(bookingRequest));
     }
 
-    private ResponseEntity<BookingResponse> badRequest(String message) {
-        BookingResponse bookingResponse = BookingResponse.builder()
-                .message(message)
-                .build();
+    public CompletableFuture<ResponseEntity<BookingResponse>> processBookingAsync(
+            ParsedBookingRequest bookingRequest) {
+        return processBookingAsync(bookingRequest, true);
+    }
+
+    /**
+     * {@link #processBooking(ParsedBookingRequest, boolean)} without blocking: reserving a booking
+     * id, waitlisting and the hand-over to a room assigner all complete the response from the
+     * journal's flush as well.
+     */
+    public CompletableFuture<ResponseEntity<BookingResponse>> processBookingAsync(
+            ParsedBookingRequest bookingRequest, boolean mayWaitlist) {
+        long start = System.nanoTime();
+
+        BookingValidation validation = bookingValidator.validate(bookingRequest);
+        if (!validation.isAccepted()) {
+            return CompletableFuture.completedFuture(rejected(validation.getRejection(), start));
+        }
+        if (roomAssigner != null) {
+            return handOver(validation, start, mayWaitlist);
+        }
 
-        return ResponseEntity.badRequest().body(bookingResponse);
+        long price = price(validation);
+        int firstSlot = StaySlots.checkInSlot(validation.getCheckInDate(), validation.getCheckInTime());
+        int endSlot = StaySlots.checkOutSlot(validation.getCheckOutDate(), validation.getCheckOutTime());
+        long reserveStart = System.nanoTime();
+        int room = roomInventory.reserve(validation.getNumberOfGuests(), firstSlot, endSlot);
+        long journalStart = metrics.endStage(Stage.RESERVATION, reserveStart);
+        if (room == RoomInventory.OUTSIDE_HORIZON) {
+            return CompletableFuture.completedFuture(rejected(BookingRejection.CHECK_OUT_DATE_BEYOND_HORIZON, start));
+        }
+        if (room == RoomInventory.NO_ROOM) {
+            return waitlisted(validation, price, start, mayWaitlist);
+        }
+
+        int roomNumber = roomInventory.getRoom(room).getNumber();
+        CompletableFuture<BookingRecord> durable = pendingBookingAsync(validation, price, start).thenCompose(booking -> {
+            BookingRecord record = journalRecord(booking, roomNumber);
+            return bookingJournal.whenDurable(bookingJournal.append(record)).thenApply(ignored -> record);
+        });
+        return durable.handle((record, failure) -> {
+            metrics.endStage(Stage.JOURNAL, journalStart);
+            if (failure != null) {
+                roomInventory.release(room, firstSlot, endSlot);
+                return rejected(BookingRejection.NOT_SAVED, start);
+            }
+            PendingBooking booking = pendingBooking(record, price, start);
+            bookingLedger.booked(record);
+            confirmations.confirmed(booking, roomNumber);
+            metrics.accepted(start);
+            return ResponseEntity.ok(response(SUCCESS_MESSAGE, booking, Status.CONFIRMED, roomNumber));
+        });
+    }
+
+    /**
+     * Waitlists a booking that found no room, once the journal has it, or turns it down if it may
+     * not wait or there is no waitlist.
+     */
+    private CompletableFuture<ResponseEntity<BookingResponse>> waitlisted(BookingValidation validation,
+                                                                          long priceCents, long start,
+                                                                          boolean mayWaitlist) {
+        if (!mayWaitlist || waitlist == null) {
+            return CompletableFuture.completedFuture(rejected(BookingRejection.NO_ROOM_AVAILABLE, start));
+        }
+        return pendingBookingAsync(validation, priceCents, start)
+                .thenCompose(booking -> waitlist.add(booking).thenApply(added -> added ? booking : null))
+                .handle((booking, failure) -> {
+                    if (failure != null) {
+                        return rejected(BookingRejection.NOT_SAVED, start);
+                    }
+                    if (booking == null) {
+                        return rejected(BookingRejection.NO_ROOM_AVAILABLE, start);
+                    }
+                    metrics.waitlisted(start);
+                    return ResponseEntity.accepted().body(response(WAITLISTED_MESSAGE, booking, Status.WAITLISTED, 0));
+                });
+    }
+
+    private PendingBooking pendingBooking(BookingValidation validation, long priceCents, long start) {
+        return new PendingBooking(confirmations.nextBookingId(), validation.getNumberOfGuests(),
+                validation.getCheckInDate(), validation.getCheckOutDate(), validation.getCheckInTime(),
+                validation.getCheckOutTime(), priceCents, start);
+    }
 
+    private CompletableFuture<PendingBooking> pendingBookingAsync(BookingValidation validation, long priceCents,
+                                                                  long start) {
+        return confirmations.nextBookingIdAsync().thenApply(bookingId -> new PendingBooking(bookingId,
+                validation.getNumberOfGuests(), validation.getCheckInDate(), validation.getCheckOutDate(),
+                validation.getCheckInTime(), validation.getCheckOutTime(), priceCents, start));
+    }
+
+    private static PendingBooking pendingBooking(BookingRecord stay, long priceCents, long start) {
+        return new PendingBooking(stay.getBookingId(), stay.getNumberOfGuests(), stay.getCheckInDate(),
+                stay.getCheckOutDate(), stay.getCheckInTime(), stay.getCheckOutTime(), priceCents, start);
+    }
+
+    private long price(BookingValidation validation) {
+        if (pricingEngine == null) {
+            return PendingBooking.UNPRICED;
+        }
+        return pricingEngine.quote(validation.getNumberOfGuests(), validation.getCheckInDate(),
+                validation.getCheckOutDate()).totalCents();
+    }
 
+    /** The price a booking was made at, if it is still known. */
+    private long priceOf(int bookingId) {
+        Confirmation confirmation = confirmations.get(bookingId);
+        return confirmation != null ? confirmation.booking().priceCents() : PendingBooking.UNPRICED;
     }
 
-    private ResponseEntity<BookingResponse> success(String message, BookingRequest request) {
+    private static BookingRecord journalRecord(PendingBooking booking, int roomNumber) {
+        return BookingRecord.builder()
+                .type(BookingRecord.BOOKED)
+                .numberOfGuests(booking.numberOfGuests())
+                .checkInDate(booking.checkInDate())
+                .checkOutDate(booking.checkOutDate())
+                .checkInTime(booking.checkInTime())
+                .checkOutTime(booking.checkOutTime())
+                .roomNumber(roomNumber)
+                .bookingId(booking.bookingId())
+                .build();
+    }
 
-        String numberOfGuests = request.getNumberOfGuests();
+    private ResponseEntity<BookingResponse> rejected(BookingRejection rejection, long start) {
+        metrics.rejected(rejection, start);
+        return CannedResponses.of(rejection);
+    }
 
-        int numberOfGuestsInt = Integer.parseInt(numberOfGuests);
+    private static BookingResponse response(String message, PendingBooking booking, Status status, int roomNumber) {
         BookingData bookingData = BookingData.builder()
-                .numberOfGuests(numberOfGuestsInt)
-                .checkInDate(request.getCheckInDate())
-                .checkOutDate(request.getCheckOutDate())
-                .checkInTime(request.getCheckInTime())
-                .checkOutTime(request.getCheckOutTime())
+                .bookingId(booking.bookingId())
+                .numberOfGuests(booking.numberOfGuests())
+                .checkInDate(BookingFormats.formatDate(booking.checkInDate()))
+                .checkOutDate(BookingFormats.formatDate(booking.checkOutDate()))
+                .checkInTime(BookingFormats.formatTime(booking.checkInTime()))
+                .checkOutTime(BookingFormats.formatTime(booking.checkOutTime()))
+                .roomNumber(status == Status.CONFIRMED ? roomNumber : null)
+                .status(status.name())
+                .price(booking.priceCents() == PendingBooking.UNPRICED ? null : Quote.amount(booking.priceCents()))
                 .build();
 
-        BookingResponse bookingResponse = BookingResponse.builder()
+        return BookingResponse.builder()
                 .message(message)
                 .data(bookingData)
                 .build();
-
-        return ResponseEntity.ok().body(bookingResponse);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,132 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookingResponse;
+import com.example.demo.dto.IdempotencyStats;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Remembers the response to every booking sent with an {@code Idempotency-Key} so a retry gets
+ * the original {@link BookingResponse} instead of booking again. Concurrent requests with the same
+ * key share one call to {@link HotelBookingSystem#processBooking}: the first one runs it on its own
+ * thread and the others wait for its result. Entries expire after a fixed time and the cache is
+ * bounded in size, so memory stays flat however many keys clients send. A retry matches the
+ * original when both parse to the same booking, so {@code "02"} and {@code "2"} guests agree.
+ * A transient outcome (a 5xx or 429) is handed to the requests waiting on it but not kept, so a
+ * later retry books again instead of replaying the failure.
+ */
+public class IdempotencyCache {
+
+    /** Response header set on a response that is a replay of an earlier one. */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    static final int MAX_KEY_LENGTH = 255;
+    static final String KEY_TOO_LONG_MESSAGE = "Idempotency-Key must be at most 255 characters.";
+    static final String KEY_REUSED_MESSAGE = "Idempotency-Key was already used for a different booking request.";
+
+    private static final ResponseEntity<BookingResponse> KEY_TOO_LONG =
+            CannedResponses.create(HttpStatus.BAD_REQUEST, KEY_TOO_LONG_MESSAGE);
+    private static final ResponseEntity<BookingResponse> KEY_REUSED =
+            CannedResponses.create(HttpStatus.UNPROCESSABLE_ENTITY, KEY_REUSED_MESSAGE);
+
+    private final HotelBookingSystem hotelBookingSystem;
+    private final Cache<String, CompletableFuture<Entry>> responses;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public IdempotencyCache(HotelBookingSystem hotelBookingSystem, Duration ttl, long maxEntries) {
+        this.hotelBookingSystem = hotelBookingSystem;
+        this.responses = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxEntries)
+                // evict on the calling thread so the bound holds even while the common pool is busy
+                .executor(Runnable::run)
+                .removalListener((String key, CompletableFuture<Entry> value, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictions.increment();
+                    }
+                })
+                .build();
+    }
+
+    public ResponseEntity<BookingResponse> processBooking(String key, ParsedBookingRequest bookingRequest) {
+        return processBooking(key, bookingRequest, hotelBookingSystem::processBooking);
+    }
+
+    /** Remembers the response of {@code booking} instead of booking with {@link HotelBookingSystem}. */
+    public ResponseEntity<BookingResponse> processBooking(
+            String key, ParsedBookingRequest bookingRequest,
+            Function<ParsedBookingRequest, ResponseEntity<BookingResponse>> booking) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            return KEY_TOO_LONG;
+        }
+
+        CompletableFuture<Entry> pending = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = responses.asMap().putIfAbsent(key, pending);
+        if (existing == null) {
+            // first request with this key: book on this thread
+            misses.increment();
+            try {
+                Entry entry = new Entry(bookingRequest, booking.apply(bookingRequest));
+                if (isTransient(entry.response)) {
+                    responses.asMap().remove(key, pending);
+                }
+                pending.complete(entry);
+                return entry.response;
+            } catch (RuntimeException | Error e) {
+                responses.asMap().remove(key, pending);
+                pending.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        Entry entry;
+        try {
+            entry = existing.join();
+        } catch (CompletionException e) {
+            // the original attempt failed, so this one is processed like a new request
+            return processBooking(key, bookingRequest, booking);
+        }
+        hits.increment();
+        if (!entry.request.equals(bookingRequest)) {
+            return KEY_REUSED;
+        }
+        return ResponseEntity.status(entry.response.getStatusCode())
+                .header(REPLAYED_HEADER, "true")
+                .body(entry.response.getBody());
+    }
+
+    static boolean isTransient(ResponseEntity<BookingResponse> response) {
+        return response.getStatusCode().is5xxServerError()
+                || response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    public IdempotencyStats getStats() {
+        return IdempotencyStats.builder()
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .evictions(evictions.sum())
+                .size(responses.estimatedSize())
+                .build();
+    }
+
+    private static final class Entry {
+        private final ParsedBookingRequest request;
+        private final ResponseEntity<BookingResponse> response;
+
+        private Entry(ParsedBookingRequest request, ResponseEntity<BookingResponse> response) {
+            this.request = request;
+            this.response = response;
+        }
+    }
+}
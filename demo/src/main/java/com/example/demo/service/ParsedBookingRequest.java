@@ -0,0 +1,47 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookingRequest;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * A booking request with every field already parsed: guests as a count, dates as epoch days and
+ * times as minutes of day. A field that was absent or null holds {@link BookingFormats#MISSING}
+ * and one that did not parse holds {@link BookingFormats#INVALID}; {@link BookingValidator} turns
+ * those into the same messages it gives for a {@link BookingRequest}.
+ *
+ * <p>Read from JSON by {@link ParsedBookingRequestDeserializer} in one pass over the tokens,
+ * without materializing the field values as strings.
+ */
+@JsonDeserialize(using = ParsedBookingRequestDeserializer.class)
+public record ParsedBookingRequest(int numberOfGuests, int checkInDate, int checkOutDate,
+                                   int checkInTime, int checkOutTime) {
+
+    /** Parses the string fields of {@code request}. */
+    public static ParsedBookingRequest of(BookingRequest request) {
+        return new ParsedBookingRequest(
+                request.getNumberOfGuests() == null
+                        ? BookingFormats.MISSING : BookingFormats.parseGuests(request.getNumberOfGuests()),
+                date(request.getCheckInDate()),
+                date(request.getCheckOutDate()),
+                time(request.getCheckInTime()),
+                time(request.getCheckOutTime()));
+    }
+
+    /** This request with every {@link BookingFormats#MISSING} field taken from {@code defaults}. */
+    public ParsedBookingRequest orElse(ParsedBookingRequest defaults) {
+        return new ParsedBookingRequest(
+                numberOfGuests == BookingFormats.MISSING ? defaults.numberOfGuests : numberOfGuests,
+                checkInDate == BookingFormats.MISSING ? defaults.checkInDate : checkInDate,
+                checkOutDate == BookingFormats.MISSING ? defaults.checkOutDate : checkOutDate,
+                checkInTime == BookingFormats.MISSING ? defaults.checkInTime : checkInTime,
+                checkOutTime == BookingFormats.MISSING ? defaults.checkOutTime : checkOutTime);
+    }
+
+    private static int date(String text) {
+        return text == null ? BookingFormats.MISSING : BookingFormats.parseDate(text);
+    }
+
+    private static int time(String text) {
+        return text == null ? BookingFormats.MISSING : BookingFormats.parseTime(text);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Reads a {@link ParsedBookingRequest} straight from the parser's token stream. A string value is
+ * parsed in place from the parser's character buffer, so no field value becomes a {@link String}.
+ * Everything else follows what Jackson does for the string fields of
+ * {@link com.example.demo.dto.BookingRequest}: null counts as absent, numbers and booleans are
+ * taken as their text, objects and arrays are an error, and unknown properties are skipped or
+ * rejected according to {@code FAIL_ON_UNKNOWN_PROPERTIES}. A repeated field keeps its last value.
+ */
+public class ParsedBookingRequestDeserializer extends StdDeserializer<ParsedBookingRequest> {
+
+    private static final int GUESTS = 0;
+    private static final int DATE = 1;
+    private static final int TIME = 2;
+
+    public ParsedBookingRequestDeserializer() {
+        super(ParsedBookingRequest.class);
+    }
+
+    @Override
+    public ParsedBookingRequest deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = parser.nextToken();
+        } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            return (ParsedBookingRequest) context.handleUnexpectedToken(ParsedBookingRequest.class, parser);
+        }
+
+        int numberOfGuests = BookingFormats.MISSING;
+        int checkInDate = BookingFormats.MISSING;
+        int checkOutDate = BookingFormats.MISSING;
+        int checkInTime = BookingFormats.MISSING;
+        int checkOutTime = BookingFormats.MISSING;
+        CharView text = new CharView();
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "numberOfGuests" -> numberOfGuests = parseValue(parser, context, text, GUESTS);
+                case "checkInDate" -> checkInDate = parseValue(parser, context, text, DATE);
+                case "checkOutDate" -> checkOutDate = parseValue(parser, context, text, DATE);
+                case "checkInTime" -> checkInTime = parseValue(parser, context, text, TIME);
+                case "checkOutTime" -> checkOutTime = parseValue(parser, context, text, TIME);
+                default -> context.handleUnknownProperty(parser, this, ParsedBookingRequest.class, name);
+            }
+        }
+        return new ParsedBookingRequest(numberOfGuests, checkInDate, checkOutDate, checkInTime, checkOutTime);
+    }
+
+    private static int parseValue(JsonParser parser, DeserializationContext context, CharView text, int kind)
+            throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return BookingFormats.MISSING;
+            case VALUE_STRING:
+                text.wrap(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                break;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                String scalar = parser.getText();
+                text.wrap(scalar.toCharArray(), 0, scalar.length());
+                break;
+            default:
+                // reports the same error Jackson gives for an object or array in a String property
+                context.handleUnexpectedToken(String.class, parser);
+                return BookingFormats.INVALID;
+        }
+        return switch (kind) {
+            case GUESTS -> BookingFormats.parseGuests(text);
+            case DATE -> BookingFormats.parseDate(text);
+            default -> BookingFormats.parseTime(text);
+        };
+    }
+
+    /** A {@link CharSequence} over part of a parser's buffer, valid until the next token. */
+    private static final class CharView implements CharSequence {
+
+        private char[] chars;
+        private int offset;
+        private int length;
+
+        void wrap(char[] chars, int offset, int length) {
+            this.chars = chars;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, offset, length);
+        }
+    }
+}
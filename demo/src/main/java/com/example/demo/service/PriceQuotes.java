@@ -0,0 +1,85 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.NightPrice;
+import com.example.demo.dto.QuoteResponse;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.pricing.PricingEngine;
+import com.example.demo.service.pricing.Quote;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.demo.service.BookingFormats.INVALID;
+
+/**
+ * Answers what a stay would cost right now, without booking it, from the {@link PricingEngine}'s
+ * cached quotes. Dates use the booking format and must lie between today and the end of the
+ * booking horizon; the price is the one a booking for the same stay would be given.
+ */
+@Service
+public class PriceQuotes {
+
+    private final BookingValidator bookingValidator;
+    private final RoomInventory roomInventory;
+    private final PricingEngine pricingEngine;
+
+    public PriceQuotes(BookingValidator bookingValidator, RoomInventory roomInventory, PricingEngine pricingEngine) {
+        this.bookingValidator = bookingValidator;
+        this.roomInventory = roomInventory;
+        this.pricingEngine = pricingEngine;
+    }
+
+    public ResponseEntity<QuoteResponse> quote(String checkInDate, String checkOutDate, String guests) {
+        if (guests == null) {
+            return rejected(BookingRejection.GUESTS_REQUIRED);
+        }
+        int numberOfGuests = BookingFormats.parseGuests(guests);
+        if (numberOfGuests == INVALID) {
+            return rejected(BookingRejection.GUESTS_NOT_POSITIVE);
+        }
+        if (checkInDate == null) {
+            return rejected(BookingRejection.CHECK_IN_DATE_REQUIRED);
+        }
+        if (checkOutDate == null) {
+            return rejected(BookingRejection.CHECK_OUT_DATE_REQUIRED);
+        }
+        int checkInDay = BookingFormats.parseDate(checkInDate);
+        int checkOutDay = BookingFormats.parseDate(checkOutDate);
+        if (checkInDay == INVALID || checkOutDay == INVALID) {
+            return rejected(BookingRejection.INVALID_DATE_FORMAT);
+        }
+        if (checkInDay < Math.max(bookingValidator.today(), roomInventory.getFirstDay())) {
+            return rejected(BookingRejection.CHECK_IN_DATE_IN_PAST);
+        }
+        if (checkInDay > checkOutDay) {
+            return rejected(BookingRejection.CHECK_IN_DATE_AFTER_CHECK_OUT);
+        }
+        if (Math.max(checkOutDay, checkInDay + 1) > roomInventory.getFirstDay() + roomInventory.getHorizonDays()) {
+            return rejected(BookingRejection.CHECK_OUT_DATE_BEYOND_HORIZON);
+        }
+
+        Quote quote = pricingEngine.quote(numberOfGuests, checkInDay, checkOutDay);
+        long[] nightlyCents = quote.nightlyCents();
+        List<NightPrice> nights = new ArrayList<>(nightlyCents.length);
+        for (int night = 0; night < nightlyCents.length; night++) {
+            nights.add(NightPrice.builder()
+                    .date(BookingFormats.formatDate(checkInDay + night))
+                    .price(Quote.amount(nightlyCents[night]))
+                    .build());
+        }
+        return ResponseEntity.ok(QuoteResponse.builder()
+                .numberOfGuests(numberOfGuests)
+                .checkInDate(BookingFormats.formatDate(checkInDay))
+                .checkOutDate(BookingFormats.formatDate(checkOutDay))
+                .nights(nights)
+                .total(quote.total())
+                .build());
+    }
+
+    private static ResponseEntity<QuoteResponse> rejected(BookingRejection rejection) {
+        return ResponseEntity.status(rejection.getStatus())
+                .body(QuoteResponse.builder().message(rejection.getMessage()).build());
+    }
+}
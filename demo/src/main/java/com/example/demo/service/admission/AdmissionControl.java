@@ -0,0 +1,63 @@
+package com.example.demo.service.admission;
+
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.BookingRejection;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether a booking request is let through to the controller: first against its client's
+ * {@link ClientRateLimiter rate limit}, then against the server-wide {@link ConcurrencyLimiter}.
+ * Both checks are a compare-and-set or two, so turning a request away costs next to nothing.
+ */
+public class AdmissionControl {
+
+    /** How long a client shed for overload is asked to wait before trying again. */
+    static final long OVERLOADED_RETRY_AFTER_SECONDS = 1;
+
+    private final ClientRateLimiter rateLimiter;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final BookingMetrics bookingMetrics;
+
+    public AdmissionControl(ClientRateLimiter rateLimiter, ConcurrencyLimiter concurrencyLimiter,
+                            BookingMetrics bookingMetrics) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.bookingMetrics = bookingMetrics;
+    }
+
+    /**
+     * Admits a request from {@code clientKey} or says why not. An admitted request holds a slot of
+     * the concurrency limit until {@link #release()} is called.
+     */
+    public Decision admit(String clientKey) {
+        long waitNanos = rateLimiter.tryAcquire(clientKey);
+        if (waitNanos > 0) {
+            bookingMetrics.rejected(BookingRejection.RATE_LIMITED);
+            return new Decision(BookingRejection.RATE_LIMITED,
+                    Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            bookingMetrics.rejected(BookingRejection.OVERLOADED);
+            return new Decision(BookingRejection.OVERLOADED, OVERLOADED_RETRY_AFTER_SECONDS);
+        }
+        return Decision.ADMITTED;
+    }
+
+    public void release() {
+        concurrencyLimiter.release();
+    }
+
+    /**
+     * The outcome of {@link #admit}: either {@link #ADMITTED}, or the rejection to answer with and
+     * the number of seconds to send back in {@code Retry-After}.
+     */
+    public record Decision(BookingRejection rejection, long retryAfterSeconds) {
+
+        public static final Decision ADMITTED = new Decision(null, 0);
+
+        public boolean isAdmitted() {
+            return rejection == null;
+        }
+    }
+}
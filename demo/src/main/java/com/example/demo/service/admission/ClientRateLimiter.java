@@ -0,0 +1,111 @@
+package com.example.demo.service.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket per client, refilled at a fixed rate up to a burst size, kept in a fixed table of
+ * {@code long} slots so memory is the same for ten clients or ten million. Each bucket is tracked
+ * as the time its next token becomes due (the generic cell rate algorithm), packed into one slot
+ * together with a 16-bit fingerprint of the client key, and taken with a single compare-and-set.
+ *
+ * <p>A key hashes to two slots. It uses the one holding its fingerprint, otherwise claims one whose
+ * bucket has fully refilled: such a bucket carries no state worth keeping, so a slot is only ever
+ * shared by clients that are all sending at the same time, and then with the less busy of the two.
+ * Sharing only ever makes a client's limit stricter, never looser.
+ *
+ * <p>Times are kept in microseconds since the limiter was created in the low 48 bits of a slot,
+ * which lasts about eight years.
+ */
+public class ClientRateLimiter {
+
+    private static final int TIME_BITS = 48;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long intervalMicros;
+    private final long toleranceMicros;
+    private final LongSupplier nanoTime;
+    private final long originNanos;
+
+    /**
+     * @param requestsPerSecond rate at which every client's bucket refills
+     * @param burst             tokens a bucket holds when full
+     * @param slots             size of the table, rounded up to a power of two
+     */
+    public ClientRateLimiter(double requestsPerSecond, int burst, int slots) {
+        this(requestsPerSecond, burst, slots, System::nanoTime);
+    }
+
+    ClientRateLimiter(double requestsPerSecond, int burst, int slots, LongSupplier nanoTime) {
+        if (requestsPerSecond <= 0 || burst < 1 || slots < 2) {
+            throw new IllegalArgumentException("rate, burst and slots must be positive");
+        }
+        int size = Integer.highestOneBit(slots - 1) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.intervalMicros = Math.max(1, Math.round(1_000_000 / requestsPerSecond));
+        this.toleranceMicros = intervalMicros * (burst - 1);
+        this.nanoTime = nanoTime;
+        this.originNanos = nanoTime.getAsLong();
+    }
+
+    /**
+     * Takes a token from the client's bucket.
+     *
+     * @return 0 if a token was taken, otherwise how many nanoseconds until the next one is due
+     */
+    public long tryAcquire(String clientKey) {
+        long hash = clientKey.hashCode() * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 29;
+        int first = (int) hash & mask;
+        int second = (int) (hash >>> 20) & mask;
+        if (second == first) {
+            second = first ^ 1;
+        }
+        long fingerprint = (hash >>> TIME_BITS) << TIME_BITS;
+        long now = TimeUnit.NANOSECONDS.toMicros(nanoTime.getAsLong() - originNanos);
+
+        while (true) {
+            long firstState = slots.get(first);
+            long secondState = slots.get(second);
+            int slot;
+            long state;
+            long owner;
+            if ((firstState & ~TIME_MASK) == fingerprint) {
+                slot = first;
+                state = firstState;
+                owner = fingerprint;
+            } else if ((secondState & ~TIME_MASK) == fingerprint) {
+                slot = second;
+                state = secondState;
+                owner = fingerprint;
+            } else if ((firstState & TIME_MASK) <= now) {
+                // an idle bucket is full, so taking it over loses nothing
+                slot = first;
+                state = firstState;
+                owner = fingerprint;
+            } else if ((secondState & TIME_MASK) <= now) {
+                slot = second;
+                state = secondState;
+                owner = fingerprint;
+            } else {
+                // both slots are busy with other clients: share the one with more tokens left
+                boolean firstLessBusy = (firstState & TIME_MASK) <= (secondState & TIME_MASK);
+                slot = firstLessBusy ? first : second;
+                state = firstLessBusy ? firstState : secondState;
+                owner = state & ~TIME_MASK;
+            }
+
+            long due = Math.max(state & TIME_MASK, now);
+            if (due - now > toleranceMicros) {
+                return TimeUnit.MICROSECONDS.toNanos(due - toleranceMicros - now);
+            }
+            if (slots.compareAndSet(slot, state, owner | ((due + intervalMicros) & TIME_MASK))) {
+                return 0;
+            }
+        }
+    }
+}
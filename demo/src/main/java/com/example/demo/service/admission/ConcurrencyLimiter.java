@@ -0,0 +1,45 @@
+package com.example.demo.service.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps how many requests are served at once across all clients. A request over the cap is turned
+ * away straight away rather than queued, so once the server is at capacity extra load costs a
+ * rejected response instead of more threads, memory and latency for everyone already in.
+ */
+public class ConcurrencyLimiter {
+
+    private final int limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public ConcurrencyLimiter(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        this.limit = limit;
+    }
+
+    /** @return whether the request may go ahead, in which case it must be {@link #release released} */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.service.assignment;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded ring buffer with any number of producers and exactly one consumer. A producer claims a
+ * position with one compare-and-set on the tail, fills the slot and then publishes it by stamping
+ * the slot with its position; the consumer takes slots in order as long as they are stamped, so
+ * it never waits on a producer that claimed a later position first. Nothing is allocated per item.
+ */
+final class AssignmentQueue<T> {
+
+    private final Object[] items;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    AssignmentQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.items = new Object[size];
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /** @return false, leaving the queue unchanged, if it is full */
+    boolean offer(T item) {
+        long position;
+        do {
+            position = tail.get();
+            if (position - head >= items.length) {
+                return false;
+            }
+        } while (!tail.compareAndSet(position, position + 1));
+        int slot = (int) position & mask;
+        items[slot] = item;
+        // stamped with position + 1 so that the initial zeros never look published
+        published.set(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Moves up to {@code max} items, in order, into {@code batch}. Only the consumer thread may
+     * call this.
+     *
+     * @return the number of items moved
+     */
+    @SuppressWarnings("unchecked")
+    int drainTo(T[] batch, int max) {
+        long position = head;
+        int count = 0;
+        while (count < max) {
+            int slot = (int) position & mask;
+            if (published.get(slot) != position + 1) {
+                break;
+            }
+            batch[count++] = (T) items[slot];
+            items[slot] = null;
+            position++;
+        }
+        if (count > 0) {
+            head = position;
+        }
+        return count;
+    }
+
+    boolean isEmpty() {
+        return published.get((int) head & mask) != head + 1;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return items.length;
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.demo.service.assignment;
+
+import com.example.demo.service.BookingRejection;
+import com.example.demo.service.journal.BookingJournal;
+import com.example.demo.service.journal.BookingRecord;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out booking ids and keeps the latest {@link Confirmation} of each booking so a guest can
+ * poll it. Like {@link com.example.demo.service.IdempotencyCache}, entries expire after a fixed
+ * time and the store is bounded in size, so it takes a fixed amount of memory however busy the
+ * hotel is; an expired booking is simply no longer found.
+ *
+ * <p>{@link Status#RESERVED} bookings are the exception: they are kept, outside the cache, until
+ * their room number is confirmed, since they are the ones {@link RoomOptimizer} may still move.
+ * There can be no more of them than stays fit in the inventory. {@link Status#WAITLISTED} ones are
+ * likewise kept until they leave the {@link Waitlist}, which bounds their number.
+ *
+ * <p>Given a journal, ids are only handed out once an {@link BookingRecord#IDS_RESERVED} record
+ * covering them is durable, so ids answered without ever reaching the journal, such as those of
+ * waitlisted or rejected bookings, are not reused after a restart. Ids are reserved a block at a
+ * time, and the next block is journaled when half of the current one is used, so a booking only
+ * waits for it when ids run faster than the journal flushes.
+ */
+public class BookingConfirmations {
+
+    public enum Status {
+        /** Accepted and waiting for a room. */
+        PENDING,
+        /** Sold out when it came in, and waiting for a cancellation to free a room. */
+        WAITLISTED,
+        /** Holding a room, whose number is only confirmed closer to check-in. */
+        RESERVED,
+        /** Given a room and written to the journal. */
+        CONFIRMED,
+        /** Could not be given a room or could not be saved after all. */
+        REJECTED,
+        /** Cancelled by the guest, its room given up. */
+        CANCELLED
+    }
+
+    /**
+     * Where a booking stands: the booking itself, the room number it holds once
+     * {@link Status#RESERVED} or {@link Status#CONFIRMED}, the reason once {@link Status#REJECTED}.
+     */
+    public record Confirmation(Status status, PendingBooking booking, int roomNumber, BookingRejection rejection) {
+    }
+
+    private final AtomicInteger nextBookingId;
+    private final int bookingIdStep;
+    private final BookingJournal journal;
+    private final int idsPerBlock;
+    private final AtomicInteger durableBookingId;
+    private volatile int reservedBookingId;
+    private long reservedSequence;
+    private final Cache<Integer, Confirmation> confirmations;
+    private final Map<Integer, Confirmation> reserved = new ConcurrentHashMap<>();
+    private final Map<Integer, Confirmation> waitlisted = new ConcurrentHashMap<>();
+
+    /**
+     * @param firstBookingId lowest id not used by any booking already on disk
+     */
+    public BookingConfirmations(int firstBookingId, Duration ttl, long maxEntries) {
+        this(firstBookingId, 1, ttl, maxEntries);
+    }
+
+    /**
+     * @param firstBookingId lowest id not used by any booking already on disk
+     * @param bookingIdStep  gap between consecutive ids, so that shards can hand out ids from
+     *                       disjoint residues
+     */
+    public BookingConfirmations(int firstBookingId, int bookingIdStep, Duration ttl, long maxEntries) {
+        this(firstBookingId, bookingIdStep, ttl, maxEntries, null, 1);
+    }
+
+    /**
+     * @param journal    where ids are reserved before they are handed out, or null not to reserve them
+     * @param idBlock    how many ids each {@link BookingRecord#IDS_RESERVED} record reserves
+     */
+    public BookingConfirmations(int firstBookingId, int bookingIdStep, Duration ttl, long maxEntries,
+                                BookingJournal journal, int idBlock) {
+        if (bookingIdStep < 1) {
+            throw new IllegalArgumentException("bookingIdStep must be positive");
+        }
+        if (idBlock < 1) {
+            throw new IllegalArgumentException("idBlock must be positive");
+        }
+        this.nextBookingId = new AtomicInteger(firstBookingId);
+        this.bookingIdStep = bookingIdStep;
+        this.journal = journal;
+        this.idsPerBlock = idBlock * bookingIdStep;
+        this.durableBookingId = new AtomicInteger(firstBookingId - bookingIdStep);
+        this.reservedBookingId = firstBookingId - bookingIdStep;
+        this.confirmations = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxEntries)
+                // evict on the calling thread so the bound holds even while the common pool is busy
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * @throws java.io.UncheckedIOException if the id could not be reserved in the journal
+     */
+    public int nextBookingId() {
+        int bookingId = nextBookingId.getAndAdd(bookingIdStep);
+        long sequence = reserve(bookingId);
+        if (sequence >= 0) {
+            journal.awaitDurable(sequence);
+        }
+        return bookingId;
+    }
+
+    /**
+     * {@link #nextBookingId} without blocking: the future completes once the id is reserved on
+     * disk, or fails with an {@link UncheckedIOException} if it could not be.
+     */
+    public CompletableFuture<Integer> nextBookingIdAsync() {
+        int bookingId = nextBookingId.getAndAdd(bookingIdStep);
+        long sequence;
+        try {
+            sequence = reserve(bookingId);
+        } catch (UncheckedIOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return sequence < 0
+                ? CompletableFuture.completedFuture(bookingId)
+                : journal.whenDurable(sequence).thenApply(ignored -> bookingId);
+    }
+
+    /**
+     * Journals the next block of ids if {@code bookingId} runs into the current one.
+     *
+     * @return the sequence number to wait for before handing {@code bookingId} out, or -1 if it is
+     *         already durable
+     */
+    private long reserve(int bookingId) {
+        int ahead = idsPerBlock / 2;
+        if (journal == null || bookingId <= durableBookingId.get() && bookingId + ahead <= reservedBookingId) {
+            return -1;
+        }
+        long sequence;
+        synchronized (this) {
+            if (bookingId + ahead > reservedBookingId) {
+                int lastBookingId = Math.max(reservedBookingId, bookingId) + idsPerBlock;
+                reservedSequence = journal.append(BookingRecord.idsReserved(lastBookingId));
+                reservedBookingId = lastBookingId;
+                journal.whenDurable(reservedSequence)
+                        .thenRun(() -> durableBookingId.accumulateAndGet(lastBookingId, Math::max));
+            }
+            sequence = reservedSequence;
+        }
+        return bookingId > durableBookingId.get() ? sequence : -1;
+    }
+
+    public void pending(PendingBooking booking) {
+        confirmations.put(booking.bookingId(), new Confirmation(Status.PENDING, booking, 0, null));
+    }
+
+    public void reserved(PendingBooking booking, int roomNumber) {
+        reserved.put(booking.bookingId(), new Confirmation(Status.RESERVED, booking, roomNumber, null));
+        confirmations.invalidate(booking.bookingId());
+    }
+
+    public void waitlisted(PendingBooking booking) {
+        waitlisted.put(booking.bookingId(), new Confirmation(Status.WAITLISTED, booking, 0, null));
+    }
+
+    /** Confirms the room a waitlisted booking was given. */
+    public void promoted(PendingBooking booking, int roomNumber) {
+        confirmed(booking, roomNumber);
+        waitlisted.remove(booking.bookingId());
+    }
+
+    /** Rejects a waitlisted booking that could not be given a room after all. */
+    public void dropped(PendingBooking booking, BookingRejection rejection) {
+        rejected(booking, rejection);
+        waitlisted.remove(booking.bookingId());
+    }
+
+    public void confirmed(PendingBooking booking, int roomNumber) {
+        confirmations.put(booking.bookingId(), new Confirmation(Status.CONFIRMED, booking, roomNumber, null));
+    }
+
+    /**
+     * Confirms the room a reservation holds.
+     *
+     * @return false if {@code reservation} is no longer the booking's current state
+     */
+    public boolean confirm(Confirmation reservation) {
+        if (!reserved.remove(reservation.booking().bookingId(), reservation)) {
+            return false;
+        }
+        confirmed(reservation.booking(), reservation.roomNumber());
+        return true;
+    }
+
+    /**
+     * Points a reservation at another room.
+     *
+     * @return false if {@code reservation} is no longer the booking's current state
+     */
+    public boolean moved(Confirmation reservation, int roomNumber) {
+        return reserved.replace(reservation.booking().bookingId(), reservation,
+                new Confirmation(Status.RESERVED, reservation.booking(), roomNumber, null));
+    }
+
+    /** Every booking currently {@link Status#RESERVED}. */
+    public Collection<Confirmation> reservations() {
+        return reserved.values();
+    }
+
+    /**
+     * Records a booking's new stay and room after a change. A reservation stays one, now for the
+     * new stay; anything else is confirmed.
+     *
+     * @return the status the booking has now
+     */
+    public Status changed(PendingBooking booking, int roomNumber) {
+        Confirmation reservation = reserved.computeIfPresent(booking.bookingId(),
+                (id, previous) -> new Confirmation(Status.RESERVED, booking, roomNumber, null));
+        if (reservation != null) {
+            return Status.RESERVED;
+        }
+        confirmed(booking, roomNumber);
+        return Status.CONFIRMED;
+    }
+
+    public void cancelled(PendingBooking booking) {
+        confirmations.put(booking.bookingId(), new Confirmation(Status.CANCELLED, booking, 0, null));
+        reserved.remove(booking.bookingId());
+        waitlisted.remove(booking.bookingId());
+    }
+
+    public void rejected(PendingBooking booking, BookingRejection rejection) {
+        confirmations.put(booking.bookingId(), new Confirmation(Status.REJECTED, booking, 0, rejection));
+    }
+
+    void remove(int bookingId) {
+        confirmations.invalidate(bookingId);
+    }
+
+    /** @return the booking's confirmation, or null if there is no such booking or it expired */
+    public Confirmation get(int bookingId) {
+        Confirmation held = reserved.get(bookingId);
+        if (held == null) {
+            held = waitlisted.get(bookingId);
+        }
+        return held != null ? held : confirmations.getIfPresent(bookingId);
+    }
+}
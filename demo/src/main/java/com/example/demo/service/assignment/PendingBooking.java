@@ -0,0 +1,13 @@
+package com.example.demo.service.assignment;
+
+/**
+ * A validated booking waiting for {@link RoomAssigner} to give it a room: epoch days for the
+ * dates, minutes of day for the times, the price it was quoted in cents, and when it was handed
+ * over.
+ */
+public record PendingBooking(int bookingId, int numberOfGuests, int checkInDate, int checkOutDate,
+                             int checkInTime, int checkOutTime, long priceCents, long submittedNanos) {
+
+    /** {@link #priceCents} of a booking that was never quoted, such as one read back from the journal. */
+    public static final long UNPRICED = -1;
+}
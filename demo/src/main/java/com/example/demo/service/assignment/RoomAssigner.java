@@ -0,0 +1,231 @@
+package com.example.demo.service.assignment;
+
+import com.example.demo.service.BookingRejection;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import com.example.demo.service.journal.BookingJournal;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.BookingRecord;
+import com.example.demo.service.journal.HeapBookingLedger;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The assignment stage behind the "we will contact you" confirmation. Accepted bookings are
+ * {@link #submit submitted} to a bounded {@link AssignmentQueue} and return at once; a single
+ * thread takes them off in batches, gives each a room, appends all of them to the journal, waits
+ * once for the whole batch to be durable and only then enters every booking in the
+ * {@link BookingLedger} and publishes its confirmation to {@link BookingConfirmations}. Under
+ * load the batches grow, so one flush covers more bookings. A stay that starts further ahead
+ * than the confirmation lead is only {@link BookingConfirmations.Status#RESERVED reserved},
+ * leaving its room free to be rearranged by {@link RoomOptimizer} until the number is confirmed.
+ *
+ * <p>The queue depth, the lag from submission to confirmation and the batch sizes are metered.
+ * On close the queue is drained before the thread stops, so no accepted booking is left pending.
+ */
+public class RoomAssigner implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomAssigner.class);
+
+    private final RoomInventory roomInventory;
+    private final BookingJournal bookingJournal;
+    private final BookingConfirmations confirmations;
+    private final BookingLedger bookingLedger;
+    private final AssignmentQueue<PendingBooking> queue;
+    private final PendingBooking[] batch;
+    private final int[] rooms;
+    private final Timer lag;
+    private final DistributionSummary batchSizes;
+    private final Clock clock;
+    private final int confirmationLeadDays;
+    private final Thread thread;
+    private volatile boolean waiting;
+    private volatile boolean closed;
+
+    public RoomAssigner(RoomInventory roomInventory, BookingJournal bookingJournal,
+                        BookingConfirmations confirmations, MeterRegistry registry, int queueCapacity,
+                        int batchSize) {
+        this(roomInventory, bookingJournal, confirmations, new HeapBookingLedger(), registry, queueCapacity, batchSize,
+                Clock.systemUTC(), Duration.ZERO);
+    }
+
+    /**
+     * @param confirmationLead stays starting at least this far ahead are reserved rather than
+     *                         confirmed; zero confirms every room number straight away
+     */
+    public RoomAssigner(RoomInventory roomInventory, BookingJournal bookingJournal,
+                        BookingConfirmations confirmations, BookingLedger bookingLedger, MeterRegistry registry,
+                        int queueCapacity, int batchSize, Clock clock, Duration confirmationLead) {
+        this.clock = clock;
+        this.confirmationLeadDays = (int) confirmationLead.toDays();
+        this.roomInventory = roomInventory;
+        this.bookingJournal = bookingJournal;
+        this.confirmations = confirmations;
+        this.bookingLedger = bookingLedger;
+        this.queue = new AssignmentQueue<>(queueCapacity);
+        this.batch = new PendingBooking[batchSize];
+        this.rooms = new int[batchSize];
+        Gauge.builder("hotel.assignment.queue.depth", queue, AssignmentQueue::size)
+                .description("Accepted bookings waiting for a room")
+                .register(registry);
+        this.lag = Timer.builder("hotel.assignment.lag")
+                .description("Time from accepting a booking to publishing its confirmation")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.batchSizes = DistributionSummary.builder("hotel.assignment.batch.size")
+                .description("Bookings assigned together under one journal flush")
+                .register(registry);
+        this.thread = new Thread(this::run, "room-assigner");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Hands a booking to the assignment thread and publishes it as pending.
+     *
+     * @return false if the queue is full or the assigner is closed, in which case nothing was
+     *         published
+     */
+    public boolean submit(PendingBooking booking) {
+        if (closed) {
+            return false;
+        }
+        // published before it is queued, so that it cannot overwrite the confirmation
+        confirmations.pending(booking);
+        if (!queue.offer(booking)) {
+            confirmations.remove(booking.bookingId());
+            return false;
+        }
+        if (waiting) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.MINUTES.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            int count = queue.drainTo(batch, batch.length);
+            if (count > 0) {
+                try {
+                    assign(count);
+                } catch (RuntimeException e) {
+                    log.error("Room assignment failed for a batch of {} bookings", count, e);
+                }
+                continue;
+            }
+            if (closed) {
+                return;
+            }
+            // announce the wait before the last look, so a submit either is seen or unparks us
+            waiting = true;
+            if (queue.isEmpty() && !closed) {
+                LockSupport.park(this);
+            }
+            waiting = false;
+        }
+    }
+
+    private void assign(int count) {
+        batchSizes.record(count);
+        long lastSequence = -1;
+        for (int i = 0; i < count; i++) {
+            PendingBooking booking = batch[i];
+            int firstSlot = StaySlots.checkInSlot(booking.checkInDate(), booking.checkInTime());
+            int endSlot = StaySlots.checkOutSlot(booking.checkOutDate(), booking.checkOutTime());
+            int room = roomInventory.reserve(booking.numberOfGuests(), firstSlot, endSlot);
+            rooms[i] = room;
+            if (room < 0) {
+                continue;
+            }
+            try {
+                lastSequence = bookingJournal.append(
+                        journalRecord(BookingRecord.BOOKED, booking, roomInventory.getRoom(room).getNumber()));
+            } catch (UncheckedIOException e) {
+                roomInventory.release(room, firstSlot, endSlot);
+                rooms[i] = Integer.MIN_VALUE;
+            }
+        }
+
+        boolean durable = true;
+        if (lastSequence >= 0) {
+            try {
+                bookingJournal.awaitDurable(lastSequence);
+            } catch (UncheckedIOException e) {
+                durable = false;
+            }
+        }
+
+        long now = System.nanoTime();
+        int reserveFrom = confirmationLeadDays > 0
+                ? (int) LocalDate.now(clock).toEpochDay() + confirmationLeadDays
+                : Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            PendingBooking booking = batch[i];
+            int room = rooms[i];
+            if (room == RoomInventory.NO_ROOM) {
+                confirmations.rejected(booking, BookingRejection.NO_ROOM_AVAILABLE);
+            } else if (room == RoomInventory.OUTSIDE_HORIZON) {
+                confirmations.rejected(booking, BookingRejection.CHECK_OUT_DATE_BEYOND_HORIZON);
+            } else if (room < 0) {
+                confirmations.rejected(booking, BookingRejection.NOT_SAVED);
+            } else if (!durable) {
+                roomInventory.release(room, StaySlots.checkInSlot(booking.checkInDate(), booking.checkInTime()),
+                        StaySlots.checkOutSlot(booking.checkOutDate(), booking.checkOutTime()));
+                confirmations.rejected(booking, BookingRejection.NOT_SAVED);
+            } else {
+                int roomNumber = roomInventory.getRoom(room).getNumber();
+                // a cancellation as soon as the stay is in the ledger must not be confirmed over
+                synchronized (bookingLedger.lock(booking.bookingId())) {
+                    bookingLedger.booked(journalRecord(BookingRecord.BOOKED, booking, roomNumber));
+                    if (booking.checkInDate() >= reserveFrom) {
+                        confirmations.reserved(booking, roomNumber);
+                    } else {
+                        confirmations.confirmed(booking, roomNumber);
+                    }
+                }
+            }
+            lag.record(now - booking.submittedNanos(), TimeUnit.NANOSECONDS);
+            batch[i] = null;
+        }
+    }
+
+    static BookingRecord journalRecord(byte type, PendingBooking booking, int roomNumber) {
+        return BookingRecord.builder()
+                .type(type)
+                .numberOfGuests(booking.numberOfGuests())
+                .checkInDate(booking.checkInDate())
+                .checkOutDate(booking.checkOutDate())
+                .checkInTime(booking.checkInTime())
+                .checkOutTime(booking.checkOutTime())
+                .roomNumber(roomNumber)
+                .bookingId(booking.bookingId())
+                .build();
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.demo.service.assignment;
+
+import com.example.demo.service.assignment.BookingConfirmations.Confirmation;
+import com.example.demo.service.inventory.CalendarOptimizer;
+import com.example.demo.service.inventory.CalendarOptimizer.Move;
+import com.example.demo.service.inventory.CalendarOptimizer.Stay;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import com.example.demo.service.journal.BookingJournal;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.BookingRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@code interval}, confirms the room number of each {@link BookingConfirmations.Status#RESERVED}
+ * booking whose check-in has come within the confirmation lead, then has a {@link CalendarOptimizer}
+ * plan, in parallel per date window, how the remaining reservations could be moved to strand fewer
+ * room-nights, and applies the plan.
+ *
+ * <p>Planning only reads the inventory, so bookings carry on meanwhile. The moves of a plan only
+ * go into rooms that were free before any of them, so they are applied once each, in any order. A
+ * move claims its new room like any booking would, and is skipped if that room was taken in the
+ * meantime; it is journaled as the new room {@link BookingRecord#BOOKED} followed by the old one
+ * {@link BookingRecord#RELEASED}, so a crash in between leaves both rooms blocked rather than the
+ * booking without one. Only once both records are durable is the old room freed and the move shown
+ * in the ledger and the confirmation, as {@link RoomAssigner} does for a booking; a move that could
+ * not be saved gives its new room back and ends the pass. Each move holds its booking's
+ * {@link BookingLedger#lock} until then, so a cancellation or change waits for the move's flush
+ * rather than acting on a room the booking is leaving, and is dropped if the booking was cancelled
+ * or changed since the plan was made.
+ */
+public class RoomOptimizer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomOptimizer.class);
+
+    /**
+     * What a pass did: reservations confirmed, stays moved, stranded room-nights across the
+     * inventory before and after, and how long it took.
+     */
+    public record Pass(int confirmed, int moved, long strandedBefore, long strandedAfter, long nanos) {
+
+        public long recoveredNights() {
+            return strandedBefore - strandedAfter;
+        }
+    }
+
+    private final RoomInventory roomInventory;
+    private final BookingJournal bookingJournal;
+    private final BookingConfirmations confirmations;
+    private final BookingLedger bookingLedger;
+    private final ForkJoinPool pool;
+    private final CalendarOptimizer optimizer;
+    private final Clock clock;
+    private final int confirmationLeadDays;
+    private final Timer passTime;
+    private final Counter moves;
+    private final Counter recovered;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param windowDays length of the date windows planned in parallel; stays are only moved within
+     *                   one
+     * @param interval   time between passes, 0 to only run them when asked
+     */
+    public RoomOptimizer(RoomInventory roomInventory, BookingJournal bookingJournal,
+                         BookingConfirmations confirmations, BookingLedger bookingLedger, MeterRegistry registry,
+                         Clock clock, Duration confirmationLead, int windowDays, Duration interval) {
+        this.roomInventory = roomInventory;
+        this.bookingJournal = bookingJournal;
+        this.confirmations = confirmations;
+        this.bookingLedger = bookingLedger;
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        this.optimizer = new CalendarOptimizer(roomInventory, pool, windowDays);
+        this.clock = clock;
+        this.confirmationLeadDays = (int) confirmationLead.toDays();
+        this.passTime = Timer.builder("hotel.assignment.optimizer.duration")
+                .description("Time taken by a pass over reserved bookings")
+                .register(registry);
+        this.moves = Counter.builder("hotel.assignment.optimizer.moves")
+                .description("Reserved stays moved to another room")
+                .register(registry);
+        this.recovered = Counter.builder("hotel.assignment.optimizer.recovered")
+                .description("Stranded room-nights made sellable again")
+                .baseUnit("nights")
+                .register(registry);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "room-optimizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (interval.isPositive()) {
+            long millis = interval.toMillis();
+            executor.scheduleWithFixedDelay(this::passQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Runs one pass now. */
+    public synchronized Pass pass() {
+        long start = System.nanoTime();
+        int today = (int) LocalDate.now(clock).toEpochDay();
+        int todaySlot = StaySlots.checkInSlot(today, 0);
+        int confirmFrom = today + confirmationLeadDays;
+
+        int confirmed = 0;
+        List<Stay> movable = new ArrayList<>();
+        Map<Integer, Confirmation> reservations = new HashMap<>();
+        for (Confirmation reservation : confirmations.reservations()) {
+            PendingBooking booking = reservation.booking();
+            if (booking.checkInDate() < confirmFrom) {
+                // under the lock, so a cancellation cannot come between taking and confirming it
+                synchronized (bookingLedger.lock(booking.bookingId())) {
+                    if (confirmations.confirm(reservation)) {
+                        confirmed++;
+                    }
+                }
+                continue;
+            }
+            int room = roomInventory.indexOf(reservation.roomNumber());
+            if (room >= 0) {
+                movable.add(new Stay(booking.bookingId(), room,
+                        StaySlots.checkInSlot(booking.checkInDate(), booking.checkInTime()),
+                        StaySlots.checkOutSlot(booking.checkOutDate(), booking.checkOutTime())));
+                reservations.put(booking.bookingId(), reservation);
+            }
+        }
+
+        long strandedBefore = roomInventory.strandedRoomNights(todaySlot);
+        CalendarOptimizer.Plan plan = optimizer.plan(movable);
+        int moved = apply(plan.moves(), reservations);
+        long strandedAfter = moved > 0 ? roomInventory.strandedRoomNights(todaySlot) : strandedBefore;
+
+        long nanos = System.nanoTime() - start;
+        passTime.record(nanos, TimeUnit.NANOSECONDS);
+        moves.increment(moved);
+        recovered.increment(Math.max(0, strandedBefore - strandedAfter));
+        if (moved > 0) {
+            log.info("Moved {} of {} reserved stays, stranded room-nights {} -> {}, in {} ms",
+                    moved, movable.size(), strandedBefore, strandedAfter, TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+        return new Pass(confirmed, moved, strandedBefore, strandedAfter, nanos);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pool.shutdown();
+    }
+
+    private int apply(List<Move> planned, Map<Integer, Confirmation> reservations) {
+        int moved = 0;
+        for (Move move : planned) {
+            Confirmation reservation = reservations.get(move.bookingId());
+            synchronized (bookingLedger.lock(move.bookingId())) {
+                if (confirmations.get(move.bookingId()) != reservation) {
+                    // cancelled or changed since the plan was made
+                    continue;
+                }
+                if (!roomInventory.claim(move.toRoom(), move.fromSlot(), move.toSlot())) {
+                    // taken by a new booking since the plan was made
+                    continue;
+                }
+                int toNumber = roomInventory.getRoom(move.toRoom()).getNumber();
+                BookingRecord booked =
+                        RoomAssigner.journalRecord(BookingRecord.BOOKED, reservation.booking(), toNumber);
+                try {
+                    bookingJournal.append(booked);
+                    // the release is journaled after the claim, so a replay never frees the room first
+                    bookingJournal.awaitDurable(bookingJournal.append(RoomAssigner.journalRecord(
+                            BookingRecord.RELEASED, reservation.booking(), reservation.roomNumber())));
+                } catch (UncheckedIOException e) {
+                    // the booking keeps its old room; a saved BOOKED record only blocks the new one
+                    roomInventory.release(move.toRoom(), move.fromSlot(), move.toSlot());
+                    log.warn("Could not save a room move, ending the pass", e);
+                    break;
+                }
+                roomInventory.release(move.fromRoom(), move.fromSlot(), move.toSlot());
+                bookingLedger.booked(booked);
+                confirmations.moved(reservation, toNumber);
+            }
+            moved++;
+        }
+        return moved;
+    }
+
+    private void passQuietly() {
+        try {
+            pass();
+        } catch (RuntimeException e) {
+            log.warn("Room optimizer pass failed", e);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.demo.service.assignment;
+
+import com.example.demo.service.BookingRejection;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import com.example.demo.service.journal.BookingJournal;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.BookingRecord;
+import com.example.demo.service.journal.RecoveredWaitlist;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bookings that found the hotel sold out, waiting for a room to free up. Whenever a cancellation
+ * or a change {@link #freed frees} part of a room, the earliest waitlisted bookings that now fit
+ * in that room are given it, journaled and confirmed, one after the other until no other one fits.
+ *
+ * <p>Only the freed room can take a booking it could not take before, and only a booking whose
+ * stay overlaps the freed slots, so that is all a release looks at. Entries are kept sorted by
+ * first slot, then booking id, and a release only walks the entries starting between the longest
+ * waitlisted stay before the freed slots and their end; the rest of the list, however long, is
+ * never touched.
+ *
+ * <p>Promotions run on a single thread of their own, so the request that freed the room does not
+ * wait for them. The same thread gives a booking one more try right after it joins, in case a room
+ * was freed while it was being turned down, and drops bookings whose check-in has passed.
+ *
+ * <p>Joining is journaled as {@link BookingRecord#WAITLISTED} and a cancellation as
+ * {@link BookingRecord#WITHDRAWN}, both durably before they are answered, though without holding
+ * the caller's thread while the journal flushes, so the waitlist can be
+ * {@link #restore restored} after a restart; a promotion is its {@link BookingRecord#BOOKED}
+ * record. Bookings dropped for a passed check-in are not journaled, since restoring skips them.
+ */
+public class Waitlist implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(Waitlist.class);
+
+    private final RoomInventory roomInventory;
+    private final BookingJournal bookingJournal;
+    private final BookingConfirmations confirmations;
+    private final BookingLedger bookingLedger;
+    private final Clock clock;
+    private final int maxEntries;
+    private final NavigableMap<Long, PendingBooking> entries = new ConcurrentSkipListMap<>();
+    private final Map<Integer, PendingBooking> byId = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger longestStay = new AtomicInteger();
+    private final Counter promoted;
+    private final DistributionSummary examined;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param maxEntries most bookings waitlisted at once; beyond that a sold-out booking is turned
+     *                   down as before
+     */
+    public Waitlist(RoomInventory roomInventory, BookingJournal bookingJournal, BookingConfirmations confirmations,
+                    BookingLedger bookingLedger, MeterRegistry registry, Clock clock, int maxEntries) {
+        this.roomInventory = roomInventory;
+        this.bookingJournal = bookingJournal;
+        this.confirmations = confirmations;
+        this.bookingLedger = bookingLedger;
+        this.clock = clock;
+        this.maxEntries = maxEntries;
+        Gauge.builder("hotel.waitlist.size", size, AtomicInteger::get)
+                .description("Bookings waiting for a room to be freed")
+                .register(registry);
+        this.promoted = Counter.builder("hotel.waitlist.promoted")
+                .description("Waitlisted bookings given a freed room")
+                .register(registry);
+        this.examined = DistributionSummary.builder("hotel.waitlist.examined")
+                .description("Waitlist entries looked at for one freed range")
+                .register(registry);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "waitlist");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::dropExpired, 1, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Waitlists a booking that found no room, and publishes it as waitlisted once the journal has
+     * it on disk.
+     *
+     * @return a future of false if the waitlist is full or closed, of true once the booking is
+     *         waitlisted, or failed with an {@link UncheckedIOException} if it could not be journaled
+     */
+    public CompletableFuture<Boolean> add(PendingBooking booking) {
+        if (executor.isShutdown() || size.incrementAndGet() > maxEntries) {
+            size.decrementAndGet();
+            return CompletableFuture.completedFuture(false);
+        }
+        return whenJournaled(RoomAssigner.journalRecord(BookingRecord.WAITLISTED, booking, 0))
+                .handle((ignored, failure) -> {
+                    if (failure != null) {
+                        size.decrementAndGet();
+                        throw failed(failure);
+                    }
+                    enter(booking);
+                    return true;
+                });
+    }
+
+    /**
+     * Waitlists again the bookings that were waiting when the service stopped, except those whose
+     * check-in has passed meanwhile, and gives each one more try.
+     */
+    public void restore(RecoveredWaitlist recovered) {
+        int today = (int) LocalDate.now(clock).toEpochDay();
+        for (BookingRecord record : recovered.getBookings(StaySlots.checkInSlot(today, 0))) {
+            size.incrementAndGet();
+            enter(new PendingBooking(record.getBookingId(), record.getNumberOfGuests(), record.getCheckInDate(),
+                    record.getCheckOutDate(), record.getCheckInTime(), record.getCheckOutTime(),
+                    PendingBooking.UNPRICED, System.nanoTime()));
+        }
+    }
+
+    private void enter(PendingBooking booking) {
+        int firstSlot = StaySlots.checkInSlot(booking.checkInDate(), booking.checkInTime());
+        int endSlot = StaySlots.checkOutSlot(booking.checkOutDate(), booking.checkOutTime());
+        longestStay.accumulateAndGet(endSlot - firstSlot, Math::max);
+        // published first, so a promotion cannot be overwritten by it
+        confirmations.waitlisted(booking);
+        byId.put(booking.bookingId(), booking);
+        entries.put(key(firstSlot, booking.bookingId()), booking);
+        executor.execute(() -> retry(booking));
+    }
+
+    /**
+     * Takes a booking off the waitlist for good, unless it is being given a room right now, and
+     * journals that it left.
+     *
+     * @return a future of the booking once its leaving is on disk, of null if it is not waitlisted,
+     *         or failed with an {@link UncheckedIOException} if its leaving could not be journaled;
+     *         it stays waitlisted then
+     */
+    public CompletableFuture<PendingBooking> remove(int bookingId) {
+        PendingBooking booking = take(bookingId);
+        if (booking == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return whenJournaled(RoomAssigner.journalRecord(BookingRecord.WITHDRAWN, booking, 0))
+                .handle((ignored, failure) -> {
+                    if (failure != null) {
+                        size.incrementAndGet();
+                        byId.put(bookingId, booking);
+                        entries.put(key(StaySlots.checkInSlot(booking.checkInDate(), booking.checkInTime()),
+                                bookingId), booking);
+                        throw failed(failure);
+                    }
+                    return booking;
+                });
+    }
+
+    private CompletableFuture<Void> whenJournaled(BookingRecord record) {
+        try {
+            return bookingJournal.whenDurable(bookingJournal.append(record));
+        } catch (UncheckedIOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static CompletionException failed(Throwable failure) {
+        return failure instanceof CompletionException completion ? completion : new CompletionException(failure);
+    }
+
+    private PendingBooking take(int bookingId) {
+        PendingBooking booking = byId.remove(bookingId);
+        if (booking != null) {
+            entries.remove(key(StaySlots.checkInSlot(booking.checkInDate(), booking.checkInTime()), bookingId));
+            size.decrementAndGet();
+        }
+        return booking;
+    }
+
+    /** Offers {@code [fromSlot, toSlot)} of a room to the waitlist, in the background. */
+    public void freed(int roomNumber, int fromSlot, int toSlot) {
+        if (size.get() > 0 && !executor.isShutdown()) {
+            executor.execute(() -> promoteQuietly(roomNumber, fromSlot, toSlot));
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Gives the earliest waitlisted bookings that fit into {@code [fromSlot, toSlot)} of a room,
+     * now free, that room.
+     *
+     * @return how many bookings were given the room
+     */
+    synchronized int promote(int roomNumber, int fromSlot, int toSlot) {
+        int room = roomInventory.indexOf(roomNumber);
+        if (room < 0 || fromSlot >= toSlot) {
+            return 0;
+        }
+        Room freedRoom = roomInventory.getRoom(room);
+        // a stay overlapping the freed slots starts at most the longest stay before them
+        long from = key(fromSlot - longestStay.get() + 1, 0);
+        List<PendingBooking> candidates = new ArrayList<>();
+        int looked = 0;
+        for (PendingBooking booking : entries.subMap(from, key(toSlot, 0)).values()) {
+            looked++;
+            if (booking.numberOfGuests() <= freedRoom.getCapacity()
+                    && StaySlots.checkOutSlot(booking.checkOutDate(), booking.checkOutTime()) > fromSlot) {
+                candidates.add(booking);
+            }
+        }
+        examined.record(looked);
+        candidates.sort(Comparator.comparingInt(PendingBooking::bookingId));
+
+        List<PendingBooking> placed = new ArrayList<>();
+        long lastSequence = -1;
+        for (PendingBooking booking : candidates) {
+            int firstSlot = StaySlots.checkInSlot(booking.checkInDate(), booking.checkInTime());
+            int endSlot = StaySlots.checkOutSlot(booking.checkOutDate(), booking.checkOutTime());
+            if (!roomInventory.claim(room, firstSlot, endSlot)) {
+                continue;
+            }
+            if (take(booking.bookingId()) == null) {
+                // cancelled meanwhile
+                roomInventory.release(room, firstSlot, endSlot);
+                continue;
+            }
+            try {
+                lastSequence = bookingJournal.append(
+                        RoomAssigner.journalRecord(BookingRecord.BOOKED, booking, roomNumber));
+                placed.add(booking);
+            } catch (UncheckedIOException e) {
+                roomInventory.release(room, firstSlot, endSlot);
+                confirmations.dropped(booking, BookingRejection.NOT_SAVED);
+            }
+        }
+        if (placed.isEmpty()) {
+            return 0;
+        }
+
+        boolean durable = true;
+        try {
+            bookingJournal.awaitDurable(lastSequence);
+        } catch (UncheckedIOException e) {
+            durable = false;
+        }
+        for (PendingBooking booking : placed) {
+            if (durable) {
+                // a cancellation as soon as the stay is in the ledger must not be confirmed over
+                synchronized (bookingLedger.lock(booking.bookingId())) {
+                    bookingLedger.booked(RoomAssigner.journalRecord(BookingRecord.BOOKED, booking, roomNumber));
+                    confirmations.promoted(booking, roomNumber);
+                }
+            } else {
+                roomInventory.release(room, StaySlots.checkInSlot(booking.checkInDate(), booking.checkInTime()),
+                        StaySlots.checkOutSlot(booking.checkOutDate(), booking.checkOutTime()));
+                confirmations.dropped(booking, BookingRejection.NOT_SAVED);
+            }
+        }
+        if (durable) {
+            promoted.increment(placed.size());
+        }
+        return durable ? placed.size() : 0;
+    }
+
+    /** Drops the bookings whose check-in date has passed, as rejected for want of a room. */
+    synchronized int dropExpired() {
+        long today = LocalDate.now(clock).toEpochDay();
+        int dropped = 0;
+        for (Map.Entry<Long, PendingBooking> first = entries.firstEntry();
+             first != null && first.getValue().checkInDate() < today; first = entries.firstEntry()) {
+            PendingBooking booking = take(first.getValue().bookingId());
+            if (booking == null) {
+                entries.remove(first.getKey(), first.getValue());
+                continue;
+            }
+            confirmations.dropped(booking, BookingRejection.NO_ROOM_AVAILABLE);
+            dropped++;
+        }
+        return dropped;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Gives a booking that just joined any room that was freed while it was being turned down. */
+    private synchronized void retry(PendingBooking booking) {
+        if (!byId.containsKey(booking.bookingId())) {
+            return;
+        }
+        int room = roomInventory.findRoom(booking.numberOfGuests(),
+                StaySlots.checkInSlot(booking.checkInDate(), booking.checkInTime()),
+                StaySlots.checkOutSlot(booking.checkOutDate(), booking.checkOutTime()));
+        if (room >= 0) {
+            promote(roomInventory.getRoom(room).getNumber(),
+                    StaySlots.checkInSlot(booking.checkInDate(), booking.checkInTime()),
+                    StaySlots.checkOutSlot(booking.checkOutDate(), booking.checkOutTime()));
+        }
+    }
+
+    private void promoteQuietly(int roomNumber, int fromSlot, int toSlot) {
+        try {
+            promote(roomNumber, fromSlot, toSlot);
+        } catch (RuntimeException e) {
+            log.warn("Waitlist promotion failed for room {}", roomNumber, e);
+        }
+    }
+
+    private static long key(int firstSlot, int bookingId) {
+        return ((long) firstSlot << 32) | (bookingId & 0xFFFFFFFFL);
+    }
+}
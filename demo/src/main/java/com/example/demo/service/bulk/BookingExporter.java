@@ -0,0 +1,229 @@
+package com.example.demo.service.bulk;
+
+import com.example.demo.dto.BookingData;
+import com.example.demo.service.BookingFormats;
+import com.example.demo.service.assignment.BookingConfirmations;
+import com.example.demo.service.assignment.BookingConfirmations.Confirmation;
+import com.example.demo.service.assignment.BookingConfirmations.Status;
+import com.example.demo.service.assignment.PendingBooking;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.BookingRecord;
+import com.example.demo.service.pricing.Quote;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Exports every booking that holds a room as {@link BookingData}, one per line, in a
+ * {@link BulkFormat}. Bookings are read one at a time from the {@link BookingLedger}, room by room
+ * and in order of stay within a room, and written through a fixed buffer to the channel, so memory
+ * use is the same for a hundred bookings or ten million. Bookings made or cancelled during the
+ * export may or may not be in it.
+ *
+ * <p>Status and price come from {@link BookingConfirmations} while it still remembers the booking;
+ * older bookings are exported as confirmed and without a price.
+ *
+ * <p>On a sharded hotel the exports of the other nodes follow this node's, copied through as they
+ * come, without their CSV header lines.
+ */
+@Service
+public class BookingExporter {
+
+    static final String CSV_HEADER =
+            "bookingId,numberOfGuests,checkInDate,checkOutDate,checkInTime,checkOutTime,roomNumber,status,price\n";
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final BookingLedger bookingLedger;
+    private final BookingConfirmations confirmations;
+    private final ObjectMapper objectMapper;
+
+    public BookingExporter(BookingLedger bookingLedger, BookingConfirmations confirmations,
+                           ObjectMapper objectMapper) {
+        this.bookingLedger = bookingLedger;
+        this.confirmations = confirmations;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes every booking to {@code out}, which is not closed.
+     *
+     * @return the number of bookings written
+     */
+    public long export(WritableByteChannel out, BulkFormat format) throws IOException {
+        ChannelOutput output = new ChannelOutput(out);
+        long count = 0;
+        Iterator<BookingRecord> stays = bookingLedger.stream().iterator();
+        if (format == BulkFormat.CSV) {
+            StringBuilder line = new StringBuilder(CSV_HEADER);
+            output.writeAscii(line);
+            while (stays.hasNext()) {
+                line.setLength(0);
+                appendCsv(line, bookingData(stays.next()));
+                output.writeAscii(line);
+                count++;
+            }
+        } else {
+            try (SequenceWriter writer = objectMapper.writer()
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .withRootValueSeparator("\n")
+                    .writeValues(output)) {
+                while (stays.hasNext()) {
+                    writer.write(bookingData(stays.next()));
+                    count++;
+                }
+            }
+            if (count > 0) {
+                output.write('\n');
+            }
+        }
+        output.flush();
+        return count;
+    }
+
+    /**
+     * Writes every booking to {@code out}, then the exports of other nodes in the same format,
+     * closing each of those whether or not it could be copied.
+     *
+     * @return the number of bookings written
+     */
+    public long export(WritableByteChannel out, BulkFormat format, List<InputStream> others) throws IOException {
+        try {
+            long count = export(out, format);
+            for (InputStream other : others) {
+                count += append(out, other, format == BulkFormat.CSV);
+            }
+            return count;
+        } finally {
+            for (InputStream other : others) {
+                try {
+                    other.close();
+                } catch (IOException e) {
+                    // nothing more is read from it
+                }
+            }
+        }
+    }
+
+    /** Copies another node's export, skipping its header line if it has one, and counts its lines. */
+    private static long append(WritableByteChannel out, InputStream in, boolean header) throws IOException {
+        byte[] bytes = new byte[BUFFER_BYTES];
+        boolean skipping = header;
+        long lines = 0;
+        int read;
+        while ((read = in.read(bytes)) >= 0) {
+            int from = 0;
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == '\n') {
+                    if (skipping) {
+                        skipping = false;
+                        from = i + 1;
+                    } else {
+                        lines++;
+                    }
+                }
+            }
+            if (!skipping) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, from, read - from);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+        }
+        return lines;
+    }
+
+    private BookingData bookingData(BookingRecord stay) {
+        Confirmation confirmation = confirmations.get(stay.getBookingId());
+        long priceCents = confirmation != null ? confirmation.booking().priceCents() : PendingBooking.UNPRICED;
+        Status status = confirmation != null && confirmation.status() == Status.RESERVED
+                ? Status.RESERVED : Status.CONFIRMED;
+        return BookingData.builder()
+                .bookingId(stay.getBookingId())
+                .numberOfGuests(stay.getNumberOfGuests())
+                .checkInDate(BookingFormats.formatDate(stay.getCheckInDate()))
+                .checkOutDate(BookingFormats.formatDate(stay.getCheckOutDate()))
+                .checkInTime(BookingFormats.formatTime(stay.getCheckInTime()))
+                .checkOutTime(BookingFormats.formatTime(stay.getCheckOutTime()))
+                .roomNumber(stay.getRoomNumber())
+                .status(status.name())
+                .price(priceCents == PendingBooking.UNPRICED ? null : Quote.amount(priceCents))
+                .build();
+    }
+
+    private static void appendCsv(StringBuilder line, BookingData booking) {
+        line.append(booking.getBookingId()).append(',')
+                .append(booking.getNumberOfGuests()).append(',')
+                .append(booking.getCheckInDate()).append(',')
+                .append(booking.getCheckOutDate()).append(',')
+                .append(booking.getCheckInTime()).append(',')
+                .append(booking.getCheckOutTime()).append(',')
+                .append(booking.getRoomNumber()).append(',')
+                .append(booking.getStatus()).append(',');
+        if (booking.getPrice() != null) {
+            line.append(booking.getPrice().toPlainString());
+        }
+        line.append('\n');
+    }
+
+    /** Buffers writes and hands them to the channel a buffer at a time; closing only flushes. */
+    private static final class ChannelOutput extends OutputStream {
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+        ChannelOutput(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeAscii(CharSequence text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                write(text.charAt(i));
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int n = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, n);
+                offset += n;
+                length -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package com.example.demo.service.bulk;
+
+import com.example.demo.dto.ImportError;
+import com.example.demo.dto.ImportReport;
+import com.example.demo.service.BookingFormats;
+import com.example.demo.service.BookingRejection;
+import com.example.demo.service.BookingValidation;
+import com.example.demo.service.BookingValidator;
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.ParsedBookingRequest;
+import com.example.demo.service.sharding.ShardedBookings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports bookings from a {@link BulkFormat#CSV CSV} or {@link BulkFormat#NDJSON NDJSON} stream,
+ * one booking per line, by the same rules as {@link HotelBookingSystem#processBooking}.
+ *
+ * <p>The channel is read into one buffer, a chunk of whole lines at a time. While the next chunk is
+ * being read, the lines of the last one are parsed and validated in parallel slices on the import
+ * threads. Chunks are then committed one after the other on the caller's thread with {@link
+ * HotelBookingSystem#processValidated}, in file order, so booking ids and rooms come out exactly as
+ * if the bookings had been posted one at a time, and each chunk waits on the journal once. At most
+ * two chunks are held at once, so memory does not depend on the size of the file.
+ *
+ * <p>On a sharded hotel each row is instead booked through {@link ShardedBookings#bookOrTurnDown},
+ * on whichever node has a room, with up to {@value #ROUTED_IN_FLIGHT} rows in flight at once. Rows
+ * are still counted and reported in file order, but booking ids and rooms follow the order in which
+ * the nodes answer, and a row no node has room for is turned down rather than waitlisted.
+ *
+ * <p>A CSV file that starts with a header line is read by its column names, so the output of
+ * {@link BookingExporter} imports as it is: numberOfGuests, checkInDate, checkOutDate, checkInTime
+ * and checkOutTime are read wherever they are, and any other column, such as bookingId, roomNumber,
+ * status or price, is ignored. Without a header the five are read in that order.
+ *
+ * <p>A line that cannot be parsed is counted as a malformed row and the import goes on with the
+ * next; blank lines are skipped. A line longer than a whole chunk stops the
+ * import there, with everything before it imported.
+ */
+@Service
+public class BookingImporter implements Closeable {
+
+    static final int CHUNK_BYTES = 1 << 20;
+    static final int MAX_ERRORS = 100;
+    static final String MALFORMED_ROW_MESSAGE = "Malformed row.";
+    static final String LINE_TOO_LONG_MESSAGE = "Line %d is longer than %d bytes; the import stopped before it.";
+    static final int ROUTED_IN_FLIGHT = 256;
+
+    private static final String[] CSV_FIELDS = {
+            "numberOfGuests", "checkInDate", "checkOutDate", "checkInTime", "checkOutTime"};
+    private static final int IGNORED = -1;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final HotelBookingSystem hotelBookingSystem;
+    private final ShardedBookings shardedBookings;
+    private final BookingValidator bookingValidator;
+    private final ObjectReader requestReader;
+    private final int parallelism;
+    private final int chunkBytes;
+    private final ExecutorService executor;
+
+    @Autowired
+    public BookingImporter(HotelBookingSystem hotelBookingSystem, @Nullable ShardedBookings shardedBookings,
+                           BookingValidator bookingValidator, ObjectMapper objectMapper) {
+        this(hotelBookingSystem, shardedBookings, bookingValidator, objectMapper,
+                Runtime.getRuntime().availableProcessors(), CHUNK_BYTES);
+    }
+
+    BookingImporter(HotelBookingSystem hotelBookingSystem, ShardedBookings shardedBookings,
+                    BookingValidator bookingValidator, ObjectMapper objectMapper, int parallelism, int chunkBytes) {
+        this.hotelBookingSystem = hotelBookingSystem;
+        this.shardedBookings = shardedBookings;
+        this.bookingValidator = bookingValidator;
+        this.requestReader = objectMapper.readerFor(ParsedBookingRequest.class);
+        this.parallelism = parallelism;
+        this.chunkBytes = chunkBytes;
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "booking-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Imports every booking in {@code in}, which is read to the end but not closed. */
+    public ImportReport importBookings(ReadableByteChannel in, BulkFormat format) throws IOException {
+        long start = System.nanoTime();
+        Tally tally = new Tally();
+        ByteBuffer buffer = ByteBuffer.allocate(chunkBytes);
+        long nextLine = 1;
+        Chunk pending = null;
+        int[] layout = null;
+        boolean eof = false;
+        while (!eof) {
+            while (buffer.hasRemaining() && !eof) {
+                eof = in.read(buffer) < 0;
+            }
+            buffer.flip();
+            int end = eof ? buffer.limit() : lastLineEnd(buffer);
+            if (end == 0 && buffer.hasRemaining()) {
+                tally.message = LINE_TOO_LONG_MESSAGE.formatted(nextLine, chunkBytes);
+                break;
+            }
+            Chunk chunk = split(Arrays.copyOfRange(buffer.array(), 0, end), nextLine, format);
+            nextLine += chunk.lineCount;
+            buffer.position(end);
+            buffer.compact();
+            if (layout == null) {
+                layout = chunk.headerEnd > 0 ? csvLayout(chunk.bytes, chunk.headerStart, chunk.headerEnd) : csvLayout();
+            }
+
+            chunk.validated = validate(chunk, format, layout);
+            if (pending != null) {
+                commit(pending, tally);
+            }
+            pending = chunk;
+        }
+        if (pending != null) {
+            commit(pending, tally);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        return ImportReport.builder()
+                .message(tally.message)
+                .rows(tally.rows)
+                .booked(tally.booked)
+                .rejected(tally.rows - tally.booked)
+                .rejections(tally.rejections)
+                .errors(tally.errors)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsed))
+                .rowsPerSecond(tally.rows * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsed))
+                .build();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Finds the rows of a chunk: every line that is not blank, nor the header of a CSV file, which is
+     * noted apart.
+     */
+    private Chunk split(byte[] bytes, long firstLine, BulkFormat format) {
+        Chunk chunk = new Chunk(bytes, firstLine);
+        int start = firstLine == 1 && startsWith(bytes, UTF8_BOM) ? UTF8_BOM.length : 0;
+        int line = 0;
+        while (start < bytes.length) {
+            int newline = indexOf(bytes, (byte) '\n', start, bytes.length);
+            int next = newline < 0 ? bytes.length : newline + 1;
+            int end = newline < 0 ? bytes.length : newline;
+            if (end > start && bytes[end - 1] == '\r') {
+                end--;
+            }
+            boolean header = format == BulkFormat.CSV && firstLine == 1 && line == 0 && isHeader(bytes, start, end);
+            if (header) {
+                chunk.headerStart = start;
+                chunk.headerEnd = end;
+            } else if (!isBlank(bytes, start, end)) {
+                chunk.add(start, end, line);
+            }
+            line++;
+            start = next;
+        }
+        chunk.lineCount = line;
+        chunk.requests = new ParsedBookingRequest[chunk.rows];
+        chunk.validations = new BookingValidation[chunk.rows];
+        return chunk;
+    }
+
+    /** Parses and validates the rows of a chunk in slices, one per import thread. */
+    private CompletableFuture<Void> validate(Chunk chunk, BulkFormat format, int[] layout) {
+        int slices = Math.max(1, Math.min(parallelism, chunk.rows / 256));
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[slices];
+        for (int slice = 0; slice < slices; slice++) {
+            int from = (int) ((long) chunk.rows * slice / slices);
+            int to = (int) ((long) chunk.rows * (slice + 1) / slices);
+            tasks[slice] = CompletableFuture.runAsync(() -> {
+                AsciiField field = new AsciiField(chunk.bytes);
+                for (int row = from; row < to; row++) {
+                    ParsedBookingRequest request = format == BulkFormat.CSV
+                            ? parseCsv(field, layout, chunk.starts[row], chunk.ends[row])
+                            : parseJson(chunk.bytes, chunk.starts[row], chunk.ends[row]);
+                    chunk.requests[row] = request;
+                    chunk.validations[row] = request == null ? null : bookingValidator.validate(request);
+                }
+            }, executor);
+        }
+        return CompletableFuture.allOf(tasks);
+    }
+
+    /** Books the rows of a validated chunk, in order, and counts how they fared. */
+    private void commit(Chunk chunk, Tally tally) {
+        chunk.validated.join();
+        if (shardedBookings != null) {
+            commitRouted(chunk, tally);
+            return;
+        }
+        BookingValidation[] wellFormed = new BookingValidation[chunk.rows];
+        int count = 0;
+        for (BookingValidation validation : chunk.validations) {
+            if (validation != null) {
+                wellFormed[count++] = validation;
+            }
+        }
+        BookingRejection[] outcomes = new BookingRejection[count];
+        tally.booked += hotelBookingSystem.processValidated(wellFormed, count, outcomes);
+
+        int next = 0;
+        for (int row = 0; row < chunk.rows; row++) {
+            tally.rows++;
+            String message = chunk.validations[row] == null
+                    ? MALFORMED_ROW_MESSAGE
+                    : outcomes[next] == null ? null : outcomes[next].getMessage();
+            if (chunk.validations[row] != null) {
+                next++;
+            }
+            if (message != null) {
+                tally.rejected(chunk.firstLine + chunk.lines[row], message);
+            }
+        }
+    }
+
+    /** Books the rows of a validated chunk across the nodes, a window at a time, and counts how they fared. */
+    private void commitRouted(Chunk chunk, Tally tally) {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<String>[] outcomes = new CompletableFuture[chunk.rows];
+        for (int row = 0; row < chunk.rows; row++) {
+            if (row >= ROUTED_IN_FLIGHT) {
+                outcomes[row - ROUTED_IN_FLIGHT].join();
+            }
+            BookingValidation validation = chunk.validations[row];
+            if (validation == null) {
+                outcomes[row] = CompletableFuture.completedFuture(MALFORMED_ROW_MESSAGE);
+            } else if (!validation.isAccepted()) {
+                outcomes[row] = CompletableFuture.completedFuture(validation.getRejection().getMessage());
+            } else {
+                outcomes[row] = shardedBookings.bookOrTurnDown(chunk.requests[row]).thenApply(response ->
+                        response.getStatusCode().is2xxSuccessful() ? null : response.getBody().getMessage());
+            }
+        }
+        for (int row = 0; row < chunk.rows; row++) {
+            tally.rows++;
+            String message = outcomes[row].join();
+            if (message == null) {
+                tally.booked++;
+            } else {
+                tally.rejected(chunk.firstLine + chunk.lines[row], message);
+            }
+        }
+    }
+
+    /** The layout of a CSV file without a header: the request fields, in order. */
+    private static int[] csvLayout() {
+        int[] layout = new int[CSV_FIELDS.length];
+        Arrays.setAll(layout, column -> column);
+        return layout;
+    }
+
+    /** The layout of a CSV file by its header: which request field each column holds, if any. */
+    private static int[] csvLayout(byte[] bytes, int start, int end) {
+        AsciiField field = new AsciiField(bytes);
+        List<Integer> layout = new ArrayList<>();
+        int from = start;
+        while (true) {
+            int comma = indexOf(bytes, (byte) ',', from, end);
+            int to = comma < 0 ? end : comma;
+            field.set(from, to);
+            String name = field.toString();
+            int index = IGNORED;
+            for (int i = 0; i < CSV_FIELDS.length && index == IGNORED; i++) {
+                if (CSV_FIELDS[i].equalsIgnoreCase(name) && !layout.contains(i)) {
+                    index = i;
+                }
+            }
+            layout.add(index);
+            if (to == end) {
+                break;
+            }
+            from = to + 1;
+        }
+        return layout.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Reads a row with one field for each column of {@code layout}: numberOfGuests, checkInDate,
+     * checkOutDate, checkInTime and checkOutTime where the layout has them, skipping the rest. A
+     * request field with no column of its own is missing.
+     */
+    private static ParsedBookingRequest parseCsv(AsciiField field, int[] layout, int start, int end) {
+        int[] values = new int[CSV_FIELDS.length];
+        Arrays.fill(values, BookingFormats.MISSING);
+        int column = 0;
+        int from = start;
+        while (true) {
+            int comma = indexOf(field.bytes, (byte) ',', from, end);
+            int to = comma < 0 ? end : comma;
+            if (column == layout.length) {
+                return null;
+            }
+            int index = layout[column];
+            if (index != IGNORED) {
+                field.set(from, to);
+                values[index] = field.length() == 0 ? BookingFormats.MISSING : switch (index) {
+                    case 0 -> BookingFormats.parseGuests(field);
+                    case 1, 2 -> BookingFormats.parseDate(field);
+                    default -> BookingFormats.parseTime(field);
+                };
+            }
+            column++;
+            if (to == end) {
+                break;
+            }
+            from = to + 1;
+        }
+        if (column != layout.length) {
+            return null;
+        }
+        return new ParsedBookingRequest(values[0], values[1], values[2], values[3], values[4]);
+    }
+
+    private ParsedBookingRequest parseJson(byte[] bytes, int start, int end) {
+        try {
+            return requestReader.readValue(bytes, start, end - start);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** End of the last whole line in the buffer, or 0 if there is none. */
+    private static int lastLineEnd(ByteBuffer buffer) {
+        byte[] bytes = buffer.array();
+        for (int i = buffer.limit() - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isHeader(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '"') {
+                return Character.isLetter(bytes[i]);
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBlank(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        return bytes.length >= prefix.length && Arrays.equals(bytes, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** The lines of a chunk, where its rows start and end, and their requests and validations once done. */
+    private static final class Chunk {
+
+        final byte[] bytes;
+        final long firstLine;
+        int lineCount;
+        int headerStart;
+        int headerEnd;
+        int rows;
+        int[] starts = new int[1024];
+        int[] ends = new int[1024];
+        int[] lines = new int[1024];
+        ParsedBookingRequest[] requests;
+        BookingValidation[] validations;
+        CompletableFuture<Void> validated;
+
+        Chunk(byte[] bytes, long firstLine) {
+            this.bytes = bytes;
+            this.firstLine = firstLine;
+        }
+
+        void add(int start, int end, int line) {
+            if (rows == starts.length) {
+                starts = Arrays.copyOf(starts, rows * 2);
+                ends = Arrays.copyOf(ends, rows * 2);
+                lines = Arrays.copyOf(lines, rows * 2);
+            }
+            starts[rows] = start;
+            ends[rows] = end;
+            lines[rows] = line;
+            rows++;
+        }
+    }
+
+    /**
+     * A CSV field as a {@link CharSequence} over the chunk's bytes, without surrounding spaces and
+     * quotes, so the {@link BookingFormats} parsers read it in place.
+     */
+    private static final class AsciiField implements CharSequence {
+
+        final byte[] bytes;
+        private int start;
+        private int end;
+
+        AsciiField(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        void set(int from, int to) {
+            while (from < to && bytes[from] == ' ') {
+                from++;
+            }
+            while (to > from && bytes[to - 1] == ' ') {
+                to--;
+            }
+            if (to - from >= 2 && bytes[from] == '"' && bytes[to - 1] == '"') {
+                from++;
+                to--;
+            }
+            this.start = from;
+            this.end = to;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[start + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new String(bytes, start + from, to - from, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+
+    private static final class Tally {
+
+        long rows;
+        long booked;
+        String message;
+        final Map<String, Long> rejections = new LinkedHashMap<>();
+        final List<ImportError> errors = new ArrayList<>();
+
+        void rejected(long line, String message) {
+            rejections.merge(message, 1L, Long::sum);
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(new ImportError(line, message));
+            }
+        }
+    }
+}
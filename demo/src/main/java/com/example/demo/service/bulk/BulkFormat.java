@@ -0,0 +1,37 @@
+package com.example.demo.service.bulk;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+/** The file formats bookings are imported from and exported to. */
+public enum BulkFormat {
+
+    /**
+     * Comma-separated values, one booking per line, optionally under a header line. Imported
+     * columns are numberOfGuests, checkInDate, checkOutDate, checkInTime and checkOutTime.
+     */
+    CSV(new MediaType("text", "csv")),
+    /** One JSON object per line, with the fields of a booking request or {@code BookingData}. */
+    NDJSON(MediaType.APPLICATION_NDJSON);
+
+    private final MediaType mediaType;
+
+    BulkFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /** @return the format named {@code name} in any case, or null if there is none */
+    public static BulkFormat of(String name) {
+        for (BulkFormat format : values()) {
+            if (format.name().equals(name.toUpperCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo.service.inventory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Word-at-a-time operations on {@code [from, to)} bit ranges of a {@code long[]} bitset, so a stay
+ * touches {@code nights / 32} words rather than one bit at a time. All access goes through a
+ * {@link VarHandle}, so several threads can claim and release ranges of the same bitset without a
+ * lock: {@link #trySet} sets a range only if every bit in it was clear.
+ *
+ * <p>Every write reports each word it changed to a {@link WordListener} with the word's exact value
+ * before and after, which is what lets derived indexes follow the bitset without a lock of their
+ * own.
+ */
+final class BitRanges {
+
+    /** Told about every word a write changed, with its value just before and just after. */
+    interface WordListener {
+        void changed(int word, long before, long after);
+    }
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private BitRanges() {
+    }
+
+    static boolean isClear(long[] words, int from, int to) {
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        for (int i = first; i <= last; i++) {
+            if (((long) WORDS.getAcquire(words, i) & mask(i, first, last, from, to)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Atomically sets every bit of the range word by word. If a bit is found already set, the
+     * words claimed so far are cleared again and nothing remains set.
+     *
+     * @return whether the whole range was claimed
+     */
+    static boolean trySet(long[] words, int from, int to, WordListener listener) {
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        for (int i = first; i <= last; i++) {
+            long mask = mask(i, first, last, from, to);
+            long current;
+            do {
+                current = (long) WORDS.getVolatile(words, i);
+                if ((current & mask) != 0) {
+                    if (i > first) {
+                        clear(words, from, i << 6, listener);
+                    }
+                    return false;
+                }
+            } while (!WORDS.compareAndSet(words, i, current, current | mask));
+            listener.changed(i, current, current | mask);
+        }
+        return true;
+    }
+
+    static void set(long[] words, int from, int to, WordListener listener) {
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        for (int i = first; i <= last; i++) {
+            long mask = mask(i, first, last, from, to);
+            long before = (long) WORDS.getAndBitwiseOr(words, i, mask);
+            if ((before | mask) != before) {
+                listener.changed(i, before, before | mask);
+            }
+        }
+    }
+
+    static void clear(long[] words, int from, int to, WordListener listener) {
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        for (int i = first; i <= last; i++) {
+            long mask = mask(i, first, last, from, to);
+            long before = (long) WORDS.getAndBitwiseAnd(words, i, ~mask);
+            if ((before & ~mask) != before) {
+                listener.changed(i, before, before & ~mask);
+            }
+        }
+    }
+
+    /** First set bit in {@code [from, to)}, or {@code to} if there is none. */
+    static int nextSetBit(long[] words, int from, int to) {
+        if (from >= to) {
+            return to;
+        }
+        int i = from >>> 6;
+        long word = (long) WORDS.getAcquire(words, i) & (-1L << from);
+        while (word == 0) {
+            if (++i << 6 >= to) {
+                return to;
+            }
+            word = (long) WORDS.getAcquire(words, i);
+        }
+        return Math.min(to, (i << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /** First clear bit in {@code [from, to)}, or {@code to} if there is none. */
+    static int nextClearBit(long[] words, int from, int to) {
+        if (from >= to) {
+            return to;
+        }
+        int i = from >>> 6;
+        long word = ~(long) WORDS.getAcquire(words, i) & (-1L << from);
+        while (word == 0) {
+            if (++i << 6 >= to) {
+                return to;
+            }
+            word = ~(long) WORDS.getAcquire(words, i);
+        }
+        return Math.min(to, (i << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /** Last set bit in {@code [from, to)}, or {@code from - 1} if there is none. */
+    static int previousSetBit(long[] words, int from, int to) {
+        if (from >= to) {
+            return from - 1;
+        }
+        int i = (to - 1) >>> 6;
+        long word = (long) WORDS.getAcquire(words, i) & (-1L >>> -to);
+        while (word == 0) {
+            if (--i < 0 || (i << 6) + 63 < from) {
+                return from - 1;
+            }
+            word = (long) WORDS.getAcquire(words, i);
+        }
+        return Math.max(from - 1, (i << 6) + 63 - Long.numberOfLeadingZeros(word));
+    }
+
+    static long mask(int word, int first, int last, int from, int to) {
+        long mask = -1L;
+        if (word == first) {
+            mask &= -1L << from;
+        }
+        if (word == last) {
+            mask &= -1L >>> -to;
+        }
+        return mask;
+    }
+
+    static int wordCount(int bits) {
+        return (bits + 63) >>> 6;
+    }
+}
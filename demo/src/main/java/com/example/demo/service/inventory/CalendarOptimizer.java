@@ -0,0 +1,256 @@
+package com.example.demo.service.inventory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plans how to move stays between rooms of the same capacity so that fewer room-nights are
+ * stranded in gaps too short to sell. The horizon is cut into fixed windows of whole bitset words
+ * that are planned independently as fork-join tasks; a stay is only moved within its window, and
+ * stays that cross a window edge, like every stay not handed in as movable, stay where they are.
+ *
+ * <p>A window is planned on a copy of its words, by taking the movable stays out and putting them
+ * back one by one with the same fit {@link RoomInventory#reserve} uses, in a couple of orders; the
+ * best result is kept only if it strands fewer nights than the calendar as it is. A stay only ever
+ * moves into slots that are free before any move, never into ones another stay leaves, so the
+ * moves of a plan do not depend on each other and can be applied in any order. Planning never
+ * writes to the inventory, so bookings carry on while it runs, and whoever applies the plan has to
+ * claim each target with {@link RoomInventory#claim} in case it was taken meanwhile.
+ */
+public class CalendarOptimizer {
+
+    /** A stay that may be moved: its booking, current room index and slots. */
+    public record Stay(int bookingId, int room, int fromSlot, int toSlot) {
+    }
+
+    /** Moving a booking's stay from one room index to another. */
+    public record Move(int bookingId, int fromRoom, int toRoom, int fromSlot, int toSlot) {
+    }
+
+    /** The moves of a pass, and the stranded room-nights of the windows planned before and after them. */
+    public record Plan(List<Move> moves, long strandedBefore, long strandedAfter) {
+
+        static final Plan EMPTY = new Plan(List.of(), 0, 0);
+
+        public long recoveredNights() {
+            return strandedBefore - strandedAfter;
+        }
+
+        Plan plus(Plan other) {
+            List<Move> all = new ArrayList<>(moves.size() + other.moves.size());
+            all.addAll(moves);
+            all.addAll(other.moves);
+            return new Plan(all, strandedBefore + other.strandedBefore, strandedAfter + other.strandedAfter);
+        }
+    }
+
+    private static final BitRanges.WordListener UNTRACKED = (word, before, after) -> {
+    };
+
+    private static final List<Comparator<LocalStay>> ORDERS = List.of(
+            Comparator.comparingInt(LocalStay::from).thenComparingInt(stay -> stay.from - stay.to),
+            Comparator.<LocalStay>comparingInt(stay -> stay.from - stay.to).thenComparingInt(LocalStay::from));
+
+    private final RoomInventory inventory;
+    private final ForkJoinPool pool;
+    private final int windowWords;
+    private final int windowSlots;
+    private final int[] classStart;
+    private final int[] classEnd;
+
+    public CalendarOptimizer(RoomInventory inventory, ForkJoinPool pool, int windowDays) {
+        this.inventory = inventory;
+        this.pool = pool;
+        this.windowWords = Math.max(1, BitRanges.wordCount(windowDays * StaySlots.SLOTS_PER_DAY));
+        this.windowSlots = windowWords * 64;
+        int rooms = inventory.getRoomCount();
+        this.classStart = new int[rooms];
+        this.classEnd = new int[rooms];
+        for (int room = 0, start = 0; room < rooms; room++) {
+            if (inventory.getRoom(room).getCapacity() != inventory.getRoom(start).getCapacity()) {
+                for (int i = start; i < room; i++) {
+                    classEnd[i] = room;
+                }
+                start = room;
+            }
+            classStart[room] = start;
+            if (room == rooms - 1) {
+                for (int i = start; i < rooms; i++) {
+                    classEnd[i] = rooms;
+                }
+            }
+        }
+    }
+
+    /** Plans moves for {@code movable}, using the pool for the windows. */
+    public Plan plan(Collection<Stay> movable) {
+        // windows are counted from where the horizon starts now, even if it moves on meanwhile
+        int firstSlot = inventory.getFirstSlot();
+        int size = inventory.getHorizonDays() * StaySlots.SLOTS_PER_DAY;
+        int windows = (size + windowSlots - 1) / windowSlots;
+        @SuppressWarnings("unchecked")
+        List<Stay>[] byWindow = new List[windows];
+        for (Stay stay : movable) {
+            int from = stay.fromSlot() - firstSlot;
+            int to = stay.toSlot() - firstSlot;
+            if (from < 0 || to > size || from >= to || from / windowSlots != (to - 1) / windowSlots) {
+                continue;
+            }
+            int window = from / windowSlots;
+            if (byWindow[window] == null) {
+                byWindow[window] = new ArrayList<>();
+            }
+            byWindow[window].add(stay);
+        }
+        return pool.invoke(new WindowTask(byWindow, firstSlot, size, 0, windows));
+    }
+
+    private final class WindowTask extends RecursiveTask<Plan> {
+
+        private final List<Stay>[] byWindow;
+        private final int firstSlot;
+        private final int size;
+        private final int low;
+        private final int high;
+
+        WindowTask(List<Stay>[] byWindow, int firstSlot, int size, int low, int high) {
+            this.byWindow = byWindow;
+            this.firstSlot = firstSlot;
+            this.size = size;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        protected Plan compute() {
+            if (high - low == 1) {
+                return byWindow[low] == null ? Plan.EMPTY : planWindow(firstSlot, size, low, byWindow[low]);
+            }
+            int middle = (low + high) >>> 1;
+            WindowTask left = new WindowTask(byWindow, firstSlot, size, low, middle);
+            left.fork();
+            Plan right = new WindowTask(byWindow, firstSlot, size, middle, high).compute();
+            return left.join().plus(right);
+        }
+    }
+
+    private Plan planWindow(int firstSlot, int horizonSlots, int window, List<Stay> stays) {
+        Plan plan = Plan.EMPTY;
+        List<Stay> remaining = new ArrayList<>(stays);
+        while (!remaining.isEmpty()) {
+            // one capacity at a time, since stays only move between rooms of the same size
+            int start = classStart[remaining.get(0).room()];
+            List<Stay> sameSize = new ArrayList<>();
+            remaining.removeIf(stay -> classStart[stay.room()] == start && sameSize.add(stay));
+            plan = plan.plus(planRooms(firstSlot, horizonSlots, window, start, classEnd[start], sameSize));
+        }
+        return plan;
+    }
+
+    private Plan planRooms(int firstSlot, int horizonSlots, int window, int firstRoom, int endRoom,
+                           List<Stay> stays) {
+        int windowFrom = window * windowSlots;
+        int size = Math.min(windowSlots, horizonSlots - windowFrom);
+        int minGap = inventory.getMinSellableNights() * StaySlots.SLOTS_PER_DAY;
+        long[][] current = new long[endRoom - firstRoom][];
+        for (int room = firstRoom; room < endRoom; room++) {
+            long[] copy = new long[windowWords];
+            inventory.copyOccupancy(room, firstSlot + windowFrom, size, copy);
+            current[room - firstRoom] = copy;
+        }
+        long before = stranded(current, size, minGap);
+
+        List<LocalStay> local = new ArrayList<>(stays.size());
+        long[][] fixed = copy(current);
+        for (Stay stay : stays) {
+            LocalStay moved = new LocalStay(stay, stay.room() - firstRoom,
+                    stay.fromSlot() - firstSlot - windowFrom,
+                    stay.toSlot() - firstSlot - windowFrom);
+            local.add(moved);
+            BitRanges.clear(fixed[moved.room], moved.from, moved.to, UNTRACKED);
+        }
+
+        long best = before;
+        List<LocalStay> bestOrder = null;
+        int[] bestRooms = null;
+        for (Comparator<LocalStay> order : ORDERS) {
+            List<LocalStay> ordered = new ArrayList<>(local);
+            ordered.sort(order);
+            long[][] calendar = copy(fixed);
+            int[] rooms = place(calendar, current, size, ordered, minGap);
+            if (rooms != null) {
+                long after = stranded(calendar, size, minGap);
+                if (after < best) {
+                    best = after;
+                    bestOrder = ordered;
+                    bestRooms = rooms;
+                }
+            }
+        }
+        if (bestRooms == null) {
+            return new Plan(List.of(), before, before);
+        }
+        List<Move> moves = new ArrayList<>();
+        for (int i = 0; i < bestOrder.size(); i++) {
+            LocalStay stay = bestOrder.get(i);
+            if (bestRooms[i] != stay.room) {
+                moves.add(new Move(stay.stay.bookingId(), stay.stay.room(), firstRoom + bestRooms[i],
+                        stay.stay.fromSlot(), stay.stay.toSlot()));
+            }
+        }
+        return new Plan(moves, before, best);
+    }
+
+    /**
+     * Puts every stay back into the best fitting room, preferring its own, and another one only where
+     * it is free in {@code current}; null if one does not fit.
+     */
+    private static int[] place(long[][] calendar, long[][] current, int size, List<LocalStay> stays, int minGap) {
+        int[] rooms = new int[stays.size()];
+        for (int i = 0; i < stays.size(); i++) {
+            LocalStay stay = stays.get(i);
+            int best = -1;
+            int bestCost = Integer.MAX_VALUE;
+            for (int room = 0; room < calendar.length; room++) {
+                if (BitRanges.isClear(calendar[room], stay.from, stay.to)
+                        && (room == stay.room || BitRanges.isClear(current[room], stay.from, stay.to))) {
+                    int cost = StayFit.cost(calendar[room], size, stay.from, stay.to, minGap);
+                    if (cost < bestCost || (cost == bestCost && room == stay.room)) {
+                        best = room;
+                        bestCost = cost;
+                    }
+                }
+            }
+            if (best < 0) {
+                return null;
+            }
+            BitRanges.set(calendar[best], stay.from, stay.to, UNTRACKED);
+            rooms[i] = best;
+        }
+        return rooms;
+    }
+
+    private static long stranded(long[][] calendar, int size, int minGap) {
+        long nights = 0;
+        for (long[] words : calendar) {
+            nights += StayFit.strandedNights(words, 0, size, minGap);
+        }
+        return nights;
+    }
+
+    private static long[][] copy(long[][] calendar) {
+        long[][] copy = new long[calendar.length][];
+        for (int i = 0; i < calendar.length; i++) {
+            copy[i] = calendar[i].clone();
+        }
+        return copy;
+    }
+
+    /** A stay in the window's own coordinates: room relative to the first of its size, slots to the window. */
+    private record LocalStay(Stay stay, int room, int from, int to) {
+    }
+}
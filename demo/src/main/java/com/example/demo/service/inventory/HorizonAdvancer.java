@@ -0,0 +1,45 @@
+package com.example.demo.service.inventory;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a {@link RoomInventory}'s horizon starting today: every {@code interval} it moves the
+ * horizon on to the clock's date, which does nothing until the date changes. Checking often costs
+ * next to nothing and opens up the new last day soon after midnight.
+ */
+public class HorizonAdvancer implements Closeable {
+
+    private final RoomInventory inventory;
+    private final Clock clock;
+    private final ScheduledExecutorService executor;
+
+    public HorizonAdvancer(RoomInventory inventory, Clock clock, Duration interval) {
+        this.inventory = inventory;
+        this.clock = clock;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-horizon-advancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (interval.isPositive()) {
+            long millis = interval.toMillis();
+            executor.scheduleWithFixedDelay(this::advance, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Moves the horizon on to start today, if it does not already. */
+    public void advance() {
+        inventory.advanceTo((int) LocalDate.now(clock).toEpochDay());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
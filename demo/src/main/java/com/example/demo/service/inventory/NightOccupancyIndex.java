@@ -0,0 +1,117 @@
+package com.example.demo.service.inventory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Number of rooms taken on each night of a {@link SlotRing}, per room capacity, kept up to date
+ * from the word changes {@link BitRanges} reports rather than by scanning bookings. A room counts
+ * as taken on a night if either of its slots, 12:00-18:00 or 18:00-12:00, is occupied; since the
+ * ring is a whole number of words, both slots of a night always sit in the same bitset word, so
+ * each word change says exactly which nights of that room went from free to taken or back.
+ *
+ * <p>Each capacity has a Fenwick tree over nights in range-update, point-query form: a run of
+ * nights changing together is two atomic adds, and the count for one night is a prefix sum. Both
+ * cost {@code O(log nights)}, however long the stay or the search window.
+ *
+ * <p>Every night also has a version, bumped after each change to how many rooms are taken on it,
+ * so a caller can tell whether anything it derived from a night's count is still current by
+ * reading that night's version before and comparing it later.
+ */
+final class NightOccupancyIndex {
+
+    private static final long FIRST_SLOT_OF_NIGHT = 0x5555555555555555L;
+    private static final int NIGHTS_PER_WORD = 64 / StaySlots.SLOTS_PER_DAY;
+
+    private final int nights;
+    private final int[] capacities;
+    private final int[] roomsPerCapacity;
+    private final AtomicIntegerArray[] taken;
+    private final AtomicIntegerArray versions;
+    private final BitRanges.WordListener[] listeners;
+
+    /** {@code rooms} ordered by capacity, as {@link RoomInventory} keeps them. */
+    NightOccupancyIndex(Room[] rooms, int nights) {
+        this.nights = nights;
+        int classes = (int) Arrays.stream(rooms).mapToInt(Room::getCapacity).distinct().count();
+        this.capacities = new int[classes];
+        this.roomsPerCapacity = new int[classes];
+        this.taken = new AtomicIntegerArray[classes];
+        this.listeners = new BitRanges.WordListener[rooms.length];
+        this.versions = new AtomicIntegerArray(nights);
+        int current = -1;
+        for (int room = 0; room < rooms.length; room++) {
+            if (current < 0 || capacities[current] != rooms[room].getCapacity()) {
+                current++;
+                capacities[current] = rooms[room].getCapacity();
+                taken[current] = new AtomicIntegerArray(nights + 1);
+            }
+            roomsPerCapacity[current]++;
+            AtomicIntegerArray tree = taken[current];
+            listeners[room] = (word, before, after) -> changed(tree, word, before, after);
+        }
+    }
+
+    /** Listener to pass along with every write to the bitset of {@code room}. */
+    BitRanges.WordListener listener(int room) {
+        return listeners[room];
+    }
+
+    /** Rooms with at least {@code guests} capacity that are free on {@code night}. */
+    int freeRooms(int guests, int night) {
+        int free = 0;
+        for (int c = capacities.length - 1; c >= 0 && capacities[c] >= guests; c--) {
+            free += roomsPerCapacity[c] - pointValue(taken[c], night);
+        }
+        return free;
+    }
+
+    /** Goes up every time the number of rooms taken on {@code night} changes. */
+    int version(int night) {
+        return versions.get(night);
+    }
+
+    /**
+     * Moves the version of {@code night} on without a change to its count, when it comes round as
+     * a new date, so that nothing worked out for it before, for either date, is taken as current.
+     */
+    void renew(int night) {
+        versions.getAndIncrement(night);
+    }
+
+    private void changed(AtomicIntegerArray tree, int word, long before, long after) {
+        long wasTaken = Long.compress(before | before >>> 1, FIRST_SLOT_OF_NIGHT);
+        long isTaken = Long.compress(after | after >>> 1, FIRST_SLOT_OF_NIGHT);
+        int base = word * NIGHTS_PER_WORD;
+        addRuns(tree, base, isTaken & ~wasTaken, 1);
+        addRuns(tree, base, wasTaken & ~isTaken, -1);
+        // after the counts, so a version read before a count is never newer than it
+        for (long nightBits = wasTaken ^ isTaken; nightBits != 0; nightBits &= nightBits - 1) {
+            versions.getAndIncrement(base + Long.numberOfTrailingZeros(nightBits));
+        }
+    }
+
+    private void addRuns(AtomicIntegerArray tree, int base, long nightBits, int delta) {
+        while (nightBits != 0) {
+            int start = Long.numberOfTrailingZeros(nightBits);
+            int end = start + Long.numberOfTrailingZeros(~(nightBits >>> start));
+            add(tree, base + start, delta);
+            add(tree, base + end, -delta);
+            nightBits &= -1L << end;
+        }
+    }
+
+    private void add(AtomicIntegerArray tree, int night, int delta) {
+        for (int i = night + 1; i <= nights; i += i & -i) {
+            tree.getAndAdd(i, delta);
+        }
+    }
+
+    private static int pointValue(AtomicIntegerArray tree, int night) {
+        int sum = 0;
+        for (int i = night + 1; i > 0; i -= i & -i) {
+            sum += tree.get(i);
+        }
+        return sum;
+    }
+}
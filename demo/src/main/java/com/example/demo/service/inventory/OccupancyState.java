@@ -0,0 +1,12 @@
+package com.example.demo.service.inventory;
+
+/**
+ * Anything that tracks which {@link StaySlots slots} of which room are taken, addressed by room
+ * number. Recovery replays snapshots and the booking journal into it.
+ */
+public interface OccupancyState {
+
+    void markOccupied(int roomNumber, int fromSlot, int toSlot);
+
+    void markFree(int roomNumber, int fromSlot, int toSlot);
+}
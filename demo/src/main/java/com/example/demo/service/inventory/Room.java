@@ -0,0 +1,9 @@
+package com.example.demo.service.inventory;
+
+import lombok.Value;
+
+@Value
+public class Room {
+    int number;
+    int capacity;
+}
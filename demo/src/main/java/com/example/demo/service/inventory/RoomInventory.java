@@ -0,0 +1,387 @@
+package com.example.demo.service.inventory;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The hotel's rooms and, per room, a bitset of occupied {@link StaySlots slots} over a booking
+ * horizon of {@code horizonDays} starting at {@code firstDay}, which {@link #advanceTo} moves on
+ * as the days go by. Checking or claiming a stay costs one word operation per 64 slots (32 days),
+ * so a multi-year horizon across thousands of rooms stays a few megabytes and a few microseconds
+ * per booking. The bitsets are {@link SlotRing rings}, so moving the horizon on only clears the
+ * days it takes on.
+ *
+ * <p>Rooms are kept ordered by capacity, and {@link #reserve} hands out the smallest free room that
+ * fits the party so larger rooms stay available for larger groups. Among free rooms of that size it
+ * picks, with {@link Placement#BEST_FIT}, the one the stay fits most snugly between the stays
+ * already there, so that rooms fill up end to end instead of being left with gaps too short to
+ * sell.
+ *
+ * <p>There is no lock: a stay is claimed with one compare-and-set per bitset word it covers, so
+ * bookings for different rooms, or for different months of the same room, never wait on each
+ * other, and a slot can only ever be claimed by one booking. A claim that collides part way
+ * through is rolled back, and a concurrent reserve may briefly see those bits and skip the room.
+ *
+ * <p>A {@link NightOccupancyIndex} follows every change to the bitsets, so the number of free rooms
+ * on a night is a few array reads however many bookings there are.
+ *
+ * <p>As an {@link OccupancyState} it accepts recovered bookings by room number; parts of a stay
+ * outside the horizon, and rooms that no longer exist, are ignored.
+ */
+public class RoomInventory implements OccupancyState {
+
+    /** {@link #reserve} result: no room with enough capacity is free for the whole stay. */
+    public static final int NO_ROOM = -1;
+    /** {@link #reserve} result: the stay does not fit inside the booking horizon. */
+    public static final int OUTSIDE_HORIZON = -2;
+
+    /** Gaps shorter than this many nights between two stays are counted as unsellable by default. */
+    public static final int DEFAULT_MIN_SELLABLE_NIGHTS = 2;
+
+    /**
+     * Free rooms {@link Placement#BEST_FIT} scores at most; the lowest numbered ones fill up first,
+     * so that is where the stays to fit against are.
+     */
+    static final int BEST_FIT_CANDIDATES = 8;
+
+    /** How {@link #reserve} chooses among free rooms of the smallest size that fits. */
+    public enum Placement {
+        /** The lowest numbered one. */
+        FIRST_FIT,
+        /** The one that leaves the shortest gaps to its neighbouring stays, and no unsellable ones. */
+        BEST_FIT
+    }
+
+    private final Room[] rooms;
+    private final int[] capacities;
+    private final Map<Integer, Integer> indexByNumber = new HashMap<>();
+    private final long[][] occupancy;
+    private final NightOccupancyIndex nightIndex;
+    private final SlotRing ring;
+    private final int horizonSlots;
+    private volatile int firstSlot;
+    private final Placement placement;
+    private final int minGapSlots;
+
+    public RoomInventory(List<Room> rooms, int firstDay, int horizonDays) {
+        this(rooms, firstDay, horizonDays, Placement.BEST_FIT, DEFAULT_MIN_SELLABLE_NIGHTS);
+    }
+
+    /**
+     * @param minSellableNights shortest gap between two stays, in nights, that is still worth
+     *                          selling; shorter ones are avoided by {@link Placement#BEST_FIT} and
+     *                          counted by {@link #strandedRoomNights}
+     */
+    public RoomInventory(List<Room> rooms, int firstDay, int horizonDays, Placement placement,
+                         int minSellableNights) {
+        this.rooms = rooms.stream()
+                .sorted(Comparator.comparingInt(Room::getCapacity).thenComparingInt(Room::getNumber))
+                .toArray(Room[]::new);
+        this.capacities = Arrays.stream(this.rooms).mapToInt(Room::getCapacity).toArray();
+        this.firstSlot = firstDay * StaySlots.SLOTS_PER_DAY;
+        this.horizonSlots = horizonDays * StaySlots.SLOTS_PER_DAY;
+        this.ring = new SlotRing(horizonSlots);
+        this.occupancy = new long[this.rooms.length][ring.words()];
+        for (int room = 0; room < this.rooms.length; room++) {
+            indexByNumber.put(this.rooms[room].getNumber(), room);
+        }
+        this.nightIndex = new NightOccupancyIndex(this.rooms, ring.size() / StaySlots.SLOTS_PER_DAY);
+        this.placement = placement;
+        this.minGapSlots = minSellableNights * StaySlots.SLOTS_PER_DAY;
+    }
+
+    /**
+     * Claims the smallest room with at least {@code guests} capacity that is free for every slot in
+     * {@code [fromSlot, toSlot)}.
+     *
+     * @return the index of the claimed room, {@link #NO_ROOM} or {@link #OUTSIDE_HORIZON}
+     */
+    public int reserve(int guests, int fromSlot, int toSlot) {
+        int firstSlot = this.firstSlot;
+        if (fromSlot < firstSlot || toSlot > firstSlot + horizonSlots || fromSlot >= toSlot) {
+            return OUTSIDE_HORIZON;
+        }
+        if (placement == Placement.FIRST_FIT) {
+            for (int room = firstRoomFor(guests); room < rooms.length; room++) {
+                if (ring.isClear(occupancy[room], fromSlot, toSlot)
+                        && ring.trySet(occupancy[room], fromSlot, toSlot, nightIndex.listener(room))) {
+                    return room;
+                }
+            }
+            return NO_ROOM;
+        }
+        while (true) {
+            int room = bestFit(firstRoomFor(guests), firstSlot, fromSlot, toSlot);
+            if (room < 0 || ring.trySet(occupancy[room], fromSlot, toSlot, nightIndex.listener(room))) {
+                return room;
+            }
+            // taken in the meantime: score again
+        }
+    }
+
+    /**
+     * The best fitting of the first {@value #BEST_FIT_CANDIDATES} free rooms of the first capacity,
+     * from {@code firstRoom} on, that has one.
+     */
+    private int bestFit(int firstRoom, int firstSlot, int from, int to) {
+        int best = NO_ROOM;
+        int bestCost = Integer.MAX_VALUE;
+        int candidates = 0;
+        for (int room = firstRoom; room < rooms.length && candidates < BEST_FIT_CANDIDATES; room++) {
+            if (best >= 0 && capacities[room] != capacities[best]) {
+                break;
+            }
+            if (ring.isClear(occupancy[room], from, to)) {
+                candidates++;
+                int cost = cost(occupancy[room], firstSlot, from, to);
+                if (cost < bestCost) {
+                    best = room;
+                    bestCost = cost;
+                    if (cost == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /** {@link StayFit#cost} of {@code [from, to)} in a room, with the horizon's ends as open calendar. */
+    private int cost(long[] words, int firstSlot, int from, int to) {
+        int low = Math.max(firstSlot, from - StayFit.REACH);
+        int previous = ring.previousSetBit(words, low, from);
+        int high = Math.min(firstSlot + horizonSlots, to + StayFit.REACH);
+        int next = ring.nextSetBit(words, to, high);
+        return StayFit.cost(previous < low ? StayFit.REACH : from - 1 - previous,
+                next == high ? StayFit.REACH : next - to, minGapSlots);
+    }
+
+    /**
+     * Claims {@code [fromSlot, toSlot)} of a particular room, if every slot of it is free.
+     *
+     * @return whether the stay was claimed
+     */
+    public boolean claim(int room, int fromSlot, int toSlot) {
+        int firstSlot = this.firstSlot;
+        return fromSlot >= firstSlot && toSlot <= firstSlot + horizonSlots && fromSlot < toSlot
+                && ring.trySet(occupancy[room], fromSlot, toSlot, nightIndex.listener(room));
+    }
+
+    /**
+     * Claims what a stay of a room needs to become {@code [newFrom, newTo)} instead of
+     * {@code [oldFrom, oldTo)}: the slots of the new range the old one does not hold, all of them or
+     * none. The slots only the old range holds are left taken for the caller to release.
+     *
+     * @return whether the room now holds the whole new range
+     */
+    public boolean claimChange(int room, int oldFrom, int oldTo, int newFrom, int newTo) {
+        int[] added = StaySlots.uncovered(newFrom, newTo, oldFrom, oldTo);
+        for (int i = 0; i < added.length; i += 2) {
+            if (!claim(room, added[i], added[i + 1])) {
+                for (int j = 0; j < i; j += 2) {
+                    release(room, added[j], added[j + 1]);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Room-nights from {@code fromSlot} on that sit in gaps between two stays too short to sell,
+     * across all rooms.
+     */
+    public long strandedRoomNights(int fromSlot) {
+        int firstSlot = this.firstSlot;
+        int from = Math.max(fromSlot, firstSlot);
+        int slots = firstSlot + horizonSlots - from;
+        if (slots <= 0) {
+            return 0;
+        }
+        long[] calendar = new long[BitRanges.wordCount(slots)];
+        long nights = 0;
+        for (long[] words : occupancy) {
+            ring.copy(words, from, slots, calendar);
+            nights += StayFit.strandedNights(calendar, 0, slots, minGapSlots);
+        }
+        return nights;
+    }
+
+    /**
+     * Like {@link #reserve}, but only looks: the smallest room with at least {@code guests}
+     * capacity that is free for every slot in {@code [fromSlot, toSlot)} right now.
+     *
+     * @return the index of that room, {@link #NO_ROOM} or {@link #OUTSIDE_HORIZON}
+     */
+    public int findRoom(int guests, int fromSlot, int toSlot) {
+        int firstSlot = this.firstSlot;
+        if (fromSlot < firstSlot || toSlot > firstSlot + horizonSlots || fromSlot >= toSlot) {
+            return OUTSIDE_HORIZON;
+        }
+        for (int room = firstRoomFor(guests); room < rooms.length; room++) {
+            if (ring.isClear(occupancy[room], fromSlot, toSlot)) {
+                return room;
+            }
+        }
+        return NO_ROOM;
+    }
+
+    /**
+     * Rooms with at least {@code guests} capacity that are free for the whole night of
+     * {@code epochDay}, 12:00 that day to 12:00 the next, or 0 outside the horizon.
+     */
+    public int freeRooms(int guests, int epochDay) {
+        int night = night(epochDay);
+        return night < 0 ? 0 : nightIndex.freeRooms(guests, night);
+    }
+
+    /** Rooms with at least {@code guests} capacity, free or not. */
+    public int roomsFor(int guests) {
+        return rooms.length - firstRoomFor(guests);
+    }
+
+    /**
+     * A number that goes up every time the number of rooms taken on the night of {@code epochDay}
+     * changes, for any capacity, or 0 outside the horizon. Anything worked out from
+     * {@link #freeRooms} for that night is still current as long as this has not moved since it
+     * was read, before the work began.
+     */
+    public int occupancyVersion(int epochDay) {
+        int night = night(epochDay);
+        return night < 0 ? 0 : nightIndex.version(night);
+    }
+
+    /** The index night of {@code epochDay}, or -1 outside the horizon. */
+    private int night(int epochDay) {
+        int slot = epochDay * StaySlots.SLOTS_PER_DAY;
+        int firstSlot = this.firstSlot;
+        if (slot < firstSlot || slot >= firstSlot + horizonSlots) {
+            return -1;
+        }
+        return ring.position(slot) / StaySlots.SLOTS_PER_DAY;
+    }
+
+    /**
+     * Frees {@code [fromSlot, toSlot)} of a room previously returned by {@link #reserve}, as far as
+     * it is still inside the horizon.
+     */
+    public void release(int room, int fromSlot, int toSlot) {
+        int firstSlot = this.firstSlot;
+        int from = Math.max(fromSlot, firstSlot);
+        int to = Math.min(toSlot, firstSlot + horizonSlots);
+        if (from < to) {
+            ring.clear(occupancy[room], from, to, nightIndex.listener(room));
+        }
+    }
+
+    /** Whether the part of {@code [fromSlot, toSlot)} inside the horizon is free in a room. */
+    public boolean isFree(int room, int fromSlot, int toSlot) {
+        int firstSlot = this.firstSlot;
+        int from = Math.max(fromSlot, firstSlot);
+        int to = Math.min(toSlot, firstSlot + horizonSlots);
+        return from >= to || ring.isClear(occupancy[room], from, to);
+    }
+
+    @Override
+    public void markOccupied(int roomNumber, int fromSlot, int toSlot) {
+        Integer room = indexByNumber.get(roomNumber);
+        int firstSlot = this.firstSlot;
+        int from = Math.max(fromSlot, firstSlot);
+        int to = Math.min(toSlot, firstSlot + horizonSlots);
+        if (room != null && from < to) {
+            ring.set(occupancy[room], from, to, nightIndex.listener(room));
+        }
+    }
+
+    @Override
+    public void markFree(int roomNumber, int fromSlot, int toSlot) {
+        Integer room = indexByNumber.get(roomNumber);
+        if (room != null) {
+            release(room, fromSlot, toSlot);
+        }
+    }
+
+    /**
+     * Moves the horizon on to start at {@code firstDay}, as long as it is: the days before it can
+     * no longer be booked and as many days after its old end now can, free in every room. Nothing
+     * happens if the horizon already starts there or later.
+     *
+     * <p>The days taken on are cleared before they are opened up, so no booking sees the stays a
+     * day had when it last came round; bookings carry on meanwhile, only ever inside the old or
+     * the new horizon.
+     */
+    public synchronized void advanceTo(int firstDay) {
+        int oldFirst = firstSlot;
+        int newFirst = firstDay * StaySlots.SLOTS_PER_DAY;
+        if (newFirst <= oldFirst) {
+            return;
+        }
+        int newEnd = newFirst + horizonSlots;
+        int from = Math.max(oldFirst + horizonSlots, newEnd - ring.size());
+        for (int room = 0; room < rooms.length; room++) {
+            ring.clear(occupancy[room], from, newEnd, nightIndex.listener(room));
+        }
+        for (int slot = from; slot < newEnd; slot += StaySlots.SLOTS_PER_DAY) {
+            nightIndex.renew(ring.position(slot) / StaySlots.SLOTS_PER_DAY);
+        }
+        firstSlot = newFirst;
+    }
+
+    public Room getRoom(int room) {
+        return rooms[room];
+    }
+
+    /** @return the index of the room with that number, or -1 if there is none */
+    public int indexOf(int roomNumber) {
+        return indexByNumber.getOrDefault(roomNumber, -1);
+    }
+
+    public int getMinSellableNights() {
+        return minGapSlots / StaySlots.SLOTS_PER_DAY;
+    }
+
+    /**
+     * Copies a room's occupancy of {@code [fromSlot, fromSlot + slots)}, which has to be inside the
+     * horizon, into {@code target} from bit 0 on.
+     */
+    void copyOccupancy(int room, int fromSlot, int slots, long[] target) {
+        ring.copy(occupancy[room], fromSlot, slots, target);
+    }
+
+    public int getRoomCount() {
+        return rooms.length;
+    }
+
+    public int getFirstSlot() {
+        return firstSlot;
+    }
+
+    public int getEndSlot() {
+        return firstSlot + horizonSlots;
+    }
+
+    public int getFirstDay() {
+        return StaySlots.epochDay(firstSlot);
+    }
+
+    public int getHorizonDays() {
+        return horizonSlots / StaySlots.SLOTS_PER_DAY;
+    }
+
+    private int firstRoomFor(int guests) {
+        int low = 0;
+        int high = capacities.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (capacities[mid] < guests) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.demo.service.inventory;
+
+/**
+ * Where the {@link StaySlots slots} of a rolling booking horizon sit in a bitset that is used round
+ * and round: slot {@code s} at bit {@code s mod size}. Moving the horizon on by a day then only
+ * has to clear the bits of the day it takes on, which last held a day long since gone, instead of
+ * shifting every bit down. {@code size} is a whole number of words, at least one word more than the
+ * horizon, so the horizon never covers a bit twice, a slot only comes round again 32 days or more
+ * after it left the horizon, and the two slots of a night still share a word.
+ *
+ * <p>Ranges are absolute slots and at most {@code size} long. One that runs past the last bit
+ * carries on from bit 0, so every operation is the {@link BitRanges} one on one or two parts.
+ */
+final class SlotRing {
+
+    private final int size;
+
+    SlotRing(int horizonSlots) {
+        this.size = (BitRanges.wordCount(horizonSlots) + 1) << 6;
+    }
+
+    /** Bits in the ring. */
+    int size() {
+        return size;
+    }
+
+    int words() {
+        return size >>> 6;
+    }
+
+    int position(int slot) {
+        return Math.floorMod(slot, size);
+    }
+
+    boolean isClear(long[] words, int from, int to) {
+        int start = position(from);
+        int end = start + (to - from);
+        if (end <= size) {
+            return BitRanges.isClear(words, start, end);
+        }
+        return BitRanges.isClear(words, start, size) && BitRanges.isClear(words, 0, end - size);
+    }
+
+    /** {@link BitRanges#trySet} on both parts, leaving neither set unless both were clear. */
+    boolean trySet(long[] words, int from, int to, BitRanges.WordListener listener) {
+        int start = position(from);
+        int end = start + (to - from);
+        if (end <= size) {
+            return BitRanges.trySet(words, start, end, listener);
+        }
+        if (!BitRanges.trySet(words, start, size, listener)) {
+            return false;
+        }
+        if (BitRanges.trySet(words, 0, end - size, listener)) {
+            return true;
+        }
+        BitRanges.clear(words, start, size, listener);
+        return false;
+    }
+
+    void set(long[] words, int from, int to, BitRanges.WordListener listener) {
+        int start = position(from);
+        int end = start + (to - from);
+        if (end <= size) {
+            BitRanges.set(words, start, end, listener);
+        } else {
+            BitRanges.set(words, start, size, listener);
+            BitRanges.set(words, 0, end - size, listener);
+        }
+    }
+
+    void clear(long[] words, int from, int to, BitRanges.WordListener listener) {
+        int start = position(from);
+        int end = start + (to - from);
+        if (end <= size) {
+            BitRanges.clear(words, start, end, listener);
+        } else {
+            BitRanges.clear(words, start, size, listener);
+            BitRanges.clear(words, 0, end - size, listener);
+        }
+    }
+
+    /** First occupied slot in {@code [from, to)}, or {@code to} if there is none. */
+    int nextSetBit(long[] words, int from, int to) {
+        if (from >= to) {
+            return to;
+        }
+        int start = position(from);
+        int end = start + (to - from);
+        if (end <= size) {
+            return from + BitRanges.nextSetBit(words, start, end) - start;
+        }
+        int next = BitRanges.nextSetBit(words, start, size);
+        if (next < size) {
+            return from + next - start;
+        }
+        return from + size - start + BitRanges.nextSetBit(words, 0, end - size);
+    }
+
+    /** Last occupied slot in {@code [from, to)}, or {@code from - 1} if there is none. */
+    int previousSetBit(long[] words, int from, int to) {
+        if (from >= to) {
+            return from - 1;
+        }
+        int start = position(from);
+        int end = start + (to - from);
+        if (end <= size) {
+            return from + BitRanges.previousSetBit(words, start, end) - start;
+        }
+        int previous = BitRanges.previousSetBit(words, 0, end - size);
+        if (previous >= 0) {
+            return from + size - start + previous;
+        }
+        return from + BitRanges.previousSetBit(words, start, size) - start;
+    }
+
+    /**
+     * Copies {@code [from, from + slots)} into {@code target} from bit 0 on, clearing the rest of
+     * its last word. Plain reads: a copy taken while the ring is written to may be out of date.
+     */
+    void copy(long[] words, int from, int slots, long[] target) {
+        for (int i = 0; i < BitRanges.wordCount(slots); i++) {
+            int position = position(from + (i << 6));
+            int word = position >>> 6;
+            int offset = position & 63;
+            long bits = words[word] >>> offset;
+            if (offset != 0) {
+                bits |= words[(word + 1) % words.length] << -offset;
+            }
+            int remaining = slots - (i << 6);
+            target[i] = remaining < 64 ? bits & (-1L >>> -remaining) : bits;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.service.inventory;
+
+/**
+ * How well a stay fits between the stays already in a room, and how many room-nights a calendar
+ * has stranded: free gaps between two stays that are shorter than the shortest stay worth selling.
+ * Both work on one room's bitset in slots relative to its first bit, and only look a bounded
+ * distance either side of a stay, so scoring a room costs a word or two however full it is.
+ */
+final class StayFit {
+
+    /** How far either side of a stay gaps are measured; anything longer counts as open calendar. */
+    static final int REACH = 64;
+
+    /** Scores above this leave a stranded gap next to the stay. */
+    private static final int STRANDED = 4 * REACH;
+
+    private StayFit() {
+    }
+
+    /**
+     * Cost of putting {@code [from, to)} into {@code words}, lowest is best: 0 if the stay closes
+     * the gaps to its neighbours on both sides, the lengths of the gaps it leaves otherwise, and a
+     * penalty for every gap left shorter than {@code minGap} slots, which can no longer be sold.
+     * The edges of the bitset, {@code 0} and {@code size}, count as open calendar.
+     */
+    static int cost(long[] words, int size, int from, int to, int minGap) {
+        int low = Math.max(0, from - REACH);
+        int previous = BitRanges.previousSetBit(words, low, from);
+        int high = Math.min(size, to + REACH);
+        int next = BitRanges.nextSetBit(words, to, high);
+        return cost(previous < low ? REACH : from - 1 - previous, next == high ? REACH : next - to, minGap);
+    }
+
+    /**
+     * The same cost from the free slots a stay leaves before and after it up to the nearest stay,
+     * {@link #REACH} where there is none that near or the calendar ends first.
+     */
+    static int cost(int gapBefore, int gapAfter, int minGap) {
+        return gapCost(gapBefore, minGap) + gapCost(gapAfter, minGap);
+    }
+
+    private static int gapCost(int gap, int minGap) {
+        if (gap == 0) {
+            return 0;
+        }
+        return gap < minGap ? STRANDED + gap : gap;
+    }
+
+    /**
+     * Nights in free gaps of {@code [from, to)} that have a stay on both sides and are shorter than
+     * {@code minGap} slots.
+     */
+    static int strandedNights(long[] words, int from, int to, int minGap) {
+        int nights = 0;
+        int occupied = BitRanges.nextSetBit(words, from, to);
+        while (occupied < to) {
+            int free = BitRanges.nextClearBit(words, occupied, to);
+            int next = BitRanges.nextSetBit(words, free, to);
+            if (next >= to) {
+                break;
+            }
+            if (next - free < minGap) {
+                nights += (next - free) / StaySlots.SLOTS_PER_DAY;
+            }
+            occupied = next;
+        }
+        return nights;
+    }
+}
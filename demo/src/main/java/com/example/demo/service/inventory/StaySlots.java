@@ -0,0 +1,61 @@
+package com.example.demo.service.inventory;
+
+/**
+ * Maps check-in/check-out dates and times onto the slots the occupancy index works with. Every
+ * day is split into a day slot (12:00-18:00) and a night slot (18:00-12:00 the next day), which is
+ * exactly the granularity the allowed times need: a 12:00 check-out frees the room for a 13:00
+ * check-in the same day, an 18:00 check-out only for a 19:00 one. Slots are absolute numbers,
+ * {@code 2 * epochDay} for the day slot and {@code 2 * epochDay + 1} for the night slot.
+ */
+public final class StaySlots {
+
+    public static final int SLOTS_PER_DAY = 2;
+
+    private static final int DAY_SLOT_START = 12 * 60;
+    private static final int NIGHT_SLOT_START = 18 * 60;
+
+    private StaySlots() {
+    }
+
+    /** First slot occupied by a guest arriving at {@code minuteOfDay} on {@code epochDay}. */
+    public static int checkInSlot(int epochDay, int minuteOfDay) {
+        return epochDay * SLOTS_PER_DAY + (minuteOfDay < NIGHT_SLOT_START ? 0 : 1);
+    }
+
+    /** Slot after the last one occupied by a guest leaving at {@code minuteOfDay} on {@code epochDay}. */
+    public static int checkOutSlot(int epochDay, int minuteOfDay) {
+        return epochDay * SLOTS_PER_DAY + (minuteOfDay <= DAY_SLOT_START ? 0 : 1);
+    }
+
+    public static int epochDay(int slot) {
+        return Math.floorDiv(slot, SLOTS_PER_DAY);
+    }
+
+    /**
+     * Minute of day {@code slot} starts at, which {@link #checkInSlot} maps back onto {@code slot}
+     * as a check-in time and {@link #checkOutSlot} as a check-out time.
+     */
+    public static int startMinute(int slot) {
+        return Math.floorMod(slot, SLOTS_PER_DAY) == 0 ? DAY_SLOT_START : NIGHT_SLOT_START;
+    }
+
+    /**
+     * The parts of {@code [fromSlot, toSlot)} outside {@code [coverFrom, coverTo)}: none, one or
+     * two ranges, as first and end slot pairs.
+     */
+    public static int[] uncovered(int fromSlot, int toSlot, int coverFrom, int coverTo) {
+        if (coverTo <= fromSlot || coverFrom >= toSlot) {
+            return new int[] {fromSlot, toSlot};
+        }
+        if (fromSlot < coverFrom && coverTo < toSlot) {
+            return new int[] {fromSlot, coverFrom, coverTo, toSlot};
+        }
+        if (fromSlot < coverFrom) {
+            return new int[] {fromSlot, coverFrom};
+        }
+        if (coverTo < toSlot) {
+            return new int[] {coverTo, toSlot};
+        }
+        return new int[0];
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.service.journal;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Durable, append-only log of accepted bookings. Appending is cheap and returns straight away;
+ * callers that need the record on disk before answering wait for it with {@link #awaitDurable},
+ * which lets one flush cover every record appended in the meantime.
+ */
+public interface BookingJournal {
+
+    /**
+     * Appends a record.
+     *
+     * @return the record's sequence number, increasing by one per record
+     * @throws java.io.UncheckedIOException if the journal can no longer be written
+     */
+    long append(BookingRecord record);
+
+    /**
+     * Blocks until the record with the given sequence number, and every one before it, is on disk.
+     *
+     * @throws java.io.UncheckedIOException if flushing failed
+     */
+    void awaitDurable(long sequence);
+
+    /**
+     * Non-blocking {@link #awaitDurable}: completes once the record with the given sequence
+     * number, and every one before it, is on disk, or exceptionally with an
+     * {@link java.io.UncheckedIOException} if flushing failed. Dependent stages may run on the
+     * thread that flushed, so anything slow should be handed off.
+     */
+    CompletableFuture<Void> whenDurable(long sequence);
+
+    /** Sequence number below which every record is on disk. */
+    long getDurableSequence();
+
+    /** Why the journal can no longer be written, or null while it can. */
+    default IOException getFailure() {
+        return null;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.service.journal;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Every live booking with the room and stay it holds right now, by booking id and, per room, sorted
+ * by first slot. Stays in a room never overlap, so the per-room order is an interval index: a
+ * cancellation or change finds the stays it touches without scanning the journal or the other
+ * rooms.
+ *
+ * <p>It is rebuilt on startup by listening to {@link BookingRecovery} and kept up to date by
+ * whoever journals a booking, once the record is durable. Changes to one booking are made under
+ * its {@link #lock}, so that a cancellation, a change and a room move of the same booking never
+ * interleave.
+ */
+public interface BookingLedger extends BookingListener {
+
+    /** Where the ledger keeps its stays. */
+    enum Storage {
+        /** In objects on the heap, as {@link HeapBookingLedger} does. */
+        HEAP,
+        /** In fixed-width records in direct memory, as {@link OffHeapBookingLedger} does. */
+        OFF_HEAP
+    }
+
+    /** The monitor to hold while changing the booking. */
+    Object lock(int bookingId);
+
+    /** @return the booking's current stay, or null if there is no such live booking */
+    BookingRecord get(int bookingId);
+
+    /** Records {@code stay} as the booking's current one, in place of any it held before. */
+    void booked(BookingRecord stay);
+
+    /** Forgets the booking, as once it is cancelled. */
+    void released(int bookingId);
+
+    /** The stays of a room that overlap {@code [fromSlot, toSlot)}, by first slot. */
+    List<BookingRecord> stays(int roomNumber, int fromSlot, int toSlot);
+
+    /** Forgets every stay over before {@code slot}, oldest first in each room. */
+    void forgetEndedBefore(int slot);
+
+    int size();
+
+    /**
+     * Every live stay, room by room and by first slot within a room, read lazily: stays booked or
+     * released meanwhile may or may not show up.
+     */
+    Stream<BookingRecord> stream();
+
+    @Override
+    default void replayed(BookingRecord record) {
+        if (record.getType() == BookingRecord.BOOKED && record.getBookingId() > 0) {
+            booked(record);
+        } else if (record.getType() == BookingRecord.RELEASED && releases(get(record.getBookingId()), record)) {
+            released(record.getBookingId());
+        }
+    }
+
+    /**
+     * Whether {@code released} gives up the whole of {@code stay}, rather than the old room of a
+     * move or the part of a changed stay it no longer covers.
+     */
+    static boolean releases(BookingRecord stay, BookingRecord released) {
+        return stay != null && stay.getRoomNumber() == released.getRoomNumber()
+                && stay.getFirstSlot() == released.getFirstSlot() && stay.getEndSlot() == released.getEndSlot();
+    }
+}
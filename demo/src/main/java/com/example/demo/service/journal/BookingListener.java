@@ -0,0 +1,14 @@
+package com.example.demo.service.journal;
+
+/**
+ * Receives the bookings {@link BookingRecovery} replays, the live ones of a snapshot first and then
+ * every journal record after it, in journal order.
+ */
+@FunctionalInterface
+public interface BookingListener {
+
+    BookingListener NONE = record -> {
+    };
+
+    void replayed(BookingRecord record);
+}
@@ -0,0 +1,22 @@
+package com.example.demo.service.journal;
+
+/**
+ * The monitors {@link BookingLedger#lock} hands out: a fixed set of stripes, so that bookings
+ * share one only by chance and the set never grows with the bookings.
+ */
+final class BookingLocks {
+
+    private static final int STRIPES = 256;
+
+    private final Object[] locks = new Object[STRIPES];
+
+    BookingLocks() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    Object lock(int bookingId) {
+        return locks[bookingId & (STRIPES - 1)];
+    }
+}
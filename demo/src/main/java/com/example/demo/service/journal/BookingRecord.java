@@ -0,0 +1,62 @@
+package com.example.demo.service.journal;
+
+import com.example.demo.service.inventory.StaySlots;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * One journal entry: an accepted booking in the form the service works with, epoch days for the
+ * dates and minute of day for the times, plus the room it was given and its booking id (0 in
+ * records written before bookings had ids). A {@link #RELEASED} record gives the room up again for
+ * the same stay, as when a booking is moved to another room, or only part of it, as when a stay is
+ * shortened or cancelled. An {@link #IDS_RESERVED} record only carries a booking id: every id up
+ * to it may have been handed out, so none of them is handed out again after a restart. A
+ * {@link #WAITLISTED} booking, without a room, waits until a {@link #BOOKED} record gives it one
+ * or a {@link #WITHDRAWN} one takes it off the waitlist.
+ */
+@Value
+@Builder
+public class BookingRecord {
+
+    public static final byte BOOKED = 1;
+    public static final byte RELEASED = 2;
+    public static final byte IDS_RESERVED = 3;
+    public static final byte WAITLISTED = 4;
+    public static final byte WITHDRAWN = 5;
+
+    byte type;
+    int numberOfGuests;
+    int checkInDate;
+    int checkOutDate;
+    int checkInTime;
+    int checkOutTime;
+    int roomNumber;
+    int bookingId;
+
+    public int getFirstSlot() {
+        return StaySlots.checkInSlot(checkInDate, checkInTime);
+    }
+
+    public int getEndSlot() {
+        return StaySlots.checkOutSlot(checkOutDate, checkOutTime);
+    }
+
+    /** An {@link #IDS_RESERVED} record covering every booking id up to {@code lastBookingId}. */
+    public static BookingRecord idsReserved(int lastBookingId) {
+        return BookingRecord.builder().type(IDS_RESERVED).bookingId(lastBookingId).build();
+    }
+
+    /** A {@link #RELEASED} record giving up {@code [fromSlot, toSlot)} of this booking's room. */
+    public BookingRecord released(int fromSlot, int toSlot) {
+        return BookingRecord.builder()
+                .type(RELEASED)
+                .numberOfGuests(numberOfGuests)
+                .checkInDate(StaySlots.epochDay(fromSlot))
+                .checkOutDate(StaySlots.epochDay(toSlot))
+                .checkInTime(StaySlots.startMinute(fromSlot))
+                .checkOutTime(StaySlots.startMinute(toSlot))
+                .roomNumber(roomNumber)
+                .bookingId(bookingId)
+                .build();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.demo.service.journal;
+
+import com.example.demo.service.inventory.OccupancyState;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Rebuilds occupancy from disk: the newest {@link OccupancySnapshot}, then every journal record
+ * written after it. A {@link BookingListener} is handed the live bookings along the way. An
+ * unreadable snapshot falls back to replaying the whole journal. Snapshot rooms are applied in
+ * parallel. Journal segments are decoded in parallel as well, but applied strictly in sequence
+ * order, one segment after the other, so that later record types that free rooms again see the
+ * state they were written against.
+ *
+ * <p>The journal is the source of truth, except that records a failed flush left unsaved, which
+ * were answered as not saved, are not replayed; see {@link MappedBookingJournal}.
+ */
+public final class BookingRecovery {
+
+    @Value
+    public static class Result {
+        /** Sequence number the snapshot was taken at, 0 without a snapshot. */
+        long snapshotSequence;
+        /** Sequence number after the last record replayed. */
+        long nextSequence;
+        long replayedRecords;
+        /** Lowest booking id not used by any recovered booking. */
+        int nextBookingId;
+    }
+
+    private BookingRecovery() {
+    }
+
+    /** Recovers everything on disk. */
+    public static Result recover(OccupancyState state, Path snapshotDirectory, Path journalDirectory)
+            throws IOException {
+        return recover(state, BookingListener.NONE, snapshotDirectory, journalDirectory, Long.MAX_VALUE);
+    }
+
+    /** Recovers everything on disk, handing the bookings to {@code listener}. */
+    public static Result recover(OccupancyState state, BookingListener listener, Path snapshotDirectory,
+                                 Path journalDirectory) throws IOException {
+        return recover(state, listener, snapshotDirectory, journalDirectory, Long.MAX_VALUE);
+    }
+
+    /** Recovers the snapshot and the journal records before {@code toSequence}. */
+    public static Result recover(OccupancyState state, Path snapshotDirectory, Path journalDirectory,
+                                 long toSequence) throws IOException {
+        return recover(state, BookingListener.NONE, snapshotDirectory, journalDirectory, toSequence);
+    }
+
+    /**
+     * Recovers the snapshot and the journal records before {@code toSequence}, handing the bookings
+     * to {@code listener}.
+     */
+    public static Result recover(OccupancyState state, BookingListener listener, Path snapshotDirectory,
+                                 Path journalDirectory, long toSequence) throws IOException {
+        long to = Math.min(toSequence, JournalFormat.unsavedFrom(journalDirectory));
+        Optional<Path> snapshot = OccupancySnapshot.latest(snapshotDirectory);
+        long fromSequence = 0;
+        int snapshotBookingId = 1;
+        if (snapshot.isPresent()) {
+            try {
+                OccupancySnapshot.Loaded loaded = OccupancySnapshot.load(snapshot.get(), state, listener);
+                fromSequence = loaded.sequence();
+                snapshotBookingId = Math.max(1, loaded.nextBookingId());
+            } catch (IOException e) {
+                // the checksum is verified before anything is applied; replay the whole journal instead
+                fromSequence = 0;
+            }
+        }
+
+        long from = fromSequence;
+        List<Path> segments = JournalReader.segments(journalDirectory, from, to);
+        long[] totals = {from, 0, snapshotBookingId};
+        boolean keepRecords = listener != BookingListener.NONE;
+        try {
+            segments.parallelStream()
+                    .map(segment -> decode(segment, from, to, keepRecords))
+                    .forEachOrdered(block -> {
+                        block.applyTo(state, listener);
+                        totals[0] = Math.max(totals[0], block.nextSequence);
+                        totals[1] += block.size / Block.FIELDS;
+                        totals[2] = Math.max(totals[2], block.maxBookingId + 1L);
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return new Result(fromSequence, Math.min(totals[0], to), totals[1], (int) totals[2]);
+    }
+
+    private static Block decode(Path segment, long fromSequence, long toSequence, boolean keepRecords) {
+        Block block = new Block(keepRecords);
+        try {
+            block.nextSequence = JournalReader.readSegment(segment, fromSequence, toSequence, block::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return block;
+    }
+
+    /**
+     * The recovered bookings {@code inventory} cannot serve: stays not yet over in rooms it does not
+     * hold, and waitlisted bookings none of its rooms is big enough for. There are none unless rooms
+     * or nodes of the hotel changed since the bookings were made, as when a room group moved to a
+     * new node; such stays would block no room here and could not be reached where their room is.
+     */
+    public static List<BookingRecord> unservable(RoomInventory inventory, BookingLedger ledger,
+                                                 RecoveredWaitlist waitlist) {
+        return Stream.concat(
+                        ledger.stream().filter(stay -> stay.getEndSlot() > inventory.getFirstSlot()
+                                && inventory.indexOf(stay.getRoomNumber()) < 0),
+                        waitlist.getBookings(inventory.getFirstSlot()).stream()
+                                .filter(booking -> inventory.roomsFor(booking.getNumberOfGuests()) == 0))
+                .toList();
+    }
+
+    /**
+     * Records of one segment, reduced to what occupancy needs: type, room and slot range. The
+     * records themselves are only kept if there is a listener for them.
+     */
+    private static final class Block {
+
+        static final int FIELDS = 4;
+
+        final List<BookingRecord> kept;
+        int[] records = new int[64 * FIELDS];
+        int size;
+        long nextSequence;
+        int maxBookingId;
+
+        Block(boolean keepRecords) {
+            this.kept = keepRecords ? new ArrayList<>() : null;
+        }
+
+        void add(long sequence, BookingRecord record) {
+            if (kept != null) {
+                kept.add(record);
+            }
+            if (size == records.length) {
+                records = Arrays.copyOf(records, size * 2);
+            }
+            records[size] = record.getType();
+            records[size + 1] = record.getRoomNumber();
+            records[size + 2] = StaySlots.checkInSlot(record.getCheckInDate(), record.getCheckInTime());
+            records[size + 3] = StaySlots.checkOutSlot(record.getCheckOutDate(), record.getCheckOutTime());
+            size += FIELDS;
+            maxBookingId = Math.max(maxBookingId, record.getBookingId());
+        }
+
+        void applyTo(OccupancyState state, BookingListener listener) {
+            for (int i = 0; i < size; i += FIELDS) {
+                if (records[i] == BookingRecord.BOOKED) {
+                    state.markOccupied(records[i + 1], records[i + 2], records[i + 3]);
+                } else if (records[i] == BookingRecord.RELEASED) {
+                    state.markFree(records[i + 1], records[i + 2], records[i + 3]);
+                }
+                if (kept != null) {
+                    listener.replayed(kept.get(i / FIELDS));
+                }
+            }
+        }
+    }
+}
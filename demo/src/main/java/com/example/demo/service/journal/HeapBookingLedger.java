@@ -0,0 +1,90 @@
+package com.example.demo.service.journal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * The {@link BookingLedger} on the heap: the stays by booking id in a concurrent hash map and, per
+ * room, in a concurrent skip list by first slot, so finding, adding or dropping a stay costs
+ * O(log n) in the bookings of that room however many it has piled up, and nothing is locked beyond
+ * the booking's own {@link #lock}.
+ */
+public class HeapBookingLedger implements BookingLedger {
+
+    private final Map<Integer, BookingRecord> bookings = new ConcurrentHashMap<>();
+    private final Map<Integer, NavigableMap<Integer, BookingRecord>> rooms = new ConcurrentHashMap<>();
+    private final BookingLocks locks = new BookingLocks();
+
+    @Override
+    public Object lock(int bookingId) {
+        return locks.lock(bookingId);
+    }
+
+    @Override
+    public BookingRecord get(int bookingId) {
+        return bookings.get(bookingId);
+    }
+
+    @Override
+    public void booked(BookingRecord stay) {
+        BookingRecord previous = bookings.put(stay.getBookingId(), stay);
+        if (previous != null) {
+            unindex(previous);
+        }
+        rooms.computeIfAbsent(stay.getRoomNumber(), number -> new ConcurrentSkipListMap<>())
+                .put(stay.getFirstSlot(), stay);
+    }
+
+    @Override
+    public void released(int bookingId) {
+        BookingRecord previous = bookings.remove(bookingId);
+        if (previous != null) {
+            unindex(previous);
+        }
+    }
+
+    @Override
+    public List<BookingRecord> stays(int roomNumber, int fromSlot, int toSlot) {
+        NavigableMap<Integer, BookingRecord> stays = rooms.get(roomNumber);
+        if (stays == null || fromSlot >= toSlot) {
+            return Collections.emptyList();
+        }
+        // only the stay starting last before fromSlot can reach into the range
+        Map.Entry<Integer, BookingRecord> before = stays.floorEntry(fromSlot);
+        int first = before != null && before.getValue().getEndSlot() > fromSlot ? before.getKey() : fromSlot;
+        return List.copyOf(stays.subMap(first, true, toSlot, false).values());
+    }
+
+    @Override
+    public void forgetEndedBefore(int slot) {
+        for (NavigableMap<Integer, BookingRecord> stays : rooms.values()) {
+            for (Map.Entry<Integer, BookingRecord> first = stays.firstEntry();
+                 first != null && first.getValue().getEndSlot() <= slot; first = stays.firstEntry()) {
+                stays.remove(first.getKey(), first.getValue());
+                bookings.remove(first.getValue().getBookingId(), first.getValue());
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return bookings.size();
+    }
+
+    @Override
+    public Stream<BookingRecord> stream() {
+        return rooms.values().stream().flatMap(stays -> stays.values().stream());
+    }
+
+    private void unindex(BookingRecord stay) {
+        NavigableMap<Integer, BookingRecord> stays = rooms.get(stay.getRoomNumber());
+        if (stays != null) {
+            stays.remove(stay.getFirstSlot(), stay);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.demo.service.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary layout of journal segments. A segment is a fixed-size file named after the sequence
+ * number of its first record and filled with fixed-size little-endian records:
+ *
+ * <pre>
+ *  0  int   CRC32C of bytes 4..39
+ *  4  byte  type (0 marks the unwritten end of the segment)
+ *  5  byte  unused
+ *  6  short check-in time, minute of day
+ *  8  short check-out time, minute of day
+ * 10  short unused
+ * 12  int   number of guests
+ * 16  int   check-in date, epoch day
+ * 20  int   check-out date, epoch day
+ * 24  int   room number
+ * 28  long  sequence number
+ * 36  int   booking id
+ * </pre>
+ *
+ * A record whose checksum does not match, such as one torn by a crash, ends the journal.
+ *
+ * <p>A journal whose flush failed leaves an {@value #UNSAVED_MARKER} file next to its segments,
+ * holding the first sequence number that was not known to be on disk. Every record from there on
+ * was answered as not saved, so it ends the journal as well, until the next open clears it.
+ */
+final class JournalFormat {
+
+    static final int RECORD_SIZE = 40;
+    static final String SUFFIX = ".journal";
+    static final String UNSAVED_MARKER = "unsaved-from";
+
+    private static final int PAYLOAD_OFFSET = 4;
+
+    private JournalFormat() {
+    }
+
+    static Path segmentPath(Path directory, long firstSequence) {
+        return directory.resolve(String.format("bookings-%020d%s", firstSequence, SUFFIX));
+    }
+
+    static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("bookings-".length(), name.length() - SUFFIX.length()));
+    }
+
+    /** The first sequence number a failed flush left unsaved, or {@link Long#MAX_VALUE} if none did. */
+    static long unsavedFrom(Path directory) throws IOException {
+        Path marker = directory.resolve(UNSAVED_MARKER);
+        if (!Files.exists(marker)) {
+            return Long.MAX_VALUE;
+        }
+        return Long.parseLong(Files.readString(marker, StandardCharsets.US_ASCII).trim());
+    }
+
+    static void markUnsaved(Path directory, long fromSequence) throws IOException {
+        Files.writeString(directory.resolve(UNSAVED_MARKER), Long.toString(fromSequence), StandardCharsets.US_ASCII,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE,
+                StandardOpenOption.SYNC);
+    }
+
+    static void clearUnsaved(Path directory) throws IOException {
+        Files.deleteIfExists(directory.resolve(UNSAVED_MARKER));
+    }
+
+    static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith("bookings-") && name.endsWith(SUFFIX);
+    }
+
+    /** Writes the record into {@code scratch}, a {@link #RECORD_SIZE} little-endian buffer. */
+    static void encode(BookingRecord record, long sequence, ByteBuffer scratch, CRC32C crc) {
+        scratch.put(4, record.getType())
+                .put(5, (byte) 0)
+                .putShort(6, (short) record.getCheckInTime())
+                .putShort(8, (short) record.getCheckOutTime())
+                .putShort(10, (short) 0)
+                .putInt(12, record.getNumberOfGuests())
+                .putInt(16, record.getCheckInDate())
+                .putInt(20, record.getCheckOutDate())
+                .putInt(24, record.getRoomNumber())
+                .putLong(28, sequence)
+                .putInt(36, record.getBookingId());
+        scratch.putInt(0, checksum(scratch, 0, crc));
+    }
+
+    /** Whether a valid record starts at {@code offset}. */
+    static boolean isRecord(ByteBuffer segment, int offset, CRC32C crc) {
+        return offset + RECORD_SIZE <= segment.limit()
+                && segment.get(offset + 4) != 0
+                && segment.getInt(offset) == checksum(segment, offset, crc);
+    }
+
+    static long sequence(ByteBuffer segment, int offset) {
+        return segment.getLong(offset + 28);
+    }
+
+    static BookingRecord decode(ByteBuffer segment, int offset) {
+        return BookingRecord.builder()
+                .type(segment.get(offset + 4))
+                .checkInTime(segment.getShort(offset + 6))
+                .checkOutTime(segment.getShort(offset + 8))
+                .numberOfGuests(segment.getInt(offset + 12))
+                .checkInDate(segment.getInt(offset + 16))
+                .checkOutDate(segment.getInt(offset + 20))
+                .roomNumber(segment.getInt(offset + 24))
+                .bookingId(segment.getInt(offset + 36))
+                .build();
+    }
+
+    static ByteBuffer newScratch() {
+        return ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, CRC32C crc) {
+        crc.reset();
+        crc.update(buffer.slice(offset + PAYLOAD_OFFSET, RECORD_SIZE - PAYLOAD_OFFSET));
+        return (int) crc.getValue();
+    }
+}
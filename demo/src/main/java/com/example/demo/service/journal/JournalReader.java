@@ -0,0 +1,109 @@
+package com.example.demo.service.journal;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/** Reads the records of a journal directory back in sequence order. */
+public final class JournalReader {
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void accept(long sequence, BookingRecord record);
+    }
+
+    private JournalReader() {
+    }
+
+    /** Segment files of the journal, oldest first. */
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(JournalFormat::isSegment).sorted().toList();
+        }
+    }
+
+    /**
+     * Segment files that can hold records with sequence numbers in {@code [fromSequence,
+     * toSequence)}, oldest first. A segment ends where the next one starts, so older ones are
+     * left out without being opened.
+     */
+    static List<Path> segments(Path directory, long fromSequence, long toSequence) throws IOException {
+        List<Path> all = segments(directory);
+        List<Path> covering = new ArrayList<>();
+        for (int i = 0; i < all.size(); i++) {
+            long first = JournalFormat.firstSequence(all.get(i));
+            boolean endsBefore = i + 1 < all.size() && JournalFormat.firstSequence(all.get(i + 1)) <= fromSequence;
+            if (!endsBefore && first < toSequence) {
+                covering.add(all.get(i));
+            }
+        }
+        return covering;
+    }
+
+    /**
+     * Passes every record with a sequence number of at least {@code fromSequence} to the handler.
+     *
+     * @return the sequence number the next appended record will get
+     */
+    public static long read(Path directory, long fromSequence, RecordHandler handler) throws IOException {
+        return read(directory, fromSequence, Long.MAX_VALUE, handler);
+    }
+
+    /**
+     * Passes every record with a sequence number in {@code [fromSequence, toSequence)} to the
+     * handler.
+     *
+     * @return the sequence number after the last record of the segments read
+     */
+    public static long read(Path directory, long fromSequence, long toSequence, RecordHandler handler)
+            throws IOException {
+        long next = 0;
+        for (Path segment : segments(directory, fromSequence, toSequence)) {
+            next = Math.max(next, readSegment(segment, fromSequence, toSequence, handler));
+        }
+        return next;
+    }
+
+    /**
+     * Passes the records of one segment with a sequence number in {@code [fromSequence,
+     * toSequence)} to the handler. Reading stops at the first record that is torn or does not
+     * follow its predecessor's sequence number, since nothing after it was written in order.
+     *
+     * @return the sequence number after the segment's last record
+     */
+    static long readSegment(Path segment, long fromSequence, long toSequence, RecordHandler handler)
+            throws IOException {
+        long next = JournalFormat.firstSequence(segment);
+        CRC32C crc = new CRC32C();
+        MappedByteBuffer buffer = map(segment);
+        int offset = 0;
+        while (JournalFormat.isRecord(buffer, offset, crc) && JournalFormat.sequence(buffer, offset) == next) {
+            long sequence = next;
+            if (sequence >= fromSequence && sequence < toSequence) {
+                handler.accept(sequence, JournalFormat.decode(buffer, offset));
+            }
+            next = sequence + 1;
+            offset += JournalFormat.RECORD_SIZE;
+        }
+        return next;
+    }
+
+    static MappedByteBuffer map(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+}
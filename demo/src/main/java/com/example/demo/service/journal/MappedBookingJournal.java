@@ -0,0 +1,385 @@
+package com.example.demo.service.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * {@link BookingJournal} over memory-mapped segment files. An append copies one
+ * {@link JournalFormat#RECORD_SIZE}-byte record into the mapped segment under a short lock; a
+ * single flusher thread then forces everything written since its last pass to disk with one
+ * {@code force} call and wakes every appender waiting in {@link #awaitDurable}. While one flush is
+ * in progress the next batch builds up, so the number of flushes follows the disk's speed rather
+ * than the number of bookings.
+ *
+ * <p>When a segment is full it is forced in full and a new one is started. On open, the newest
+ * segment is scanned to its last valid record and appending continues from there.
+ *
+ * <p>{@link #whenDurable} waits the same way without a thread: the future is parked in a queue
+ * ordered by sequence number and completed, outside the lock, by whichever thread moved the
+ * durable sequence number past it.
+ *
+ * <p>With {@code waitForFlush} off, {@link #awaitDurable} returns immediately and records reach
+ * the disk within one flush cycle; a crash can then lose the last few milliseconds of bookings.
+ *
+ * <p>A failed flush is final: every later append and wait fails, and {@link #getFailure} reports
+ * it until the service is restarted. With {@code waitForFlush} on, the records not yet known to be
+ * on disk were all answered as not saved, so the journal marks where they start; recovery does not
+ * replay them, and the next open clears them before appending.
+ */
+public class MappedBookingJournal implements BookingJournal, Closeable {
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean waitForFlush;
+    private final ByteBuffer scratch = JournalFormat.newScratch();
+    private final CRC32C crc = new CRC32C();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition written = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Thread flusher;
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(Comparator.comparingLong(Waiter::sequence));
+
+    // guarded by lock
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int limit;
+    private int position;
+    private int flushedPosition;
+    private long nextSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+
+    public MappedBookingJournal(Path directory, int segmentSize, boolean waitForFlush) throws IOException {
+        if (segmentSize < JournalFormat.RECORD_SIZE) {
+            throw new IllegalArgumentException("Segment size must hold at least one record: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize - segmentSize % JournalFormat.RECORD_SIZE;
+        this.waitForFlush = waitForFlush;
+        Files.createDirectories(directory);
+        openTail();
+        this.flusher = new Thread(this::flushLoop, "booking-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public long append(BookingRecord record) {
+        boolean rolled = false;
+        lock.lock();
+        try {
+            checkWritable();
+            if (position + JournalFormat.RECORD_SIZE > limit) {
+                rolled = true;
+                roll();
+            }
+            long sequence = nextSequence++;
+            JournalFormat.encode(record, sequence, scratch, crc);
+            segment.put(position, scratch, 0, JournalFormat.RECORD_SIZE);
+            position += JournalFormat.RECORD_SIZE;
+            written.signal();
+            return sequence;
+        } catch (IOException e) {
+            failure = e;
+            markUnsaved(durableSequence);
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+            if (rolled) {
+                completeWaiters();
+            }
+        }
+    }
+
+    @Override
+    public void awaitDurable(long sequence) {
+        if (!waitForFlush) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durableSequence <= sequence) {
+                checkWritable();
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getDurableSequence() {
+        lock.lock();
+        try {
+            return durableSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> whenDurable(long sequence) {
+        if (!waitForFlush) {
+            return CompletableFuture.completedFuture(null);
+        }
+        lock.lock();
+        try {
+            if (durableSequence > sequence) {
+                return CompletableFuture.completedFuture(null);
+            }
+            checkWritable();
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            waiters.add(new Waiter(sequence, future));
+            return future;
+        } catch (UncheckedIOException e) {
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public IOException getFailure() {
+        lock.lock();
+        try {
+            return failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Sequence number the next appended record will get. */
+    public long getNextSequence() {
+        lock.lock();
+        try {
+            return nextSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            written.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            segment.force();
+            channel.close();
+            durableSequence = nextSequence;
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        completeWaiters();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            MappedByteBuffer target;
+            int from;
+            int to;
+            long upTo;
+            lock.lock();
+            try {
+                while (position == flushedPosition && !closed) {
+                    written.awaitUninterruptibly();
+                }
+                if (position == flushedPosition) {
+                    return;
+                }
+                target = segment;
+                from = flushedPosition;
+                to = position;
+                upTo = nextSequence;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                target.force(from, to - from);
+            } catch (RuntimeException e) {
+                error = new IOException("Could not flush the booking journal", e);
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                    markUnsaved(durableSequence);
+                } else {
+                    if (target == segment) {
+                        flushedPosition = Math.max(flushedPosition, to);
+                    }
+                    durableSequence = Math.max(durableSequence, upTo);
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            completeWaiters();
+            if (error != null) {
+                return;
+            }
+        }
+    }
+
+    /** Completes, outside the lock, every waiter the durable sequence number or a failure has reached. */
+    private void completeWaiters() {
+        List<Waiter> ready = List.of();
+        IOException error;
+        long durable;
+        lock.lock();
+        try {
+            error = failure;
+            durable = durableSequence;
+            while (!waiters.isEmpty() && (error != null || waiters.peek().sequence() < durable)) {
+                if (ready.isEmpty()) {
+                    ready = new ArrayList<>();
+                }
+                ready.add(waiters.poll());
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Waiter waiter : ready) {
+            if (waiter.sequence() < durable) {
+                waiter.future().complete(null);
+            } else {
+                waiter.future().completeExceptionally(new UncheckedIOException(error));
+            }
+        }
+    }
+
+    // called with lock held
+    private void roll() throws IOException {
+        segment.force();
+        channel.close();
+        durableSequence = Math.max(durableSequence, nextSequence);
+        flushed.signalAll();
+        openSegment(nextSequence);
+    }
+
+    /**
+     * Notes that records from {@code fromSequence} on were answered as not saved. If even that
+     * cannot be written, they are replayed after a restart as before, which can only leave their
+     * rooms blocked.
+     */
+    private void markUnsaved(long fromSequence) {
+        if (!waitForFlush) {
+            // their guests were answered before the flush, so they are bookings like any other
+            return;
+        }
+        try {
+            JournalFormat.markUnsaved(directory, fromSequence);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private void openTail() throws IOException {
+        long unsaved = JournalFormat.unsavedFrom(directory);
+        List<Path> segments = JournalReader.segments(directory);
+        if (segments.isEmpty()) {
+            nextSequence = 0;
+            durableSequence = 0;
+            openSegment(0);
+            return;
+        }
+        // only the newest segment has to be scanned: its name gives the sequence it starts at
+        Path last = segments.get(segments.size() - 1);
+        channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapSegment((int) Math.max(channel.size(), segmentSize));
+        long firstSequence = JournalFormat.firstSequence(last);
+        int end = 0;
+        while (JournalFormat.isRecord(segment, end, crc)
+                && JournalFormat.sequence(segment, end) == firstSequence + end / JournalFormat.RECORD_SIZE
+                && JournalFormat.sequence(segment, end) < unsaved) {
+            end += JournalFormat.RECORD_SIZE;
+        }
+        nextSequence = firstSequence + end / JournalFormat.RECORD_SIZE;
+        durableSequence = nextSequence;
+        // anything after the last valid record is a torn write or was answered as not saved, and
+        // records that reached the disk past it are out of sequence; clear the whole rest so none
+        // of it can be read back
+        if (clear(end)) {
+            segment.force();
+        }
+        JournalFormat.clearUnsaved(directory);
+        position = end;
+        flushedPosition = end;
+    }
+
+    /** Zeroes every non-empty record slot from {@code offset} to the end of the segment. */
+    private boolean clear(int offset) {
+        byte[] zeros = new byte[JournalFormat.RECORD_SIZE];
+        boolean cleared = false;
+        for (; offset + JournalFormat.RECORD_SIZE <= limit; offset += JournalFormat.RECORD_SIZE) {
+            for (int word = 0; word < JournalFormat.RECORD_SIZE; word += Long.BYTES) {
+                if (segment.getLong(offset + word) != 0) {
+                    segment.put(offset, zeros);
+                    cleared = true;
+                    break;
+                }
+            }
+        }
+        return cleared;
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        channel = FileChannel.open(JournalFormat.segmentPath(directory, firstSequence),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapSegment(segmentSize);
+    }
+
+    private void mapSegment(int size) throws IOException {
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        limit = size - size % JournalFormat.RECORD_SIZE;
+        position = 0;
+        flushedPosition = 0;
+    }
+
+    private record Waiter(long sequence, CompletableFuture<Void> future) {
+    }
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+        if (closed) {
+            throw new UncheckedIOException(new IOException("The booking journal is closed"));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.service.journal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** {@link BookingJournal} that only hands out sequence numbers, for running without persistence. */
+public class NoopBookingJournal implements BookingJournal {
+
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    @Override
+    public long append(BookingRecord record) {
+        return nextSequence.getAndIncrement();
+    }
+
+    @Override
+    public void awaitDurable(long sequence) {
+    }
+
+    @Override
+    public CompletableFuture<Void> whenDurable(long sequence) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public long getDurableSequence() {
+        return nextSequence.get();
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.demo.service.journal;
+
+import com.example.demo.service.inventory.OccupancyState;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Occupancy of every room, the live bookings and the waitlist as of a journal sequence number, so
+ * that startup only has to replay the journal from there on. A snapshot file is named after that
+ * sequence number and holds the occupied slot ranges of each room, the current stay of each
+ * booking and the stay each waitlisted booking asked for, in little-endian ints:
+ *
+ * <pre>
+ *  0  int   magic
+ *  4  int   number of rooms
+ *  8  long  sequence number of the first record not included
+ * 16  int   first slot covered
+ * 20  int   next booking id to hand out
+ * 24        per room: room number, number of ranges, then each range as first slot and end slot
+ *  m  int   number of bookings
+ *  m+4      per booking: booking id, room number, guests, check-in date, check-out date,
+ *           check-in time, check-out time
+ *  w  int   number of waitlisted bookings
+ *  w+4      per waitlisted booking: the same fields, with room number 0
+ *  n  int   CRC32C of bytes 0..n-1
+ * </pre>
+ *
+ * Files are written under a temporary name and moved into place, so a snapshot is either complete
+ * or absent; one that fails its checksum, or was written in an older format, is ignored.
+ */
+public final class OccupancySnapshot {
+
+    static final String SUFFIX = ".snapshot";
+
+    private static final int MAGIC = 0x48425333;
+    private static final int BOOKING_FIELDS = 7;
+    private static final int HEADER_SIZE = 24;
+
+    private OccupancySnapshot() {
+    }
+
+    /** Newest snapshot in the directory, if there is one. */
+    public static Optional<Path> latest(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Optional.empty();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(OccupancySnapshot::isSnapshot).max(Path::compareTo);
+        }
+    }
+
+    /**
+     * Writes a snapshot of {@code rooms}, whose bit {@code i} stands for slot {@code firstSlot + i},
+     * of the {@link BookingRecord#BOOKED} stays of {@code bookings} and of the
+     * {@link BookingRecord#WAITLISTED} ones of {@code waitlisted}, and deletes the older ones.
+     */
+    public static Path write(Path directory, long sequence, int firstSlot, int nextBookingId,
+                             Map<Integer, BitSet> rooms, Collection<BookingRecord> bookings,
+                             Collection<BookingRecord> waitlisted) throws IOException {
+        int size = HEADER_SIZE + 3 * Integer.BYTES
+                + BOOKING_FIELDS * Integer.BYTES * (bookings.size() + waitlisted.size());
+        for (BitSet slots : rooms.values()) {
+            size += 2 * Integer.BYTES + 2 * Integer.BYTES * ranges(slots);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(rooms.size()).putLong(sequence).putInt(firstSlot).putInt(nextBookingId);
+        rooms.forEach((roomNumber, slots) -> {
+            buffer.putInt(roomNumber).putInt(ranges(slots));
+            for (int from = slots.nextSetBit(0); from >= 0; from = slots.nextSetBit(slots.nextClearBit(from))) {
+                buffer.putInt(firstSlot + from).putInt(firstSlot + slots.nextClearBit(from));
+            }
+        });
+        putBookings(buffer, bookings);
+        putBookings(buffer, waitlisted);
+        buffer.putInt(checksum(buffer, size - Integer.BYTES));
+        buffer.flip();
+
+        Files.createDirectories(directory);
+        Path target = directory.resolve(String.format("occupancy-%020d%s", sequence, SUFFIX));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path old : files.filter(OccupancySnapshot::isSnapshot).filter(p -> p.compareTo(target) < 0).toList()) {
+                Files.deleteIfExists(old);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Marks every range of the snapshot occupied in {@code state}, several rooms at a time, then
+     * hands each of its bookings to {@code listener} as a {@link BookingRecord#BOOKED} record and
+     * each of its waitlisted ones as a {@link BookingRecord#WAITLISTED} record.
+     *
+     * @return the sequence number of the first journal record the snapshot does not include, and
+     *         the next booking id as of that record
+     * @throws IOException if the file cannot be read or fails its checksum
+     */
+    public static Loaded load(Path snapshot, OccupancyState state, BookingListener listener) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int end = buffer.limit() - Integer.BYTES;
+        if (end < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(end) != checksum(buffer, end)) {
+            throw new IOException("Not a valid occupancy snapshot: " + snapshot);
+        }
+
+        int roomCount = buffer.getInt(4);
+        int[] offsets = new int[roomCount];
+        int offset = HEADER_SIZE;
+        for (int room = 0; room < roomCount; room++) {
+            offsets[room] = offset;
+            offset += 2 * Integer.BYTES + 2 * Integer.BYTES * buffer.getInt(offset + 4);
+        }
+        IntStream.range(0, roomCount).parallel().forEach(room -> {
+            int at = offsets[room];
+            int roomNumber = buffer.getInt(at);
+            int ranges = buffer.getInt(at + 4);
+            for (int i = 0, range = at + 8; i < ranges; i++, range += 8) {
+                state.markOccupied(roomNumber, buffer.getInt(range), buffer.getInt(range + 4));
+            }
+        });
+        offset = replayBookings(buffer, offset, BookingRecord.BOOKED, listener);
+        replayBookings(buffer, offset, BookingRecord.WAITLISTED, listener);
+        return new Loaded(buffer.getLong(8), buffer.getInt(20));
+    }
+
+    /** What {@link #load} read from a snapshot's header. */
+    public record Loaded(long sequence, int nextBookingId) {
+    }
+
+    private static void putBookings(ByteBuffer buffer, Collection<BookingRecord> bookings) {
+        buffer.putInt(bookings.size());
+        for (BookingRecord booking : bookings) {
+            buffer.putInt(booking.getBookingId()).putInt(booking.getRoomNumber()).putInt(booking.getNumberOfGuests())
+                    .putInt(booking.getCheckInDate()).putInt(booking.getCheckOutDate())
+                    .putInt(booking.getCheckInTime()).putInt(booking.getCheckOutTime());
+        }
+    }
+
+    /** Hands the bookings listed at {@code offset} to the listener; returns the offset after them. */
+    private static int replayBookings(ByteBuffer buffer, int offset, byte type, BookingListener listener) {
+        int bookings = buffer.getInt(offset);
+        int at = offset + 4;
+        for (int i = 0; i < bookings; i++, at += BOOKING_FIELDS * Integer.BYTES) {
+            listener.replayed(BookingRecord.builder()
+                    .type(type)
+                    .bookingId(buffer.getInt(at))
+                    .roomNumber(buffer.getInt(at + 4))
+                    .numberOfGuests(buffer.getInt(at + 8))
+                    .checkInDate(buffer.getInt(at + 12))
+                    .checkOutDate(buffer.getInt(at + 16))
+                    .checkInTime(buffer.getInt(at + 20))
+                    .checkOutTime(buffer.getInt(at + 24))
+                    .build());
+        }
+        return at;
+    }
+
+    static boolean isSnapshot(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith("occupancy-") && name.endsWith(SUFFIX);
+    }
+
+    private static int ranges(BitSet slots) {
+        int count = 0;
+        for (int from = slots.nextSetBit(0); from >= 0; from = slots.nextSetBit(slots.nextClearBit(from))) {
+            count++;
+        }
+        return count;
+    }
+
+    private static int checksum(ByteBuffer buffer, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, length));
+        return (int) crc.getValue();
+    }
+}
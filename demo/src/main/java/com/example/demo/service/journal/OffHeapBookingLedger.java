@@ -0,0 +1,497 @@
+package com.example.demo.service.journal;
+
+import com.example.demo.service.inventory.StaySlots;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * The {@link BookingLedger} kept out of the garbage-collected heap, for horizons of millions of
+ * room-nights. The {@link HeapBookingLedger} holds a {@link BookingRecord} and half a dozen map nodes and boxed
+ * keys for every live stay, all of which the collector traces on every full cycle; this one holds
+ * each stay as a fixed-width {@value #RECORD_BYTES}-byte record in direct memory, with its dates as
+ * epoch days and its times as minutes of the day, and finds it by booking id through an
+ * open-addressing table in direct memory too. Per room it keeps first slot and record pairs sorted
+ * in blocks of {@code long[]}, which the collector never looks into, so the heap only grows by one
+ * array per {@value RoomStays#BLOCK} stays of a room.
+ *
+ * <p>Records are read back into a short-lived {@link BookingRecord} when asked for, so the ones it
+ * returns are equal to the ones booked but not the same objects. All access goes through one
+ * read-write lock: lookups share it, and changes, which come at booking rate, take it alone.
+ */
+public class OffHeapBookingLedger implements BookingLedger {
+
+    /** Bytes a stay takes in direct memory. */
+    static final int RECORD_BYTES = 24;
+
+    private static final int BOOKING_ID = 0;
+    private static final int ROOM_NUMBER = 4;
+    private static final int CHECK_IN_DATE = 8;
+    private static final int CHECK_OUT_DATE = 12;
+    private static final int CHECK_IN_TIME = 16;
+    private static final int CHECK_OUT_TIME = 18;
+    private static final int NUMBER_OF_GUESTS = 20;
+    // a freed record links to the next free one where its room number was
+    private static final int NEXT_FREE = ROOM_NUMBER;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+    private static final int NONE = -1;
+    private static final int MIN_TABLE_SLOTS = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BookingLocks locks = new BookingLocks();
+    private final Map<Integer, RoomStays> rooms = new HashMap<>();
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private int allocated;
+    private int firstFree = NONE;
+    private int size;
+    // booking id in the high half of a slot, record + 1 in the low half, 0 if the slot is empty
+    private ByteBuffer table;
+    private int tableMask;
+
+    public OffHeapBookingLedger() {
+        this(0);
+    }
+
+    /** @param expectedBookings live stays to size the id table for up front */
+    public OffHeapBookingLedger(int expectedBookings) {
+        int slots = Math.max(MIN_TABLE_SLOTS, Integer.highestOneBit(Math.max(1, expectedBookings * 2 - 1)) << 1);
+        this.table = allocate((long) slots * Long.BYTES);
+        this.tableMask = slots - 1;
+    }
+
+    @Override
+    public Object lock(int bookingId) {
+        return locks.lock(bookingId);
+    }
+
+    @Override
+    public BookingRecord get(int bookingId) {
+        lock.readLock().lock();
+        try {
+            int record = find(bookingId);
+            return record == NONE ? null : read(record);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void booked(BookingRecord stay) {
+        lock.writeLock().lock();
+        try {
+            int record = find(stay.getBookingId());
+            if (record != NONE) {
+                unindex(record);
+            } else {
+                record = allocateRecord();
+                insert(stay.getBookingId(), record);
+                size++;
+            }
+            write(record, stay);
+            rooms.computeIfAbsent(stay.getRoomNumber(), number -> new RoomStays()).put(stay.getFirstSlot(), record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void released(int bookingId) {
+        lock.writeLock().lock();
+        try {
+            int record = find(bookingId);
+            if (record != NONE) {
+                unindex(record);
+                forget(bookingId, record);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<BookingRecord> stays(int roomNumber, int fromSlot, int toSlot) {
+        lock.readLock().lock();
+        try {
+            RoomStays stays = rooms.get(roomNumber);
+            if (stays == null || fromSlot >= toSlot) {
+                return Collections.emptyList();
+            }
+            List<BookingRecord> found = new ArrayList<>();
+            // only the stay starting last before fromSlot can reach into the range
+            int before = stays.lower(fromSlot);
+            if (before != NONE && endSlot(before) > fromSlot) {
+                found.add(read(before));
+            }
+            stays.forEach(fromSlot, toSlot, record -> found.add(read(record)));
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forgetEndedBefore(int slot) {
+        lock.writeLock().lock();
+        try {
+            for (RoomStays stays : rooms.values()) {
+                while (!stays.isEmpty() && endSlot(stays.first()) <= slot) {
+                    int record = stays.first();
+                    stays.removeFirst();
+                    forget(bookingId(record), record);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Every live stay, room by room and by first slot within a room. Each room is read as it is
+     * reached, so stays booked or released meanwhile may or may not show up.
+     */
+    @Override
+    public Stream<BookingRecord> stream() {
+        List<Integer> roomNumbers;
+        lock.readLock().lock();
+        try {
+            roomNumbers = new ArrayList<>(rooms.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return roomNumbers.stream().flatMap(roomNumber -> stays(roomNumber, Integer.MIN_VALUE, Integer.MAX_VALUE).stream());
+    }
+
+    /** Direct memory held for records and the id table, including room left for growth. */
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) chunks.length * CHUNK_RECORDS * RECORD_BYTES + table.capacity();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BookingRecord read(int record) {
+        ByteBuffer chunk = chunks[record >>> CHUNK_SHIFT];
+        int offset = (record & (CHUNK_RECORDS - 1)) * RECORD_BYTES;
+        return BookingRecord.builder()
+                .type(BookingRecord.BOOKED)
+                .numberOfGuests(chunk.getShort(offset + NUMBER_OF_GUESTS))
+                .checkInDate(chunk.getInt(offset + CHECK_IN_DATE))
+                .checkOutDate(chunk.getInt(offset + CHECK_OUT_DATE))
+                .checkInTime(chunk.getShort(offset + CHECK_IN_TIME))
+                .checkOutTime(chunk.getShort(offset + CHECK_OUT_TIME))
+                .roomNumber(chunk.getInt(offset + ROOM_NUMBER))
+                .bookingId(chunk.getInt(offset + BOOKING_ID))
+                .build();
+    }
+
+    private void write(int record, BookingRecord stay) {
+        ByteBuffer chunk = chunks[record >>> CHUNK_SHIFT];
+        int offset = (record & (CHUNK_RECORDS - 1)) * RECORD_BYTES;
+        chunk.putInt(offset + BOOKING_ID, stay.getBookingId());
+        chunk.putInt(offset + ROOM_NUMBER, stay.getRoomNumber());
+        chunk.putInt(offset + CHECK_IN_DATE, stay.getCheckInDate());
+        chunk.putInt(offset + CHECK_OUT_DATE, stay.getCheckOutDate());
+        chunk.putShort(offset + CHECK_IN_TIME, (short) stay.getCheckInTime());
+        chunk.putShort(offset + CHECK_OUT_TIME, (short) stay.getCheckOutTime());
+        chunk.putShort(offset + NUMBER_OF_GUESTS, (short) stay.getNumberOfGuests());
+    }
+
+    private int field(int record, int field) {
+        return chunks[record >>> CHUNK_SHIFT].getInt((record & (CHUNK_RECORDS - 1)) * RECORD_BYTES + field);
+    }
+
+    private short shortField(int record, int field) {
+        return chunks[record >>> CHUNK_SHIFT].getShort((record & (CHUNK_RECORDS - 1)) * RECORD_BYTES + field);
+    }
+
+    private int bookingId(int record) {
+        return field(record, BOOKING_ID);
+    }
+
+    private int firstSlot(int record) {
+        return StaySlots.checkInSlot(field(record, CHECK_IN_DATE), shortField(record, CHECK_IN_TIME));
+    }
+
+    private int endSlot(int record) {
+        return StaySlots.checkOutSlot(field(record, CHECK_OUT_DATE), shortField(record, CHECK_OUT_TIME));
+    }
+
+    private int allocateRecord() {
+        if (firstFree != NONE) {
+            int record = firstFree;
+            firstFree = field(record, NEXT_FREE);
+            return record;
+        }
+        if (allocated == chunks.length * CHUNK_RECORDS) {
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunks.length - 1] = allocate((long) CHUNK_RECORDS * RECORD_BYTES);
+        }
+        return allocated++;
+    }
+
+    private void forget(int bookingId, int record) {
+        remove(bookingId);
+        chunks[record >>> CHUNK_SHIFT].putInt((record & (CHUNK_RECORDS - 1)) * RECORD_BYTES + NEXT_FREE, firstFree);
+        firstFree = record;
+        size--;
+    }
+
+    private void unindex(int record) {
+        RoomStays stays = rooms.get(field(record, ROOM_NUMBER));
+        if (stays != null) {
+            stays.remove(firstSlot(record), record);
+        }
+    }
+
+    private static int slotOf(int bookingId, int mask) {
+        int hash = bookingId * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private int find(int bookingId) {
+        for (int slot = slotOf(bookingId, tableMask); ; slot = (slot + 1) & tableMask) {
+            long entry = table.getLong(slot * Long.BYTES);
+            if (entry == 0) {
+                return NONE;
+            }
+            if ((int) (entry >>> 32) == bookingId) {
+                return (int) entry - 1;
+            }
+        }
+    }
+
+    private void insert(int bookingId, int record) {
+        if ((size + 1) * 3L > (tableMask + 1) * 2L) {
+            resize();
+        }
+        put(table, tableMask, ((long) bookingId << 32) | (record + 1));
+    }
+
+    private static void put(ByteBuffer table, int mask, long entry) {
+        int slot = slotOf((int) (entry >>> 32), mask);
+        while (table.getLong(slot * Long.BYTES) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table.putLong(slot * Long.BYTES, entry);
+    }
+
+    private void resize() {
+        int slots = (tableMask + 1) * 2;
+        ByteBuffer grown = allocate((long) slots * Long.BYTES);
+        for (int slot = 0; slot <= tableMask; slot++) {
+            long entry = table.getLong(slot * Long.BYTES);
+            if (entry != 0) {
+                put(grown, slots - 1, entry);
+            }
+        }
+        table = grown;
+        tableMask = slots - 1;
+    }
+
+    /** Removes the booking's slot and shifts later ones of its run back, so no tombstones pile up. */
+    private void remove(int bookingId) {
+        int slot = slotOf(bookingId, tableMask);
+        for (long entry = table.getLong(slot * Long.BYTES); (int) (entry >>> 32) != bookingId;
+             entry = table.getLong(slot * Long.BYTES)) {
+            if (entry == 0) {
+                return;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        for (int next = (slot + 1) & tableMask; ; next = (next + 1) & tableMask) {
+            long entry = table.getLong(next * Long.BYTES);
+            if (entry == 0) {
+                break;
+            }
+            int home = slotOf((int) (entry >>> 32), tableMask);
+            // move the entry back unless its home lies cyclically after the hole and up to it
+            if (((next - home) & tableMask) >= ((next - slot) & tableMask)) {
+                table.putLong(slot * Long.BYTES, entry);
+                slot = next;
+            }
+        }
+        table.putLong(slot * Long.BYTES, 0);
+    }
+
+    private static ByteBuffer allocate(long bytes) {
+        return ByteBuffer.allocateDirect(Math.toIntExact(bytes)).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * The stays of one room as first slot and record pairs, sorted by first slot, in blocks of at
+     * most {@value #BLOCK}. Putting a stay in or taking one out shifts the rest of its block, and
+     * splitting or dropping a block shifts the block references, so a change costs
+     * O(log n + BLOCK + n / BLOCK) rather than shifting every later stay of the room, which adds up
+     * for rooms booked years ahead night by night.
+     */
+    private static final class RoomStays {
+
+        static final int BLOCK = 64;
+
+        private long[][] blocks = new long[1][];
+        private int[] counts = new int[1];
+        private int blockCount;
+
+        private static long entry(int firstSlot, int record) {
+            return ((long) firstSlot << 32) | (record & 0xFFFFFFFFL);
+        }
+
+        private static int firstSlot(long entry) {
+            return (int) (entry >> 32);
+        }
+
+        boolean isEmpty() {
+            return blockCount == 0;
+        }
+
+        /** The record of the stay that starts first; the room must have one. */
+        int first() {
+            return (int) blocks[0][0];
+        }
+
+        /** The record of the stay that starts last before {@code slot}, or {@code NONE}. */
+        int lower(int slot) {
+            int block = blockBefore(slot);
+            return block < 0 ? NONE : (int) blocks[block][lowerBound(block, slot) - 1];
+        }
+
+        /** Hands every record of a stay starting in {@code [fromSlot, toSlot)} to {@code action}, in order. */
+        void forEach(int fromSlot, int toSlot, IntConsumer action) {
+            if (blockCount == 0) {
+                return;
+            }
+            int block = Math.max(0, blockBefore(fromSlot));
+            for (int index = lowerBound(block, fromSlot); block < blockCount; block++, index = 0) {
+                for (; index < counts[block]; index++) {
+                    long entry = blocks[block][index];
+                    if (firstSlot(entry) >= toSlot) {
+                        return;
+                    }
+                    action.accept((int) entry);
+                }
+            }
+        }
+
+        /** Puts the stay in, in place of any other starting at the same slot. */
+        void put(int firstSlot, int record) {
+            long entry = entry(firstSlot, record);
+            if (blockCount == 0) {
+                blocks[0] = new long[BLOCK];
+                blockCount = 1;
+            }
+            int block = Math.max(0, blockBefore(firstSlot + 1));
+            int index = lowerBound(block, firstSlot);
+            if (index < counts[block] && firstSlot(blocks[block][index]) == firstSlot) {
+                blocks[block][index] = entry;
+                return;
+            }
+            if (counts[block] == BLOCK) {
+                split(block);
+                if (index > BLOCK / 2) {
+                    block++;
+                    index -= BLOCK / 2;
+                }
+            }
+            long[] stays = blocks[block];
+            System.arraycopy(stays, index, stays, index + 1, counts[block] - index);
+            stays[index] = entry;
+            counts[block]++;
+        }
+
+        void remove(int firstSlot, int record) {
+            int block = blockBefore(firstSlot + 1);
+            if (block < 0) {
+                return;
+            }
+            int index = lowerBound(block, firstSlot);
+            if (index < counts[block] && blocks[block][index] == entry(firstSlot, record)) {
+                removeAt(block, index);
+            }
+        }
+
+        void removeFirst() {
+            removeAt(0, 0);
+        }
+
+        private void removeAt(int block, int index) {
+            long[] stays = blocks[block];
+            System.arraycopy(stays, index + 1, stays, index, counts[block] - index - 1);
+            if (--counts[block] == 0) {
+                System.arraycopy(blocks, block + 1, blocks, block, blockCount - block - 1);
+                System.arraycopy(counts, block + 1, counts, block, blockCount - block - 1);
+                blocks[--blockCount] = null;
+            }
+        }
+
+        /** Moves the upper half of a full block into a new block right after it. */
+        private void split(int block) {
+            if (blockCount == blocks.length) {
+                blocks = Arrays.copyOf(blocks, blockCount * 2);
+                counts = Arrays.copyOf(counts, blockCount * 2);
+            }
+            System.arraycopy(blocks, block + 1, blocks, block + 2, blockCount - block - 1);
+            System.arraycopy(counts, block + 1, counts, block + 2, blockCount - block - 1);
+            long[] upper = new long[BLOCK];
+            System.arraycopy(blocks[block], BLOCK / 2, upper, 0, BLOCK / 2);
+            blocks[block + 1] = upper;
+            counts[block] = BLOCK / 2;
+            counts[block + 1] = BLOCK / 2;
+            blockCount++;
+        }
+
+        /** The last block whose first stay starts before {@code slot}, or -1 if there is none. */
+        private int blockBefore(int slot) {
+            int low = 0;
+            int high = blockCount;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (firstSlot(blocks[middle][0]) < slot) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low - 1;
+        }
+
+        /** The first index of a block whose stay starts at or after {@code slot}. */
+        private int lowerBound(int block, int slot) {
+            long[] stays = blocks[block];
+            int low = 0;
+            int high = counts[block];
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (firstSlot(stays[middle]) < slot) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.service.journal;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link BookingRecord#WAITLISTED} bookings still waiting at the end of a replay, in the order
+ * they joined. A booking leaves once a {@link BookingRecord#BOOKED} record gives it a room or a
+ * {@link BookingRecord#WITHDRAWN} one takes it off the waitlist.
+ */
+public class RecoveredWaitlist implements BookingListener {
+
+    private final Map<Integer, BookingRecord> bookings = new LinkedHashMap<>();
+
+    @Override
+    public synchronized void replayed(BookingRecord record) {
+        if (record.getType() == BookingRecord.WAITLISTED) {
+            bookings.put(record.getBookingId(), record);
+        } else if (record.getType() == BookingRecord.BOOKED || record.getType() == BookingRecord.WITHDRAWN) {
+            bookings.remove(record.getBookingId());
+        }
+    }
+
+    /** The waiting bookings whose stay starts at {@code firstSlot} or later. */
+    public synchronized List<BookingRecord> getBookings(int firstSlot) {
+        return bookings.values().stream().filter(booking -> booking.getFirstSlot() >= firstSlot).toList();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.service.journal;
+
+import com.example.demo.service.inventory.OccupancyState;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Occupancy and live bookings kept apart from the live inventory, used to fold a snapshot and the
+ * journal into the next snapshot. Slots before {@code firstSlot} are dropped, and so are bookings
+ * over by then and waitlisted ones that were due to check in before, so past stays fall out over
+ * time.
+ */
+final class ShadowOccupancy implements OccupancyState, BookingListener {
+
+    private final int firstSlot;
+    private final SortedMap<Integer, BitSet> rooms = new TreeMap<>();
+    private final SortedMap<Integer, BookingRecord> bookings = new TreeMap<>();
+    private final RecoveredWaitlist waitlisted = new RecoveredWaitlist();
+
+    ShadowOccupancy(int firstSlot) {
+        this.firstSlot = firstSlot;
+    }
+
+    @Override
+    public synchronized void markOccupied(int roomNumber, int fromSlot, int toSlot) {
+        int from = Math.max(fromSlot, firstSlot);
+        if (from < toSlot) {
+            rooms.computeIfAbsent(roomNumber, number -> new BitSet()).set(from - firstSlot, toSlot - firstSlot);
+        }
+    }
+
+    @Override
+    public synchronized void markFree(int roomNumber, int fromSlot, int toSlot) {
+        int from = Math.max(fromSlot, firstSlot);
+        BitSet slots = rooms.get(roomNumber);
+        if (slots != null && from < toSlot) {
+            slots.clear(from - firstSlot, toSlot - firstSlot);
+        }
+    }
+
+    @Override
+    public synchronized void replayed(BookingRecord record) {
+        if (record.getType() == BookingRecord.BOOKED && record.getBookingId() > 0) {
+            bookings.put(record.getBookingId(), record);
+        } else if (record.getType() == BookingRecord.RELEASED
+                && BookingLedger.releases(bookings.get(record.getBookingId()), record)) {
+            bookings.remove(record.getBookingId());
+        }
+        waitlisted.replayed(record);
+    }
+
+    int getFirstSlot() {
+        return firstSlot;
+    }
+
+    synchronized SortedMap<Integer, BitSet> getRooms() {
+        return rooms;
+    }
+
+    synchronized List<BookingRecord> getBookings() {
+        return bookings.values().stream().filter(booking -> booking.getEndSlot() > firstSlot).toList();
+    }
+
+    List<BookingRecord> getWaitlisted() {
+        return waitlisted.getBookings(firstSlot);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.demo.service.journal;
+
+import com.example.demo.service.inventory.StaySlots;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes an {@link OccupancySnapshot} every {@code interval} and once more on close. Each snapshot
+ * is folded from the files alone, the previous snapshot plus the journal records durable since,
+ * so it never sees a room the live inventory holds only for a booking still being written, and
+ * its cost follows the bookings since the last one rather than all of them.
+ */
+public class SnapshotWriter implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotWriter.class);
+
+    private final Path snapshotDirectory;
+    private final Path journalDirectory;
+    private final BookingJournal journal;
+    private final Clock clock;
+    private final BookingLedger ledger;
+    private final ScheduledExecutorService executor;
+    private long lastSequence = -1;
+
+    public SnapshotWriter(Path snapshotDirectory, Path journalDirectory, BookingJournal journal, Clock clock,
+                          Duration interval) {
+        this(snapshotDirectory, journalDirectory, journal, clock, interval, null);
+    }
+
+    /**
+     * @param ledger if given, forgets the bookings each snapshot drops for being over
+     */
+    public SnapshotWriter(Path snapshotDirectory, Path journalDirectory, BookingJournal journal, Clock clock,
+                          Duration interval, BookingLedger ledger) {
+        this.ledger = ledger;
+        this.snapshotDirectory = snapshotDirectory;
+        this.journalDirectory = journalDirectory;
+        this.journal = journal;
+        this.clock = clock;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "occupancy-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (interval.isPositive()) {
+            long millis = interval.toMillis();
+            executor.scheduleWithFixedDelay(this::snapshotQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes a snapshot up to the journal's durable sequence number, unless the last one already
+     * got that far.
+     *
+     * @return whether a snapshot was written
+     */
+    public synchronized boolean snapshot() throws IOException {
+        long sequence = journal.getDurableSequence();
+        if (sequence == lastSequence) {
+            return false;
+        }
+        int firstSlot = StaySlots.checkInSlot((int) LocalDate.now(clock).toEpochDay(), 0);
+        ShadowOccupancy occupancy = new ShadowOccupancy(firstSlot);
+        BookingRecovery.Result folded = BookingRecovery.recover(occupancy, occupancy, snapshotDirectory,
+                journalDirectory, sequence);
+        OccupancySnapshot.write(snapshotDirectory, sequence, firstSlot, folded.getNextBookingId(),
+                occupancy.getRooms(), occupancy.getBookings(), occupancy.getWaitlisted());
+        if (ledger != null) {
+            ledger.forgetEndedBefore(firstSlot);
+        }
+        lastSequence = sequence;
+        return true;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshotQuietly();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not write an occupancy snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.demo.service.pricing;
+
+import com.example.demo.service.inventory.RoomInventory;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Prices stays from a base rate, a rate per extra guest and how full the hotel is each night.
+ * A night costs {@code baseRate + guestRate * (guests - 1)}, raised once the rooms able to take the
+ * party are more than {@code surgeFrom} taken that night, linearly up to {@code peakMultiplier}
+ * times that when they are all taken.
+ *
+ * <p>Quotes are cached per stay and party size, together with the {@link
+ * RoomInventory#occupancyVersion occupancy version} of each of their nights as read before the
+ * quote was worked out. A cached quote is served for as long as none of its nights has changed,
+ * so a booking or a cancellation only makes the quotes covering the nights it touched be worked
+ * out again, and the cost of a hit is one version read per night. Nothing is ever explicitly
+ * invalidated, and the cache is bounded in size.
+ */
+public class PricingEngine {
+
+    private final RoomInventory roomInventory;
+    private final long baseRateCents;
+    private final long guestRateCents;
+    private final double surgeFrom;
+    private final double peakMultiplier;
+    private final Cache<Long, CachedQuote> quotes;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * @param surgeFrom      share of the rooms, from 0 to 1, that must be taken before prices rise
+     * @param peakMultiplier how many times the usual price a night costs when every room is taken
+     * @param maxQuotes      most quotes cached at once
+     */
+    public PricingEngine(RoomInventory roomInventory, long baseRateCents, long guestRateCents, double surgeFrom,
+                         double peakMultiplier, long maxQuotes, MeterRegistry registry) {
+        if (baseRateCents < 0 || guestRateCents < 0 || surgeFrom < 0 || surgeFrom >= 1 || peakMultiplier < 1) {
+            throw new IllegalArgumentException("rates must not be negative, surgeFrom must be in [0, 1) "
+                    + "and peakMultiplier at least 1");
+        }
+        this.roomInventory = roomInventory;
+        this.baseRateCents = baseRateCents;
+        this.guestRateCents = guestRateCents;
+        this.surgeFrom = surgeFrom;
+        this.peakMultiplier = peakMultiplier;
+        this.quotes = Caffeine.newBuilder()
+                .maximumSize(maxQuotes)
+                .executor(Runnable::run)
+                .build();
+        this.hits = Counter.builder("hotel.quotes")
+                .tag("result", "hit")
+                .description("Stay quotes, by whether the cache had a current one")
+                .register(registry);
+        this.misses = Counter.builder("hotel.quotes")
+                .tag("result", "miss")
+                .description("Stay quotes, by whether the cache had a current one")
+                .register(registry);
+    }
+
+    /** Prices a stay of {@code guests} from {@code checkInDate} to {@code checkOutDate}, as epoch days. */
+    public Quote quote(int guests, int checkInDate, int checkOutDate) {
+        if (guests < 1 || checkInDate > checkOutDate) {
+            throw new IllegalArgumentException("guests must be positive and check-in no later than check-out");
+        }
+        int nights = Math.max(1, checkOutDate - checkInDate);
+        Long key = key(guests, checkInDate, nights);
+        CachedQuote cached = key != null ? quotes.getIfPresent(key) : null;
+        if (cached != null && cached.isCurrent(roomInventory)) {
+            hits.increment();
+            return cached.quote;
+        }
+        misses.increment();
+
+        // versions first: a change after they are read makes the quote stale rather than wrong
+        int[] versions = new int[nights];
+        for (int night = 0; night < nights; night++) {
+            versions[night] = roomInventory.occupancyVersion(checkInDate + night);
+        }
+        int rooms = roomInventory.roomsFor(guests);
+        long rate = baseRateCents + guestRateCents * (guests - 1);
+        long[] nightlyCents = new long[nights];
+        long totalCents = 0;
+        for (int night = 0; night < nights; night++) {
+            int free = roomInventory.freeRooms(guests, checkInDate + night);
+            double occupancy = rooms == 0 ? 1 : (double) (rooms - free) / rooms;
+            nightlyCents[night] = Math.round(rate * multiplier(occupancy));
+            totalCents += nightlyCents[night];
+        }
+        Quote quote = new Quote(guests, checkInDate, checkOutDate, nightlyCents, totalCents);
+        if (key != null) {
+            quotes.put(key, new CachedQuote(quote, versions));
+        }
+        return quote;
+    }
+
+    private double multiplier(double occupancy) {
+        if (occupancy <= surgeFrom) {
+            return 1;
+        }
+        return 1 + (peakMultiplier - 1) * (occupancy - surgeFrom) / (1 - surgeFrom);
+    }
+
+    /** Packs a stay into a cache key, or null if it is too long or the party too large to. */
+    private static Long key(int guests, int checkInDate, int nights) {
+        if (guests > 0xFFFF || nights > 0xFFFF) {
+            return null;
+        }
+        return (long) checkInDate << 32 | (long) nights << 16 | guests;
+    }
+
+    private record CachedQuote(Quote quote, int[] versions) {
+
+        boolean isCurrent(RoomInventory roomInventory) {
+            for (int night = 0; night < versions.length; night++) {
+                if (roomInventory.occupancyVersion(quote.checkInDate() + night) != versions[night]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
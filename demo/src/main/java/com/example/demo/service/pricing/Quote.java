@@ -0,0 +1,19 @@
+package com.example.demo.service.pricing;
+
+import java.math.BigDecimal;
+
+/**
+ * The price of a stay, per night and in total, in cents. Nights run from the check-in date up to
+ * the check-out date; a stay that checks out the day it checks in is priced as that one night.
+ * Quotes are shared between callers, so the array must not be modified.
+ */
+public record Quote(int numberOfGuests, int checkInDate, int checkOutDate, long[] nightlyCents, long totalCents) {
+
+    public BigDecimal total() {
+        return amount(totalCents);
+    }
+
+    public static BigDecimal amount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
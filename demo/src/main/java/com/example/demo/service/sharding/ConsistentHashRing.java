@@ -0,0 +1,63 @@
+package com.example.demo.service.sharding;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A consistent hash ring: every node is placed at a number of pseudo-random points on a 64-bit
+ * circle, and a key belongs to the first node point at or after the key's own hash. Adding a node
+ * only takes over the keys just before its points, so about {@code 1/n} of the keys move, all of
+ * them to the new node, and removing one hands its keys to its neighbours without moving any other.
+ * The more points per node, the more evenly keys are spread.
+ *
+ * <p>Not safe for concurrent changes; build it once and then only look keys up.
+ */
+public class ConsistentHashRing<N> {
+
+    private final int pointsPerNode;
+    private final NavigableMap<Long, N> points = new TreeMap<>();
+
+    public ConsistentHashRing(int pointsPerNode) {
+        if (pointsPerNode < 1) {
+            throw new IllegalArgumentException("pointsPerNode must be positive");
+        }
+        this.pointsPerNode = pointsPerNode;
+    }
+
+    /** Places {@code node} on the ring under {@code name}, which decides where its points fall. */
+    public void add(String name, N node) {
+        for (int i = 0; i < pointsPerNode; i++) {
+            points.put(hash(name + '#' + i), node);
+        }
+    }
+
+    public void remove(String name) {
+        for (int i = 0; i < pointsPerNode; i++) {
+            points.remove(hash(name + '#' + i));
+        }
+    }
+
+    /** The node that owns {@code key}. */
+    public N owner(String key) {
+        if (points.isEmpty()) {
+            throw new IllegalStateException("the ring has no nodes");
+        }
+        Map.Entry<Long, N> point = points.ceilingEntry(hash(key));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    /** FNV-1a over the characters, then a finalizer so that similar names land far apart. */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.demo.service.sharding;
+
+import com.example.demo.service.BookingFormats;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Which node of a sharded hotel owns what. The unit of ownership is a room group, placed on a
+ * {@link ConsistentHashRing} of the nodes; every node holds the rooms of its groups in its own
+ * inventory and journal, and knows every other node's groups from the same configuration.
+ *
+ * <p>A booking may take any room big enough, so it has no single owner. {@link #candidates} lists
+ * the nodes to try in the order that keeps best fit across the whole hotel: the nodes owning groups
+ * of the smallest size that fits first, then the next size up. Within a size this node comes first,
+ * to save a hop, and the others start from a place picked by the check-in date, to spread the load.
+ *
+ * <p>A booking id remembers the node that made it, as the id modulo {@link #MAX_NODES}, so reads and
+ * changes of a booking go straight to that node. Ids of an unsharded hotel are consecutive as ever.
+ *
+ * <p>Adding a node moves about {@code 1/n} of the groups to it and none between the others. The
+ * bookings of a moved group stay in the journal of the node that made them, which therefore refuses
+ * to start in the new layout. They are moved by exporting the whole hotel in the old layout and
+ * importing it into the new one on empty journals, which books every stay on the node that now
+ * owns a room for it, under a new id.
+ */
+public class ShardRouter {
+
+    /** Most nodes a hotel can be split across; node ids run from 0 to one less than this. */
+    public static final int MAX_NODES = 64;
+
+    /** A node: its id, which never changes, and the base URL its API is served from. */
+    public record Node(int id, URI url) {
+    }
+
+    /** A room group, known by the number of its first room. */
+    public record Group(int firstNumber, int capacity) {
+    }
+
+    private final Node local;
+    private final List<Node> nodes;
+    private final Node[] nodesById = new Node[MAX_NODES];
+    private final boolean sharded;
+    private final ConsistentHashRing<Node> ring;
+    private final Map<Integer, Node> groupOwners;
+    private final int[] tierCapacities;
+    private final Node[][] tierOwners;
+    private final boolean[] tierHasLocal;
+
+    /**
+     * @param pointsPerNode how many points each node has on the ring; more spreads groups more evenly
+     */
+    public ShardRouter(List<Node> nodes, int localNodeId, List<Group> groups, int pointsPerNode) {
+        this(nodes, localNodeId, groups, pointsPerNode, true);
+    }
+
+    private ShardRouter(List<Node> nodes, int localNodeId, List<Group> groups, int pointsPerNode, boolean sharded) {
+        for (Node node : nodes) {
+            if (node.id() < 0 || node.id() >= MAX_NODES || nodesById[node.id()] != null) {
+                throw new IllegalArgumentException("Node ids must be unique and in [0, " + MAX_NODES + "): " + node.id());
+            }
+            nodesById[node.id()] = node;
+        }
+        if (localNodeId < 0 || localNodeId >= MAX_NODES || nodesById[localNodeId] == null) {
+            throw new IllegalArgumentException("This node is not one of the nodes: " + localNodeId);
+        }
+        this.local = nodesById[localNodeId];
+        this.nodes = List.copyOf(nodes);
+        this.sharded = sharded;
+        this.ring = new ConsistentHashRing<>(pointsPerNode);
+        for (Node node : nodes) {
+            ring.add("node-" + node.id(), node);
+        }
+        this.groupOwners = groups.stream()
+                .collect(Collectors.toMap(Group::firstNumber, group -> ring.owner("group-" + group.firstNumber())));
+
+        // the distinct owners of each size of room, smallest size first
+        Map<Integer, Set<Node>> tiers = new TreeMap<>();
+        groups.stream()
+                .sorted(Comparator.comparingInt(Group::firstNumber))
+                .forEach(group -> tiers.computeIfAbsent(group.capacity(), capacity -> new LinkedHashSet<>())
+                        .add(groupOwners.get(group.firstNumber())));
+        this.tierCapacities = tiers.keySet().stream().mapToInt(Integer::intValue).toArray();
+        this.tierOwners = tiers.values().stream().map(owners -> owners.toArray(Node[]::new)).toArray(Node[][]::new);
+        this.tierHasLocal = new boolean[tierOwners.length];
+        for (int tier = 0; tier < tierOwners.length; tier++) {
+            tierHasLocal[tier] = Arrays.asList(tierOwners[tier]).contains(local);
+        }
+    }
+
+    /** A hotel on one node, which owns every group and numbers bookings consecutively. */
+    public static ShardRouter unsharded(List<Group> groups) {
+        return new ShardRouter(List.of(new Node(0, null)), 0, groups, 1, false);
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    public Node local() {
+        return local;
+    }
+
+    /** Every node of the hotel, this one included. */
+    public List<Node> nodes() {
+        return nodes;
+    }
+
+    public boolean isLocal(Node node) {
+        return node == local;
+    }
+
+    /** Whether this node holds the rooms of the group starting at room {@code firstNumber}. */
+    public boolean owns(int firstNumber) {
+        return groupOwners.get(firstNumber) == local;
+    }
+
+    public Map<Integer, Node> groupOwners() {
+        return groupOwners;
+    }
+
+    /** The node that remembers requests sent with idempotency key {@code key}. */
+    public Node ownerOfKey(String key) {
+        return sharded ? ring.owner("key-" + key) : local;
+    }
+
+    /** The node that made booking {@code bookingId}, or this one if no node could have. */
+    public Node ownerOfBooking(int bookingId) {
+        if (!sharded || bookingId < 0) {
+            return local;
+        }
+        Node owner = nodesById[bookingId % MAX_NODES];
+        return owner != null ? owner : local;
+    }
+
+    /** How far apart the ids this node hands out are. */
+    public int bookingIdStep() {
+        return sharded ? MAX_NODES : 1;
+    }
+
+    /** The first id of this node's that is at least {@code nextBookingId}, and at least 1. */
+    public int firstBookingId(int nextBookingId) {
+        int next = Math.max(1, nextBookingId);
+        if (!sharded) {
+            return next;
+        }
+        int offset = Math.floorMod(local.id() - next, MAX_NODES);
+        return next + offset;
+    }
+
+    /**
+     * The nodes to try for a booking of {@code guests} checking in on {@code checkInDate}, best
+     * first, each once. Just this node if the request is not valid enough to route, since it will be
+     * turned down wherever it goes, or if no room is big enough anywhere.
+     */
+    public List<Node> candidates(int guests, int checkInDate) {
+        if (!sharded || guests < 1 || checkInDate == BookingFormats.INVALID || checkInDate == BookingFormats.MISSING) {
+            return List.of(local);
+        }
+        List<Node> candidates = new ArrayList<>(4);
+        int spread = (int) ((checkInDate * 0x9E3779B97F4A7C15L) >>> 33);
+        for (int tier = 0; tier < tierCapacities.length; tier++) {
+            if (tierCapacities[tier] < guests) {
+                continue;
+            }
+            if (tierHasLocal[tier] && !candidates.contains(local)) {
+                candidates.add(local);
+            }
+            Node[] owners = tierOwners[tier];
+            int first = spread % owners.length;
+            for (int i = 0; i < owners.length; i++) {
+                Node owner = owners[(first + i) % owners.length];
+                if (!candidates.contains(owner)) {
+                    candidates.add(owner);
+                }
+            }
+        }
+        return candidates.isEmpty() ? List.of(local) : candidates;
+    }
+}
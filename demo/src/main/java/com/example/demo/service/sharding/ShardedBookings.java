@@ -0,0 +1,313 @@
+package com.example.demo.service.sharding;
+
+import com.example.demo.dto.BookingRequest;
+import com.example.demo.dto.BookingResponse;
+import com.example.demo.service.BookingFormats;
+import com.example.demo.service.BookingRejection;
+import com.example.demo.service.CannedResponses;
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.IdempotencyCache;
+import com.example.demo.service.ParsedBookingRequest;
+import com.example.demo.service.bulk.BulkFormat;
+import com.example.demo.service.sharding.ShardRouter.Node;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
+
+/**
+ * Serves the booking API of one node of a sharded hotel, sending on to the other nodes over HTTP
+ * whatever this one does not own, as {@link ShardRouter} decides.
+ *
+ * <p>A new booking is tried on each {@link ShardRouter#candidates candidate} in turn, locally or
+ * with a {@link Hop#TRY} request, until one has a room. If none has, it goes back to the first
+ * candidate as a {@link Hop#LAST} request, to be waitlisted there as on a single node. A booking
+ * sent with an idempotency key is first sent {@link Hop#HOME} to the node owning the key, which
+ * remembers the response and routes the booking from there, so a retry arriving at any node is
+ * answered the same way.
+ *
+ * <p>A bulk import books each row by the same rules, except that a row no candidate has room for is
+ * turned down rather than waitlisted. A bulk export gathers every node's bookings, asking the others
+ * for theirs with a {@link Hop#LOCAL} request.
+ *
+ * <p>Requests between nodes carry the {@link #HOP_HEADER} and skip admission control, which the
+ * first node has already applied. They also carry the hotel's secret in the {@link #SECRET_HEADER},
+ * without which a node drops the hop header as if a guest had sent it.
+ */
+public class ShardedBookings {
+
+    /** Request header marking a request one node sends another, naming its {@link Hop}. */
+    public static final String HOP_HEADER = "Shard-Hop";
+
+    /** Request header proving a request with a {@link #HOP_HEADER} comes from a node of the hotel. */
+    public static final String SECRET_HEADER = "Shard-Secret";
+
+    /** What a node is to do with a booking another node sent it. */
+    public enum Hop {
+        /** Remember the response under the idempotency key, and route the booking from here. */
+        HOME,
+        /** Book here if a room is free, otherwise answer at once that there is none. */
+        TRY,
+        /** Book here as if the request had come straight from the guest. */
+        LAST,
+        /** Answer a bulk export with the bookings of this node alone. */
+        LOCAL;
+
+        /** The hop a header names, null for none or one this node does not know. */
+        static Hop of(String header) {
+            for (Hop hop : values()) {
+                if (hop.name().equalsIgnoreCase(header)) {
+                    return hop;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final String BOOK_PATH = "/api/v1/hotel/book";
+    private static final String BOOKINGS_PATH = "/api/v1/hotel/bookings/";
+    private static final String EXPORT_PATH = "/api/v1/hotel/bookings/export?format=";
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final List<String> FORWARDED_RESPONSE_HEADERS =
+            List.of(HttpHeaders.RETRY_AFTER, IdempotencyCache.REPLAYED_HEADER);
+    private static final ResponseEntity<BookingResponse> NO_ROOM = CannedResponses.create(
+            BookingRejection.NO_ROOM_AVAILABLE.getStatus(), BookingRejection.NO_ROOM_AVAILABLE.getMessage());
+    private static final ResponseEntity<BookingResponse> UNAVAILABLE = CannedResponses.create(
+            BookingRejection.SHARD_UNAVAILABLE.getStatus(), BookingRejection.SHARD_UNAVAILABLE.getMessage());
+
+    private final ShardRouter router;
+    private final HotelBookingSystem hotelBookingSystem;
+    private final IdempotencyCache idempotencyCache;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader responseReader;
+    private final HttpClient httpClient;
+    private final Duration timeout;
+    private final String secret;
+
+    public ShardedBookings(ShardRouter router, HotelBookingSystem hotelBookingSystem,
+                           IdempotencyCache idempotencyCache, ObjectMapper objectMapper, HttpClient httpClient,
+                           Duration timeout, String secret) {
+        this.router = router;
+        this.hotelBookingSystem = hotelBookingSystem;
+        this.idempotencyCache = idempotencyCache;
+        this.objectMapper = objectMapper;
+        this.responseReader = objectMapper.readerFor(BookingResponse.class);
+        this.httpClient = httpClient;
+        this.timeout = timeout;
+        this.secret = secret;
+    }
+
+    /**
+     * Books a request that came without an idempotency key.
+     *
+     * @param hop the {@link #HOP_HEADER} of the request, null if it came from a guest
+     */
+    public CompletableFuture<ResponseEntity<BookingResponse>> book(String hop, ParsedBookingRequest request) {
+        Hop received = Hop.of(hop);
+        if (received == Hop.TRY || received == Hop.LAST) {
+            return hotelBookingSystem.processBookingAsync(request, received == Hop.LAST);
+        }
+        return route(request, true);
+    }
+
+    /** Books a request sent with an idempotency key, blocking until it is done. */
+    public ResponseEntity<BookingResponse> book(String hop, String idempotencyKey, ParsedBookingRequest request) {
+        Hop received = Hop.of(hop);
+        if (received == Hop.TRY || received == Hop.LAST) {
+            return book(hop, request).join();
+        }
+        Node home = router.ownerOfKey(idempotencyKey);
+        if (received == null && !router.isLocal(home)) {
+            return send(home, HttpMethod.POST, BOOK_PATH, request, Hop.HOME, idempotencyKey).join();
+        }
+        return idempotencyCache.processBooking(idempotencyKey, request, booking -> route(booking, true).join());
+    }
+
+    /**
+     * Books an imported row on whichever candidate has a room, without waitlisting it anywhere.
+     *
+     * @return the response of the node that booked it, or that no room is available
+     */
+    public CompletableFuture<ResponseEntity<BookingResponse>> bookOrTurnDown(ParsedBookingRequest request) {
+        return route(request, false);
+    }
+
+    /**
+     * Starts a bulk export on every other node, unless this request is one of them.
+     *
+     * @param hop the {@link #HOP_HEADER} of the export request, null if it came from outside
+     * @return the bodies of the other nodes' exports, each to be read to the end and closed
+     * @throws IOException if a node could not be reached or did not answer 200; all bodies opened
+     *         so far are then closed, so that the export fails before anything is written
+     */
+    public List<InputStream> openExports(String hop, BulkFormat format) throws IOException {
+        if (Hop.of(hop) == Hop.LOCAL) {
+            return List.of();
+        }
+        List<CompletableFuture<HttpResponse<InputStream>>> pending = new ArrayList<>();
+        for (Node node : router.nodes()) {
+            if (!router.isLocal(node)) {
+                HttpRequest request = HttpRequest.newBuilder(
+                                node.url().resolve(EXPORT_PATH + format.name().toLowerCase(Locale.ROOT)))
+                        .timeout(timeout)
+                        .header(HOP_HEADER, Hop.LOCAL.name().toLowerCase())
+                        .header(SECRET_HEADER, secret)
+                        .GET()
+                        .build();
+                pending.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()));
+            }
+        }
+        List<InputStream> bodies = new ArrayList<>();
+        IOException failure = null;
+        for (CompletableFuture<HttpResponse<InputStream>> export : pending) {
+            try {
+                HttpResponse<InputStream> response = export.join();
+                if (response.statusCode() == HttpStatus.OK.value()) {
+                    bodies.add(response.body());
+                } else {
+                    response.body().close();
+                    failure = new IOException("A node answered the export with " + response.statusCode());
+                }
+            } catch (CompletionException e) {
+                failure = new IOException("A node could not be reached for the export", e.getCause());
+            }
+        }
+        if (failure != null) {
+            for (InputStream body : bodies) {
+                body.close();
+            }
+            throw failure;
+        }
+        return bodies;
+    }
+
+    /** Whether booking {@code bookingId} was made here rather than on another node. */
+    public boolean isLocal(int bookingId) {
+        return router.isLocal(router.ownerOfBooking(bookingId));
+    }
+
+    /**
+     * Sends a read, cancellation or change of a booking made on another node to that node.
+     *
+     * @param changes the body of a change, null for the others
+     */
+    public CompletableFuture<ResponseEntity<BookingResponse>> forward(HttpMethod method, int bookingId,
+                                                                    ParsedBookingRequest changes) {
+        return send(router.ownerOfBooking(bookingId), method, BOOKINGS_PATH + bookingId, changes, null, null);
+    }
+
+    private CompletableFuture<ResponseEntity<BookingResponse>> route(ParsedBookingRequest request,
+                                                                    boolean mayWaitlist) {
+        List<Node> candidates = router.candidates(request.numberOfGuests(), request.checkInDate());
+        if (candidates.size() == 1) {
+            return attempt(request, candidates.get(0), mayWaitlist);
+        }
+        return tryFrom(request, candidates, 0, mayWaitlist);
+    }
+
+    private CompletableFuture<ResponseEntity<BookingResponse>> tryFrom(ParsedBookingRequest request,
+                                                                      List<Node> candidates, int index,
+                                                                      boolean mayWaitlist) {
+        if (index == candidates.size()) {
+            // sold out everywhere: wait for a room where one would fit best
+            return mayWaitlist ? attempt(request, candidates.get(0), true) : CompletableFuture.completedFuture(NO_ROOM);
+        }
+        return attempt(request, candidates.get(index), false).thenCompose(response ->
+                response.getStatusCode() == HttpStatus.CONFLICT
+                        ? tryFrom(request, candidates, index + 1, mayWaitlist)
+                        : CompletableFuture.completedFuture(response));
+    }
+
+    private CompletableFuture<ResponseEntity<BookingResponse>> attempt(ParsedBookingRequest request, Node node,
+                                                                      boolean last) {
+        if (router.isLocal(node)) {
+            return hotelBookingSystem.processBookingAsync(request, last);
+        }
+        return send(node, HttpMethod.POST, BOOK_PATH, request, last ? Hop.LAST : Hop.TRY, null);
+    }
+
+    private CompletableFuture<ResponseEntity<BookingResponse>> send(Node node, HttpMethod method, String path,
+                                                                   ParsedBookingRequest body, Hop hop,
+                                                                   String idempotencyKey) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(node.url().resolve(path))
+                .timeout(timeout)
+                .method(method.name(), body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(json(body)));
+        if (body != null) {
+            request.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        }
+        if (hop != null) {
+            request.header(HOP_HEADER, hop.name().toLowerCase());
+            request.header(SECRET_HEADER, secret);
+        }
+        if (idempotencyKey != null) {
+            request.header(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, failure) -> {
+                    if (failure == null) {
+                        return response(response);
+                    }
+                    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    // a node that is down cannot have booked, so the next one may be tried
+                    return hop == Hop.TRY && cause instanceof ConnectException ? NO_ROOM : UNAVAILABLE;
+                });
+    }
+
+    private ResponseEntity<BookingResponse> response(HttpResponse<byte[]> response) {
+        BookingResponse body;
+        try {
+            body = responseReader.readValue(response.body());
+        } catch (IOException e) {
+            return UNAVAILABLE;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : FORWARDED_RESPONSE_HEADERS) {
+            response.headers().firstValue(name).ifPresent(value -> headers.set(name, value));
+        }
+        return ResponseEntity.status(response.statusCode()).headers(headers).body(body);
+    }
+
+    /** The request as the JSON a guest would send, with fields that did not parse left unparseable. */
+    private byte[] json(ParsedBookingRequest request) {
+        BookingRequest text = BookingRequest.builder()
+                .numberOfGuests(text(request.numberOfGuests(), Integer::toString))
+                .checkInDate(text(request.checkInDate(), BookingFormats::formatDate))
+                .checkOutDate(text(request.checkOutDate(), BookingFormats::formatDate))
+                .checkInTime(text(request.checkInTime(), BookingFormats::formatTime))
+                .checkOutTime(text(request.checkOutTime(), BookingFormats::formatTime))
+                .build();
+        try {
+            return objectMapper.writeValueAsBytes(text);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String text(int value, IntFunction<String> format) {
+        if (value == BookingFormats.MISSING) {
+            return null;
+        }
+        return value == BookingFormats.INVALID ? "?" : format.apply(value);
+    }
+}
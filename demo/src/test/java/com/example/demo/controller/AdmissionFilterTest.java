@@ -0,0 +1,78 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.admission.AdmissionControl;
+import com.example.demo.service.admission.ClientRateLimiter;
+import com.example.demo.service.admission.ConcurrencyLimiter;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionFilterTest {
+
+  /** One request per client, then a wait of two seconds. */
+  private final AdmissionFilter filter = new AdmissionFilter(
+          new AdmissionControl(new ClientRateLimiter(0.5, 1, 64), new ConcurrencyLimiter(10), BookingMetrics.noop()),
+          "X-Api-Key", List.of("10.0.0.5"));
+
+  private int post(String path, String remoteAddress, String apiKey) throws ServletException, IOException {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+    request.setRemoteAddr(remoteAddress);
+    if (apiKey != null) {
+      request.addHeader("X-Api-Key", apiKey);
+    }
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, new MockFilterChain());
+    return response.getStatus();
+  }
+
+  @Test
+  @DisplayName("A client header from an untrusted address is ignored, so new keys do not get new buckets")
+  void testUntrustedHeader() throws ServletException, IOException {
+    // Call the method under test
+    int first = post("/api/v1/hotel/book", "192.0.2.1", "key-1");
+    int second = post("/api/v1/hotel/book", "192.0.2.1", "key-2");
+    int otherAddress = post("/api/v1/hotel/book", "192.0.2.2", "key-2");
+
+    // Then
+    assertEquals(HttpStatus.OK.value(), first);
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), second);
+    assertEquals(HttpStatus.OK.value(), otherAddress);
+  }
+
+  @Test
+  @DisplayName("A client header from a trusted proxy gives each client it names its own bucket")
+  void testTrustedProxy() throws ServletException, IOException {
+    // Call the method under test
+    int first = post("/api/v1/hotel/book", "10.0.0.5", "key-1");
+    int otherClient = post("/api/v1/hotel/book", "10.0.0.5", "key-2");
+    int sameClient = post("/api/v1/hotel/book", "10.0.0.5", "key-1");
+
+    // Then
+    assertEquals(HttpStatus.OK.value(), first);
+    assertEquals(HttpStatus.OK.value(), otherClient);
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), sameClient);
+  }
+
+  @Test
+  @DisplayName("Imports share the client's bucket with single and batch bookings")
+  void testImportAdmitted() throws ServletException, IOException {
+    // Call the method under test
+    int batch = post("/api/v1/hotel/book/batch", "192.0.2.1", null);
+    int imported = post("/api/v1/hotel/bookings/import", "192.0.2.1", null);
+
+    // Then
+    assertTrue(List.of(AdmissionFilter.PATHS).contains("/api/v1/hotel/bookings/import"));
+    assertEquals(HttpStatus.OK.value(), batch);
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), imported);
+  }
+}
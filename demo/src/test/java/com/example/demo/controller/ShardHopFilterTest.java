@@ -0,0 +1,55 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.sharding.ShardedBookings;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardHopFilterTest {
+
+  private static HttpServletRequest filter(ShardHopFilter filter, String secret) throws ServletException, IOException {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/hotel/book");
+    request.addHeader(ShardedBookings.HOP_HEADER, "last");
+    if (secret != null) {
+      request.addHeader(ShardedBookings.SECRET_HEADER, secret);
+    }
+    MockFilterChain chain = new MockFilterChain();
+    filter.doFilter(request, new MockHttpServletResponse(), chain);
+    return (HttpServletRequest) chain.getRequest();
+  }
+
+  @Test
+  @DisplayName("A hop from a node presenting the secret is let through")
+  void testTrustedHop() throws ServletException, IOException {
+    // Call the method under test
+    HttpServletRequest request = filter(new ShardHopFilter("secret"), "secret");
+
+    // Then
+    assertEquals("last", request.getHeader(ShardedBookings.HOP_HEADER));
+  }
+
+  @Test
+  @DisplayName("A hop without the right secret, or on an unsharded hotel, is removed")
+  void testUntrustedHop() throws ServletException, IOException {
+    // Call the method under test
+    HttpServletRequest missing = filter(new ShardHopFilter("secret"), null);
+    HttpServletRequest wrong = filter(new ShardHopFilter("secret"), "guess");
+    HttpServletRequest unsharded = filter(new ShardHopFilter(null), "secret");
+
+    // Then
+    for (HttpServletRequest request : new HttpServletRequest[] {missing, wrong, unsharded}) {
+      assertNull(request.getHeader(ShardedBookings.HOP_HEADER));
+      assertFalse(request.getHeaders(ShardedBookings.HOP_HEADER).hasMoreElements());
+      assertFalse(Collections.list(request.getHeaderNames()).contains(ShardedBookings.HOP_HEADER));
+    }
+  }
+}
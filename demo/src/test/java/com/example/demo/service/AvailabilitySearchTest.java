@@ -0,0 +1,123 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AvailabilityResponse;
+import com.example.demo.dto.NightAvailability;
+import com.example.demo.dto.StayAvailability;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilitySearchTest {
+
+  private static final int FIRST_DAY = (int) LocalDate.of(2024, 1, 1).toEpochDay();
+
+  private RoomInventory roomInventory;
+  private AvailabilitySearch availabilitySearch;
+
+  @BeforeEach
+  void setUp() {
+    roomInventory = new RoomInventory(
+            List.of(new Room(101, 2), new Room(102, 2), new Room(201, 4)), FIRST_DAY, 365);
+    availabilitySearch = new AvailabilitySearch(
+            new BookingValidator(Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC)), roomInventory);
+  }
+
+  /** Takes the nights of January {@code fromDate} up to {@code toDate} in the given room. */
+  private void occupy(int roomNumber, int fromDate, int toDate) {
+    roomInventory.markOccupied(roomNumber,
+            StaySlots.checkInSlot(FIRST_DAY + fromDate - 1, 13 * 60),
+            StaySlots.checkOutSlot(FIRST_DAY + toDate - 1, 12 * 60));
+  }
+
+  @Test
+  @DisplayName("Free rooms per night and stays that fit in a single room")
+  void testSearch() {
+    // Given
+    occupy(101, 10, 13);
+    occupy(102, 10, 12);
+    occupy(102, 13, 14);
+    occupy(201, 11, 12);
+    occupy(201, 13, 14);
+
+    // When
+    ResponseEntity<AvailabilityResponse> response = availabilitySearch.search("08/01/2024", "15/01/2024", "1", 2, 10);
+
+    // Then
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.OK.value()), response.getStatusCode());
+    assertEquals(List.of(
+            new NightAvailability("08/01/2024", 3),
+            new NightAvailability("09/01/2024", 3),
+            new NightAvailability("10/01/2024", 1),
+            new NightAvailability("11/01/2024", 0),
+            new NightAvailability("12/01/2024", 2),
+            new NightAvailability("13/01/2024", 1),
+            new NightAvailability("14/01/2024", 3)), response.getBody().getNights());
+    // the 12th and 13th each have a room free, but not the same one
+    assertEquals(List.of(
+            new StayAvailability("08/01/2024", "10/01/2024"),
+            new StayAvailability("09/01/2024", "11/01/2024"),
+            new StayAvailability("13/01/2024", "15/01/2024")), response.getBody().getStays());
+  }
+
+  @Test
+  @DisplayName("Only rooms large enough count, and stays stop at the limit")
+  void testSearchGuestsAndLimit() {
+    // Given
+    occupy(201, 10, 11);
+
+    // When
+    ResponseEntity<AvailabilityResponse> response = availabilitySearch.search("09/01/2024", "13/01/2024", "3", 1, 2);
+
+    // Then
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.OK.value()), response.getStatusCode());
+    assertEquals(List.of(1, 0, 1, 1),
+            response.getBody().getNights().stream().map(NightAvailability::getFreeRooms).toList());
+    assertEquals(List.of(
+            new StayAvailability("09/01/2024", "10/01/2024"),
+            new StayAvailability("11/01/2024", "12/01/2024")), response.getBody().getStays());
+  }
+
+  @Test
+  @DisplayName("Nights before today and beyond the horizon are left out")
+  void testSearchClipsWindow() {
+    // When
+    ResponseEntity<AvailabilityResponse> response = availabilitySearch.search("30/12/2023", "02/01/2024", "2", 1, 10);
+    ResponseEntity<AvailabilityResponse> beyond = availabilitySearch.search("30/12/2024", "05/01/2025", "2", 1, 10);
+
+    // Then
+    assertEquals(List.of(new NightAvailability("01/01/2024", 3)), response.getBody().getNights());
+    assertEquals(List.of("30/12/2024"),
+            beyond.getBody().getNights().stream().map(NightAvailability::getDate).toList());
+  }
+
+  @Test
+  @DisplayName("Invalid searches are rejected with the booking messages")
+  void testSearchRejected() {
+    assertRejected(BookingRejection.GUESTS_REQUIRED, availabilitySearch.search("08/01/2024", "15/01/2024", null, 1, 10));
+    assertRejected(BookingRejection.GUESTS_NOT_POSITIVE, availabilitySearch.search("08/01/2024", "15/01/2024", "0", 1, 10));
+    assertRejected(BookingRejection.CHECK_IN_DATE_REQUIRED, availabilitySearch.search(null, "15/01/2024", "1", 1, 10));
+    assertRejected(BookingRejection.INVALID_DATE_FORMAT, availabilitySearch.search("08/01/2024", "Jan 15", "1", 1, 10));
+    assertRejected(BookingRejection.CHECK_IN_DATE_AFTER_CHECK_OUT,
+            availabilitySearch.search("15/01/2024", "08/01/2024", "1", 1, 10));
+    assertRejected(BookingRejection.NIGHTS_NOT_POSITIVE, availabilitySearch.search("08/01/2024", "15/01/2024", "1", 0, 10));
+  }
+
+  private static void assertRejected(BookingRejection rejection, ResponseEntity<AvailabilityResponse> response) {
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.BAD_REQUEST.value()), response.getStatusCode());
+    assertEquals(rejection.getMessage(), response.getBody().getMessage());
+  }
+}
@@ -0,0 +1,145 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookingResponse;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.journal.NoopBookingJournal;
+import com.example.demo.service.sharding.ShardRouter;
+import com.example.demo.service.sharding.ShardedBookings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingBatchProcessorTest {
+
+  private static final String VALID =
+          "{\"numberOfGuests\":\"1\",\"checkInDate\":\"10/10/2024\",\"checkOutDate\":\"12/10/2024\","
+                  + "\"checkInTime\":\"13:00\",\"checkOutTime\":\"12:00\"}";
+  private static final String ZERO_GUESTS =
+          "{\"numberOfGuests\":\"0\",\"checkInDate\":\"10/10/2024\",\"checkOutDate\":\"12/10/2024\","
+                  + "\"checkInTime\":\"13:00\",\"checkOutTime\":\"12:00\"}";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final HotelBookingSystem hotelBookingSystem = new HotelBookingSystem(
+          new BookingValidator(Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC)),
+          new RoomInventory(List.of(new Room(101, 2)), (int) LocalDate.of(2024, 1, 1).toEpochDay(), 1096),
+          new NoopBookingJournal());
+
+  private final BookingBatchProcessor bookingBatchProcessor = new BookingBatchProcessor(hotelBookingSystem, objectMapper);
+
+  private List<BookingResponse> process(String body) throws IOException {
+    return process(bookingBatchProcessor, body);
+  }
+
+  private List<BookingResponse> process(BookingBatchProcessor bookingBatchProcessor, String body) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    bookingBatchProcessor.process(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out);
+    byte[] written = out.toByteArray();
+    assertEquals('\n', written[written.length - 1]);
+    if (written.length > 1) {
+      assertNotEquals('\n', written[0]);
+    }
+    return objectMapper.readerFor(BookingResponse.class)
+            .<BookingResponse>readValues(out.toByteArray())
+            .readAll();
+  }
+
+  @Test
+  @DisplayName("Batch given as newline-delimited JSON")
+  void testNewlineDelimitedBatch() throws IOException {
+    List<BookingResponse> responses = process(VALID + "\n" + ZERO_GUESTS + "\n" + VALID + "\n");
+
+    assertEquals(3, responses.size());
+    assertEquals(101, responses.get(0).getData().getRoomNumber());
+    assertEquals("Number of guests must be a positive number.", responses.get(1).getMessage());
+    assertEquals("No room is available for the selected dates and number of guests.", responses.get(2).getMessage());
+  }
+
+  @Test
+  @DisplayName("Batch given as a JSON array")
+  void testArrayBatch() throws IOException {
+    List<BookingResponse> responses = process("[" + ZERO_GUESTS + ", " + VALID + "]");
+
+    assertEquals(2, responses.size());
+    assertNull(responses.get(0).getData());
+    assertNotNull(responses.get(1).getData());
+  }
+
+  @Test
+  @DisplayName("Malformed request ends the batch")
+  void testMalformedRequest() throws IOException {
+    List<BookingResponse> responses = process(ZERO_GUESTS + "\n{\"numberOfGuests\": \n" + VALID);
+
+    assertEquals(2, responses.size());
+    assertEquals("Number of guests must be a positive number.", responses.get(0).getMessage());
+    assertEquals(BookingBatchProcessor.MALFORMED_REQUEST_MESSAGE, responses.get(1).getMessage());
+  }
+
+  @Test
+  @DisplayName("Batch on a sharded hotel books a request on another node once this one is full")
+  void testShardedBatch() throws IOException {
+    // Given
+    byte[] booked = ("{\"message\":\"Your room number is confirmed.\","
+            + "\"data\":{\"bookingId\":65,\"roomNumber\":201,\"status\":\"CONFIRMED\"}}")
+            .getBytes(StandardCharsets.UTF_8);
+    HttpServer otherNode = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    otherNode.createContext("/api/v1/hotel/book", exchange -> {
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, booked.length);
+      exchange.getResponseBody().write(booked);
+      exchange.close();
+    });
+    otherNode.start();
+    List<ShardRouter.Group> groups = new ArrayList<>();
+    IntStream.range(0, 30).forEach(i -> groups.add(new ShardRouter.Group(100 + i * 10, 2)));
+    ShardRouter router = new ShardRouter(List.of(
+            new ShardRouter.Node(0, URI.create("http://localhost:1")),
+            new ShardRouter.Node(1, URI.create("http://localhost:" + otherNode.getAddress().getPort()))),
+            0, groups, 16);
+    ShardedBookings shardedBookings = new ShardedBookings(router, hotelBookingSystem,
+            new IdempotencyCache(hotelBookingSystem, Duration.ofMinutes(1), 100), objectMapper,
+            HttpClient.newHttpClient(), Duration.ofSeconds(5), "secret");
+
+    // Call the method under test
+    List<BookingResponse> responses;
+    try {
+      responses = process(new BookingBatchProcessor(hotelBookingSystem, shardedBookings, objectMapper),
+              VALID + "\n" + VALID + "\n");
+    } finally {
+      otherNode.stop(0);
+    }
+
+    // Then
+    assertEquals(2, responses.size());
+    assertEquals(101, responses.get(0).getData().getRoomNumber());
+    assertEquals(201, responses.get(1).getData().getRoomNumber());
+  }
+
+  @Test
+  @DisplayName("Empty batch")
+  void testEmptyBatch() throws IOException {
+    assertTrue(process("").isEmpty());
+    assertTrue(process("[]").isEmpty());
+  }
+}
@@ -0,0 +1,84 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingFormatsTest {
+
+  private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+  private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+
+  @Test
+  @DisplayName("Date parser agrees with DateTimeFormatter")
+  void testParseDateMatchesFormatter() {
+    String[] inputs = {"10/10/2024", "01/01/2000", "29/02/2024", "29/02/2023", "31/04/2025", "31/12/9999",
+            "01/01/0001", "00/01/2024", "32/01/2024", "01/13/2024", "01/00/2024", "01/01/0000", "1/1/2024",
+            "10-10-2024", "10/10/20245", "Jan 1st, 2022", "aa/bb/cccc", "", "01/01/+12345", "29/02/+10000",
+            "31/04/+12345", "01/01/+00123", "01/01/+0012345", "01/01/+1234", "01/01/+2024", "01/01/-12345",
+            "01/01/+12345x", "01/01/+00000", "01/01/+1000000000", "01/01/+5879610"};
+    for (String input : inputs) {
+      int expected;
+      try {
+        expected = (int) LocalDate.parse(input, DATE).toEpochDay();
+      } catch (DateTimeParseException e) {
+        expected = BookingFormats.INVALID;
+      }
+      assertEquals(expected, BookingFormats.parseDate(input), input);
+    }
+  }
+
+  @Test
+  @DisplayName("Time parser agrees with DateTimeFormatter")
+  void testParseTimeMatchesFormatter() {
+    String[] inputs = {"13:00", "19:00", "00:00", "23:59", "24:00", "24:01", "25:00", "12:60", "8:00 AM",
+            "12:00 PM", "1300", "13.00", ""};
+    for (String input : inputs) {
+      int expected;
+      try {
+        expected = LocalTime.parse(input, TIME).toSecondOfDay() / 60;
+      } catch (DateTimeParseException e) {
+        expected = BookingFormats.INVALID;
+      }
+      assertEquals(expected, BookingFormats.parseTime(input), input);
+    }
+  }
+
+  @Test
+  @DisplayName("Guest parser accepts what Integer.parseInt accepts as positive")
+  void testParseGuestsMatchesParseInt() {
+    String[] inputs = {"1", "+2", "007", "2147483647", "2147483648", "0", "-0", "-10", "TEN", "+", "-", "",
+            "1 ", "٣"};
+    for (String input : inputs) {
+      int expected;
+      try {
+        int value = Integer.parseInt(input);
+        expected = value > 0 ? value : BookingFormats.INVALID;
+      } catch (NumberFormatException e) {
+        expected = BookingFormats.INVALID;
+      }
+      assertEquals(expected, BookingFormats.parseGuests(input), input);
+    }
+  }
+
+  @Test
+  @DisplayName("Date formatter writes what the date parser reads back")
+  void testFormatDateRoundTrips() {
+    String[] inputs = {"10/10/2024", "01/01/0001", "31/12/9999", "01/01/+10000", "29/02/+12348"};
+    for (String input : inputs) {
+      assertEquals(input, BookingFormats.formatDate(BookingFormats.parseDate(input)), input);
+    }
+  }
+
+  @Test
+  @DisplayName("Date parser saturates a date beyond the int epoch-day range")
+  void testParseDateSaturatesFarFuture() {
+    assertEquals(Integer.MAX_VALUE, BookingFormats.parseDate("01/01/+999999999"));
+  }
+}
@@ -0,0 +1,400 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookingData;
+import com.example.demo.dto.BookingResponse;
+import com.example.demo.service.assignment.BookingConfirmations;
+import com.example.demo.service.assignment.BookingConfirmations.Confirmation;
+import com.example.demo.service.assignment.BookingConfirmations.Status;
+import com.example.demo.service.assignment.RoomAssigner;
+import com.example.demo.service.assignment.RoomOptimizer;
+import com.example.demo.service.assignment.Waitlist;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import com.example.demo.service.journal.BookingJournal;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.BookingRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A randomized many-threaded workload against a {@link HotelBookingSystem} with a real inventory and
+ * ledger, and the checks that what it leaves behind is consistent. Every thread books, changes and
+ * cancels stays of one to three nights in a handful of rooms over two weeks, so overlapping and
+ * back-to-back stays keep competing for the same room-nights, and threads cancel and change each
+ * other's bookings. Some bookings are sent with one of a small set of idempotency keys, each always
+ * with the same request, so that many are retries racing the first request with their key.
+ *
+ * <p>When assigning, bookings are given their rooms by a {@link RoomAssigner}, a sold-out booking
+ * is waitlisted and given a room a cancellation or change frees, and a {@link RoomOptimizer} keeps
+ * moving reserved stays between rooms while the run goes on. All three are drained before the
+ * checks.
+ *
+ * <p>The journal is kept in memory, in sequence order. Afterwards {@link Result#violations} names
+ * every invariant the run broke:
+ * <ul>
+ *   <li>no two stays in a room overlap, so no room-night was sold twice;</li>
+ *   <li>the inventory has exactly the slots of the ledger's stays taken;</li>
+ *   <li>the live bookings are the bookings accepted less those cancelled, or when assigning, those
+ *       whose confirmation holds a room, each in the room of its stay, with no booking left pending
+ *       and as many waitlisted as the waitlist holds;</li>
+ *   <li>replaying the journal in order gives back the ledger, as recovery would;</li>
+ *   <li>every answer to a key is the booking of the first one.</li>
+ * </ul>
+ */
+public final class BookingStress {
+
+  private static final int CHECK_IN = 13 * 60;
+  private static final int LATE_CHECK_IN = 19 * 60;
+  private static final int CHECK_OUT = 12 * 60;
+  private static final int LATE_CHECK_OUT = 18 * 60;
+  private static final int WINDOW_DAYS = 14;
+  private static final int KEYS = 512;
+  private static final int SHARED_BOOKINGS = 256;
+
+  /** What a run did and how long it took, with every invariant it broke. */
+  public record Result(int threads, long operations, long nanos, long booked, long cancelled, long changed,
+                       long replayed, long waitlisted, long promoted, long moved, List<String> violations) {
+
+    public double operationsPerSecond() {
+      return operations * 1e9 / nanos;
+    }
+  }
+
+  private final HotelBookingSystem hotelBookingSystem;
+  private final IdempotencyCache idempotencyCache;
+  private final RoomInventory roomInventory;
+  private final BookingLedger bookingLedger;
+  private final BookingConfirmations confirmations;
+  private final RoomAssigner roomAssigner;
+  private final Waitlist waitlist;
+  private final RoomOptimizer roomOptimizer;
+  private final MeterRegistry registry;
+  private final Supplier<BookingLedger> emptyLedger;
+  private final RecordingJournal journal = new RecordingJournal();
+  private final int firstDay;
+  private final AtomicIntegerArray sharedBookings = new AtomicIntegerArray(SHARED_BOOKINGS);
+  private final AtomicIntegerArray sharedWaitlisted = new AtomicIntegerArray(SHARED_BOOKINGS);
+  private final Map<Integer, Integer> firstAnswers = new ConcurrentHashMap<>();
+  private final Set<Integer> accepted = ConcurrentHashMap.newKeySet();
+  private final Set<Integer> waitlisted = ConcurrentHashMap.newKeySet();
+  private final List<String> keyViolations = new ArrayList<>();
+  private final LongAdder booked = new LongAdder();
+  private final LongAdder cancelled = new LongAdder();
+  private final LongAdder changed = new LongAdder();
+  private final LongAdder replayed = new LongAdder();
+  private final LongAdder moved = new LongAdder();
+
+  /** @param emptyLedger makes the ledger to run with, and the one the journal is replayed into */
+  public BookingStress(Supplier<BookingLedger> emptyLedger) {
+    this(emptyLedger, false);
+  }
+
+  /**
+   * @param emptyLedger makes the ledger to run with, and the one the journal is replayed into
+   * @param assigning   whether rooms are given by a room assigner, with a waitlist and an optimizer
+   */
+  public BookingStress(Supplier<BookingLedger> emptyLedger, boolean assigning) {
+    LocalDate today = LocalDate.of(2030, 1, 1);
+    this.firstDay = (int) today.toEpochDay();
+    this.emptyLedger = emptyLedger;
+    this.bookingLedger = emptyLedger.get();
+    this.roomInventory = new RoomInventory(List.of(new Room(101, 2), new Room(102, 2), new Room(103, 2),
+            new Room(104, 2), new Room(105, 2), new Room(201, 4), new Room(202, 4), new Room(203, 4)),
+            firstDay, 60);
+    Clock clock = Clock.fixed(today.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    this.confirmations = new BookingConfirmations(1, Duration.ofHours(1), 1_000_000);
+    if (assigning) {
+      // stays from a week ahead are only reserved, so the optimizer has rooms to move them between
+      this.registry = new SimpleMeterRegistry();
+      this.roomAssigner = new RoomAssigner(roomInventory, journal, confirmations, bookingLedger, registry, 4096, 64,
+              clock, Duration.ofDays(7));
+      this.waitlist = new Waitlist(roomInventory, journal, confirmations, bookingLedger, registry, clock, 100_000);
+      this.roomOptimizer = new RoomOptimizer(roomInventory, journal, confirmations, bookingLedger, registry, clock,
+              Duration.ofDays(7), 7, Duration.ZERO);
+    } else {
+      this.registry = null;
+      this.roomAssigner = null;
+      this.waitlist = null;
+      this.roomOptimizer = null;
+    }
+    this.hotelBookingSystem = new HotelBookingSystem(new BookingValidator(clock), roomInventory, journal,
+            BookingMetrics.noop(), confirmations, roomAssigner, bookingLedger, waitlist, null);
+    this.idempotencyCache = new IdempotencyCache(hotelBookingSystem, Duration.ofHours(1), 1_000_000);
+  }
+
+  /**
+   * Runs {@code operations} operations spread evenly over {@code threads} threads, all released at
+   * once, then checks the invariants.
+   */
+  public Result run(int threads, int operations, long seed) throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> workers = new ArrayList<>();
+    List<Throwable> failures = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      SplittableRandom random = new SplittableRandom(seed + i);
+      int count = operations / threads + (i < operations % threads ? 1 : 0);
+      Thread worker = new Thread(() -> {
+        try {
+          start.await();
+          for (int op = 0; op < count; op++) {
+            operate(random);
+          }
+        } catch (Throwable e) {
+          synchronized (failures) {
+            failures.add(e);
+          }
+        }
+      }, "booking-stress-" + i);
+      worker.start();
+      workers.add(worker);
+    }
+    AtomicBoolean done = new AtomicBoolean();
+    Thread optimizer = null;
+    if (roomOptimizer != null) {
+      optimizer = new Thread(() -> {
+        try {
+          start.await();
+          while (!done.get()) {
+            moved.add(roomOptimizer.pass().moved());
+            Thread.sleep(5);
+          }
+        } catch (Throwable e) {
+          synchronized (failures) {
+            failures.add(e);
+          }
+        }
+      }, "booking-stress-optimizer");
+      optimizer.start();
+    }
+    long began = System.nanoTime();
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    long nanos = System.nanoTime() - began;
+    if (optimizer != null) {
+      done.set(true);
+      optimizer.join();
+      // the assigner drains its queue on close, then the waitlist finishes the promotions queued
+      roomOptimizer.close();
+      roomAssigner.close();
+      waitlist.close();
+    }
+
+    List<String> violations = new ArrayList<>();
+    failures.forEach(failure -> violations.add("a thread failed: " + failure));
+    synchronized (keyViolations) {
+      violations.addAll(keyViolations);
+    }
+    check(violations);
+    long promoted = registry != null ? (long) registry.get("hotel.waitlist.promoted").counter().count() : 0;
+    return new Result(threads, operations, nanos, booked.sum(), cancelled.sum(), changed.sum(), replayed.sum(),
+            waitlisted.size(), promoted, moved.sum(), violations);
+  }
+
+  private void operate(SplittableRandom random) {
+    int operation = random.nextInt(100);
+    if (operation < 45) {
+      remember(hotelBookingSystem.processBooking(randomStay(random)));
+    } else if (operation < 60) {
+      int key = random.nextInt(KEYS);
+      ResponseEntity<BookingResponse> response =
+              idempotencyCache.processBooking("stress-" + key, randomStay(new SplittableRandom(key)));
+      if (IdempotencyCache.isTransient(response)) {
+        // not remembered, so a retry may be answered differently
+        return;
+      }
+      if (response.getHeaders().containsKey(IdempotencyCache.REPLAYED_HEADER)) {
+        replayed.increment();
+      } else {
+        remember(response);
+      }
+      int answer = response.getStatusCode().is2xxSuccessful()
+              ? bookingId(response) : -response.getStatusCode().value();
+      Integer first = firstAnswers.putIfAbsent(key, answer);
+      if (first != null && first != answer) {
+        synchronized (keyViolations) {
+          keyViolations.add("key " + key + " was answered with " + answer + " after " + first);
+        }
+      }
+    } else if (operation < 85) {
+      // with a waitlist, half the cancellations take bookings off it and the others free rooms for it
+      int bookingId = waitlist == null ? sharedBookings.get(random.nextInt(SHARED_BOOKINGS))
+              : random.nextBoolean() ? sharedWaitlisted.get(random.nextInt(SHARED_BOOKINGS)) : stayingBooking(random);
+      if (bookingId != 0 && hotelBookingSystem.cancelBooking(bookingId).getStatusCode() == HttpStatus.OK) {
+        cancelled.increment();
+      }
+    } else {
+      int bookingId = waitlist == null ? sharedBookings.get(random.nextInt(SHARED_BOOKINGS)) : stayingBooking(random);
+      if (bookingId != 0 && hotelBookingSystem.modifyBooking(bookingId, randomStay(random)).getStatusCode() == HttpStatus.OK) {
+        changed.increment();
+      }
+    }
+  }
+
+  private void remember(ResponseEntity<BookingResponse> response) {
+    if (response.getStatusCode().is2xxSuccessful()) {
+      booked.increment();
+      int bookingId = bookingId(response);
+      accepted.add(bookingId);
+      if (Status.WAITLISTED.name().equals(response.getBody().getData().getStatus())) {
+        waitlisted.add(bookingId);
+        sharedWaitlisted.set(bookingId % SHARED_BOOKINGS, bookingId);
+      } else {
+        sharedBookings.set(bookingId % SHARED_BOOKINGS, bookingId);
+      }
+    }
+  }
+
+  /**
+   * A booking holding a room on a random night, found through the ledger, or 0 if that night is
+   * free; bookings accepted while rooms are assigned in the background may never get one.
+   */
+  private int stayingBooking(SplittableRandom random) {
+    int roomNumber = roomInventory.getRoom(random.nextInt(roomInventory.getRoomCount())).getNumber();
+    int slot = StaySlots.checkInSlot(firstDay + 1 + random.nextInt(WINDOW_DAYS), LATE_CHECK_IN);
+    List<BookingRecord> stays = bookingLedger.stays(roomNumber, slot, slot + 1);
+    return stays.isEmpty() ? 0 : stays.get(0).getBookingId();
+  }
+
+  private static int bookingId(ResponseEntity<BookingResponse> response) {
+    BookingData data = response.getBody().getData();
+    return data.getBookingId();
+  }
+
+  private ParsedBookingRequest randomStay(SplittableRandom random) {
+    int checkIn = firstDay + 1 + random.nextInt(WINDOW_DAYS);
+    return new ParsedBookingRequest(1 + random.nextInt(4), checkIn, checkIn + 1 + random.nextInt(3),
+            random.nextBoolean() ? CHECK_IN : LATE_CHECK_IN, random.nextBoolean() ? CHECK_OUT : LATE_CHECK_OUT);
+  }
+
+  private void check(List<String> violations) {
+    Comparator<BookingRecord> byRoomAndSlot = Comparator.comparingInt(BookingRecord::getRoomNumber)
+            .thenComparingInt(BookingRecord::getFirstSlot);
+    List<BookingRecord> stays = bookingLedger.stream().sorted(byRoomAndSlot).toList();
+
+    for (int i = 1; i < stays.size(); i++) {
+      BookingRecord before = stays.get(i - 1);
+      BookingRecord after = stays.get(i);
+      if (before.getRoomNumber() == after.getRoomNumber() && before.getEndSlot() > after.getFirstSlot()) {
+        violations.add("room " + after.getRoomNumber() + " is sold twice: bookings " + before.getBookingId()
+                + " and " + after.getBookingId());
+      }
+    }
+
+    for (int room = 0; room < roomInventory.getRoomCount(); room++) {
+      int roomNumber = roomInventory.getRoom(room).getNumber();
+      boolean[] taken = new boolean[roomInventory.getEndSlot() - roomInventory.getFirstSlot()];
+      for (BookingRecord stay : bookingLedger.stays(roomNumber, roomInventory.getFirstSlot(), roomInventory.getEndSlot())) {
+        for (int slot = stay.getFirstSlot(); slot < stay.getEndSlot(); slot++) {
+          taken[slot - roomInventory.getFirstSlot()] = true;
+        }
+      }
+      for (int slot = 0; slot < taken.length; slot++) {
+        int absolute = roomInventory.getFirstSlot() + slot;
+        if (roomInventory.isFree(room, absolute, absolute + 1) == taken[slot]) {
+          violations.add("room " + roomNumber + " on day " + StaySlots.epochDay(absolute) + " is "
+                  + (taken[slot] ? "booked in the ledger but free" : "taken but not booked in the ledger"));
+          break;
+        }
+      }
+    }
+
+    if (roomAssigner == null) {
+      if (bookingLedger.size() != booked.sum() - cancelled.sum()) {
+        violations.add(bookingLedger.size() + " live bookings after " + booked.sum() + " booked and "
+                + cancelled.sum() + " cancelled");
+      }
+    } else {
+      checkConfirmations(violations);
+    }
+
+    BookingLedger recovered = emptyLedger.get();
+    journal.records().forEach(recovered::replayed);
+    if (!recovered.stream().sorted(byRoomAndSlot).toList().equals(stays)) {
+      violations.add("replaying the journal gives " + recovered.size() + " bookings, not the "
+              + stays.size() + " live ones");
+    }
+  }
+
+  /** Checks every accepted booking's last confirmation against the ledger and the waitlist. */
+  private void checkConfirmations(List<String> violations) {
+    long holding = 0;
+    long waiting = 0;
+    for (int bookingId : accepted) {
+      Confirmation confirmation = confirmations.get(bookingId);
+      Status status = confirmation != null ? confirmation.status() : null;
+      BookingRecord stay = bookingLedger.get(bookingId);
+      boolean holdsRoom = status == Status.CONFIRMED || status == Status.RESERVED;
+      if (holdsRoom != (stay != null) || holdsRoom && confirmation.roomNumber() != stay.getRoomNumber()) {
+        violations.add("booking " + bookingId + " is " + status
+                + (holdsRoom ? " in room " + confirmation.roomNumber() : "") + " but the ledger has " + stay);
+      }
+      if (status == Status.PENDING) {
+        violations.add("booking " + bookingId + " is still pending after the assigner drained");
+      }
+      if (holdsRoom) {
+        holding++;
+      } else if (status == Status.WAITLISTED) {
+        waiting++;
+      }
+    }
+    if (bookingLedger.size() != holding) {
+      violations.add(bookingLedger.size() + " live bookings but " + holding + " confirmations holding a room");
+    }
+    if (waitlist.size() != waiting) {
+      violations.add(waitlist.size() + " bookings on the waitlist but " + waiting + " confirmations waitlisted");
+    }
+  }
+
+  /** Keeps every record in memory in the order of its sequence number. */
+  private static final class RecordingJournal implements BookingJournal {
+
+    private final List<BookingRecord> records = new ArrayList<>();
+
+    @Override
+    public synchronized long append(BookingRecord record) {
+      records.add(record);
+      return records.size() - 1;
+    }
+
+    @Override
+    public void awaitDurable(long sequence) {
+    }
+
+    @Override
+    public CompletableFuture<Void> whenDurable(long sequence) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public synchronized long getDurableSequence() {
+      return records.size();
+    }
+
+    synchronized List<BookingRecord> records() {
+      return List.copyOf(records);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookingResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CannedResponsesTest {
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+  @Test
+  @DisplayName("Canned JSON is what Spring's object mapper writes for the same response")
+  void testJsonMatchesObjectMapper() throws IOException {
+    for (BookingRejection rejection : BookingRejection.values()) {
+      // Given
+      byte[] expected = objectMapper.writeValueAsBytes(
+              BookingResponse.builder().message(rejection.getMessage()).build());
+
+      // Call the method under test
+      ResponseEntity<?> serialized = CannedResponses.serialized(CannedResponses.of(rejection));
+
+      // Then
+      assertArrayEquals(expected, CannedResponses.json(rejection));
+      assertSame(CannedResponses.json(rejection), serialized.getBody());
+      assertEquals(HttpStatusCode.valueOf(rejection.getStatus().value()), serialized.getStatusCode());
+      assertEquals(MediaType.APPLICATION_JSON, serialized.getHeaders().getContentType());
+      assertEquals(new String(expected, StandardCharsets.UTF_8),
+              objectMapper.writeValueAsString(CannedResponses.writable(CannedResponses.of(rejection).getBody())));
+    }
+  }
+
+  @Test
+  @DisplayName("Headers added to a canned response are kept")
+  void testSerializedKeepsHeaders() {
+    // Given
+    ResponseEntity<BookingResponse> canned = CannedResponses.of(BookingRejection.NO_ROOM_AVAILABLE);
+    ResponseEntity<BookingResponse> replayed = ResponseEntity.status(canned.getStatusCode())
+            .header(IdempotencyCache.REPLAYED_HEADER, "true")
+            .body(canned.getBody());
+
+    // Call the method under test
+    ResponseEntity<?> serialized = CannedResponses.serialized(replayed);
+
+    // Then
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.CONFLICT.value()), serialized.getStatusCode());
+    assertEquals("true", serialized.getHeaders().getFirst(IdempotencyCache.REPLAYED_HEADER));
+    assertSame(CannedResponses.json(BookingRejection.NO_ROOM_AVAILABLE), serialized.getBody());
+  }
+
+  @Test
+  @DisplayName("Other responses are left alone, and canned ones cannot be changed")
+  void testOtherResponses() {
+    // Given
+    ResponseEntity<BookingResponse> response = ResponseEntity.ok(BookingResponse.builder().message("booked").build());
+    BookingResponse canned = CannedResponses.of(BookingRejection.GUESTS_REQUIRED).getBody();
+
+    // Then
+    assertSame(response, CannedResponses.serialized(response));
+    assertSame(response.getBody(), CannedResponses.writable(response.getBody()));
+    assertThrows(UnsupportedOperationException.class, () -> canned.setMessage("changed"));
+    assertEquals(BookingRejection.GUESTS_REQUIRED.getMessage(), canned.getMessage());
+  }
+}
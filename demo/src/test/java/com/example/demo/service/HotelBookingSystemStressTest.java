@@ -0,0 +1,60 @@
+package com.example.demo.service;
+
+import com.example.demo.service.journal.HeapBookingLedger;
+import com.example.demo.service.journal.OffHeapBookingLedger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotelBookingSystemStressTest {
+
+  private static final int THREADS = 16;
+  private static final int OPERATIONS = 200_000;
+
+  @Test
+  @DisplayName("Concurrent bookings, changes, cancellations and retries never sell a room-night twice")
+  void testConcurrentBookings() throws InterruptedException {
+    // Given
+    BookingStress stress = new BookingStress(HeapBookingLedger::new);
+
+    // Call the method under test
+    BookingStress.Result result = stress.run(THREADS, OPERATIONS, 1);
+
+    // Then
+    assertEquals(List.of(), result.violations());
+    assertTrue(result.booked() > 1000 && result.cancelled() > 1000 && result.changed() > 100
+            && result.replayed() > 1000, result.toString());
+  }
+
+  @Test
+  @DisplayName("Rooms given in the background, a waitlist and moved reservations never sell a room-night twice")
+  void testConcurrentBookingsAssigned() throws InterruptedException {
+    // Given
+    BookingStress stress = new BookingStress(HeapBookingLedger::new, true);
+
+    // Call the method under test
+    BookingStress.Result result = stress.run(THREADS, OPERATIONS, 3);
+
+    // Then
+    assertEquals(List.of(), result.violations());
+    assertTrue(result.booked() > 1000 && result.cancelled() > 1000 && result.waitlisted() > 1000
+            && result.promoted() > 10 && result.moved() > 0, result.toString());
+  }
+
+  @Test
+  @DisplayName("The off-heap ledger stays consistent under the same load")
+  void testConcurrentBookingsOffHeap() throws InterruptedException {
+    // Given
+    BookingStress stress = new BookingStress(OffHeapBookingLedger::new);
+
+    // Call the method under test
+    BookingStress.Result result = stress.run(THREADS, OPERATIONS, 2);
+
+    // Then
+    assertEquals(List.of(), result.violations());
+    assertTrue(result.booked() > 1000 && result.cancelled() > 1000, result.toString());
+  }
+}
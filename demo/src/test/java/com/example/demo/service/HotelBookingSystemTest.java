@@ -3,17 +3,45 @@ package com.example.demo.service;
 import com.example.demo.dto.BookingData;
 import com.example.demo.dto.BookingRequest;
 import com.example.demo.dto.BookingResponse;
+import com.example.demo.service.assignment.BookingConfirmations;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.journal.BookingJournal;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.BookingRecord;
+import com.example.demo.service.journal.HeapBookingLedger;
+import com.example.demo.service.pricing.PricingEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class HotelBookingSystemTest {
@@ -40,6 +68,36 @@ class HotelBookingSystemTest {
   private final String DATE_IN_THE_PAST = "01/01/2000";
   private final String OUT_OF_CHECK_IN_TIME = "06:00";
   private final String OUT_OF_CHECK_OUT_TIME = "20:00";
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Spy
+  private BookingMetrics bookingMetrics = new BookingMetrics(meterRegistry);
+
+  // the valid dates above are only in the future relative to this clock
+  @Spy
+  private BookingValidator bookingValidator =
+          new BookingValidator(Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC), bookingMetrics);
+
+  // a single double room, bookable for three years from the clock above
+  @Spy
+  private RoomInventory roomInventory =
+          new RoomInventory(List.of(new Room(101, 2)), (int) LocalDate.of(2024, 1, 1).toEpochDay(), 1096);
+
+  @Mock
+  private BookingJournal bookingJournal;
+
+  // no room assigner, so rooms are assigned before the response
+  @Spy
+  private BookingConfirmations bookingConfirmations = new BookingConfirmations(1, Duration.ofHours(1), 1000);
+
+  @Spy
+  private BookingLedger bookingLedger = new HeapBookingLedger();
+
+  // 100.00 a night for one guest while the hotel is under half full
+  @Spy
+  private PricingEngine pricingEngine = new PricingEngine(roomInventory, 100_00, 20_00, 0.5, 2.0, 1000, meterRegistry);
+
   @InjectMocks
   private HotelBookingSystem hotelBookingSystem;
 
@@ -69,7 +127,388 @@ class HotelBookingSystemTest {
     assertEquals(VALID_CHECK_OUT_DATE, bookingData.getCheckOutDate());
     assertEquals(VALID_CHECK_IN_TIME_MIN, bookingData.getCheckInTime());
     assertEquals(VALID_CHECK_OUT_TIME_MIN, bookingData.getCheckOutTime());
+    assertEquals(101, bookingData.getRoomNumber());
+    assertEquals(1, bookingData.getBookingId());
+    assertEquals("CONFIRMED", bookingData.getStatus());
+    // 365 nights, quoted before the room was taken
+    assertEquals(new BigDecimal("36500.00"), bookingData.getPrice());
+
+    ArgumentCaptor<BookingRecord> journaled = ArgumentCaptor.forClass(BookingRecord.class);
+    verify(bookingJournal).append(journaled.capture());
+    assertEquals(BookingRecord.BOOKED, journaled.getValue().getType());
+    assertEquals(101, journaled.getValue().getRoomNumber());
+    assertEquals(1, journaled.getValue().getBookingId());
+
+    ResponseEntity<BookingResponse> status = hotelBookingSystem.getBooking(1);
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.OK.value()), status.getStatusCode());
+    assertEquals("Your room number is confirmed.", status.getBody().getMessage());
+    assertEquals(101, status.getBody().getData().getRoomNumber());
+    assertEquals(new BigDecimal("36500.00"), status.getBody().getData().getPrice());
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.NOT_FOUND.value()),
+            hotelBookingSystem.getBooking(2).getStatusCode());
+    assertEquals(LocalDate.of(2024, 10, 10).toEpochDay(), journaled.getValue().getCheckInDate());
+    assertEquals(13 * 60, journaled.getValue().getCheckInTime());
+  }
+
+  @Test
+  @DisplayName("Booking status falls back to the ledger once the confirmation is gone")
+  void testGetBookingFromLedger() {
+    // Given
+    bookingLedger.booked(BookingRecord.builder()
+            .type(BookingRecord.BOOKED)
+            .numberOfGuests(2)
+            .checkInDate((int) LocalDate.of(2024, 10, 10).toEpochDay())
+            .checkOutDate((int) LocalDate.of(2024, 10, 12).toEpochDay())
+            .checkInTime(13 * 60)
+            .checkOutTime(12 * 60)
+            .roomNumber(101)
+            .bookingId(7)
+            .build());
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> response = hotelBookingSystem.getBooking(7);
+
+    // Then
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.OK.value()), response.getStatusCode());
+    assertEquals("Your room number is confirmed.", response.getBody().getMessage());
+    BookingData bookingData = response.getBody().getData();
+    assertEquals(7, bookingData.getBookingId());
+    assertEquals(101, bookingData.getRoomNumber());
+    assertEquals("CONFIRMED", bookingData.getStatus());
+    assertEquals("10/10/2024", bookingData.getCheckInDate());
+    assertEquals("12/10/2024", bookingData.getCheckOutDate());
+    assertNull(bookingData.getPrice());
+  }
+
+  @Test
+  @DisplayName("Outcomes, rejection reasons and stages are metered")
+  void testBookingMetrics() {
+    // Given
+    BookingRequest bookingRequest = BookingRequest
+            .builder()
+            .numberOfGuests(VALID_NUMBER_OF_GUESTS)
+            .checkInDate(VALID_CHECK_IN_DATE)
+            .checkOutDate(VALID_CHECK_OUT_DATE)
+            .checkInTime(VALID_CHECK_IN_TIME_MIN)
+            .checkOutTime(VALID_CHECK_OUT_TIME_MIN)
+            .build();
+    BookingRequest badTimeRequest = BookingRequest
+            .builder()
+            .numberOfGuests(VALID_NUMBER_OF_GUESTS)
+            .checkInDate(VALID_CHECK_IN_DATE)
+            .checkOutDate(VALID_CHECK_OUT_DATE)
+            .checkInTime(OUT_OF_CHECK_IN_TIME)
+            .checkOutTime(VALID_CHECK_OUT_TIME_MIN)
+            .build();
+    // Call the method under test
+    hotelBookingSystem.processBooking(bookingRequest);
+    hotelBookingSystem.processBooking(bookingRequest);
+    hotelBookingSystem.processBooking(badTimeRequest);
+    // Then
+    assertEquals(1, meterRegistry.get("hotel.bookings").tag("outcome", "accepted").counter().count());
+    assertEquals(1, meterRegistry.get("hotel.bookings").tag("reason", "no_room_available").counter().count());
+    assertEquals(1, meterRegistry.get("hotel.bookings").tag("reason", "check_in_time_not_allowed").counter().count());
+    assertEquals(0, meterRegistry.get("hotel.bookings").tag("reason", "guests_required").counter().count());
+    assertEquals(3, meterRegistry.get("hotel.booking.duration").timer().count());
+    assertEquals(3, meterRegistry.get("hotel.booking.stage").tag("stage", "times").timer().count());
+    assertEquals(2, meterRegistry.get("hotel.booking.stage").tag("stage", "ordering").timer().count());
+    assertEquals(2, meterRegistry.get("hotel.booking.stage").tag("stage", "reservation").timer().count());
+    assertEquals(1, meterRegistry.get("hotel.booking.stage").tag("stage", "journal").timer().count());
+  }
+
+  @Test
+  @DisplayName("Booking when the journal cannot save it")
+  void testBookingJournalFailure() {
+    // Given
+    BookingRequest bookingRequest = BookingRequest
+            .builder()
+            .numberOfGuests(VALID_NUMBER_OF_GUESTS)
+            .checkInDate(VALID_CHECK_IN_DATE)
+            .checkOutDate(VALID_CHECK_OUT_DATE)
+            .checkInTime(VALID_CHECK_IN_TIME_MIN)
+            .checkOutTime(VALID_CHECK_OUT_TIME_MIN)
+            .build();
+    when(bookingJournal.append(any())).thenThrow(new UncheckedIOException(new IOException("disk full")));
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> response = hotelBookingSystem.processBooking(bookingRequest);
+
+    // Then
+    assertNotNull(response);
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.SERVICE_UNAVAILABLE.value()), response.getStatusCode());
+    assertNotNull(response.getBody());
+    assertEquals("The booking could not be saved. Please try again.", response.getBody().getMessage());
+    assertNull(response.getBody().getData());
+    // the room was given back
+    assertTrue(roomInventory.isFree(0, roomInventory.getFirstSlot(), roomInventory.getEndSlot()));
+  }
+
+  @Test
+  @DisplayName("Booking without blocking completes once the journal is durable")
+  void testBookingAsync() {
+    // Given
+    BookingRequest bookingRequest = BookingRequest
+            .builder()
+            .numberOfGuests(VALID_NUMBER_OF_GUESTS)
+            .checkInDate(VALID_CHECK_IN_DATE)
+            .checkOutDate(VALID_CHECK_OUT_DATE)
+            .checkInTime(VALID_CHECK_IN_TIME_MIN)
+            .checkOutTime(VALID_CHECK_OUT_TIME_MIN)
+            .build();
+    CompletableFuture<Void> durable = new CompletableFuture<>();
+    when(bookingJournal.whenDurable(anyLong())).thenReturn(durable);
+
+    // Call the method under test
+    CompletableFuture<ResponseEntity<BookingResponse>> response = hotelBookingSystem.processBookingAsync(bookingRequest);
+
+    // Then
+    assertFalse(response.isDone());
+    durable.complete(null);
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.OK.value()), response.join().getStatusCode());
+    assertEquals(101, response.join().getBody().getData().getRoomNumber());
+  }
+
+  @Test
+  @DisplayName("Booking without blocking when the journal cannot flush it")
+  void testBookingAsyncJournalFailure() {
+    // Given
+    BookingRequest bookingRequest = BookingRequest
+            .builder()
+            .numberOfGuests(VALID_NUMBER_OF_GUESTS)
+            .checkInDate(VALID_CHECK_IN_DATE)
+            .checkOutDate(VALID_CHECK_OUT_DATE)
+            .checkInTime(VALID_CHECK_IN_TIME_MIN)
+            .checkOutTime(VALID_CHECK_OUT_TIME_MIN)
+            .build();
+    when(bookingJournal.whenDurable(anyLong()))
+            .thenReturn(CompletableFuture.failedFuture(new UncheckedIOException(new IOException("disk full"))));
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> response = hotelBookingSystem.processBookingAsync(bookingRequest).join();
+
+    // Then
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.SERVICE_UNAVAILABLE.value()), response.getStatusCode());
+    assertEquals("The booking could not be saved. Please try again.", response.getBody().getMessage());
+    assertTrue(roomInventory.isFree(0, roomInventory.getFirstSlot(), roomInventory.getEndSlot()));
+  }
+
+  @Test
+  @DisplayName("Booking when no room is free for the stay")
+  void testBookingNoRoomAvailable() {
+    // Given
+    BookingRequest bookingRequest = BookingRequest
+            .builder()
+            .numberOfGuests(VALID_NUMBER_OF_GUESTS)
+            .checkInDate(VALID_CHECK_IN_DATE)
+            .checkOutDate(VALID_CHECK_OUT_DATE)
+            .checkInTime(VALID_CHECK_IN_TIME_MIN)
+            .checkOutTime(VALID_CHECK_OUT_TIME_MIN)
+            .build();
+    hotelBookingSystem.processBooking(bookingRequest);
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> response = hotelBookingSystem.processBooking(bookingRequest);
+
+    // Then
+    assertNotNull(response);
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.CONFLICT.value()), response.getStatusCode());
+    assertNotNull(response.getBody());
+    assertEquals("No room is available for the selected dates and number of guests.", response.getBody().getMessage());
+    assertNull(response.getBody().getData());
+  }
+
+  @Test
+  @DisplayName("Cancelling a booking frees its room")
+  void testCancelBooking() {
+    // Given
+    BookingRequest bookingRequest = BookingRequest
+            .builder()
+            .numberOfGuests(VALID_NUMBER_OF_GUESTS)
+            .checkInDate(VALID_CHECK_IN_DATE)
+            .checkOutDate(VALID_CHECK_OUT_DATE)
+            .checkInTime(VALID_CHECK_IN_TIME_MIN)
+            .checkOutTime(VALID_CHECK_OUT_TIME_MIN)
+            .build();
+    hotelBookingSystem.processBooking(bookingRequest);
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> response = hotelBookingSystem.cancelBooking(1);
+
+    // Then
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.OK.value()), response.getStatusCode());
+    assertEquals("Your booking is cancelled.", response.getBody().getMessage());
+    assertEquals("CANCELLED", response.getBody().getData().getStatus());
+    assertNull(response.getBody().getData().getRoomNumber());
+    assertTrue(roomInventory.isFree(0, roomInventory.getFirstSlot(), roomInventory.getEndSlot()));
+    assertNull(bookingLedger.get(1));
+
+    ArgumentCaptor<BookingRecord> journaled = ArgumentCaptor.forClass(BookingRecord.class);
+    verify(bookingJournal, times(2)).append(journaled.capture());
+    assertEquals(BookingRecord.RELEASED, journaled.getValue().getType());
+    assertEquals(101, journaled.getValue().getRoomNumber());
+    assertEquals(1, journaled.getValue().getBookingId());
+
+    assertEquals("CANCELLED", hotelBookingSystem.getBooking(1).getBody().getData().getStatus());
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.NOT_FOUND.value()),
+            hotelBookingSystem.cancelBooking(1).getStatusCode());
+  }
+
+  @Test
+  @DisplayName("Changing a booking keeps its room and releases only the nights it no longer needs")
+  void testModifyBooking() {
+    // Given
+    BookingRequest bookingRequest = BookingRequest
+            .builder()
+            .numberOfGuests(VALID_NUMBER_OF_GUESTS)
+            .checkInDate(VALID_CHECK_IN_DATE)
+            .checkOutDate("14/10/2024")
+            .checkInTime(VALID_CHECK_IN_TIME_MIN)
+            .checkOutTime(VALID_CHECK_OUT_TIME_MIN)
+            .build();
+    hotelBookingSystem.processBooking(bookingRequest);
+    int checkIn = (int) LocalDate.of(2024, 10, 10).toEpochDay();
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> response = hotelBookingSystem.modifyBooking(1, ParsedBookingRequest.of(
+            BookingRequest.builder().numberOfGuests("2").checkInDate("11/10/2024").build()));
+
+    // Then
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.OK.value()), response.getStatusCode());
+    assertEquals("Your booking is changed.", response.getBody().getMessage());
+    BookingData bookingData = response.getBody().getData();
+    assertEquals(2, bookingData.getNumberOfGuests());
+    assertEquals("11/10/2024", bookingData.getCheckInDate());
+    assertEquals("14/10/2024", bookingData.getCheckOutDate());
+    assertEquals(101, bookingData.getRoomNumber());
+    assertEquals("CONFIRMED", bookingData.getStatus());
+
+    // the first night is free again, the rest still taken
+    assertTrue(roomInventory.isFree(0, 2 * checkIn, 2 * checkIn + 2));
+    assertFalse(roomInventory.isFree(0, 2 * checkIn + 2, 2 * checkIn + 3));
+    assertEquals(2 * checkIn + 2, bookingLedger.get(1).getFirstSlot());
+
+    ArgumentCaptor<BookingRecord> journaled = ArgumentCaptor.forClass(BookingRecord.class);
+    verify(bookingJournal, times(3)).append(journaled.capture());
+    BookingRecord booked = journaled.getAllValues().get(1);
+    BookingRecord released = journaled.getAllValues().get(2);
+    assertEquals(BookingRecord.BOOKED, booked.getType());
+    assertEquals(checkIn + 1, booked.getCheckInDate());
+    assertEquals(BookingRecord.RELEASED, released.getType());
+    assertEquals(2 * checkIn, released.getFirstSlot());
+    assertEquals(2 * checkIn + 2, released.getEndSlot());
+  }
+
+  @Test
+  @DisplayName("Changing a booking into one that would be rejected leaves it as it was")
+  void testModifyBookingRejected() {
+    // Given
+    BookingRequest bookingRequest = BookingRequest
+            .builder()
+            .numberOfGuests(VALID_NUMBER_OF_GUESTS)
+            .checkInDate(VALID_CHECK_IN_DATE)
+            .checkOutDate("14/10/2024")
+            .checkInTime(VALID_CHECK_IN_TIME_MIN)
+            .checkOutTime(VALID_CHECK_OUT_TIME_MIN)
+            .build();
+    hotelBookingSystem.processBooking(bookingRequest);
+    BookingRecord stay = bookingLedger.get(1);
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> badTime = hotelBookingSystem.modifyBooking(1, ParsedBookingRequest.of(
+            BookingRequest.builder().checkInTime(OUT_OF_CHECK_IN_TIME).build()));
+    ResponseEntity<BookingResponse> tooMany = hotelBookingSystem.modifyBooking(1, ParsedBookingRequest.of(
+            BookingRequest.builder().numberOfGuests("3").build()));
+    ResponseEntity<BookingResponse> unknown = hotelBookingSystem.modifyBooking(2, ParsedBookingRequest.of(
+            BookingRequest.builder().numberOfGuests("2").build()));
+
+    // Then
+    assertEquals("Check-in time must be 13:00 or 19:00.", badTime.getBody().getMessage());
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.CONFLICT.value()), tooMany.getStatusCode());
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.NOT_FOUND.value()), unknown.getStatusCode());
+    assertSame(stay, bookingLedger.get(1));
+    assertFalse(roomInventory.isFree(0, stay.getFirstSlot(), stay.getEndSlot()));
+    verify(bookingJournal, times(1)).append(any());
+  }
+
+  @Test
+  @DisplayName("Booking when the party is larger than every room")
+  void testBookingNoRoomLargeEnough() {
+    // Given
+    BookingRequest bookingRequest = BookingRequest
+            .builder()
+            .numberOfGuests("3")
+            .checkInDate(VALID_CHECK_IN_DATE)
+            .checkOutDate(VALID_CHECK_OUT_DATE)
+            .checkInTime(VALID_CHECK_IN_TIME_MIN)
+            .checkOutTime(VALID_CHECK_OUT_TIME_MIN)
+            .build();
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> response = hotelBookingSystem.processBooking(bookingRequest);
+
+    // Then
+    assertNotNull(response);
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.CONFLICT.value()), response.getStatusCode());
+    assertNotNull(response.getBody());
+    assertEquals("No room is available for the selected dates and number of guests.", response.getBody().getMessage());
+    assertNull(response.getBody().getData());
+  }
+
+  @Test
+  @DisplayName("Booking when check-out date is past the booking horizon")
+  void testBookingBeyondHorizon() {
+    // Given
+    BookingRequest bookingRequest = BookingRequest
+            .builder()
+            .numberOfGuests(VALID_NUMBER_OF_GUESTS)
+            .checkInDate(VALID_CHECK_IN_DATE)
+            .checkOutDate("10/10/2030")
+            .checkInTime(VALID_CHECK_IN_TIME_MIN)
+            .checkOutTime(VALID_CHECK_OUT_TIME_MIN)
+            .build();
 
+    // Call the method under test
+    ResponseEntity<BookingResponse> response = hotelBookingSystem.processBooking(bookingRequest);
+
+    // Then
+    assertNotNull(response);
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.BAD_REQUEST.value()), response.getStatusCode());
+    assertNotNull(response.getBody());
+    assertEquals("Check-out date is too far in the future.", response.getBody().getMessage());
+    assertNull(response.getBody().getData());
+  }
+
+  @Test
+  @DisplayName("Booking with a five-digit year is read as the formatter read it")
+  void testBookingFiveDigitYear() {
+    // Given
+    BookingRequest signed = BookingRequest
+            .builder()
+            .numberOfGuests(VALID_NUMBER_OF_GUESTS)
+            .checkInDate(VALID_CHECK_IN_DATE)
+            .checkOutDate("10/10/+12024")
+            .checkInTime(VALID_CHECK_IN_TIME_MIN)
+            .checkOutTime(VALID_CHECK_OUT_TIME_MIN)
+            .build();
+    BookingRequest unsigned = BookingRequest
+            .builder()
+            .numberOfGuests(VALID_NUMBER_OF_GUESTS)
+            .checkInDate(VALID_CHECK_IN_DATE)
+            .checkOutDate("10/10/12024")
+            .checkInTime(VALID_CHECK_IN_TIME_MIN)
+            .checkOutTime(VALID_CHECK_OUT_TIME_MIN)
+            .build();
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> signedResponse = hotelBookingSystem.processBooking(signed);
+    ResponseEntity<BookingResponse> unsignedResponse = hotelBookingSystem.processBooking(unsigned);
+
+    // Then
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.BAD_REQUEST.value()), signedResponse.getStatusCode());
+    assertEquals("Check-out date is too far in the future.", signedResponse.getBody().getMessage());
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.BAD_REQUEST.value()), unsignedResponse.getStatusCode());
+    assertEquals("Invalid date format. Please enter date in dd/mm/yyyy format.",
+            unsignedResponse.getBody().getMessage());
   }
 
   @Test
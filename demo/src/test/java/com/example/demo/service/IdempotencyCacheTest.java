@@ -0,0 +1,196 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookingRequest;
+import com.example.demo.dto.BookingResponse;
+import com.example.demo.dto.IdempotencyStats;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyCacheTest {
+
+  private final ParsedBookingRequest bookingRequest = request("1");
+
+  private final ResponseEntity<BookingResponse> booked =
+          ResponseEntity.ok(BookingResponse.builder().message("booked").build());
+
+  @Mock
+  private HotelBookingSystem hotelBookingSystem;
+
+  private static ParsedBookingRequest request(String numberOfGuests) {
+    return ParsedBookingRequest.of(BookingRequest
+            .builder()
+            .numberOfGuests(numberOfGuests)
+            .checkInDate("10/10/2024")
+            .checkOutDate("12/10/2024")
+            .checkInTime("13:00")
+            .checkOutTime("12:00")
+            .build());
+  }
+
+  @Test
+  @DisplayName("Retry with the same key replays the original response")
+  void testRetryReplaysResponse() {
+    // Given
+    when(hotelBookingSystem.processBooking(bookingRequest)).thenReturn(booked);
+    IdempotencyCache idempotencyCache = new IdempotencyCache(hotelBookingSystem, Duration.ofHours(1), 100);
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> first = idempotencyCache.processBooking("key-1", bookingRequest);
+    ResponseEntity<BookingResponse> retry = idempotencyCache.processBooking("key-1", request("1"));
+
+    // Then
+    verify(hotelBookingSystem, times(1)).processBooking(bookingRequest);
+    assertSame(booked, first);
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.OK.value()), retry.getStatusCode());
+    assertSame(booked.getBody(), retry.getBody());
+    assertEquals("true", retry.getHeaders().getFirst(IdempotencyCache.REPLAYED_HEADER));
+    IdempotencyStats stats = idempotencyCache.getStats();
+    assertEquals(1, stats.getHits());
+    assertEquals(1, stats.getMisses());
+  }
+
+  @Test
+  @DisplayName("Same key with a different booking is refused")
+  void testKeyReusedForDifferentRequest() {
+    // Given
+    when(hotelBookingSystem.processBooking(bookingRequest)).thenReturn(booked);
+    IdempotencyCache idempotencyCache = new IdempotencyCache(hotelBookingSystem, Duration.ofHours(1), 100);
+    idempotencyCache.processBooking("key-1", bookingRequest);
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> response =
+            idempotencyCache.processBooking("key-1", request("2"));
+
+    // Then
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.UNPROCESSABLE_ENTITY.value()), response.getStatusCode());
+    assertEquals(IdempotencyCache.KEY_REUSED_MESSAGE, response.getBody().getMessage());
+    verify(hotelBookingSystem, times(1)).processBooking(any(ParsedBookingRequest.class));
+  }
+
+  @Test
+  @DisplayName("Concurrent duplicates are processed once")
+  void testConcurrentDuplicatesCoalesce() throws Exception {
+    // Given
+    CountDownLatch processing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(hotelBookingSystem.processBooking(bookingRequest)).thenAnswer(invocation -> {
+      processing.countDown();
+      release.await();
+      return booked;
+    });
+    IdempotencyCache idempotencyCache = new IdempotencyCache(hotelBookingSystem, Duration.ofHours(1), 100);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    // Call the method under test
+    List<Future<ResponseEntity<BookingResponse>>> responses = new ArrayList<>();
+    responses.add(executor.submit(() -> idempotencyCache.processBooking("key-1", bookingRequest)));
+    assertTrue(processing.await(5, TimeUnit.SECONDS));
+    for (int i = 0; i < 7; i++) {
+      responses.add(executor.submit(() -> idempotencyCache.processBooking("key-1", bookingRequest)));
+    }
+    release.countDown();
+
+    // Then
+    for (Future<ResponseEntity<BookingResponse>> response : responses) {
+      assertSame(booked.getBody(), response.get(5, TimeUnit.SECONDS).getBody());
+    }
+    executor.shutdown();
+    verify(hotelBookingSystem, times(1)).processBooking(bookingRequest);
+    assertEquals(7, idempotencyCache.getStats().getHits());
+  }
+
+  @Test
+  @DisplayName("Failed attempt is not remembered")
+  void testFailureIsNotCached() {
+    // Given
+    when(hotelBookingSystem.processBooking(bookingRequest))
+            .thenThrow(new IllegalStateException("down"))
+            .thenReturn(booked);
+    IdempotencyCache idempotencyCache = new IdempotencyCache(hotelBookingSystem, Duration.ofHours(1), 100);
+
+    // Call the method under test
+    assertThrows(IllegalStateException.class, () -> idempotencyCache.processBooking("key-1", bookingRequest));
+    ResponseEntity<BookingResponse> retry = idempotencyCache.processBooking("key-1", bookingRequest);
+
+    // Then
+    assertSame(booked, retry);
+    verify(hotelBookingSystem, times(2)).processBooking(bookingRequest);
+  }
+
+  @Test
+  @DisplayName("Transient failure response is not remembered")
+  void testTransientResponseIsNotCached() {
+    // Given
+    ResponseEntity<BookingResponse> notSaved = CannedResponses.of(BookingRejection.NOT_SAVED);
+    ResponseEntity<BookingResponse> overloaded = CannedResponses.of(BookingRejection.OVERLOADED);
+    when(hotelBookingSystem.processBooking(bookingRequest))
+            .thenReturn(notSaved)
+            .thenReturn(overloaded)
+            .thenReturn(booked);
+    IdempotencyCache idempotencyCache = new IdempotencyCache(hotelBookingSystem, Duration.ofHours(1), 100);
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> first = idempotencyCache.processBooking("key-1", bookingRequest);
+    ResponseEntity<BookingResponse> second = idempotencyCache.processBooking("key-1", bookingRequest);
+    ResponseEntity<BookingResponse> third = idempotencyCache.processBooking("key-1", bookingRequest);
+    ResponseEntity<BookingResponse> replay = idempotencyCache.processBooking("key-1", bookingRequest);
+
+    // Then
+    assertSame(notSaved, first);
+    assertSame(overloaded, second);
+    assertSame(booked, third);
+    assertSame(booked.getBody(), replay.getBody());
+    assertEquals("true", replay.getHeaders().getFirst(IdempotencyCache.REPLAYED_HEADER));
+    verify(hotelBookingSystem, times(3)).processBooking(bookingRequest);
+    assertEquals(3, idempotencyCache.getStats().getMisses());
+  }
+
+  @Test
+  @DisplayName("Size bound evicts old keys")
+  void testSizeBound() {
+    // Given
+    when(hotelBookingSystem.processBooking(bookingRequest)).thenReturn(booked);
+    IdempotencyCache idempotencyCache = new IdempotencyCache(hotelBookingSystem, Duration.ofHours(1), 10);
+
+    // Call the method under test
+    for (int i = 0; i < 1000; i++) {
+      idempotencyCache.processBooking("key-" + i, bookingRequest);
+    }
+
+    // Then
+    IdempotencyStats stats = idempotencyCache.getStats();
+    assertTrue(stats.getSize() <= 10, "size " + stats.getSize());
+    assertEquals(1000, stats.getMisses());
+    assertEquals(1000 - stats.getSize(), stats.getEvictions());
+  }
+
+  @Test
+  @DisplayName("Overlong key is refused")
+  void testKeyTooLong() {
+    IdempotencyCache idempotencyCache = new IdempotencyCache(hotelBookingSystem, Duration.ofHours(1), 10);
+
+    ResponseEntity<BookingResponse> response = idempotencyCache.processBooking("k".repeat(256), bookingRequest);
+
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.BAD_REQUEST.value()), response.getStatusCode());
+    verifyNoInteractions(hotelBookingSystem);
+  }
+}
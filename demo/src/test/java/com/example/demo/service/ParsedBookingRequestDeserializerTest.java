@@ -0,0 +1,93 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookingRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParsedBookingRequestDeserializerTest {
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+  private final BookingValidator bookingValidator =
+          new BookingValidator(Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC));
+
+  @Test
+  @DisplayName("Parsed fields validate exactly as the string fields do")
+  void testSameValidationAsStrings() throws IOException {
+    String[] bodies = {
+            "{\"numberOfGuests\":\"2\",\"checkInDate\":\"10/10/2024\",\"checkOutDate\":\"12/10/2024\","
+                    + "\"checkInTime\":\"13:00\",\"checkOutTime\":\"12:00\"}",
+            "{\"numberOfGuests\":2,\"checkInDate\":\"31/02/2024\",\"checkOutDate\":\"02/03/2024\","
+                    + "\"checkInTime\":\"19:00\",\"checkOutTime\":\"18:00\"}",
+            "{\"numberOfGuests\":\"+02\",\"checkInDate\":\"10/10/2024\",\"checkOutDate\":\"10/10/2024\","
+                    + "\"checkInTime\":\"19:00\",\"checkOutTime\":\"12:00\"}",
+            "{\"numberOfGuests\":2.5}",
+            "{\"numberOfGuests\":true}",
+            "{\"numberOfGuests\":null,\"checkInDate\":\"10/10/2024\"}",
+            "{\"numberOfGuests\":\"\"}",
+            "{\"numberOfGuests\":\"1\",\"checkInDate\":20241010}",
+            "{\"numberOfGuests\":\"1\",\"checkInDate\":\"10/10/2023\"}",
+            "{\"numberOfGuests\":\"1\",\"checkInDate\":\"10/10/2024\",\"checkOutDate\":null}",
+            "{\"numberOfGuests\":\"1\",\"checkInDate\":\"10/10/2024\",\"checkOutDate\":\"12/10/2024\","
+                    + "\"checkInTime\":\"24:00\"}",
+            "{\"numberOfGuests\":\"1\",\"checkInDate\":\"10/10/2024\",\"checkOutDate\":\"12/10/2024\","
+                    + "\"checkInTime\":\"13:00\",\"checkOutTime\":\"8:00 AM\"}",
+            "{\"comment\":{\"nested\":[1,2,{\"numberOfGuests\":\"3\"}]},\"numberOfGuests\":\"1\",\"numberOfGuests\":\"0\"}",
+            "{}",
+    };
+    for (String body : bodies) {
+      // Call the method under test
+      ParsedBookingRequest parsed = objectMapper.readValue(body, ParsedBookingRequest.class);
+      BookingRequest strings = objectMapper.readValue(body, BookingRequest.class);
+
+      // Then
+      assertEquals(ParsedBookingRequest.of(strings), parsed, body);
+      BookingValidation expected = bookingValidator.validate(strings);
+      BookingValidation actual = bookingValidator.validate(parsed);
+      assertEquals(expected.getRejection(), actual.getRejection(), body);
+      assertEquals(expected.getCheckInDate(), actual.getCheckInDate(), body);
+    }
+  }
+
+  @Test
+  @DisplayName("Objects and arrays in a field are rejected as for the string fields")
+  void testStructuredValues() {
+    for (String body : new String[]{"{\"numberOfGuests\":{\"n\":1}}", "{\"checkInDate\":[\"10/10/2024\"]}", "[]"}) {
+      assertThrows(MismatchedInputException.class, () -> objectMapper.readValue(body, BookingRequest.class), body);
+      assertThrows(MismatchedInputException.class,
+              () -> objectMapper.readValue(body, ParsedBookingRequest.class), body);
+    }
+  }
+
+  @Test
+  @DisplayName("Unknown properties fail only when the mapper is configured to fail on them")
+  void testUnknownProperties() throws IOException {
+    String body = "{\"numberOfGuests\":\"1\",\"room\":\"101\"}";
+
+    assertEquals(1, objectMapper.readValue(body, ParsedBookingRequest.class).numberOfGuests());
+    assertThrows(UnrecognizedPropertyException.class,
+            () -> new ObjectMapper().readValue(body, ParsedBookingRequest.class));
+  }
+
+  @Test
+  @DisplayName("Formatting a parsed date or time gives back its canonical text")
+  void testFormat() {
+    assertEquals("05/03/2024", BookingFormats.formatDate((int) LocalDate.of(2024, 3, 5).toEpochDay()));
+    assertEquals("31/12/0999", BookingFormats.formatDate((int) LocalDate.of(999, 12, 31).toEpochDay()));
+    assertEquals("29/02/2024", BookingFormats.formatDate(BookingFormats.parseDate("31/02/2024")));
+    assertEquals("19:00", BookingFormats.formatTime(BookingFormats.parseTime("19:00")));
+    assertEquals("00:05", BookingFormats.formatTime(5));
+  }
+}
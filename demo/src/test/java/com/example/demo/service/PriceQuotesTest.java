@@ -0,0 +1,61 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.NightPrice;
+import com.example.demo.dto.QuoteResponse;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.pricing.PricingEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceQuotesTest {
+
+  private final RoomInventory roomInventory =
+          new RoomInventory(List.of(new Room(101, 2)), (int) LocalDate.of(2024, 1, 1).toEpochDay(), 365);
+
+  private final PriceQuotes priceQuotes = new PriceQuotes(
+          new BookingValidator(Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC)), roomInventory,
+          new PricingEngine(roomInventory, 100_00, 20_00, 0.5, 2.0, 1000, new SimpleMeterRegistry()));
+
+  @Test
+  @DisplayName("Quoting a stay prices each night")
+  void testQuote() {
+    // Call the method under test
+    ResponseEntity<QuoteResponse> response = priceQuotes.quote("08/01/2024", "10/01/2024", "2");
+
+    // Then
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.OK.value()), response.getStatusCode());
+    assertEquals(List.of(
+            new NightPrice("08/01/2024", new BigDecimal("120.00")),
+            new NightPrice("09/01/2024", new BigDecimal("120.00"))), response.getBody().getNights());
+    assertEquals(new BigDecimal("240.00"), response.getBody().getTotal());
+    assertEquals(2, response.getBody().getNumberOfGuests());
+  }
+
+  @Test
+  @DisplayName("Quoting stays in the past, backwards or beyond the horizon")
+  void testQuoteRejected() {
+    // Then
+    assertEquals(BookingRejection.CHECK_IN_DATE_IN_PAST.getMessage(),
+            priceQuotes.quote("31/12/2023", "02/01/2024", "2").getBody().getMessage());
+    assertEquals(BookingRejection.CHECK_IN_DATE_AFTER_CHECK_OUT.getMessage(),
+            priceQuotes.quote("05/01/2024", "02/01/2024", "2").getBody().getMessage());
+    assertEquals(BookingRejection.CHECK_OUT_DATE_BEYOND_HORIZON.getMessage(),
+            priceQuotes.quote("30/12/2024", "01/01/2025", "2").getBody().getMessage());
+    assertEquals(BookingRejection.GUESTS_NOT_POSITIVE.getMessage(),
+            priceQuotes.quote("02/01/2024", "03/01/2024", "0").getBody().getMessage());
+  }
+}
@@ -0,0 +1,116 @@
+package com.example.demo.service.admission;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientRateLimiterTest {
+
+  private final AtomicLong nanoTime = new AtomicLong(1_000_000_000L);
+
+  @Test
+  @DisplayName("A client gets its burst at once, then tokens at the refill rate")
+  void testBurstThenRefill() {
+    // Given
+    ClientRateLimiter limiter = new ClientRateLimiter(10, 5, 1024, nanoTime::get);
+
+    // Call the method under test
+    for (int i = 0; i < 5; i++) {
+      assertEquals(0, limiter.tryAcquire("client-a"));
+    }
+    long wait = limiter.tryAcquire("client-a");
+
+    // Then
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait);
+    nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(99));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(1), limiter.tryAcquire("client-a"));
+    nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+    assertEquals(0, limiter.tryAcquire("client-a"));
+    assertTrue(limiter.tryAcquire("client-a") > 0);
+
+    // an idle client's bucket fills up again, but no further than the burst
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(60));
+    for (int i = 0; i < 5; i++) {
+      assertEquals(0, limiter.tryAcquire("client-a"));
+    }
+    assertTrue(limiter.tryAcquire("client-a") > 0);
+  }
+
+  @Test
+  @DisplayName("One client running out does not limit another")
+  void testClientsAreIndependent() {
+    // Given
+    ClientRateLimiter limiter = new ClientRateLimiter(1, 2, 1024, nanoTime::get);
+    limiter.tryAcquire("10.0.0.1");
+    limiter.tryAcquire("10.0.0.1");
+
+    // Then
+    assertTrue(limiter.tryAcquire("10.0.0.1") > 0);
+    assertEquals(0, limiter.tryAcquire("10.0.0.2"));
+    assertEquals(0, limiter.tryAcquire("10.0.0.2"));
+  }
+
+  @Test
+  @DisplayName("Far more clients than slots are served while they take turns")
+  void testMoreClientsThanSlots() {
+    // Given
+    ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 16, nanoTime::get);
+
+    // Call the method under test
+    int admitted = 0;
+    for (int i = 0; i < 100_000; i++) {
+      if (limiter.tryAcquire("client-" + i) == 0) {
+        admitted++;
+      }
+      // each client is idle again by the time the next one arrives
+      nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    // Then
+    assertEquals(100_000, admitted);
+  }
+
+  @Test
+  @DisplayName("Concurrent requests from one client never take more than the burst")
+  void testConcurrentRequests() throws Exception {
+    // Given
+    ClientRateLimiter limiter = new ClientRateLimiter(1, 50, 1024, nanoTime::get);
+    int threads = 8;
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Integer>> futures = new ArrayList<>();
+
+    // Call the method under test
+    try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          int admitted = 0;
+          for (int i = 0; i < 1000; i++) {
+            if (limiter.tryAcquire("client-a") == 0) {
+              admitted++;
+            }
+          }
+          return admitted;
+        }));
+      }
+      start.countDown();
+
+      // Then
+      int admitted = 0;
+      for (Future<Integer> future : futures) {
+        admitted += future.get();
+      }
+      assertEquals(50, admitted);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.service.admission;
+
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.BookingRejection;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+
+  @Test
+  @DisplayName("Requests over the limit are shed until one in flight is released")
+  void testLimit() {
+    // Given
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(2);
+
+    // Then
+    assertTrue(limiter.tryAcquire());
+    assertTrue(limiter.tryAcquire());
+    assertFalse(limiter.tryAcquire());
+    assertEquals(2, limiter.getInFlight());
+    limiter.release();
+    assertTrue(limiter.tryAcquire());
+  }
+
+  @Test
+  @DisplayName("Admission checks the client's rate before the server's capacity")
+  void testAdmissionControl() {
+    // Given
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(1);
+    AdmissionControl admissionControl = new AdmissionControl(
+            new ClientRateLimiter(0.5, 1, 64), concurrencyLimiter, BookingMetrics.noop());
+
+    // Call the method under test
+    AdmissionControl.Decision first = admissionControl.admit("client-a");
+    AdmissionControl.Decision rateLimited = admissionControl.admit("client-a");
+    AdmissionControl.Decision overloaded = admissionControl.admit("client-b");
+    admissionControl.release();
+    AdmissionControl.Decision afterRelease = admissionControl.admit("client-c");
+
+    // Then
+    assertTrue(first.isAdmitted());
+    assertEquals(BookingRejection.RATE_LIMITED, rateLimited.rejection());
+    assertEquals(2, rateLimited.retryAfterSeconds());
+    assertEquals(BookingRejection.OVERLOADED, overloaded.rejection());
+    assertEquals(AdmissionControl.OVERLOADED_RETRY_AFTER_SECONDS, overloaded.retryAfterSeconds());
+    assertTrue(afterRelease.isAdmitted());
+    assertEquals(1, concurrencyLimiter.getInFlight());
+  }
+}
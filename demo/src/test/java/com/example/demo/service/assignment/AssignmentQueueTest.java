@@ -0,0 +1,77 @@
+package com.example.demo.service.assignment;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentQueueTest {
+
+  @Test
+  @DisplayName("Items come out in order, and a full queue turns new ones away")
+  void testOrderAndCapacity() {
+    // Given
+    AssignmentQueue<Integer> queue = new AssignmentQueue<>(3);
+    Integer[] batch = new Integer[8];
+
+    // Then
+    assertEquals(4, queue.capacity());
+    for (int i = 0; i < 4; i++) {
+      assertTrue(queue.offer(i));
+    }
+    assertFalse(queue.offer(4));
+    assertEquals(4, queue.size());
+
+    assertEquals(3, queue.drainTo(batch, 3));
+    assertArrayEquals(new Integer[] {0, 1, 2}, new Integer[] {batch[0], batch[1], batch[2]});
+    assertTrue(queue.offer(5));
+    assertEquals(2, queue.drainTo(batch, 8));
+    assertEquals(3, batch[0]);
+    assertEquals(5, batch[1]);
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Every item offered by concurrent producers is drained exactly once")
+  void testConcurrentProducers() throws InterruptedException {
+    // Given
+    AssignmentQueue<Integer> queue = new AssignmentQueue<>(64);
+    int producers = 4;
+    int perProducer = 5_000;
+    Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      int first = p * perProducer;
+      threads[p] = new Thread(() -> {
+        for (int i = first; i < first + perProducer; i++) {
+          while (!queue.offer(i)) {
+            Thread.yield();
+          }
+        }
+      });
+      threads[p].start();
+    }
+
+    // Call the method under test
+    Set<Integer> drained = new HashSet<>();
+    Integer[] batch = new Integer[16];
+    while (drained.size() < producers * perProducer) {
+      int count = queue.drainTo(batch, batch.length);
+      if (count == 0) {
+        Thread.yield();
+      }
+      for (int i = 0; i < count; i++) {
+        assertTrue(drained.add(batch[i]));
+      }
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // Then
+    assertTrue(queue.isEmpty());
+    assertEquals(0, queue.size());
+  }
+}
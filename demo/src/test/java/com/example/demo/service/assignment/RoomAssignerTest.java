@@ -0,0 +1,157 @@
+package com.example.demo.service.assignment;
+
+import com.example.demo.dto.BookingRequest;
+import com.example.demo.dto.BookingResponse;
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.BookingRejection;
+import com.example.demo.service.BookingValidator;
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.journal.HeapBookingLedger;
+import com.example.demo.service.journal.NoopBookingJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomAssignerTest {
+
+  private static final int CHECK_IN_DAY = (int) LocalDate.of(2024, 10, 10).toEpochDay();
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final RoomInventory roomInventory =
+          new RoomInventory(List.of(new Room(101, 2)), (int) LocalDate.of(2024, 1, 1).toEpochDay(), 1096);
+  private final BookingConfirmations confirmations = new BookingConfirmations(1, Duration.ofHours(1), 1000);
+  private final RoomAssigner roomAssigner =
+          new RoomAssigner(roomInventory, new NoopBookingJournal(), confirmations, meterRegistry, 16, 4);
+
+  @AfterEach
+  void close() {
+    roomAssigner.close();
+  }
+
+  private static PendingBooking booking(int bookingId) {
+    return new PendingBooking(bookingId, 2, CHECK_IN_DAY, CHECK_IN_DAY + 2, 13 * 60, 12 * 60,
+        PendingBooking.UNPRICED, System.nanoTime());
+  }
+
+  private BookingConfirmations.Confirmation awaitAssigned(int bookingId) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (System.nanoTime() < deadline) {
+      BookingConfirmations.Confirmation confirmation = confirmations.get(bookingId);
+      if (confirmation.status() != BookingConfirmations.Status.PENDING) {
+        return confirmation;
+      }
+      Thread.sleep(1);
+    }
+    throw new AssertionError("booking " + bookingId + " is still pending");
+  }
+
+  @Test
+  @DisplayName("Submitted bookings are confirmed with a room, or rejected once none is left")
+  void testAssign() throws InterruptedException {
+    // Call the method under test
+    assertTrue(roomAssigner.submit(booking(1)));
+    assertTrue(roomAssigner.submit(booking(2)));
+
+    // Then
+    BookingConfirmations.Confirmation first = awaitAssigned(1);
+    BookingConfirmations.Confirmation second = awaitAssigned(2);
+    assertEquals(BookingConfirmations.Status.CONFIRMED, first.status());
+    assertEquals(101, first.roomNumber());
+    assertEquals(BookingConfirmations.Status.REJECTED, second.status());
+    assertEquals(BookingRejection.NO_ROOM_AVAILABLE, second.rejection());
+    assertEquals(2, meterRegistry.get("hotel.assignment.lag").timer().count());
+    assertEquals(0, roomAssigner.getQueueDepth());
+  }
+
+  @Test
+  @DisplayName("Stays further ahead than the confirmation lead are only reserved")
+  void testReserve() throws InterruptedException {
+    // Given
+    roomAssigner.close();
+    RoomAssigner reserving = new RoomAssigner(roomInventory, new NoopBookingJournal(), confirmations,
+            new HeapBookingLedger(), meterRegistry, 16, 4, Clock.fixed(Instant.parse("2024-10-01T00:00:00Z"), ZoneOffset.UTC), Duration.ofDays(7));
+
+    // Call the method under test
+    try {
+      assertTrue(reserving.submit(booking(1)));
+      awaitAssigned(1);
+    } finally {
+      reserving.close();
+    }
+
+    // Then
+    assertEquals(BookingConfirmations.Status.RESERVED, confirmations.get(1).status());
+    assertEquals(101, confirmations.get(1).roomNumber());
+    assertEquals(1, confirmations.reservations().size());
+  }
+
+  @Test
+  @DisplayName("Closing drains the queue and turns later bookings away")
+  void testClose() {
+    // Given
+    assertTrue(roomAssigner.submit(booking(1)));
+
+    // Call the method under test
+    roomAssigner.close();
+
+    // Then
+    assertEquals(BookingConfirmations.Status.CONFIRMED, confirmations.get(1).status());
+    assertFalse(roomAssigner.submit(booking(2)));
+    assertNull(confirmations.get(2));
+  }
+
+  @Test
+  @DisplayName("A booking is answered with its id at once and can then be polled until confirmed")
+  void testBookAndPoll() throws InterruptedException {
+    // Given
+    BookingMetrics bookingMetrics = new BookingMetrics(meterRegistry);
+    HotelBookingSystem hotelBookingSystem = new HotelBookingSystem(
+            new BookingValidator(Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC), bookingMetrics),
+            roomInventory, new NoopBookingJournal(), bookingMetrics, confirmations, roomAssigner, new HeapBookingLedger(),
+            null, null);
+    BookingRequest bookingRequest = BookingRequest.builder()
+            .numberOfGuests("2")
+            .checkInDate("10/10/2024")
+            .checkOutDate("12/10/2024")
+            .checkInTime("13:00")
+            .checkOutTime("12:00")
+            .build();
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> response = hotelBookingSystem.processBooking(bookingRequest);
+
+    // Then
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.ACCEPTED.value()), response.getStatusCode());
+    int bookingId = response.getBody().getData().getBookingId();
+    assertEquals(1, bookingId);
+    assertEquals("PENDING", response.getBody().getData().getStatus());
+    assertNull(response.getBody().getData().getRoomNumber());
+
+    awaitAssigned(bookingId);
+    ResponseEntity<BookingResponse> status = hotelBookingSystem.getBooking(bookingId);
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.OK.value()), status.getStatusCode());
+    assertEquals("CONFIRMED", status.getBody().getData().getStatus());
+    assertEquals(101, status.getBody().getData().getRoomNumber());
+
+    // the room is taken now, which the next booking sees before it is queued
+    ResponseEntity<BookingResponse> full = hotelBookingSystem.processBooking(bookingRequest);
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.CONFLICT.value()), full.getStatusCode());
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.NOT_FOUND.value()),
+            hotelBookingSystem.getBooking(999).getStatusCode());
+  }
+}
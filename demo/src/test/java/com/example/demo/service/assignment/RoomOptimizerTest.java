@@ -0,0 +1,117 @@
+package com.example.demo.service.assignment;
+
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import com.example.demo.service.journal.BookingJournal;
+import com.example.demo.service.journal.BookingRecord;
+import com.example.demo.service.journal.HeapBookingLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class RoomOptimizerTest {
+
+  private static final int TODAY = (int) LocalDate.of(2024, 1, 1).toEpochDay();
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final RoomInventory roomInventory =
+          new RoomInventory(List.of(new Room(101, 2), new Room(102, 2)), TODAY, 365);
+  private final BookingJournal bookingJournal = mock(BookingJournal.class);
+  private final BookingConfirmations confirmations = new BookingConfirmations(1, Duration.ofHours(1), 1000);
+  private final RoomOptimizer roomOptimizer = new RoomOptimizer(roomInventory, bookingJournal, confirmations,
+          new HeapBookingLedger(), meterRegistry, Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC), Duration.ofDays(14),
+          30, Duration.ZERO);
+
+  @AfterEach
+  void close() {
+    roomOptimizer.close();
+  }
+
+  private PendingBooking reserve(int bookingId, int roomNumber, int fromDay, int toDay) {
+    PendingBooking booking = new PendingBooking(bookingId, 2, TODAY + fromDay, TODAY + toDay, 13 * 60, 12 * 60,
+        PendingBooking.UNPRICED, 0);
+    assertTrue(roomInventory.claim(roomInventory.indexOf(roomNumber), slot(fromDay), slot(toDay)));
+    confirmations.reserved(booking, roomNumber);
+    return booking;
+  }
+
+  private static int slot(int day) {
+    return StaySlots.checkInSlot(TODAY + day, 13 * 60);
+  }
+
+  @Test
+  @DisplayName("A pass confirms due reservations and moves the others to strand fewer nights")
+  void testPass() {
+    // Given
+    reserve(1, 101, 3, 5);
+    reserve(2, 101, 20, 22);
+    reserve(3, 102, 22, 23);
+    reserve(4, 101, 23, 25);
+
+    // Call the method under test
+    RoomOptimizer.Pass pass = roomOptimizer.pass();
+
+    // Then
+    assertEquals(1, pass.confirmed());
+    assertEquals(BookingConfirmations.Status.CONFIRMED, confirmations.get(1).status());
+    assertEquals(1, pass.moved());
+    assertEquals(1, pass.recoveredNights());
+    assertEquals(BookingConfirmations.Status.RESERVED, confirmations.get(3).status());
+    assertEquals(101, confirmations.get(3).roomNumber());
+    assertEquals(3, confirmations.reservations().size());
+    assertFalse(roomInventory.isFree(0, slot(20), slot(25)));
+    assertTrue(roomInventory.isFree(1, slot(0), slot(100)));
+
+    ArgumentCaptor<BookingRecord> journaled = ArgumentCaptor.forClass(BookingRecord.class);
+    InOrder inOrder = inOrder(bookingJournal);
+    inOrder.verify(bookingJournal, times(2)).append(journaled.capture());
+    inOrder.verify(bookingJournal).awaitDurable(anyLong());
+    assertEquals(BookingRecord.BOOKED, journaled.getAllValues().get(0).getType());
+    assertEquals(101, journaled.getAllValues().get(0).getRoomNumber());
+    assertEquals(BookingRecord.RELEASED, journaled.getAllValues().get(1).getType());
+    assertEquals(102, journaled.getAllValues().get(1).getRoomNumber());
+    assertEquals(3, journaled.getAllValues().get(1).getBookingId());
+    assertEquals(1, meterRegistry.get("hotel.assignment.optimizer.recovered").counter().count());
+    assertEquals(0, roomOptimizer.pass().moved());
+  }
+
+  @Test
+  @DisplayName("A move that cannot be saved leaves the booking in its old room and ends the pass")
+  void testMoveNotSaved() {
+    // Given
+    reserve(2, 101, 20, 22);
+    reserve(3, 102, 22, 23);
+    reserve(4, 101, 23, 25);
+    doThrow(new UncheckedIOException(new IOException("disk full"))).when(bookingJournal).awaitDurable(anyLong());
+
+    // Call the method under test
+    RoomOptimizer.Pass pass = roomOptimizer.pass();
+
+    // Then
+    assertEquals(0, pass.moved());
+    assertEquals(102, confirmations.get(3).roomNumber());
+    assertFalse(roomInventory.isFree(1, slot(22), slot(23)));
+    assertTrue(roomInventory.isFree(0, slot(22), slot(23)));
+  }
+}
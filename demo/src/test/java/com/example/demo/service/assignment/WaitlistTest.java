@@ -0,0 +1,250 @@
+package com.example.demo.service.assignment;
+
+import com.example.demo.dto.BookingRequest;
+import com.example.demo.dto.BookingResponse;
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.BookingRejection;
+import com.example.demo.service.BookingValidator;
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.BookingRecovery;
+import com.example.demo.service.journal.HeapBookingLedger;
+import com.example.demo.service.journal.MappedBookingJournal;
+import com.example.demo.service.journal.NoopBookingJournal;
+import com.example.demo.service.journal.RecoveredWaitlist;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitlistTest {
+
+  private static final int TODAY = (int) LocalDate.of(2024, 1, 1).toEpochDay();
+  private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final RoomInventory roomInventory = new RoomInventory(List.of(new Room(101, 2)), TODAY, 400);
+  private final BookingConfirmations confirmations = new BookingConfirmations(1, Duration.ofHours(1), 1000);
+  private final BookingLedger bookingLedger = new HeapBookingLedger();
+  private final Waitlist waitlist = new Waitlist(roomInventory, new NoopBookingJournal(), confirmations, bookingLedger,
+          meterRegistry, CLOCK, 100_000);
+
+  @AfterEach
+  void close() {
+    waitlist.close();
+  }
+
+  private static PendingBooking booking(int bookingId, int fromDay, int toDay) {
+    return new PendingBooking(bookingId, 2, TODAY + fromDay, TODAY + toDay, 13 * 60, 12 * 60,
+        PendingBooking.UNPRICED, 0);
+  }
+
+  private static int slot(int day) {
+    return StaySlots.checkInSlot(TODAY + day, 13 * 60);
+  }
+
+  private BookingConfirmations.Status awaitStatus(int bookingId, BookingConfirmations.Status status)
+          throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (confirmations.get(bookingId).status() != status && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    return confirmations.get(bookingId).status();
+  }
+
+  @Test
+  @DisplayName("Freed nights go to the earliest waitlisted booking that fits them")
+  void testPromote() {
+    // Given
+    assertTrue(roomInventory.claim(0, slot(10), slot(40)));
+    assertTrue(waitlist.add(booking(2, 12, 14)).join());
+    assertTrue(waitlist.add(booking(3, 11, 13)).join());
+    assertTrue(waitlist.add(booking(4, 16, 18)).join());
+    assertTrue(waitlist.add(booking(5, 30, 32)).join());
+
+    // Call the method under test
+    roomInventory.release(0, slot(10), slot(15));
+    waitlist.promote(101, slot(10), slot(15));
+
+    // Then
+    assertEquals(BookingConfirmations.Status.CONFIRMED, confirmations.get(2).status());
+    assertEquals(101, confirmations.get(2).roomNumber());
+    assertEquals(101, bookingLedger.get(2).getRoomNumber());
+    // overlaps the booking that got the room
+    assertEquals(BookingConfirmations.Status.WAITLISTED, confirmations.get(3).status());
+    // still sold out
+    assertEquals(BookingConfirmations.Status.WAITLISTED, confirmations.get(4).status());
+    assertEquals(3, waitlist.size());
+    assertFalse(roomInventory.isFree(0, slot(12), slot(14)));
+    assertTrue(roomInventory.isFree(0, slot(10), slot(12)));
+  }
+
+  @Test
+  @DisplayName("A release only looks at the waitlist entries overlapping it")
+  void testIndexedByDate() {
+    // Given
+    assertTrue(roomInventory.claim(0, slot(0), slot(400)));
+    for (int i = 0; i < 20_000; i++) {
+      int day = i % 390;
+      assertTrue(waitlist.add(booking(i + 1, day, day + 1 + i / 390 % 3)).join());
+    }
+
+    // Call the method under test
+    roomInventory.release(0, slot(200), slot(201));
+    waitlist.promote(101, slot(200), slot(201));
+
+    // Then
+    // entries starting on the two days that can reach the freed night, out of 20000
+    assertTrue(meterRegistry.get("hotel.waitlist.examined").summary().max() < 300);
+    assertEquals(BookingConfirmations.Status.CONFIRMED, confirmations.get(201).status());
+    assertEquals(19_999, waitlist.size());
+  }
+
+  @Test
+  @DisplayName("A cancellation frees its room for a waitlisted booking, which can itself be cancelled")
+  void testCancelAndPromote() throws InterruptedException {
+    // Given
+    BookingMetrics bookingMetrics = new BookingMetrics(meterRegistry);
+    HotelBookingSystem hotelBookingSystem = new HotelBookingSystem(new BookingValidator(CLOCK, bookingMetrics),
+            roomInventory, new NoopBookingJournal(), bookingMetrics, confirmations, null, bookingLedger, waitlist,
+            null);
+    BookingRequest bookingRequest = BookingRequest.builder()
+            .numberOfGuests("2")
+            .checkInDate("10/10/2024")
+            .checkOutDate("12/10/2024")
+            .checkInTime("13:00")
+            .checkOutTime("12:00")
+            .build();
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.OK.value()),
+            hotelBookingSystem.processBooking(bookingRequest).getStatusCode());
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> second = hotelBookingSystem.processBooking(bookingRequest);
+    ResponseEntity<BookingResponse> third = hotelBookingSystem.processBooking(bookingRequest);
+    hotelBookingSystem.cancelBooking(1);
+
+    // Then
+    assertEquals(HttpStatusCode.valueOf(HttpStatus.ACCEPTED.value()), second.getStatusCode());
+    assertEquals("WAITLISTED", second.getBody().getData().getStatus());
+    assertEquals(2, meterRegistry.get("hotel.bookings").tag("outcome", "waitlisted").counter().count());
+    assertEquals(0, meterRegistry.get("hotel.bookings").tag("reason", "no_room_available").counter().count());
+    assertEquals(BookingConfirmations.Status.CONFIRMED, awaitStatus(2, BookingConfirmations.Status.CONFIRMED));
+    assertEquals("CONFIRMED", hotelBookingSystem.getBooking(2).getBody().getData().getStatus());
+    assertEquals("WAITLISTED", hotelBookingSystem.getBooking(3).getBody().getData().getStatus());
+    assertEquals("CANCELLED", hotelBookingSystem.cancelBooking(3).getBody().getData().getStatus());
+    assertEquals(0, waitlist.size());
+  }
+
+  @Test
+  @DisplayName("Waitlisting without blocking completes once the journal has the booking")
+  void testWaitlistAsync() {
+    // Given
+    CompletableFuture<Void> durable = new CompletableFuture<>();
+    NoopBookingJournal heldJournal = new NoopBookingJournal() {
+      @Override
+      public CompletableFuture<Void> whenDurable(long sequence) {
+        return durable;
+      }
+    };
+    BookingMetrics bookingMetrics = new BookingMetrics(meterRegistry);
+    try (Waitlist heldWaitlist = new Waitlist(roomInventory, heldJournal, confirmations, bookingLedger,
+            meterRegistry, CLOCK, 100)) {
+      HotelBookingSystem hotelBookingSystem = new HotelBookingSystem(new BookingValidator(CLOCK, bookingMetrics), roomInventory,
+              heldJournal, bookingMetrics, confirmations, null, bookingLedger, heldWaitlist, null);
+      assertTrue(roomInventory.claim(0, roomInventory.getFirstSlot(), roomInventory.getEndSlot()));
+      BookingRequest bookingRequest = BookingRequest.builder()
+              .numberOfGuests("2")
+              .checkInDate("10/10/2024")
+              .checkOutDate("12/10/2024")
+              .checkInTime("13:00")
+              .checkOutTime("12:00")
+              .build();
+
+      // Call the method under test
+      CompletableFuture<ResponseEntity<BookingResponse>> response =
+              hotelBookingSystem.processBookingAsync(bookingRequest);
+
+      // Then
+      assertFalse(response.isDone());
+      assertNull(confirmations.get(1));
+      durable.complete(null);
+      assertEquals(HttpStatusCode.valueOf(HttpStatus.ACCEPTED.value()), response.join().getStatusCode());
+      assertEquals(BookingConfirmations.Status.WAITLISTED, confirmations.get(1).status());
+    }
+  }
+
+  @Test
+  @DisplayName("Bookings whose check-in has passed are dropped from the waitlist")
+  void testDropExpired() {
+    // Given
+    assertTrue(roomInventory.claim(0, slot(0), slot(10)));
+    assertTrue(waitlist.add(booking(1, -2, 3)).join());
+    assertTrue(waitlist.add(booking(2, 0, 3)).join());
+
+    // Call the method under test
+    int dropped = waitlist.dropExpired();
+
+    // Then
+    assertEquals(1, dropped);
+    assertEquals(BookingConfirmations.Status.REJECTED, confirmations.get(1).status());
+    assertEquals(BookingRejection.NO_ROOM_AVAILABLE, confirmations.get(1).rejection());
+    assertEquals(1, waitlist.size());
+  }
+
+  @Test
+  @DisplayName("Bookings still waiting are restored from the journal after a restart")
+  void testRestore(@TempDir Path directory) throws IOException {
+    // Given
+    assertTrue(roomInventory.claim(0, slot(0), slot(40)));
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, 1 << 16, true);
+         Waitlist journaled = new Waitlist(roomInventory, journal, confirmations, bookingLedger, meterRegistry,
+                 CLOCK, 100)) {
+      assertTrue(journaled.add(booking(1, 10, 12)).join());
+      assertTrue(journaled.add(booking(2, 20, 22)).join());
+      assertTrue(journaled.add(booking(3, -2, 3)).join());
+      assertTrue(journaled.add(booking(4, 30, 32)).join());
+      assertNotNull(journaled.remove(4).join());
+      roomInventory.release(0, slot(10), StaySlots.checkOutSlot(TODAY + 12, 12 * 60));
+      journaled.promote(101, slot(10), StaySlots.checkOutSlot(TODAY + 12, 12 * 60));
+    }
+    RoomInventory restartedInventory = new RoomInventory(List.of(new Room(101, 2)), TODAY, 400);
+    assertTrue(restartedInventory.claim(0, slot(15), slot(40)));
+    RecoveredWaitlist recovered = new RecoveredWaitlist();
+    BookingRecovery.recover(restartedInventory, recovered, directory.resolve("none"), directory);
+    BookingConfirmations restartedConfirmations = new BookingConfirmations(5, Duration.ofHours(1), 1000);
+
+    // Call the method under test
+    try (Waitlist restarted = new Waitlist(restartedInventory, new NoopBookingJournal(), restartedConfirmations,
+            new HeapBookingLedger(), meterRegistry, CLOCK, 100)) {
+      restarted.restore(recovered);
+
+      // Then
+      // 1 was given a room, 3 was due to check in before today and 4 was cancelled
+      assertEquals(1, restarted.size());
+      assertEquals(BookingConfirmations.Status.WAITLISTED, restartedConfirmations.get(2).status());
+      assertNull(restartedConfirmations.get(1));
+      assertNull(restartedConfirmations.get(3));
+      assertNull(restartedConfirmations.get(4));
+      assertEquals(2, restarted.remove(2).join().bookingId());
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.example.demo.service.bulk;
+
+import com.example.demo.dto.BookingData;
+import com.example.demo.dto.BookingRequest;
+import com.example.demo.dto.BookingResponse;
+import com.example.demo.dto.ImportReport;
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.BookingValidator;
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.assignment.BookingConfirmations;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.HeapBookingLedger;
+import com.example.demo.service.journal.NoopBookingJournal;
+import com.example.demo.service.pricing.PricingEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingExporterTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final BookingLedger bookingLedger = new HeapBookingLedger();
+  private final BookingConfirmations confirmations = new BookingConfirmations(1, Duration.ofHours(1), 1000);
+  private final RoomInventory roomInventory = new RoomInventory(List.of(new Room(101, 2), new Room(102, 2)),
+          (int) LocalDate.of(2024, 1, 1).toEpochDay(), 1096);
+
+  private final HotelBookingSystem hotelBookingSystem = new HotelBookingSystem(
+          new BookingValidator(Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC)), roomInventory,
+          new NoopBookingJournal(), BookingMetrics.noop(), confirmations, null, bookingLedger, null,
+          new PricingEngine(roomInventory, 100_00, 20_00, 0.5, 1.0, 1000, new SimpleMeterRegistry()));
+
+  private final BookingExporter bookingExporter = new BookingExporter(bookingLedger, confirmations, objectMapper);
+
+  @BeforeEach
+  void setUp() {
+    book("1", "10/10/2024", "12/10/2024");
+    book("2", "10/10/2024", "11/10/2024");
+  }
+
+  private void book(String guests, String checkInDate, String checkOutDate) {
+    ResponseEntity<BookingResponse> response =
+            hotelBookingSystem.processBooking(new BookingRequest(guests, checkInDate, checkOutDate, "13:00", "12:00"));
+    assertNotNull(response.getBody().getData());
+  }
+
+  private String export(BulkFormat format, long expectedCount) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(expectedCount, bookingExporter.export(Channels.newChannel(out), format));
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  @DisplayName("Exporting CSV writes a header and one line per booking")
+  void testExportCsv() throws IOException {
+    // Call the method under test
+    String csv = export(BulkFormat.CSV, 2);
+
+    // Then
+    assertEquals(BookingExporter.CSV_HEADER
+            + "1,1,10/10/2024,12/10/2024,13:00,12:00,101,CONFIRMED,200.00\n"
+            + "2,2,10/10/2024,11/10/2024,13:00,12:00,102,CONFIRMED,120.00\n", csv);
+  }
+
+  @Test
+  @DisplayName("Exporting NDJSON writes one booking per line")
+  void testExportNdjson() throws IOException {
+    // Call the method under test
+    String ndjson = export(BulkFormat.NDJSON, 2);
+
+    // Then
+    assertTrue(ndjson.endsWith("}\n"));
+    List<BookingData> bookings = objectMapper.readerFor(BookingData.class)
+            .<BookingData>readValues(ndjson)
+            .readAll();
+    assertEquals(List.of(1, 2), bookings.stream().map(BookingData::getBookingId).toList());
+    assertEquals(new BigDecimal("120.00"), bookings.get(1).getPrice());
+    assertEquals(102, bookings.get(1).getRoomNumber());
+  }
+
+  @Test
+  @DisplayName("Exporting with other nodes' exports appends their lines without their CSV headers")
+  void testExportWithOthers() throws IOException {
+    // Given
+    String otherLine = "65,1,10/10/2024,11/10/2024,13:00,12:00,201,CONFIRMED,\n";
+    InputStream other = new ByteArrayInputStream((BookingExporter.CSV_HEADER + otherLine)
+            .getBytes(StandardCharsets.UTF_8));
+    InputStream empty = new ByteArrayInputStream(BookingExporter.CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // Call the method under test
+    long count = bookingExporter.export(Channels.newChannel(out), BulkFormat.CSV, List.of(other, empty));
+
+    // Then
+    assertEquals(3, count);
+    assertEquals(BookingExporter.CSV_HEADER
+            + "1,1,10/10/2024,12/10/2024,13:00,12:00,101,CONFIRMED,200.00\n"
+            + "2,2,10/10/2024,11/10/2024,13:00,12:00,102,CONFIRMED,120.00\n"
+            + otherLine, out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  @DisplayName("A CSV export imports into an empty hotel as the same stays")
+  void testCsvRoundTrip() throws IOException {
+    // Given
+    String csv = export(BulkFormat.CSV, 2);
+    BookingLedger importedLedger = new HeapBookingLedger();
+    HotelBookingSystem emptyHotel = new HotelBookingSystem(
+            new BookingValidator(Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC)),
+            new RoomInventory(List.of(new Room(101, 2), new Room(102, 2)), (int) LocalDate.of(2024, 1, 1).toEpochDay(),
+                    1096),
+            new NoopBookingJournal(), BookingMetrics.noop(), new BookingConfirmations(1, Duration.ofHours(1), 1000),
+            null, importedLedger, null, null);
+
+    // Call the method under test
+    ImportReport report;
+    try (BookingImporter bookingImporter = new BookingImporter(emptyHotel, null,
+            new BookingValidator(Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC)), objectMapper,
+            1, BookingImporter.CHUNK_BYTES)) {
+      report = bookingImporter.importBookings(
+              Channels.newChannel(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))), BulkFormat.CSV);
+    }
+
+    // Then
+    assertEquals(2L, report.getRows());
+    assertEquals(2L, report.getBooked());
+    assertEquals(bookingLedger.stream().toList(), importedLedger.stream().toList());
+  }
+}
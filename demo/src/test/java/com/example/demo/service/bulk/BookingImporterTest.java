@@ -0,0 +1,175 @@
+package com.example.demo.service.bulk;
+
+import com.example.demo.dto.ImportError;
+import com.example.demo.dto.ImportReport;
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.BookingRejection;
+import com.example.demo.service.BookingValidator;
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.IdempotencyCache;
+import com.example.demo.service.assignment.BookingConfirmations;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.BookingRecord;
+import com.example.demo.service.journal.HeapBookingLedger;
+import com.example.demo.service.journal.NoopBookingJournal;
+import com.example.demo.service.sharding.ShardRouter;
+import com.example.demo.service.sharding.ShardedBookings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingImporterTest {
+
+  private static final String CSV_ROW = "1,10/10/2024,12/10/2024,13:00,12:00\n";
+  private static final String JSON_ROW =
+          "{\"numberOfGuests\":\"1\",\"checkInDate\":\"10/10/2024\",\"checkOutDate\":\"12/10/2024\","
+                  + "\"checkInTime\":\"13:00\",\"checkOutTime\":\"12:00\"}\n";
+
+  private final BookingLedger bookingLedger = new HeapBookingLedger();
+
+  private final HotelBookingSystem hotelBookingSystem = new HotelBookingSystem(
+          new BookingValidator(Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC)),
+          new RoomInventory(List.of(new Room(101, 2), new Room(102, 2)), (int) LocalDate.of(2024, 1, 1).toEpochDay(),
+                  1096),
+          new NoopBookingJournal(), BookingMetrics.noop(), new BookingConfirmations(1, Duration.ofHours(1), 1000),
+          null, bookingLedger, null, null);
+
+  private BookingImporter bookingImporter;
+
+  @AfterEach
+  void tearDown() {
+    if (bookingImporter != null) {
+      bookingImporter.close();
+    }
+  }
+
+  private ImportReport importBookings(String body, BulkFormat format, int chunkBytes) throws IOException {
+    return importBookings(body, format, chunkBytes, null);
+  }
+
+  private ImportReport importBookings(String body, BulkFormat format, int chunkBytes,
+                                      ShardedBookings shardedBookings) throws IOException {
+    bookingImporter = new BookingImporter(hotelBookingSystem, shardedBookings,
+            new BookingValidator(Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC)),
+            new ObjectMapper(), 2, chunkBytes);
+    return bookingImporter.importBookings(
+            Channels.newChannel(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))), format);
+  }
+
+  @Test
+  @DisplayName("Importing CSV books rows in file order and reports the rest by line")
+  void testImportCsv() throws IOException {
+    // Given
+    String body = "\uFEFFnumberOfGuests,checkInDate,checkOutDate,checkInTime,checkOutTime\r\n"
+            + CSV_ROW
+            + "\n"
+            + "0,10/10/2024,12/10/2024,13:00,12:00\n"
+            + "not,a,booking\n"
+            + " \"2\" , 10/10/2024 ,12/10/2024,13:00,12:00\r\n"
+            + CSV_ROW
+            + "1,10/10/2024,12/10/2024,13:00,12:00";
+
+    // Call the method under test
+    ImportReport report = importBookings(body, BulkFormat.CSV, BookingImporter.CHUNK_BYTES);
+
+    // Then
+    assertNull(report.getMessage());
+    assertEquals(6L, report.getRows());
+    assertEquals(2L, report.getBooked());
+    assertEquals(4L, report.getRejected());
+    assertEquals(Map.of(
+            BookingRejection.GUESTS_NOT_POSITIVE.getMessage(), 1L,
+            BookingImporter.MALFORMED_ROW_MESSAGE, 1L,
+            BookingRejection.NO_ROOM_AVAILABLE.getMessage(), 2L), report.getRejections());
+    assertEquals(List.of(
+            new ImportError(4L, BookingRejection.GUESTS_NOT_POSITIVE.getMessage()),
+            new ImportError(5L, BookingImporter.MALFORMED_ROW_MESSAGE),
+            new ImportError(7L, BookingRejection.NO_ROOM_AVAILABLE.getMessage()),
+            new ImportError(8L, BookingRejection.NO_ROOM_AVAILABLE.getMessage())), report.getErrors());
+    List<BookingRecord> stays = bookingLedger.stream().toList();
+    assertEquals(List.of(1, 2), stays.stream().map(BookingRecord::getBookingId).toList());
+    assertEquals(List.of(101, 102), stays.stream().map(BookingRecord::getRoomNumber).toList());
+  }
+
+  @Test
+  @DisplayName("Importing NDJSON across many small chunks books every row once")
+  void testImportNdjsonInChunks() throws IOException {
+    // Given
+    StringBuilder body = new StringBuilder();
+    DateTimeFormatter format = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    for (int day = 1; day <= 100; day++) {
+      LocalDate checkIn = LocalDate.of(2024, 1, 1).plusDays(day);
+      body.append(JSON_ROW
+              .replace("10/10/2024", checkIn.format(format))
+              .replace("12/10/2024", checkIn.plusDays(1).format(format)));
+    }
+    body.append("{\"numberOfGuests\":");
+
+    // Call the method under test
+    ImportReport report = importBookings(body.toString(), BulkFormat.NDJSON, 512);
+
+    // Then
+    assertEquals(101L, report.getRows());
+    assertEquals(100L, report.getBooked());
+    assertEquals(List.of(new ImportError(101L, BookingImporter.MALFORMED_ROW_MESSAGE)), report.getErrors());
+    assertEquals(100, bookingLedger.stream().count());
+  }
+
+  @Test
+  @DisplayName("Importing on a sharded hotel routes each row and turns down rows no node has room for")
+  void testImportRouted() throws IOException {
+    // Given
+    List<ShardRouter.Group> groups = List.of(new ShardRouter.Group(101, 2));
+    ShardRouter router = new ShardRouter(List.of(new ShardRouter.Node(0, URI.create("http://localhost:1"))), 0,
+            groups, 16);
+    ShardedBookings shardedBookings = new ShardedBookings(router, hotelBookingSystem,
+            new IdempotencyCache(hotelBookingSystem, Duration.ofMinutes(1), 100), new ObjectMapper(), HttpClient.newHttpClient(),
+            Duration.ofSeconds(1), "secret");
+    String body = CSV_ROW + "not,a,booking\n" + CSV_ROW + CSV_ROW;
+
+    // Call the method under test
+    ImportReport report = importBookings(body, BulkFormat.CSV, BookingImporter.CHUNK_BYTES, shardedBookings);
+
+    // Then
+    assertEquals(4L, report.getRows());
+    assertEquals(2L, report.getBooked());
+    assertEquals(List.of(
+            new ImportError(2L, BookingImporter.MALFORMED_ROW_MESSAGE),
+            new ImportError(4L, BookingRejection.NO_ROOM_AVAILABLE.getMessage())), report.getErrors());
+    assertEquals(2, bookingLedger.stream().count());
+  }
+
+  @Test
+  @DisplayName("Importing stops before a line longer than a chunk")
+  void testLineTooLong() throws IOException {
+    // Given
+    String body = JSON_ROW + " ".repeat(600) + JSON_ROW;
+
+    // Call the method under test
+    ImportReport report = importBookings(body, BulkFormat.NDJSON, 512);
+
+    // Then
+    assertEquals(BookingImporter.LINE_TOO_LONG_MESSAGE.formatted(2, 512), report.getMessage());
+    assertEquals(1L, report.getBooked());
+  }
+}
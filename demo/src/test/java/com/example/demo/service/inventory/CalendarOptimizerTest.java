@@ -0,0 +1,86 @@
+package com.example.demo.service.inventory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalendarOptimizerTest {
+
+  private static final int FIRST_DAY = (int) LocalDate.of(2024, 1, 1).toEpochDay();
+
+  private final ForkJoinPool pool = new ForkJoinPool(2);
+
+  @AfterEach
+  void close() {
+    pool.shutdown();
+  }
+
+  private static CalendarOptimizer.Stay stay(int bookingId, int room, int fromDay, int toDay) {
+    return new CalendarOptimizer.Stay(bookingId, room,
+            StaySlots.checkInSlot(FIRST_DAY + fromDay, 13 * 60), StaySlots.checkOutSlot(FIRST_DAY + toDay, 12 * 60));
+  }
+
+  private static RoomInventory inventory(List<CalendarOptimizer.Stay> stays) {
+    RoomInventory inventory = new RoomInventory(
+            List.of(new Room(101, 2), new Room(102, 2), new Room(401, 4)), FIRST_DAY, 365);
+    for (CalendarOptimizer.Stay stay : stays) {
+      assertTrue(inventory.claim(stay.room(), stay.fromSlot(), stay.toSlot()));
+    }
+    return inventory;
+  }
+
+  @Test
+  @DisplayName("A stay moves into the single night it strands elsewhere")
+  void testPlanClosesGap() {
+    // Given
+    List<CalendarOptimizer.Stay> stays = List.of(stay(1, 0, 10, 12), stay(2, 1, 12, 13), stay(3, 0, 13, 15));
+    RoomInventory inventory = inventory(stays);
+    assertEquals(1, inventory.strandedRoomNights(inventory.getFirstSlot()));
+
+    // Call the method under test
+    CalendarOptimizer.Plan plan = new CalendarOptimizer(inventory, pool, 30).plan(stays);
+
+    // Then
+    assertEquals(List.of(new CalendarOptimizer.Move(2, 1, 0, stays.get(1).fromSlot(), stays.get(1).toSlot())),
+            plan.moves());
+    assertEquals(1, plan.recoveredNights());
+  }
+
+  @Test
+  @DisplayName("Stays are only moved between rooms of their size, and not at all if nothing is gained")
+  void testPlanKeepsSizesAndGoodCalendars() {
+    // Given
+    List<CalendarOptimizer.Stay> stays = List.of(stay(1, 0, 10, 12), stay(2, 2, 12, 13), stay(3, 0, 13, 15));
+    List<CalendarOptimizer.Stay> packed = List.of(stay(1, 0, 10, 12), stay(3, 0, 12, 15), stay(4, 1, 20, 25));
+
+    // Call the method under test
+    CalendarOptimizer.Plan plan = new CalendarOptimizer(inventory(stays), pool, 30).plan(stays);
+    CalendarOptimizer.Plan packedPlan = new CalendarOptimizer(inventory(packed), pool, 30).plan(packed);
+
+    // Then
+    assertEquals(List.of(new CalendarOptimizer.Move(3, 0, 1, stays.get(2).fromSlot(), stays.get(2).toSlot())),
+            plan.moves());
+    assertTrue(packedPlan.moves().isEmpty());
+    assertEquals(0, packedPlan.strandedBefore());
+  }
+
+  @Test
+  @DisplayName("Stays that cross a window edge stay where they are")
+  void testWindowEdges() {
+    // Given: the same gap, but the stay that could fill it runs into the next 32-day window
+    List<CalendarOptimizer.Stay> stays = List.of(stay(1, 0, 26, 28), stay(2, 1, 28, 33), stay(3, 0, 29, 31));
+    RoomInventory inventory = inventory(stays);
+
+    // Call the method under test
+    CalendarOptimizer.Plan plan = new CalendarOptimizer(inventory, pool, 30).plan(stays);
+
+    // Then
+    assertTrue(plan.moves().stream().noneMatch(move -> move.bookingId() == 2));
+  }
+}
@@ -0,0 +1,108 @@
+package com.example.demo.service.inventory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HorizonAdvancerTest {
+
+  private static final LocalDate START = LocalDate.of(2024, 1, 1);
+  private static final int FIRST_DAY = (int) START.toEpochDay();
+  private static final int HORIZON_DAYS = 30;
+
+  /** A clock that only moves when told to. */
+  private static final class SteppedClock extends Clock {
+
+    private volatile Instant instant = START.atStartOfDay(ZoneOffset.UTC).toInstant();
+
+    void plusDays(int days) {
+      instant = instant.plus(Duration.ofDays(days));
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+
+  private static int in(int day) {
+    return StaySlots.checkInSlot(FIRST_DAY + day, 13 * 60);
+  }
+
+  private static int out(int day) {
+    return StaySlots.checkOutSlot(FIRST_DAY + day, 12 * 60);
+  }
+
+  @Test
+  @DisplayName("The horizon moves on with the clock, opening each new last day free however often it comes round")
+  void testAdvance() {
+    // Given
+    SteppedClock clock = new SteppedClock();
+    RoomInventory inventory = new RoomInventory(List.of(new Room(101, 2)), FIRST_DAY, HORIZON_DAYS);
+    HorizonAdvancer advancer = new HorizonAdvancer(inventory, clock, Duration.ZERO);
+    assertEquals(0, inventory.reserve(1, in(0), out(HORIZON_DAYS)));
+    assertEquals(RoomInventory.OUTSIDE_HORIZON, inventory.reserve(1, in(HORIZON_DAYS), out(HORIZON_DAYS + 1)));
+
+    for (int day = 1; day <= 100; day++) {
+      // Call the method under test
+      clock.plusDays(1);
+      advancer.advance();
+
+      // Then
+      assertEquals(FIRST_DAY + day, inventory.getFirstDay());
+      assertEquals(HORIZON_DAYS, inventory.getHorizonDays());
+      int lastDay = day + HORIZON_DAYS - 1;
+      assertEquals(1, inventory.freeRooms(1, FIRST_DAY + lastDay));
+      assertEquals(0, inventory.reserve(1, in(lastDay), out(lastDay + 1)));
+      assertEquals(RoomInventory.OUTSIDE_HORIZON, inventory.reserve(1, in(day - 1), out(day)));
+      assertEquals(0, inventory.freeRooms(1, FIRST_DAY + day));
+      assertFalse(inventory.isFree(0, in(day), out(day + HORIZON_DAYS)));
+      assertEquals(0, inventory.strandedRoomNights(inventory.getFirstSlot()));
+    }
+    advancer.close();
+
+    // a stay begun before the horizon gives up the part still in it
+    inventory.release(0, in(0), out(100 + HORIZON_DAYS));
+    for (int day = 100; day < 100 + HORIZON_DAYS; day++) {
+      assertEquals(1, inventory.freeRooms(1, FIRST_DAY + day));
+    }
+    assertEquals(0, inventory.reserve(1, in(100), out(100 + HORIZON_DAYS)));
+  }
+
+  @Test
+  @DisplayName("Moving the horizon on renews the versions of the nights it opens up")
+  void testVersionsRenewed() {
+    // Given
+    RoomInventory inventory = new RoomInventory(List.of(new Room(101, 2)), FIRST_DAY, HORIZON_DAYS);
+    int newLastDay = FIRST_DAY + HORIZON_DAYS;
+    assertEquals(0, inventory.occupancyVersion(newLastDay));
+
+    // Call the method under test
+    inventory.advanceTo(FIRST_DAY + 1);
+    inventory.advanceTo(FIRST_DAY);
+
+    // Then
+    assertEquals(FIRST_DAY + 1, inventory.getFirstDay());
+    assertNotEquals(0, inventory.occupancyVersion(newLastDay));
+    assertEquals(0, inventory.occupancyVersion(FIRST_DAY));
+  }
+}
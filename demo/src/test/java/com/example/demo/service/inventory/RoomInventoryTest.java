@@ -0,0 +1,219 @@
+package com.example.demo.service.inventory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomInventoryTest {
+
+  private static final int FIRST_DAY = (int) LocalDate.of(2024, 1, 1).toEpochDay();
+  private static final int CHECK_IN_EARLY = 13 * 60;
+  private static final int CHECK_IN_LATE = 19 * 60;
+  private static final int CHECK_OUT_EARLY = 12 * 60;
+  private static final int CHECK_OUT_LATE = 18 * 60;
+
+  private int in(int day, int time) {
+    return StaySlots.checkInSlot(FIRST_DAY + day, time);
+  }
+
+  private int out(int day, int time) {
+    return StaySlots.checkOutSlot(FIRST_DAY + day, time);
+  }
+
+  @Test
+  @DisplayName("Smallest room that fits the party is assigned first")
+  void testSmallestFittingRoomFirst() {
+    RoomInventory inventory = new RoomInventory(
+            List.of(new Room(301, 4), new Room(101, 1), new Room(201, 2)), FIRST_DAY, 365);
+
+    int room = inventory.reserve(2, in(10, CHECK_IN_EARLY), out(12, CHECK_OUT_EARLY));
+
+    assertEquals(201, inventory.getRoom(room).getNumber());
+    room = inventory.reserve(2, in(10, CHECK_IN_EARLY), out(12, CHECK_OUT_EARLY));
+    assertEquals(301, inventory.getRoom(room).getNumber());
+    assertEquals(RoomInventory.NO_ROOM, inventory.reserve(2, in(11, CHECK_IN_EARLY), out(12, CHECK_OUT_EARLY)));
+    assertEquals(RoomInventory.NO_ROOM, inventory.reserve(5, in(20, CHECK_IN_EARLY), out(21, CHECK_OUT_EARLY)));
+  }
+
+  @Test
+  @DisplayName("Check-out and check-in slots on the same day")
+  void testTurnoverOnSameDay() {
+    RoomInventory inventory = new RoomInventory(List.of(new Room(101, 2)), FIRST_DAY, 365);
+
+    assertEquals(0, inventory.reserve(2, in(10, CHECK_IN_EARLY), out(12, CHECK_OUT_EARLY)));
+    // 12:00 check-out leaves the room free for a 13:00 check-in
+    assertEquals(0, inventory.reserve(2, in(12, CHECK_IN_EARLY), out(14, CHECK_OUT_LATE)));
+    // 18:00 check-out only leaves it free for a 19:00 check-in
+    assertEquals(RoomInventory.NO_ROOM, inventory.reserve(2, in(14, CHECK_IN_EARLY), out(15, CHECK_OUT_EARLY)));
+    assertEquals(0, inventory.reserve(2, in(14, CHECK_IN_LATE), out(15, CHECK_OUT_EARLY)));
+  }
+
+  @Test
+  @DisplayName("Released slots can be booked again")
+  void testRelease() {
+    RoomInventory inventory = new RoomInventory(List.of(new Room(101, 2)), FIRST_DAY, 1096);
+    int from = in(30, CHECK_IN_EARLY);
+    int to = out(400, CHECK_OUT_LATE);
+
+    assertEquals(0, inventory.reserve(1, from, to));
+    assertFalse(inventory.isFree(0, in(200, CHECK_IN_EARLY), out(201, CHECK_OUT_EARLY)));
+    inventory.release(0, from, to);
+    assertTrue(inventory.isFree(0, from, to));
+    assertEquals(0, inventory.reserve(1, in(200, CHECK_IN_EARLY), out(201, CHECK_OUT_EARLY)));
+  }
+
+  @Test
+  @DisplayName("Stays outside the horizon are refused")
+  void testOutsideHorizon() {
+    RoomInventory inventory = new RoomInventory(List.of(new Room(101, 2)), FIRST_DAY, 30);
+
+    assertEquals(RoomInventory.OUTSIDE_HORIZON, inventory.reserve(1, in(-1, CHECK_IN_EARLY), out(2, CHECK_OUT_EARLY)));
+    assertEquals(RoomInventory.OUTSIDE_HORIZON, inventory.reserve(1, in(29, CHECK_IN_EARLY), out(30, CHECK_OUT_LATE)));
+    assertEquals(0, inventory.reserve(1, in(29, CHECK_IN_EARLY), out(30, CHECK_OUT_EARLY)));
+  }
+
+  @Test
+  @DisplayName("Concurrent reservations never claim a slot twice")
+  void testConcurrentReservationsNeverDoubleBook() throws Exception {
+    int rooms = 8;
+    int days = 100;
+    int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+    List<Room> roomList = new ArrayList<>();
+    for (int i = 0; i < rooms; i++) {
+      roomList.add(new Room(101 + i, 2));
+    }
+    RoomInventory inventory = new RoomInventory(roomList, FIRST_DAY, days + 10);
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<List<int[]>>> results = new ArrayList<>();
+
+    for (int t = 0; t < threads; t++) {
+      results.add(executor.submit(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<int[]> held = new ArrayList<>();
+        start.await();
+        for (int i = 0; i < 20_000; i++) {
+          if (!held.isEmpty() && random.nextInt(3) == 0) {
+            int[] stay = held.remove(random.nextInt(held.size()));
+            inventory.release(stay[0], stay[1], stay[2]);
+            continue;
+          }
+          int day = random.nextInt(days);
+          int from = in(day, random.nextBoolean() ? CHECK_IN_EARLY : CHECK_IN_LATE);
+          int to = out(day + 1 + random.nextInt(5), random.nextBoolean() ? CHECK_OUT_EARLY : CHECK_OUT_LATE);
+          int room = inventory.reserve(1 + random.nextInt(2), from, to);
+          if (room >= 0) {
+            held.add(new int[]{room, from, to});
+          }
+        }
+        return held;
+      }));
+    }
+    start.countDown();
+
+    int[][] claims = new int[rooms][inventory.getEndSlot() - inventory.getFirstSlot()];
+    for (Future<List<int[]>> result : results) {
+      for (int[] stay : result.get()) {
+        for (int slot = stay[1]; slot < stay[2]; slot++) {
+          claims[stay[0]][slot - inventory.getFirstSlot()]++;
+        }
+      }
+    }
+    executor.shutdown();
+
+    for (int room = 0; room < rooms; room++) {
+      for (int i = 0; i < claims[room].length; i++) {
+        int slot = inventory.getFirstSlot() + i;
+        assertTrue(claims[room][i] <= 1, "slot " + slot + " of room " + room + " sold twice");
+        assertEquals(claims[room][i] == 0, inventory.isFree(room, slot, slot + 1));
+      }
+    }
+    // the night index followed every claim, rollback and release
+    for (int day = 0; day < days + 10; day++) {
+      int free = 0;
+      for (int room = 0; room < rooms; room++) {
+        free += inventory.isFree(room, in(day, CHECK_IN_EARLY), out(day + 1, CHECK_OUT_EARLY)) ? 1 : 0;
+      }
+      assertEquals(free, inventory.freeRooms(1, FIRST_DAY + day), "free rooms on day " + day);
+    }
+  }
+
+  @Test
+  @DisplayName("Free rooms per night follow bookings, releases and overlapping recovered stays")
+  void testFreeRoomsPerNight() {
+    RoomInventory inventory = new RoomInventory(
+            List.of(new Room(101, 2), new Room(102, 2), new Room(201, 4)), FIRST_DAY, 365);
+    assertEquals(3, inventory.freeRooms(1, FIRST_DAY + 10));
+    assertEquals(1, inventory.freeRooms(3, FIRST_DAY + 10));
+    assertEquals(0, inventory.freeRooms(5, FIRST_DAY + 10));
+
+    // nights 10 and 11, then a late arrival that only takes the evening of night 12
+    int room = inventory.reserve(2, in(10, CHECK_IN_EARLY), out(12, CHECK_OUT_EARLY));
+    inventory.reserve(2, in(12, CHECK_IN_LATE), out(13, CHECK_OUT_EARLY));
+    assertEquals(3, inventory.freeRooms(1, FIRST_DAY + 9));
+    assertEquals(2, inventory.freeRooms(1, FIRST_DAY + 10));
+    assertEquals(2, inventory.freeRooms(1, FIRST_DAY + 11));
+    assertEquals(2, inventory.freeRooms(1, FIRST_DAY + 12));
+    assertEquals(3, inventory.freeRooms(1, FIRST_DAY + 13));
+
+    // an 18:00 check-out and a stay replayed twice still count the room once per night
+    inventory.markOccupied(201, in(11, CHECK_IN_EARLY), out(12, CHECK_OUT_LATE));
+    inventory.markOccupied(201, in(11, CHECK_IN_EARLY), out(12, CHECK_OUT_LATE));
+    assertEquals(1, inventory.freeRooms(1, FIRST_DAY + 11));
+    assertEquals(0, inventory.freeRooms(3, FIRST_DAY + 11));
+    assertEquals(1, inventory.freeRooms(1, FIRST_DAY + 12));
+
+    inventory.release(room, in(10, CHECK_IN_EARLY), out(12, CHECK_OUT_EARLY));
+    inventory.markFree(201, in(11, CHECK_IN_EARLY), out(12, CHECK_OUT_LATE));
+    assertEquals(3, inventory.freeRooms(1, FIRST_DAY + 10));
+    assertEquals(3, inventory.freeRooms(1, FIRST_DAY + 11));
+    assertEquals(2, inventory.freeRooms(1, FIRST_DAY + 12));
+    assertEquals(0, inventory.freeRooms(1, FIRST_DAY - 1));
+    assertEquals(0, inventory.freeRooms(1, FIRST_DAY + 365));
+  }
+
+  @Test
+  @DisplayName("A stay goes into the room it fits most snugly without stranding a night")
+  void testBestFit() {
+    RoomInventory inventory = new RoomInventory(
+            List.of(new Room(101, 2), new Room(102, 2), new Room(103, 2)), FIRST_DAY, 365);
+    assertTrue(inventory.claim(1, in(10, CHECK_IN_EARLY), out(12, CHECK_OUT_EARLY)));
+    assertTrue(inventory.claim(2, in(20, CHECK_IN_EARLY), out(22, CHECK_OUT_EARLY)));
+
+    // right after the stay in 102 rather than in the empty 101
+    assertEquals(1, inventory.reserve(2, in(12, CHECK_IN_EARLY), out(14, CHECK_OUT_EARLY)));
+    // 103 would be closer, but would leave a single night before its stay
+    assertEquals(1, inventory.reserve(2, in(18, CHECK_IN_EARLY), out(19, CHECK_OUT_EARLY)));
+    assertEquals(0, inventory.strandedRoomNights(inventory.getFirstSlot()));
+    assertFalse(inventory.claim(1, in(13, CHECK_IN_EARLY), out(15, CHECK_OUT_EARLY)));
+
+    RoomInventory firstFit = new RoomInventory(List.of(new Room(101, 2), new Room(102, 2)), FIRST_DAY, 365,
+            RoomInventory.Placement.FIRST_FIT, RoomInventory.DEFAULT_MIN_SELLABLE_NIGHTS);
+    assertTrue(firstFit.claim(1, in(10, CHECK_IN_EARLY), out(12, CHECK_OUT_EARLY)));
+    assertEquals(0, firstFit.reserve(2, in(12, CHECK_IN_EARLY), out(14, CHECK_OUT_EARLY)));
+  }
+
+  @Test
+  @DisplayName("Gaps between two stays that are too short to sell are counted as stranded")
+  void testStrandedRoomNights() {
+    RoomInventory inventory = new RoomInventory(List.of(new Room(101, 2), new Room(102, 2)), FIRST_DAY, 365);
+    inventory.markOccupied(101, in(10, CHECK_IN_EARLY), out(12, CHECK_OUT_EARLY));
+    inventory.markOccupied(101, in(13, CHECK_IN_EARLY), out(15, CHECK_OUT_EARLY));
+    inventory.markOccupied(101, in(17, CHECK_IN_EARLY), out(18, CHECK_OUT_EARLY));
+    // open calendar either side of a stay is not stranded
+    inventory.markOccupied(102, in(100, CHECK_IN_EARLY), out(101, CHECK_OUT_EARLY));
+
+    assertEquals(1, inventory.strandedRoomNights(inventory.getFirstSlot()));
+    assertEquals(0, inventory.strandedRoomNights(in(14, CHECK_IN_EARLY)));
+  }
+}
@@ -0,0 +1,334 @@
+package com.example.demo.service.journal;
+
+import com.example.demo.service.assignment.BookingConfirmations;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingRecoveryTest {
+
+  private static final int SEGMENT_SIZE = 5 * JournalFormat.RECORD_SIZE;
+  private static final int CHECK_IN_DAY = 20_000;
+  private static final int FIRST_SLOT = StaySlots.checkInSlot(CHECK_IN_DAY, 13 * 60);
+  private static final int END_SLOT = StaySlots.checkOutSlot(CHECK_IN_DAY + 2, 12 * 60);
+
+  @TempDir
+  Path directory;
+
+  private Path journalDirectory() {
+    return directory.resolve("journal");
+  }
+
+  private Path snapshotDirectory() {
+    return directory.resolve("snapshot");
+  }
+
+  private static BookingRecord record(int roomNumber) {
+    return BookingRecord.builder()
+            .type(BookingRecord.BOOKED)
+            .numberOfGuests(2)
+            .checkInDate(CHECK_IN_DAY)
+            .checkOutDate(CHECK_IN_DAY + 2)
+            .checkInTime(13 * 60)
+            .checkOutTime(12 * 60)
+            .roomNumber(roomNumber)
+            .bookingId(roomNumber)
+            .build();
+  }
+
+  private static BookingRecord waitlistRecord(byte type, int bookingId) {
+    return BookingRecord.builder()
+            .type(type)
+            .numberOfGuests(2)
+            .checkInDate(CHECK_IN_DAY)
+            .checkOutDate(CHECK_IN_DAY + 2)
+            .checkInTime(13 * 60)
+            .checkOutTime(12 * 60)
+            .bookingId(bookingId)
+            .build();
+  }
+
+  private static RoomInventory newInventory() {
+    List<Room> rooms = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      rooms.add(new Room(100 + i, 2));
+    }
+    return new RoomInventory(rooms, CHECK_IN_DAY - 10, 30);
+  }
+
+  private static Clock clockAt(int epochDay) {
+    return Clock.fixed(LocalDate.ofEpochDay(epochDay).atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+  }
+
+  private void append(MappedBookingJournal journal, int fromRoom, int toRoom) {
+    for (int room = fromRoom; room < toRoom; room++) {
+      journal.awaitDurable(journal.append(record(room)));
+    }
+  }
+
+  @Test
+  @DisplayName("Replaying the journal occupies every booked room")
+  void testRecoverFromJournal() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(journalDirectory(), SEGMENT_SIZE, true)) {
+      append(journal, 100, 112);
+    }
+
+    RoomInventory inventory = newInventory();
+    BookingRecovery.Result result = BookingRecovery.recover(inventory, snapshotDirectory(), journalDirectory());
+
+    assertEquals(0, result.getSnapshotSequence());
+    assertEquals(12, result.getNextSequence());
+    assertEquals(12, result.getReplayedRecords());
+    assertEquals(112, result.getNextBookingId());
+    for (int room = 0; room < 12; room++) {
+      assertFalse(inventory.isFree(room, FIRST_SLOT, END_SLOT));
+    }
+    assertTrue(inventory.isFree(0, END_SLOT, END_SLOT + 2));
+  }
+
+  @Test
+  @DisplayName("A released stay is free again after replay, and stays free in snapshots")
+  void testRecoverReleased() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(journalDirectory(), SEGMENT_SIZE, true)) {
+      append(journal, 100, 102);
+      // booking 100 moved from room 100 to room 102
+      journal.append(BookingRecord.builder().type(BookingRecord.BOOKED).numberOfGuests(2)
+              .checkInDate(CHECK_IN_DAY).checkOutDate(CHECK_IN_DAY + 2).checkInTime(13 * 60).checkOutTime(12 * 60)
+              .roomNumber(102).bookingId(100).build());
+      journal.awaitDurable(journal.append(BookingRecord.builder().type(BookingRecord.RELEASED).numberOfGuests(2)
+              .checkInDate(CHECK_IN_DAY).checkOutDate(CHECK_IN_DAY + 2).checkInTime(13 * 60).checkOutTime(12 * 60)
+              .roomNumber(100).bookingId(100).build()));
+      new SnapshotWriter(snapshotDirectory(), journalDirectory(), journal, clockAt(CHECK_IN_DAY), Duration.ZERO)
+              .snapshot();
+    }
+
+    RoomInventory replayed = newInventory();
+    BookingRecovery.recover(replayed, directory.resolve("none"), journalDirectory());
+    RoomInventory loaded = newInventory();
+    BookingRecovery.recover(loaded, snapshotDirectory(), journalDirectory());
+
+    for (RoomInventory inventory : List.of(replayed, loaded)) {
+      assertTrue(inventory.isFree(0, FIRST_SLOT, END_SLOT));
+      assertFalse(inventory.isFree(1, FIRST_SLOT, END_SLOT));
+      assertFalse(inventory.isFree(2, FIRST_SLOT, END_SLOT));
+    }
+  }
+
+  @Test
+  @DisplayName("Live bookings are rebuilt from the snapshot and the journal after it")
+  void testRecoverLedger() throws IOException {
+    BookingRecord shortened = BookingRecord.builder().type(BookingRecord.BOOKED).numberOfGuests(2)
+            .checkInDate(CHECK_IN_DAY + 1).checkOutDate(CHECK_IN_DAY + 2).checkInTime(13 * 60).checkOutTime(12 * 60)
+            .roomNumber(102).bookingId(102).build();
+    try (MappedBookingJournal journal = new MappedBookingJournal(journalDirectory(), SEGMENT_SIZE, true)) {
+      append(journal, 100, 105);
+      // 101 cancelled, 102 shortened by its first night
+      journal.append(record(101).released(FIRST_SLOT, END_SLOT));
+      journal.append(shortened);
+      journal.awaitDurable(journal.append(record(102).released(FIRST_SLOT, FIRST_SLOT + 2)));
+      new SnapshotWriter(snapshotDirectory(), journalDirectory(), journal, clockAt(CHECK_IN_DAY), Duration.ZERO)
+              .snapshot();
+      // after the snapshot: 103 moved to room 110, 104 cancelled
+      journal.append(BookingRecord.builder().type(BookingRecord.BOOKED).numberOfGuests(2)
+              .checkInDate(CHECK_IN_DAY).checkOutDate(CHECK_IN_DAY + 2).checkInTime(13 * 60).checkOutTime(12 * 60)
+              .roomNumber(110).bookingId(103).build());
+      journal.append(record(103).released(FIRST_SLOT, END_SLOT));
+      journal.awaitDurable(journal.append(record(104).released(FIRST_SLOT, END_SLOT)));
+    }
+
+    BookingLedger replayed = new HeapBookingLedger();
+    BookingRecovery.recover(newInventory(), replayed, directory.resolve("none"), journalDirectory());
+    BookingLedger loaded = new HeapBookingLedger();
+    RoomInventory inventory = newInventory();
+    BookingRecovery.recover(inventory, loaded, snapshotDirectory(), journalDirectory());
+
+    for (BookingLedger ledger : List.of(replayed, loaded)) {
+      assertEquals(3, ledger.size());
+      assertEquals(record(100), ledger.get(100));
+      assertNull(ledger.get(101));
+      assertEquals(shortened, ledger.get(102));
+      assertEquals(110, ledger.get(103).getRoomNumber());
+      assertNull(ledger.get(104));
+    }
+    assertTrue(inventory.isFree(2, FIRST_SLOT, FIRST_SLOT + 2));
+    assertFalse(inventory.isFree(2, FIRST_SLOT + 2, END_SLOT));
+    assertTrue(inventory.isFree(3, FIRST_SLOT, END_SLOT));
+  }
+
+  @Test
+  @DisplayName("Recovery loads the snapshot and replays only the records after it")
+  void testRecoverFromSnapshotAndTail() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(journalDirectory(), SEGMENT_SIZE, true)) {
+      SnapshotWriter writer = new SnapshotWriter(snapshotDirectory(), journalDirectory(), journal,
+              clockAt(CHECK_IN_DAY), Duration.ZERO);
+      append(journal, 100, 107);
+      assertTrue(writer.snapshot());
+      assertFalse(writer.snapshot());
+      append(journal, 107, 112);
+    }
+
+    RoomInventory inventory = newInventory();
+    BookingRecovery.Result result = BookingRecovery.recover(inventory, snapshotDirectory(), journalDirectory());
+
+    assertEquals(7, result.getSnapshotSequence());
+    assertEquals(12, result.getNextSequence());
+    assertEquals(5, result.getReplayedRecords());
+    for (int room = 0; room < 12; room++) {
+      assertFalse(inventory.isFree(room, FIRST_SLOT, END_SLOT));
+    }
+  }
+
+  @Test
+  @DisplayName("A later snapshot builds on the previous one and replaces it")
+  void testSnapshotBuildsOnPrevious() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(journalDirectory(), SEGMENT_SIZE, true)) {
+      SnapshotWriter writer = new SnapshotWriter(snapshotDirectory(), journalDirectory(), journal,
+              clockAt(CHECK_IN_DAY), Duration.ZERO);
+      append(journal, 100, 104);
+      writer.snapshot();
+      append(journal, 104, 109);
+      writer.close();
+    }
+    try (var files = Files.list(snapshotDirectory())) {
+      assertEquals(1, files.count());
+    }
+
+    RoomInventory inventory = newInventory();
+    BookingRecovery.Result result = BookingRecovery.recover(inventory, snapshotDirectory(), journalDirectory());
+
+    assertEquals(9, result.getSnapshotSequence());
+    assertEquals(0, result.getReplayedRecords());
+    assertEquals(109, result.getNextBookingId());
+    for (int room = 0; room < 9; room++) {
+      assertFalse(inventory.isFree(room, FIRST_SLOT, END_SLOT));
+    }
+    assertTrue(inventory.isFree(9, FIRST_SLOT, END_SLOT));
+  }
+
+  @Test
+  @DisplayName("Stays that are over are left out of snapshots")
+  void testSnapshotDropsPastStays() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(journalDirectory(), SEGMENT_SIZE, true)) {
+      append(journal, 100, 103);
+      new SnapshotWriter(snapshotDirectory(), journalDirectory(), journal, clockAt(CHECK_IN_DAY + 5), Duration.ZERO)
+              .snapshot();
+    }
+
+    RoomInventory inventory = newInventory();
+    BookingRecovery.recover(inventory, snapshotDirectory(), journalDirectory());
+
+    assertTrue(inventory.isFree(0, FIRST_SLOT, END_SLOT));
+  }
+
+  @Test
+  @DisplayName("A damaged snapshot falls back to replaying the whole journal")
+  void testDamagedSnapshot() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(journalDirectory(), SEGMENT_SIZE, true)) {
+      append(journal, 100, 106);
+      new SnapshotWriter(snapshotDirectory(), journalDirectory(), journal, clockAt(CHECK_IN_DAY), Duration.ZERO)
+              .snapshot();
+    }
+    Path snapshot = OccupancySnapshot.latest(snapshotDirectory()).orElseThrow();
+    byte[] bytes = Files.readAllBytes(snapshot);
+    bytes[bytes.length - 8] ^= 1;
+    Files.write(snapshot, bytes);
+
+    RoomInventory inventory = newInventory();
+    BookingRecovery.Result result = BookingRecovery.recover(inventory, snapshotDirectory(), journalDirectory());
+
+    assertEquals(0, result.getSnapshotSequence());
+    assertEquals(6, result.getReplayedRecords());
+    assertFalse(inventory.isFree(5, FIRST_SLOT, END_SLOT));
+  }
+
+  @Test
+  @DisplayName("Waitlisted bookings are carried through snapshots until they leave the waitlist")
+  void testRecoverWaitlisted() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(journalDirectory(), SEGMENT_SIZE, true)) {
+      journal.append(waitlistRecord(BookingRecord.WAITLISTED, 7));
+      journal.append(waitlistRecord(BookingRecord.WAITLISTED, 8));
+      journal.awaitDurable(journal.append(waitlistRecord(BookingRecord.WAITLISTED, 9)));
+      new SnapshotWriter(snapshotDirectory(), journalDirectory(), journal, clockAt(CHECK_IN_DAY), Duration.ZERO)
+              .snapshot();
+      // after the snapshot: 7 given room 100, 8 cancelled
+      journal.append(BookingRecord.builder().type(BookingRecord.BOOKED).numberOfGuests(2).checkInDate(CHECK_IN_DAY)
+              .checkOutDate(CHECK_IN_DAY + 2).checkInTime(13 * 60).checkOutTime(12 * 60).roomNumber(100)
+              .bookingId(7).build());
+      journal.awaitDurable(journal.append(waitlistRecord(BookingRecord.WITHDRAWN, 8)));
+    }
+
+    RecoveredWaitlist replayed = new RecoveredWaitlist();
+    BookingRecovery.recover(newInventory(), replayed, directory.resolve("none"), journalDirectory());
+    RecoveredWaitlist loaded = new RecoveredWaitlist();
+    BookingRecovery.Result result = BookingRecovery.recover(newInventory(), loaded, snapshotDirectory(),
+            journalDirectory());
+
+    assertEquals(3, result.getSnapshotSequence());
+    for (RecoveredWaitlist waitlist : List.of(replayed, loaded)) {
+      assertEquals(List.of(waitlistRecord(BookingRecord.WAITLISTED, 9)), waitlist.getBookings(FIRST_SLOT));
+      assertEquals(List.of(), waitlist.getBookings(FIRST_SLOT + 1));
+    }
+  }
+
+  @Test
+  @DisplayName("Recovered bookings for rooms the inventory does not hold are found")
+  void testUnservable() {
+    // Given
+    BookingLedger ledger = new HeapBookingLedger();
+    RecoveredWaitlist waitlist = new RecoveredWaitlist();
+    BookingRecord moved = record(200);
+    BookingRecord tooBig = BookingRecord.builder().type(BookingRecord.WAITLISTED).numberOfGuests(4)
+            .checkInDate(CHECK_IN_DAY).checkOutDate(CHECK_IN_DAY + 2).checkInTime(13 * 60).checkOutTime(12 * 60)
+            .bookingId(9).build();
+    for (BookingRecord booking : List.of(record(100), moved, waitlistRecord(BookingRecord.WAITLISTED, 8), tooBig)) {
+      ledger.replayed(booking);
+      waitlist.replayed(booking);
+    }
+
+    // Call the method under test
+    List<BookingRecord> unservable = BookingRecovery.unservable(newInventory(), ledger, waitlist);
+
+    // Then
+    assertEquals(List.of(moved, tooBig), unservable);
+  }
+
+  @Test
+  @DisplayName("Booking ids handed out without a booking are not handed out again")
+  void testReservedBookingIdsSurvive() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(journalDirectory(), SEGMENT_SIZE, true)) {
+      // ids 1 to 3 answered as waitlisted or rejected, so no booking of theirs reaches the journal
+      BookingConfirmations confirmations = new BookingConfirmations(1, 1, Duration.ofHours(1), 100, journal, 4);
+      for (int i = 0; i < 3; i++) {
+        confirmations.nextBookingId();
+      }
+    }
+
+    BookingRecovery.Result replayed = BookingRecovery.recover(newInventory(), snapshotDirectory(), journalDirectory());
+    try (MappedBookingJournal journal = new MappedBookingJournal(journalDirectory(), SEGMENT_SIZE, true)) {
+      new SnapshotWriter(snapshotDirectory(), journalDirectory(), journal, clockAt(CHECK_IN_DAY), Duration.ZERO)
+              .snapshot();
+    }
+    BookingRecovery.Result loaded = BookingRecovery.recover(newInventory(), snapshotDirectory(), journalDirectory());
+
+    // one record reserved ids 1 to 5
+    assertEquals(1, replayed.getReplayedRecords());
+    assertEquals(6, replayed.getNextBookingId());
+    assertEquals(1, loaded.getSnapshotSequence());
+    assertEquals(6, loaded.getNextBookingId());
+  }
+}
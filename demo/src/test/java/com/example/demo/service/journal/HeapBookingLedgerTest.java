@@ -0,0 +1,98 @@
+package com.example.demo.service.journal;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeapBookingLedgerTest {
+
+  private final BookingLedger bookingLedger = new HeapBookingLedger();
+
+  private static BookingRecord booked(int bookingId, int roomNumber, int fromDay, int toDay) {
+    return BookingRecord.builder()
+            .type(BookingRecord.BOOKED)
+            .numberOfGuests(2)
+            .checkInDate(fromDay)
+            .checkOutDate(toDay)
+            .checkInTime(13 * 60)
+            .checkOutTime(12 * 60)
+            .roomNumber(roomNumber)
+            .bookingId(bookingId)
+            .build();
+  }
+
+  @Test
+  @DisplayName("Stays are found by booking id and by the slots they cover in their room")
+  void testStays() {
+    // Given
+    for (int i = 0; i < 1000; i++) {
+      bookingLedger.booked(booked(i + 1, 101, i, i + 1));
+    }
+    bookingLedger.booked(booked(1001, 102, 0, 10));
+
+    // Call the method under test
+    List<BookingRecord> stays = bookingLedger.stays(101, 2 * 500 + 1, 2 * 502 + 1);
+
+    // Then
+    assertEquals(List.of(501, 502, 503), stays.stream().map(BookingRecord::getBookingId).toList());
+    assertEquals(1001, bookingLedger.stays(102, 7, 8).get(0).getBookingId());
+    assertTrue(bookingLedger.stays(102, 20, 30).isEmpty());
+    assertEquals(1001, bookingLedger.size());
+  }
+
+  @Test
+  @DisplayName("A changed stay replaces the old one in its room's index")
+  void testChange() {
+    // Given
+    bookingLedger.booked(booked(1, 101, 10, 12));
+
+    // Call the method under test
+    bookingLedger.booked(booked(1, 102, 11, 14));
+
+    // Then
+    assertTrue(bookingLedger.stays(101, 0, 100).isEmpty());
+    assertEquals(1, bookingLedger.stays(102, 0, 100).size());
+    assertEquals(102, bookingLedger.get(1).getRoomNumber());
+  }
+
+  @Test
+  @DisplayName("Replay drops a booking only when its whole current stay is released")
+  void testReplay() {
+    // Given
+    BookingRecord moved = booked(1, 102, 10, 14);
+
+    // Call the method under test
+    bookingLedger.replayed(booked(1, 101, 10, 14));
+    bookingLedger.replayed(moved);
+    bookingLedger.replayed(booked(1, 101, 10, 14).released(20, 28));
+    bookingLedger.replayed(moved.released(20, 24));
+    bookingLedger.replayed(booked(2, 101, 20, 22));
+    bookingLedger.replayed(booked(2, 101, 20, 22).released(40, 44));
+
+    // Then
+    assertSame(moved, bookingLedger.get(1));
+    assertNull(bookingLedger.get(2));
+    assertTrue(bookingLedger.stays(101, 0, 100).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Stays over before a slot are forgotten")
+  void testForgetEndedBefore() {
+    // Given
+    bookingLedger.booked(booked(1, 101, 10, 12));
+    bookingLedger.booked(booked(2, 101, 12, 14));
+    bookingLedger.booked(booked(3, 102, 10, 20));
+
+    // Call the method under test
+    bookingLedger.forgetEndedBefore(2 * 12);
+
+    // Then
+    assertNull(bookingLedger.get(1));
+    assertNotNull(bookingLedger.get(2));
+    assertNotNull(bookingLedger.get(3));
+    assertEquals(2, bookingLedger.size());
+  }
+}
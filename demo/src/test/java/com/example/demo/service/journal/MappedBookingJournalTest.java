@@ -0,0 +1,229 @@
+package com.example.demo.service.journal;
+
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedBookingJournalTest {
+
+  private static final int SEGMENT_SIZE = 5 * JournalFormat.RECORD_SIZE;
+
+  @TempDir
+  Path directory;
+
+  private static BookingRecord record(int roomNumber) {
+    return BookingRecord.builder()
+            .type(BookingRecord.BOOKED)
+            .numberOfGuests(2)
+            .checkInDate(20_000)
+            .checkOutDate(20_002)
+            .checkInTime(13 * 60)
+            .checkOutTime(12 * 60)
+            .roomNumber(roomNumber)
+            .build();
+  }
+
+  private List<BookingRecord> readAll() throws IOException {
+    List<BookingRecord> records = new ArrayList<>();
+    JournalReader.read(directory, 0, (sequence, record) -> {
+      assertEquals(records.size(), sequence);
+      records.add(record);
+    });
+    return records;
+  }
+
+  @Test
+  @DisplayName("Records are read back in order across segments")
+  void testAppendAndReadBack() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, SEGMENT_SIZE, true)) {
+      for (int i = 0; i < 12; i++) {
+        long sequence = journal.append(record(100 + i));
+        journal.awaitDurable(sequence);
+        assertEquals(i, sequence);
+      }
+    }
+
+    List<BookingRecord> records = readAll();
+    assertEquals(12, records.size());
+    assertEquals(record(100), records.get(0));
+    assertEquals(record(111), records.get(11));
+    assertEquals(3, JournalReader.segments(directory).size());
+  }
+
+  @Test
+  @DisplayName("Reopened journal continues after the last record")
+  void testReopenContinuesSequence() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, SEGMENT_SIZE, true)) {
+      for (int i = 0; i < 7; i++) {
+        journal.append(record(i));
+      }
+    }
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, SEGMENT_SIZE, true)) {
+      assertEquals(7, journal.getNextSequence());
+      journal.awaitDurable(journal.append(record(7)));
+    }
+
+    List<BookingRecord> records = readAll();
+    assertEquals(8, records.size());
+    assertEquals(record(7), records.get(7));
+  }
+
+  @Test
+  @DisplayName("Torn record at the end is dropped and overwritten")
+  void testTornRecordIsDropped() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, SEGMENT_SIZE, true)) {
+      for (int i = 0; i < 3; i++) {
+        journal.append(record(i));
+      }
+    }
+    try (RandomAccessFile file = new RandomAccessFile(JournalReader.segments(directory).get(0).toFile(), "rw")) {
+      file.seek(2L * JournalFormat.RECORD_SIZE + 20);
+      file.write(0x7f);
+    }
+
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, SEGMENT_SIZE, true)) {
+      assertEquals(2, journal.getNextSequence());
+      journal.append(record(42));
+    }
+
+    List<BookingRecord> records = readAll();
+    assertEquals(3, records.size());
+    assertEquals(record(42), records.get(2));
+  }
+
+  @Test
+  @DisplayName("Records past a torn one are cleared, not resurrected")
+  void testRecordsPastTornRecordAreCleared() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, SEGMENT_SIZE, true)) {
+      for (int i = 0; i < 3; i++) {
+        journal.append(record(i));
+      }
+    }
+    // the type byte of the middle record never reached the disk, the record after it did
+    try (RandomAccessFile file = new RandomAccessFile(JournalReader.segments(directory).get(0).toFile(), "rw")) {
+      file.seek(JournalFormat.RECORD_SIZE + 4);
+      file.write(0);
+    }
+    assertEquals(1, readAll().size());
+
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, SEGMENT_SIZE, true)) {
+      assertEquals(1, journal.getNextSequence());
+      journal.append(record(42));
+    }
+
+    List<BookingRecord> records = readAll();
+    assertEquals(2, records.size());
+    assertEquals(record(42), records.get(1));
+  }
+
+  @Test
+  @DisplayName("Reading stops at a gap in the sequence numbers")
+  void testReadStopsAtSequenceGap() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, SEGMENT_SIZE, true)) {
+      for (int i = 0; i < 3; i++) {
+        journal.append(record(i));
+      }
+    }
+    // a stale copy of the first record, checksum intact, in the third slot
+    try (RandomAccessFile file = new RandomAccessFile(JournalReader.segments(directory).get(0).toFile(), "rw")) {
+      byte[] first = new byte[JournalFormat.RECORD_SIZE];
+      file.readFully(first);
+      file.seek(2L * JournalFormat.RECORD_SIZE);
+      file.write(first);
+    }
+
+    assertEquals(2, readAll().size());
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, SEGMENT_SIZE, true)) {
+      assertEquals(2, journal.getNextSequence());
+    }
+  }
+
+  @Test
+  @DisplayName("Concurrent appends share flushes and all become durable")
+  void testConcurrentGroupCommit() throws Exception {
+    int threads = 8;
+    int perThread = 500;
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, 1 << 20, true)) {
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int room = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < perThread; i++) {
+            journal.awaitDurable(journal.append(record(room)));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      executor.shutdown();
+    }
+
+    List<BookingRecord> records = readAll();
+    assertEquals(threads * perThread, records.size());
+    for (int room = 0; room < threads; room++) {
+      int owner = room;
+      assertEquals(perThread, records.stream().filter(r -> r.getRoomNumber() == owner).count());
+    }
+  }
+
+  @Test
+  @DisplayName("Durability futures complete once their records are flushed")
+  void testWhenDurable() throws Exception {
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, SEGMENT_SIZE, true)) {
+      for (int i = 0; i < 12; i++) {
+        futures.add(journal.whenDurable(journal.append(record(100 + i))));
+      }
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+      assertTrue(journal.getDurableSequence() >= 12);
+      assertTrue(journal.whenDurable(0).isDone());
+    }
+
+    assertEquals(12, readAll().size());
+  }
+
+  @Test
+  @DisplayName("Records a failed flush left unsaved are neither replayed nor kept")
+  void testUnsavedRecords() throws IOException {
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, SEGMENT_SIZE, true)) {
+      assertNull(journal.getFailure());
+      for (int i = 0; i < 7; i++) {
+        journal.awaitDurable(journal.append(record(100 + i)));
+      }
+    }
+    // as left by a flush that failed once records 5 and 6 were written
+    JournalFormat.markUnsaved(directory, 5);
+
+    BookingRecovery.Result recovered = BookingRecovery.recover(
+            new RoomInventory(List.of(new Room(100, 2)), 20_000, 10), directory.resolve("none"), directory);
+    assertEquals(5, recovered.getNextSequence());
+    assertEquals(5, recovered.getReplayedRecords());
+
+    try (MappedBookingJournal journal = new MappedBookingJournal(directory, SEGMENT_SIZE, true)) {
+      assertEquals(5, journal.getNextSequence());
+      journal.awaitDurable(journal.append(record(200)));
+    }
+    assertFalse(Files.exists(directory.resolve(JournalFormat.UNSAVED_MARKER)));
+    List<BookingRecord> records = readAll();
+    assertEquals(6, records.size());
+    assertEquals(200, records.get(5).getRoomNumber());
+  }
+}
@@ -0,0 +1,152 @@
+package com.example.demo.service.journal;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapBookingLedgerTest {
+
+  private final OffHeapBookingLedger bookingLedger = new OffHeapBookingLedger();
+
+  private static BookingRecord booked(int bookingId, int roomNumber, int fromDay, int toDay, int guests) {
+    return BookingRecord.builder()
+            .type(BookingRecord.BOOKED)
+            .numberOfGuests(guests)
+            .checkInDate(fromDay)
+            .checkOutDate(toDay)
+            .checkInTime(19 * 60)
+            .checkOutTime(18 * 60)
+            .roomNumber(roomNumber)
+            .bookingId(bookingId)
+            .build();
+  }
+
+  @Test
+  @DisplayName("A stay reads back from direct memory equal to the one booked")
+  void testRoundTrip() {
+    // Given
+    BookingRecord stay = booked(42, 201, 20_000, 20_003, 4);
+
+    // Call the method under test
+    bookingLedger.booked(stay);
+
+    // Then
+    assertEquals(stay, bookingLedger.get(42));
+    assertEquals(List.of(stay), bookingLedger.stays(201, 2 * 20_002, 2 * 20_002 + 1));
+    assertNull(bookingLedger.get(43));
+    bookingLedger.released(42);
+    assertNull(bookingLedger.get(42));
+    assertEquals(0, bookingLedger.size());
+  }
+
+  @Test
+  @DisplayName("Random bookings, changes, cancellations and expiries leave the same stays as the heap ledger")
+  void testSameAsHeapLedger() {
+    // Given
+    BookingLedger heapLedger = new HeapBookingLedger();
+    Random random = new Random(7);
+
+    // Call the method under test
+    for (int step = 0; step < 200_000; step++) {
+      int bookingId = 1 + random.nextInt(20_000);
+      int operation = random.nextInt(10);
+      if (operation < 6) {
+        BookingRecord current = heapLedger.get(bookingId);
+        int roomNumber = 100 + random.nextInt(50);
+        int fromDay = step / 100 + random.nextInt(400);
+        BookingRecord stay = booked(bookingId, roomNumber, fromDay, fromDay + 1 + random.nextInt(4), 1 + random.nextInt(4));
+        // rooms never hold overlapping stays, as in the service
+        if (heapLedger.stays(roomNumber, stay.getFirstSlot(), stay.getEndSlot()).stream()
+                .allMatch(other -> current != null && other.getBookingId() == bookingId)) {
+          heapLedger.booked(stay);
+          bookingLedger.booked(stay);
+        }
+      } else if (operation < 9) {
+        heapLedger.released(bookingId);
+        bookingLedger.released(bookingId);
+      } else if (step % 1000 == 0) {
+        heapLedger.forgetEndedBefore(2 * (step / 100));
+        bookingLedger.forgetEndedBefore(2 * (step / 100));
+      }
+    }
+
+    // Then
+    assertEquals(heapLedger.size(), bookingLedger.size());
+    for (int bookingId = 1; bookingId <= 20_000; bookingId++) {
+      assertEquals(heapLedger.get(bookingId), bookingLedger.get(bookingId));
+    }
+    for (int roomNumber = 100; roomNumber < 150; roomNumber++) {
+      assertEquals(heapLedger.stays(roomNumber, 2 * 1000, 2 * 1200), bookingLedger.stays(roomNumber, 2 * 1000, 2 * 1200));
+    }
+    Comparator<BookingRecord> byRoomAndSlot = Comparator.comparingInt(BookingRecord::getRoomNumber)
+            .thenComparingInt(BookingRecord::getFirstSlot);
+    assertEquals(heapLedger.stream().sorted(byRoomAndSlot).toList(),
+            bookingLedger.stream().sorted(byRoomAndSlot).toList());
+  }
+
+  @Test
+  @DisplayName("A room booked night by night for years keeps its stays in order through inserts anywhere and removals")
+  void testLongRoom() {
+    // Given
+    List<Integer> days = new ArrayList<>();
+    for (int day = 0; day < 2000; day++) {
+      days.add(day);
+    }
+    Collections.shuffle(days, new Random(3));
+
+    // Call the method under test
+    for (int day : days) {
+      bookingLedger.booked(booked(1 + day, 101, 20_000 + day, 20_001 + day, 1));
+    }
+    for (int day = 0; day < 2000; day += 3) {
+      bookingLedger.released(1 + day);
+    }
+    bookingLedger.forgetEndedBefore(2 * 20_500);
+
+    // Then
+    List<Integer> expected = new ArrayList<>();
+    // the stay of day 499 runs into day 500
+    for (int day = 499; day < 2000; day++) {
+      if (day % 3 != 0) {
+        expected.add(1 + day);
+      }
+    }
+    assertEquals(expected, bookingLedger.stays(101, Integer.MIN_VALUE, Integer.MAX_VALUE).stream()
+            .map(BookingRecord::getBookingId).toList());
+    assertEquals(List.of(1001, 1002), bookingLedger.stays(101, 2 * 21_000, 2 * 21_001 + 2).stream()
+            .map(BookingRecord::getBookingId).toList());
+    assertEquals(expected.size(), bookingLedger.size());
+  }
+
+  @Test
+  @DisplayName("The id table grows past its first size and freed records are reused")
+  void testGrowth() {
+    // Given
+    for (int i = 1; i <= 100_000; i++) {
+      bookingLedger.booked(booked(i, i % 1000, i, i + 1, 2));
+    }
+    long grown = bookingLedger.offHeapBytes();
+
+    // Call the method under test
+    for (int i = 1; i <= 100_000; i += 2) {
+      bookingLedger.released(i);
+    }
+    for (int i = 100_001; i <= 150_000; i++) {
+      bookingLedger.booked(booked(i, i % 1000, i, i + 1, 2));
+    }
+
+    // Then
+    assertEquals(100_000, bookingLedger.size());
+    assertEquals(grown, bookingLedger.offHeapBytes());
+    assertNull(bookingLedger.get(99_999));
+    assertEquals(99_998, bookingLedger.get(99_998).getBookingId());
+    assertEquals(150_000, bookingLedger.get(150_000).getBookingId());
+  }
+}
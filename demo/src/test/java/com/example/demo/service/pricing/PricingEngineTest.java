@@ -0,0 +1,105 @@
+package com.example.demo.service.pricing;
+
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.inventory.StaySlots;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingEngineTest {
+
+  private static final int FIRST_DAY = (int) LocalDate.of(2024, 1, 1).toEpochDay();
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private RoomInventory roomInventory;
+  private PricingEngine pricingEngine;
+
+  @BeforeEach
+  void setUp() {
+    roomInventory = new RoomInventory(List.of(new Room(101, 2), new Room(102, 2), new Room(103, 2),
+            new Room(104, 2), new Room(201, 4)), FIRST_DAY, 365);
+    // 100.00 a night plus 20.00 per extra guest, rising from half full to twice that when full
+    pricingEngine = new PricingEngine(roomInventory, 100_00, 20_00, 0.5, 2.0, 1000, meterRegistry);
+  }
+
+  /** Takes the nights from {@code fromDay} up to {@code toDay} after the first day in a room. */
+  private void occupy(int roomNumber, int fromDay, int toDay) {
+    roomInventory.markOccupied(roomNumber, StaySlots.checkInSlot(FIRST_DAY + fromDay, 13 * 60),
+            StaySlots.checkOutSlot(FIRST_DAY + toDay, 12 * 60));
+  }
+
+  private double count(String result) {
+    return meterRegistry.get("hotel.quotes").tag("result", result).counter().count();
+  }
+
+  @Test
+  @DisplayName("Nights cost more the fuller the rooms able to take the party are")
+  void testQuote() {
+    // Given
+    occupy(101, 10, 11);
+    occupy(102, 10, 11);
+    occupy(103, 10, 12);
+    occupy(104, 10, 12);
+    occupy(201, 10, 12);
+
+    // Call the method under test
+    Quote couple = pricingEngine.quote(2, FIRST_DAY + 9, FIRST_DAY + 12);
+    Quote family = pricingEngine.quote(3, FIRST_DAY + 11, FIRST_DAY + 13);
+
+    // Then
+    // empty, then every room taken, then three of five taken: 120 * 1.2
+    assertArrayEquals(new long[] {120_00, 240_00, 144_00}, couple.nightlyCents());
+    assertEquals(new BigDecimal("504.00"), couple.total());
+    // only the family room fits three: taken, then free
+    assertArrayEquals(new long[] {280_00, 140_00}, family.nightlyCents());
+    // a day stay costs its night
+    assertArrayEquals(new long[] {140_00}, pricingEngine.quote(3, FIRST_DAY + 12, FIRST_DAY + 12).nightlyCents());
+  }
+
+  @Test
+  @DisplayName("A cached quote is served until one of its own nights changes")
+  void testCacheInvalidatedPerNight() {
+    // Given
+    Quote first = pricingEngine.quote(2, FIRST_DAY + 10, FIRST_DAY + 13);
+
+    // Call the method under test
+    occupy(101, 20, 25);
+    occupy(102, 5, 10);
+    Quote untouched = pricingEngine.quote(2, FIRST_DAY + 10, FIRST_DAY + 13);
+    occupy(103, 12, 13);
+    Quote touched = pricingEngine.quote(2, FIRST_DAY + 10, FIRST_DAY + 13);
+    Quote again = pricingEngine.quote(2, FIRST_DAY + 10, FIRST_DAY + 13);
+    roomInventory.markFree(103, StaySlots.checkInSlot(FIRST_DAY + 12, 13 * 60),
+            StaySlots.checkOutSlot(FIRST_DAY + 13, 12 * 60));
+    Quote freed = pricingEngine.quote(2, FIRST_DAY + 10, FIRST_DAY + 13);
+
+    // Then
+    // bookings on other nights leave the quote cached
+    assertSame(first, untouched);
+    assertNotSame(first, touched);
+    assertSame(touched, again);
+    assertNotSame(touched, freed);
+    assertEquals(first.totalCents(), freed.totalCents());
+    assertEquals(2, count("hit"));
+    assertEquals(3, count("miss"));
+  }
+
+  @Test
+  @DisplayName("Rates and occupancy thresholds out of range are refused")
+  void testInvalidSettings() {
+    // Then
+    assertThrows(IllegalArgumentException.class,
+            () -> new PricingEngine(roomInventory, 100_00, 0, 1.0, 2.0, 1000, meterRegistry));
+    assertThrows(IllegalArgumentException.class,
+            () -> new PricingEngine(roomInventory, 100_00, 0, 0.5, 0.5, 1000, meterRegistry));
+    assertThrows(IllegalArgumentException.class, () -> pricingEngine.quote(2, FIRST_DAY + 2, FIRST_DAY + 1));
+  }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.service.sharding;
+
+import com.example.demo.service.BookingFormats;
+import com.example.demo.service.sharding.ShardRouter.Group;
+import com.example.demo.service.sharding.ShardRouter.Node;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRouterTest {
+
+  @Test
+  @DisplayName("Adding a node to the ring only moves keys to that node, about a share of them")
+  void testRingRebalance() {
+    // Given
+    ConsistentHashRing<String> ring = new ConsistentHashRing<>(128);
+    for (String node : List.of("a", "b", "c")) {
+      ring.add(node, node);
+    }
+    Map<String, String> before = new HashMap<>();
+    Map<String, Integer> counts = new HashMap<>();
+    for (int key = 0; key < 30_000; key++) {
+      String owner = ring.owner("key-" + key);
+      before.put("key-" + key, owner);
+      counts.merge(owner, 1, Integer::sum);
+    }
+
+    // Call the method under test
+    ring.add("d", "d");
+
+    // Then
+    counts.values().forEach(count -> assertEquals(10_000, count, 2_000));
+    int moved = 0;
+    for (Map.Entry<String, String> entry : before.entrySet()) {
+      String owner = ring.owner(entry.getKey());
+      if (!owner.equals(entry.getValue())) {
+        assertEquals("d", owner);
+        moved++;
+      }
+    }
+    assertEquals(7_500, moved, 1_500);
+  }
+
+  @Test
+  @DisplayName("Candidates start with the smallest rooms that fit, this node first within a size")
+  void testCandidates() {
+    // Given
+    List<Node> nodes = List.of(node(0), node(1), node(2));
+    List<Group> groups = new ArrayList<>();
+    IntStream.range(0, 30).forEach(i -> groups.add(new Group(100 + i * 10, 2)));
+    IntStream.range(0, 30).forEach(i -> groups.add(new Group(500 + i * 10, 4)));
+    ShardRouter router = new ShardRouter(nodes, 1, groups, 128);
+
+    // Call the method under test
+    List<Node> couple = router.candidates(2, 20_000);
+    List<Node> family = router.candidates(4, 20_000);
+
+    // Then
+    assertEquals(3, couple.size());
+    assertEquals(1, couple.get(0).id());
+    assertEquals(1, family.get(0).id());
+    assertEquals(List.of(router.local()), router.candidates(5, 20_000));
+    assertEquals(List.of(router.local()), router.candidates(2, BookingFormats.INVALID));
+    long owned = groups.stream().filter(group -> router.owns(group.firstNumber())).count();
+    assertTrue(owned > 5 && owned < 40, "owned " + owned);
+  }
+
+  @Test
+  @DisplayName("Booking ids name the node that made them")
+  void testBookingIds() {
+    // Given
+    ShardRouter router = new ShardRouter(List.of(node(0), node(5)), 5, List.of(new Group(1, 2)), 16);
+    ShardRouter unsharded = ShardRouter.unsharded(List.of(new Group(1, 2)));
+
+    // Then
+    assertEquals(5, router.firstBookingId(0));
+    assertEquals(69, router.firstBookingId(6));
+    assertEquals(ShardRouter.MAX_NODES, router.bookingIdStep());
+    assertEquals(5, router.ownerOfBooking(69).id());
+    assertEquals(0, router.ownerOfBooking(128).id());
+    assertTrue(router.isLocal(router.ownerOfBooking(7)));
+    assertEquals(6, unsharded.firstBookingId(6));
+    assertEquals(1, unsharded.bookingIdStep());
+    assertTrue(unsharded.owns(1));
+  }
+
+  private static Node node(int id) {
+    return new Node(id, URI.create("http://node-" + id));
+  }
+}
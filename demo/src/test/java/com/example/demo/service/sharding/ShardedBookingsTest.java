@@ -0,0 +1,297 @@
+package com.example.demo.service.sharding;
+
+import com.example.demo.dto.BookingRequest;
+import com.example.demo.dto.BookingResponse;
+import com.example.demo.service.BookingMetrics;
+import com.example.demo.service.BookingValidator;
+import com.example.demo.service.HotelBookingSystem;
+import com.example.demo.service.IdempotencyCache;
+import com.example.demo.service.ParsedBookingRequest;
+import com.example.demo.service.assignment.BookingConfirmations;
+import com.example.demo.service.assignment.Waitlist;
+import com.example.demo.service.bulk.BulkFormat;
+import com.example.demo.service.inventory.Room;
+import com.example.demo.service.inventory.RoomInventory;
+import com.example.demo.service.journal.BookingLedger;
+import com.example.demo.service.journal.HeapBookingLedger;
+import com.example.demo.service.journal.NoopBookingJournal;
+import com.example.demo.service.sharding.ShardRouter.Group;
+import com.example.demo.service.sharding.ShardRouter.Node;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShardedBookingsTest {
+
+  private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+  private static final String SECRET = "secret";
+  private static final String BOOKED = "{\"message\":\"Your room number is confirmed.\","
+          + "\"data\":{\"bookingId\":65,\"roomNumber\":201,\"status\":\"CONFIRMED\"}}";
+  private static final String NO_ROOM =
+          "{\"message\":\"No room is available for the selected dates and number of guests.\"}";
+  private static final ParsedBookingRequest REQUEST = ParsedBookingRequest.of(BookingRequest.builder()
+          .numberOfGuests("2")
+          .checkInDate("10/10/2024")
+          .checkOutDate("12/10/2024")
+          .checkInTime("13:00")
+          .checkOutTime("12:00")
+          .build());
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final RoomInventory roomInventory =
+          new RoomInventory(List.of(new Room(101, 2)), (int) LocalDate.of(2024, 1, 1).toEpochDay(), 1096);
+  private final BookingConfirmations confirmations = new BookingConfirmations(1, Duration.ofHours(1), 1000);
+  private final BookingLedger bookingLedger = new HeapBookingLedger();
+  private final Waitlist waitlist = new Waitlist(roomInventory, new NoopBookingJournal(), confirmations,
+          bookingLedger, new SimpleMeterRegistry(), CLOCK, 100);
+  private final HotelBookingSystem hotelBookingSystem = new HotelBookingSystem(new BookingValidator(CLOCK),
+          roomInventory, new NoopBookingJournal(), BookingMetrics.noop(), confirmations, null, bookingLedger,
+          waitlist, null);
+  private final StubNode otherNode = new StubNode();
+  private final ShardRouter router = new ShardRouter(
+          List.of(new Node(0, URI.create("http://localhost:1")), new Node(1, otherNode.url())), 0, groups(), 16);
+  private final ShardedBookings shardedBookings = new ShardedBookings(router, hotelBookingSystem,
+          new IdempotencyCache(hotelBookingSystem, Duration.ofMinutes(1), 100), objectMapper,
+          HttpClient.newHttpClient(), Duration.ofSeconds(5), SECRET);
+
+  @AfterEach
+  void tearDown() {
+    otherNode.stop();
+    waitlist.close();
+  }
+
+  private static List<Group> groups() {
+    List<Group> groups = new ArrayList<>();
+    IntStream.range(0, 30).forEach(i -> groups.add(new Group(100 + i * 10, 2)));
+    return groups;
+  }
+
+  private void fillLocalRoom() {
+    assertTrue(roomInventory.claim(0, roomInventory.getFirstSlot(), roomInventory.getEndSlot()));
+  }
+
+  /** An idempotency key the router gives to node {@code nodeId}. */
+  private String keyOwnedBy(int nodeId) {
+    return IntStream.range(0, 1000)
+            .mapToObj(i -> "key-" + i)
+            .filter(key -> router.ownerOfKey(key).id() == nodeId)
+            .findFirst()
+            .orElseThrow();
+  }
+
+  @Test
+  @DisplayName("A booking this node has no room for is tried on the next node")
+  void testTryNextNode() {
+    // Given
+    fillLocalRoom();
+    otherNode.respond(200, BOOKED);
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> response = shardedBookings.book(null, REQUEST).join();
+
+    // Then
+    assertEquals(HttpStatus.OK.value(), response.getStatusCode().value());
+    assertEquals(201, response.getBody().getData().getRoomNumber());
+    Exchange exchange = otherNode.exchanges.remove();
+    assertEquals("POST /api/v1/hotel/book", exchange.method() + " " + exchange.path());
+    assertEquals("try", exchange.hop());
+    assertEquals(SECRET, exchange.secret());
+    assertTrue(otherNode.exchanges.isEmpty());
+  }
+
+  @Test
+  @DisplayName("A booking no node has room for is waitlisted on the first node, as a LAST hop")
+  void testWaitlistOnLastHop() {
+    // Given
+    fillLocalRoom();
+    otherNode.respond(409, NO_ROOM);
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> routed = shardedBookings.book(null, REQUEST).join();
+    ResponseEntity<BookingResponse> last = shardedBookings.book("last", REQUEST).join();
+    ResponseEntity<BookingResponse> tried = shardedBookings.book("try", REQUEST).join();
+
+    // Then
+    assertEquals(HttpStatus.ACCEPTED.value(), routed.getStatusCode().value());
+    assertEquals("WAITLISTED", routed.getBody().getData().getStatus());
+    assertEquals("try", otherNode.exchanges.remove().hop());
+    // a LAST hop waitlists here and a TRY hop turns down here, neither routes further
+    assertEquals(HttpStatus.ACCEPTED.value(), last.getStatusCode().value());
+    assertEquals(HttpStatus.CONFLICT.value(), tried.getStatusCode().value());
+    assertTrue(otherNode.exchanges.isEmpty());
+    assertEquals(2, waitlist.size());
+  }
+
+  @Test
+  @DisplayName("A booking with an idempotency key is remembered on the node owning the key")
+  void testHomeIdempotency() {
+    // Given
+    otherNode.respond(200, BOOKED);
+    String remoteKey = keyOwnedBy(1);
+    String localKey = keyOwnedBy(0);
+
+    // Call the method under test
+    ResponseEntity<BookingResponse> sentHome = shardedBookings.book(null, remoteKey, REQUEST);
+    ResponseEntity<BookingResponse> first = shardedBookings.book(null, localKey, REQUEST);
+    ResponseEntity<BookingResponse> retry = shardedBookings.book(null, localKey, REQUEST);
+
+    // Then
+    assertEquals(201, sentHome.getBody().getData().getRoomNumber());
+    Exchange exchange = otherNode.exchanges.remove();
+    assertEquals("home", exchange.hop());
+    assertEquals(remoteKey, exchange.idempotencyKey());
+    assertTrue(otherNode.exchanges.isEmpty());
+    assertEquals(101, first.getBody().getData().getRoomNumber());
+    assertEquals("true", retry.getHeaders().getFirst(IdempotencyCache.REPLAYED_HEADER));
+    assertEquals(first.getBody().getData().getBookingId(), retry.getBody().getData().getBookingId());
+    assertEquals(1, bookingLedger.stream().count());
+  }
+
+  @Test
+  @DisplayName("Reads, cancellations and changes of another node's booking are sent to that node")
+  void testForward() {
+    // Given
+    otherNode.respond(200, BOOKED);
+    ParsedBookingRequest changes = new ParsedBookingRequest(3, REQUEST.checkInDate(), REQUEST.checkOutDate(),
+            REQUEST.checkInTime(), REQUEST.checkOutTime());
+
+    // Call the method under test
+    shardedBookings.forward(HttpMethod.GET, 65, null).join();
+    shardedBookings.forward(HttpMethod.DELETE, 65, null).join();
+    ResponseEntity<BookingResponse> changed = shardedBookings.forward(HttpMethod.PATCH, 65, changes).join();
+
+    // Then
+    assertEquals(List.of("GET /api/v1/hotel/bookings/65", "DELETE /api/v1/hotel/bookings/65",
+            "PATCH /api/v1/hotel/bookings/65"), otherNode.exchanges.stream()
+            .map(exchange -> exchange.method() + " " + exchange.path())
+            .toList());
+    assertTrue(otherNode.exchanges.stream().allMatch(exchange -> exchange.hop() == null));
+    assertTrue(otherNode.exchanges.stream().toList().get(2).body().contains("\"numberOfGuests\":\"3\""));
+    assertEquals(201, changed.getBody().getData().getRoomNumber());
+  }
+
+  @Test
+  @DisplayName("An export fails before writing if a node fails, closing the exports already opened")
+  @SuppressWarnings("unchecked")
+  void testOpenExportsFailure() {
+    // Given
+    HttpClient httpClient = mock(HttpClient.class);
+    ClosingStream opened = new ClosingStream();
+    when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenAnswer(invocation -> {
+      HttpRequest request = invocation.getArgument(0);
+      HttpResponse<InputStream> response = mock(HttpResponse.class);
+      boolean failing = request.uri().getPort() == 3;
+      when(response.statusCode()).thenReturn(failing ? 503 : 200);
+      when(response.body()).thenReturn(failing ? new ClosingStream() : opened);
+      assertEquals("local", request.headers().firstValue(ShardedBookings.HOP_HEADER).orElseThrow());
+      assertEquals(SECRET, request.headers().firstValue(ShardedBookings.SECRET_HEADER).orElseThrow());
+      return CompletableFuture.completedFuture(response);
+    });
+    ShardRouter threeNodes = new ShardRouter(List.of(new Node(0, URI.create("http://localhost:1")),
+            new Node(1, URI.create("http://localhost:2")), new Node(2, URI.create("http://localhost:3"))),
+            0, groups(), 16);
+    ShardedBookings exporting = new ShardedBookings(threeNodes, hotelBookingSystem,
+            new IdempotencyCache(hotelBookingSystem, Duration.ofMinutes(1), 100), objectMapper, httpClient,
+            Duration.ofSeconds(5), SECRET);
+
+    // Call the method under test
+    assertThrows(IOException.class, () -> exporting.openExports(null, BulkFormat.CSV));
+
+    // Then
+    assertTrue(opened.closed);
+    assertEquals(List.of(), assertDoesNotThrow(() -> exporting.openExports("local", BulkFormat.CSV)));
+  }
+
+  private record Exchange(String method, String path, String hop, String secret, String idempotencyKey,
+                          String body) {
+  }
+
+  /** Another node of the hotel, answering every request the same way and keeping what it was sent. */
+  private static final class StubNode {
+
+    final Queue<Exchange> exchanges = new ConcurrentLinkedQueue<>();
+    private final HttpServer server;
+    private volatile int status = 200;
+    private volatile byte[] response = new byte[0];
+
+    StubNode() {
+      try {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      server.createContext("/", exchange -> {
+        exchanges.add(new Exchange(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                exchange.getRequestHeaders().getFirst(ShardedBookings.HOP_HEADER),
+                exchange.getRequestHeaders().getFirst(ShardedBookings.SECRET_HEADER),
+                exchange.getRequestHeaders().getFirst("Idempotency-Key"),
+                new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)));
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, response.length);
+        exchange.getResponseBody().write(response);
+        exchange.close();
+      });
+      server.start();
+    }
+
+    URI url() {
+      return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    void respond(int status, String body) {
+      this.status = status;
+      this.response = body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    void stop() {
+      server.stop(0);
+    }
+  }
+
+  private static final class ClosingStream extends ByteArrayInputStream {
+
+    volatile boolean closed;
+
+    ClosingStream() {
+      super(new byte[0]);
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}